@@ -40,4 +40,19 @@ CREATE TABLE `push_review_log`  (
   PRIMARY KEY (`id`) USING BTREE
 ) ENGINE = InnoDB CHARACTER SET = utf8 COLLATE = utf8_unicode_ci ROW_FORMAT = Dynamic;
 
+-- ----------------------------
+-- Table structure for review_result_cache
+-- ----------------------------
+DROP TABLE IF EXISTS `review_result_cache`;
+CREATE TABLE `review_result_cache`  (
+  `cache_key` char(64) CHARACTER SET utf8 COLLATE utf8_unicode_ci NOT NULL,
+  `provider` varchar(64) CHARACTER SET utf8 COLLATE utf8_unicode_ci NULL DEFAULT NULL,
+  `model` varchar(255) CHARACTER SET utf8 COLLATE utf8_unicode_ci NULL DEFAULT NULL,
+  `review_result` mediumtext CHARACTER SET utf8 COLLATE utf8_unicode_ci NULL,
+  `created_at` datetime NULL DEFAULT NULL,
+  `expires_at` datetime NULL DEFAULT NULL,
+  PRIMARY KEY (`cache_key`) USING BTREE,
+  INDEX `idx_expires_at`(`expires_at`) USING BTREE
+) ENGINE = InnoDB CHARACTER SET = utf8 COLLATE = utf8_unicode_ci ROW_FORMAT = Dynamic;
+
 SET FOREIGN_KEY_CHECKS = 1;
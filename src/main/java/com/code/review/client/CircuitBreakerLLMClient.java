@@ -0,0 +1,179 @@
+package com.code.review.client;
+
+import com.code.review.utils.CircuitBreaker;
+import com.code.review.utils.ConcurrencyLimitExceededException;
+import com.code.review.utils.LLMLatency;
+import com.code.review.utils.RetryScheduler;
+import com.code.review.utils.ReviewDeadline;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * 带熔断的大模型客户端，按供应商包装具体的 {@link LLMClient} 实现
+ * <p>
+ * 调用异常或返回空内容记为失败，耗时超过阈值记为慢调用；供应商故障时快速失败，不再等待响应超时。
+ * 流式调用以首个token耗时判断快慢，非流式调用以HTTP请求耗时按输出token数放宽阈值，完整评审的正常生成耗时不计为慢调用。
+ * 内层并发限制排队超时（{@link ConcurrencyLimitExceededException}）是本地的限流，评审任务超过截止时间或请求被取消
+ * （{@link ReviewDeadline#isAborted}）与供应商无关，均不计入供应商的失败率。
+ */
+public class CircuitBreakerLLMClient implements LLMClient {
+
+    private final String provider;
+    private final LLMClient delegate;
+    private final CircuitBreaker circuitBreaker;
+
+    public CircuitBreakerLLMClient(String provider, LLMClient delegate) {
+        this.provider = provider;
+        this.delegate = delegate;
+        this.circuitBreaker = CircuitBreaker.of("llm-" + provider, "LLM_BREAKER");
+    }
+
+    @Override
+    public String completions(List<Map<String, String>> messages) {
+        return call(() -> delegate.completions(messages));
+    }
+
+    @Override
+    public String completions(List<Map<String, String>> messages, String model) {
+        return call(() -> delegate.completions(messages, model));
+    }
+
+    @Override
+    public String completionsJson(List<Map<String, String>> messages, String model, Map<String, Object> jsonSchema) {
+        return call(() -> delegate.completionsJson(messages, model, jsonSchema));
+    }
+
+    @Override
+    public boolean supportsJsonOutput() {
+        return delegate.supportsJsonOutput();
+    }
+
+    private String call(Supplier<String> supplier) {
+        circuitBreaker.acquire();
+        // 与外层路由共用耗时记录，使路由按同样的首个token耗时或分组耗时统计供应商快慢
+        LLMLatency latency = LLMLatency.currentOrNew();
+        long start = System.currentTimeMillis();
+        String result = null;
+        boolean failed = true;
+        boolean exempt = false;
+        try {
+            result = LLMLatency.callWith(latency, supplier);
+            failed = StringUtils.isBlank(result);
+            return result;
+        } catch (RuntimeException e) {
+            exempt = isExempt(e);
+            throw e;
+        } finally {
+            if (exempt) {
+                circuitBreaker.release();
+            } else {
+                onResult(latency, System.currentTimeMillis() - start, result, failed);
+            }
+        }
+    }
+
+    @Override
+    public CompletableFuture<String> completionsAsync(List<Map<String, String>> messages) {
+        try {
+            circuitBreaker.acquire();
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return callAsync(() -> delegate.completionsAsync(messages));
+    }
+
+    @Override
+    public CompletableFuture<String> completionsAsync(List<Map<String, String>> messages, String model) {
+        try {
+            circuitBreaker.acquire();
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return callAsync(() -> delegate.completionsAsync(messages, model));
+    }
+
+    @Override
+    public CompletableFuture<String> completionsJsonAsync(List<Map<String, String>> messages, String model, Map<String, Object> jsonSchema) {
+        try {
+            circuitBreaker.acquire();
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return callAsync(() -> delegate.completionsJsonAsync(messages, model, jsonSchema));
+    }
+
+    /**
+     * 发起异步调用并在完成时记录结果，取消、超过截止时间的请求与内层排队超时不计入统计
+     * <p>
+     * 返回原始Future，保证调用方取消时能中止底层请求。
+     */
+    private CompletableFuture<String> callAsync(Supplier<CompletableFuture<String>> supplier) {
+        LLMLatency latency = LLMLatency.currentOrNew();
+        long start = System.currentTimeMillis();
+        CompletableFuture<String> future;
+        try {
+            future = LLMLatency.callWith(latency, supplier);
+        } catch (Exception e) {
+            circuitBreaker.onResult(System.currentTimeMillis() - start, true);
+            return CompletableFuture.failedFuture(e);
+        }
+        future.whenComplete((result, error) -> {
+            if (future.isCancelled() || (error != null && isExempt(error))) {
+                circuitBreaker.release();
+            } else {
+                onResult(latency, System.currentTimeMillis() - start, result, error != null || StringUtils.isBlank(result));
+            }
+        });
+        return future;
+    }
+
+    /**
+     * 内层排队超时、评审任务超过截止时间或请求被取消，与供应商无关，释放名额且不计入统计
+     */
+    private static boolean isExempt(Throwable error) {
+        return RetryScheduler.unwrap(error) instanceof ConcurrencyLimitExceededException || ReviewDeadline.isAborted(error);
+    }
+
+    /**
+     * 记录调用结果：收到首个token时按首个token耗时判断快慢，否则按HTTP请求耗时及输出token数判断
+     */
+    private void onResult(LLMLatency latency, long elapsedMillis, String result, boolean failed) {
+        long firstTokenMillis = latency.getFirstTokenMillis();
+        if (firstTokenMillis >= 0) {
+            circuitBreaker.onResult(firstTokenMillis, 0, failed);
+        } else {
+            circuitBreaker.onResult(latency.getResponseMillis(elapsedMillis), LLMLatency.estimateOutputTokens(result), failed);
+        }
+    }
+
+    @Override
+    public String getProvider() {
+        return provider;
+    }
+
+    @Override
+    public String getDefaultModel() {
+        return delegate.getDefaultModel();
+    }
+
+    @Override
+    public boolean ownsModel(String model) {
+        return delegate.ownsModel(model);
+    }
+
+    @Override
+    public long getRemainingOpenMillis() {
+        return circuitBreaker.getRemainingOpenMillis();
+    }
+
+    /**
+     * 获取该供应商的熔断器
+     */
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+}
@@ -0,0 +1,173 @@
+package com.code.review.client;
+
+import com.code.review.utils.AdaptiveConcurrencyLimiter;
+import com.code.review.utils.LLMLatency;
+import com.code.review.utils.PromptCacheStats;
+import com.code.review.utils.RetryScheduler;
+import com.code.review.utils.ReviewDeadline;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * 带自适应并发限制的大模型客户端，按供应商包装具体的 {@link LLMClient} 实现
+ * <p>
+ * 同时发给同一供应商的请求数不超过 {@link AdaptiveConcurrencyLimiter} 的当前上限，超出的请求排队等待；
+ * 429、5xx及超时视为过载信号，用于降低上限。耗时以首个token耗时（流式调用）或HTTP请求耗时及输出token数计入基线，
+ * 大请求的正常生成耗时不会被当作耗时突增。评审任务超过截止时间或请求被取消时只释放名额，不计入统计。
+ */
+public class ConcurrencyLimitLLMClient implements LLMClient {
+
+    private final String provider;
+    private final LLMClient delegate;
+    private final AdaptiveConcurrencyLimiter limiter;
+
+    public ConcurrencyLimitLLMClient(String provider, LLMClient delegate) {
+        this.provider = provider;
+        this.delegate = delegate;
+        this.limiter = AdaptiveConcurrencyLimiter.of("llm-" + provider, "LLM_LIMIT");
+    }
+
+    @Override
+    public String completions(List<Map<String, String>> messages) {
+        return call(() -> delegate.completions(messages));
+    }
+
+    @Override
+    public String completions(List<Map<String, String>> messages, String model) {
+        return call(() -> delegate.completions(messages, model));
+    }
+
+    @Override
+    public String completionsJson(List<Map<String, String>> messages, String model, Map<String, Object> jsonSchema) {
+        return call(() -> delegate.completionsJson(messages, model, jsonSchema));
+    }
+
+    @Override
+    public boolean supportsJsonOutput() {
+        return delegate.supportsJsonOutput();
+    }
+
+    @Override
+    public CompletableFuture<String> completionsAsync(List<Map<String, String>> messages) {
+        return callAsync(() -> delegate.completionsAsync(messages));
+    }
+
+    @Override
+    public CompletableFuture<String> completionsAsync(List<Map<String, String>> messages, String model) {
+        return callAsync(() -> delegate.completionsAsync(messages, model));
+    }
+
+    @Override
+    public CompletableFuture<String> completionsJsonAsync(List<Map<String, String>> messages, String model, Map<String, Object> jsonSchema) {
+        return callAsync(() -> delegate.completionsJsonAsync(messages, model, jsonSchema));
+    }
+
+    @Override
+    public String getProvider() {
+        return provider;
+    }
+
+    @Override
+    public String getDefaultModel() {
+        return delegate.getDefaultModel();
+    }
+
+    @Override
+    public boolean ownsModel(String model) {
+        return delegate.ownsModel(model);
+    }
+
+    private String call(Supplier<String> supplier) {
+        limiter.acquire();
+        LLMLatency latency = LLMLatency.currentOrNew();
+        long start = System.currentTimeMillis();
+        String result = null;
+        boolean overloaded = false;
+        boolean aborted = false;
+        try {
+            result = LLMLatency.callWith(latency, supplier);
+            return result;
+        } catch (RuntimeException e) {
+            aborted = ReviewDeadline.isAborted(e);
+            overloaded = RetryScheduler.classify(e) != null;
+            throw e;
+        } finally {
+            if (aborted) {
+                limiter.release();
+            } else {
+                onResult(latency, System.currentTimeMillis() - start, result, overloaded);
+            }
+        }
+    }
+
+    /**
+     * 记录调用结果：收到首个token时按首个token耗时统计，否则按HTTP请求耗时及输出token数统计
+     */
+    private void onResult(LLMLatency latency, long elapsedMillis, String result, boolean overloaded) {
+        long firstTokenMillis = latency.getFirstTokenMillis();
+        if (firstTokenMillis >= 0) {
+            limiter.onResult(firstTokenMillis, 0, overloaded);
+        } else {
+            limiter.onResult(latency.getResponseMillis(elapsedMillis), LLMLatency.estimateOutputTokens(result), overloaded);
+        }
+    }
+
+    /**
+     * 获得名额后发起异步调用，调用方取消返回的Future时同时取消排队或进行中的请求
+     */
+    private CompletableFuture<String> callAsync(Supplier<CompletableFuture<String>> supplier) {
+        CompletableFuture<String> result = new CompletableFuture<>();
+        // 排队后在其他线程发起请求，需要带上当前项目、评审任务的截止时间与外层的耗时记录
+        String project = PromptCacheStats.currentProject();
+        ReviewDeadline deadline = ReviewDeadline.current();
+        LLMLatency latency = LLMLatency.currentOrNew();
+        CompletableFuture<Void> permit = limiter.acquireAsync();
+        result.whenComplete((value, error) -> {
+            if (result.isCancelled()) {
+                permit.cancel(true);
+            }
+        });
+
+        permit.whenComplete((ignored, permitError) -> {
+            if (permitError != null) {
+                result.completeExceptionally(permitError);
+                return;
+            }
+            if (result.isDone()) {
+                limiter.release();
+                return;
+            }
+
+            long start = System.currentTimeMillis();
+            CompletableFuture<String> future;
+            try {
+                future = PromptCacheStats.callWithProject(project,
+                        () -> ReviewDeadline.callWithDeadline(deadline, () -> LLMLatency.callWith(latency, supplier)));
+            } catch (Exception e) {
+                future = CompletableFuture.failedFuture(e);
+            }
+            CompletableFuture<String> current = future;
+            result.whenComplete((value, error) -> {
+                if (result.isCancelled()) {
+                    current.cancel(true);
+                }
+            });
+            future.whenComplete((value, error) -> {
+                if (current.isCancelled() || (error != null && ReviewDeadline.isAborted(error))) {
+                    limiter.release();
+                } else {
+                    onResult(latency, System.currentTimeMillis() - start, value, error != null && RetryScheduler.classify(error) != null);
+                }
+                if (error != null) {
+                    result.completeExceptionally(error);
+                } else {
+                    result.complete(value);
+                }
+            });
+        });
+        return result;
+    }
+}
@@ -1,6 +1,7 @@
 package com.code.review.client;
 
 import com.code.review.utils.SpringUtils;
+import com.code.review.utils.SseEventParser;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
@@ -9,14 +10,12 @@ import org.apache.commons.lang3.StringUtils;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.CompletableFuture;
 
 @Slf4j
 public class CozeClient implements LLMClient {
 
     private static final ObjectMapper objectMapper = SpringUtils.getBean(ObjectMapper.class);
-    private static final Pattern EVENT_PATTERN = Pattern.compile("id: (.*?)\\nevent: (.*?)\\ndata: (.*?)(?=\\n\\nid:|\\Z)", Pattern.DOTALL);
 
     @Override
     public String completions(List<Map<String, String>> messages) {
@@ -26,24 +25,18 @@ public class CozeClient implements LLMClient {
     @Override
     public String completions(List<Map<String, String>> messages, String model) {
         // 获取API密钥
-        String cozeApiKey = SpringUtils.getPropertyOrDefault("COZE_API_KEY", "");
-        if (StringUtils.isBlank(cozeApiKey)) {
-            throw new RuntimeException("COZE API key is required. Please provide it or set it in the environment variables.");
-        }
-
-        // 工作流Workflow ID
-        String workflowId = SpringUtils.getPropertyOrDefault("COZE_WORKFLOW_ID", "");
-        if (StringUtils.isBlank(workflowId)) {
-            throw new RuntimeException("COZE workflow ID is required. Please provide it or set it in the environment variables.");
-        }
+        String cozeApiKey = getApiKey();
 
         // 请求地址
         String url = SpringUtils.getPropertyOrDefault("COZE_API_URL", "https://api.coze.cn/v1/workflow/stream_run");
 
         // 构建请求体参数，指定模型和相关配置
-        Map<String, Object> requestBody = new HashMap<>();
-        requestBody.put("workflow_id", workflowId);
-        requestBody.put("parameters", messages.get(0));
+        Map<String, Object> requestBody = buildRequestBody(messages);
+
+        // 开启流式输出时边接收边拼接消息内容
+        if (isStreamEnabled()) {
+            return callAIModelStream(url, requestBody, cozeApiKey, this::parseMessageEvent);
+        }
 
         // 调用AI模型接口获取结果
         String response = callAIModel(url, requestBody, cozeApiKey);
@@ -55,6 +48,64 @@ public class CozeClient implements LLMClient {
         return parseCozeResponse(response);
     }
 
+    @Override
+    public CompletableFuture<String> completionsAsync(List<Map<String, String>> messages) {
+        return completionsAsync(messages, "");
+    }
+
+    @Override
+    public CompletableFuture<String> completionsAsync(List<Map<String, String>> messages, String model) {
+        // 获取API密钥
+        String cozeApiKey = getApiKey();
+
+        // 请求地址
+        String url = SpringUtils.getPropertyOrDefault("COZE_API_URL", "https://api.coze.cn/v1/workflow/stream_run");
+
+        // 构建请求体参数
+        Map<String, Object> requestBody = buildRequestBody(messages);
+
+        // 异步调用AI模型接口获取结果
+        return LLMClient.mapAsync(callAIModelAsync(url, requestBody, cozeApiKey),
+                response -> StringUtils.isBlank(response) ? "" : parseCozeResponse(response));
+    }
+
+    @Override
+    public String getProvider() {
+        return "coze";
+    }
+
+    /**
+     * 获取API密钥
+     *
+     * @return API密钥
+     */
+    private String getApiKey() {
+        String cozeApiKey = SpringUtils.getPropertyOrDefault("COZE_API_KEY", "");
+        if (StringUtils.isBlank(cozeApiKey)) {
+            throw new RuntimeException("COZE API key is required. Please provide it or set it in the environment variables.");
+        }
+        return cozeApiKey;
+    }
+
+    /**
+     * 构建工作流请求体，包含工作流ID和输入参数
+     *
+     * @param messages 消息列表，第一条消息作为工作流输入参数
+     * @return 请求体Map
+     */
+    private Map<String, Object> buildRequestBody(List<Map<String, String>> messages) {
+        // 工作流Workflow ID
+        String workflowId = SpringUtils.getPropertyOrDefault("COZE_WORKFLOW_ID", "");
+        if (StringUtils.isBlank(workflowId)) {
+            throw new RuntimeException("COZE workflow ID is required. Please provide it or set it in the environment variables.");
+        }
+
+        Map<String, Object> requestBody = new HashMap<>();
+        requestBody.put("workflow_id", workflowId);
+        requestBody.put("parameters", messages.get(0));
+        return requestBody;
+    }
+
     /**
      * 解析Coze工作流的响应数据，提取其中的消息内容
      *
@@ -63,25 +114,33 @@ public class CozeClient implements LLMClient {
      */
     private String parseCozeResponse(String response) {
         StringBuilder result = new StringBuilder();
-        Matcher matcher = EVENT_PATTERN.matcher(response);
-
-        // 遍历匹配到的所有事件，提取消息类型事件的内容
-        while (matcher.find()) {
-            String id = matcher.group(1).trim();
-            String eventType = matcher.group(2).trim();
-            Object data = parseData(matcher.group(3).trim());
-
-            // 只处理消息类型的事件，且数据为JSON节点时提取内容
-            if ("Message".equals(eventType) && data instanceof JsonNode) {
-                JsonNode dataNode = (JsonNode) data;
-                String content = dataNode.path("content").asText("");
+        SseEventParser.parse(response, event -> {
+            String content = parseMessageEvent(event);
+            if (content != null) {
                 result.append(content);
             }
-        }
-
+            return true;
+        });
         return result.toString();
     }
 
+    /**
+     * 提取单个事件中的消息内容，只处理消息类型且数据为JSON节点的事件
+     *
+     * @param event SSE事件
+     * @return 消息内容，非消息事件返回null
+     */
+    private String parseMessageEvent(SseEventParser.SseEvent event) {
+        if (!"Message".equals(event.getEvent())) {
+            return null;
+        }
+        Object data = parseData(event.getData().trim());
+        if (data instanceof JsonNode) {
+            return ((JsonNode) data).path("content").asText("");
+        }
+        return null;
+    }
+
     /**
      * 解析数据字符串为JSON节点对象
      *
@@ -7,32 +7,139 @@ import org.apache.commons.lang3.StringUtils;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @Slf4j
 public class DeepSeekClient implements LLMClient {
     @Override
     public String completions(List<Map<String, String>> messages) {
         // 获取模型名称
-        String deepseekApiModel = SpringUtils.getPropertyOrDefault("DEEPSEEK_API_MODEL", "deepseek-chat");
+        String deepseekApiModel = getDefaultModel();
         return completions(messages, deepseekApiModel);
     }
 
     @Override
     public String completions(List<Map<String, String>> messages, String model) {
         // 获取API密钥
-        String deepseekApiKey = SpringUtils.getPropertyOrDefault("DEEPSEEK_API_KEY", "");
-        if (StringUtils.isBlank(deepseekApiKey)) {
-            throw new RuntimeException("DEEPSEEK API key is required. Please provide it or set it in the environment variables.");
-        }
+        String deepseekApiKey = getApiKey();
         // 请求地址
         String url = SpringUtils.getPropertyOrDefault("DEEPSEEK_API_URL", "https://api.deepseek.com/chat/completions");
 
         // 构建请求体参数，指定模型和相关配置
         Map<String, Object> requestBody = generalBaseRequestBody(messages, model);
 
+        // 开启流式输出时边接收边拼接增量内容
+        if (isStreamEnabled()) {
+            return callAIModelStream(url, requestBody, deepseekApiKey, LLMClient::parseChatCompletionChunk);
+        }
+
         // 调用AI模型接口获取结果
         String response = callAIModel(url, requestBody, deepseekApiKey);
 
+        return parseResponse(response);
+    }
+
+    @Override
+    public CompletableFuture<String> completionsAsync(List<Map<String, String>> messages) {
+        // 获取模型名称
+        String deepseekApiModel = getDefaultModel();
+        return completionsAsync(messages, deepseekApiModel);
+    }
+
+    @Override
+    public CompletableFuture<String> completionsAsync(List<Map<String, String>> messages, String model) {
+        // 获取API密钥
+        String deepseekApiKey = getApiKey();
+        // 请求地址
+        String url = SpringUtils.getPropertyOrDefault("DEEPSEEK_API_URL", "https://api.deepseek.com/chat/completions");
+
+        // 构建请求体参数，指定模型和相关配置
+        Map<String, Object> requestBody = generalBaseRequestBody(messages, model);
+
+        // 异步调用AI模型接口获取结果
+        return LLMClient.mapAsync(callAIModelAsync(url, requestBody, deepseekApiKey), this::parseResponse);
+    }
+
+    @Override
+    public String completionsJson(List<Map<String, String>> messages, String model, Map<String, Object> jsonSchema) {
+        // 获取模型名称
+        String deepseekApiModel = StringUtils.defaultIfBlank(model, getDefaultModel());
+        // 获取API密钥
+        String deepseekApiKey = getApiKey();
+        // 请求地址
+        String url = SpringUtils.getPropertyOrDefault("DEEPSEEK_API_URL", "https://api.deepseek.com/chat/completions");
+
+        // 构建请求体参数，要求模型按JSON输出
+        Map<String, Object> requestBody = generalBaseRequestBody(messages, deepseekApiModel);
+        requestBody.put("response_format", buildResponseFormat(jsonSchema));
+
+        // 开启流式输出时边接收边拼接增量内容
+        if (isStreamEnabled()) {
+            return callAIModelStream(url, requestBody, deepseekApiKey, LLMClient::parseChatCompletionChunk);
+        }
+        return parseResponse(callAIModel(url, requestBody, deepseekApiKey));
+    }
+
+    @Override
+    public CompletableFuture<String> completionsJsonAsync(List<Map<String, String>> messages, String model, Map<String, Object> jsonSchema) {
+        // 获取模型名称
+        String deepseekApiModel = StringUtils.defaultIfBlank(model, getDefaultModel());
+        // 获取API密钥
+        String deepseekApiKey = getApiKey();
+        // 请求地址
+        String url = SpringUtils.getPropertyOrDefault("DEEPSEEK_API_URL", "https://api.deepseek.com/chat/completions");
+
+        // 构建请求体参数，要求模型按JSON输出
+        Map<String, Object> requestBody = generalBaseRequestBody(messages, deepseekApiModel);
+        requestBody.put("response_format", buildResponseFormat(jsonSchema));
+
+        // 异步调用AI模型接口获取结果
+        return LLMClient.mapAsync(callAIModelAsync(url, requestBody, deepseekApiKey), this::parseResponse);
+    }
+
+    @Override
+    public boolean supportsJsonOutput() {
+        return true;
+    }
+
+    @Override
+    public String getProvider() {
+        return "deepseek";
+    }
+
+    @Override
+    public String getDefaultModel() {
+        return SpringUtils.getPropertyOrDefault("DEEPSEEK_API_MODEL", "deepseek-chat");
+    }
+
+    /**
+     * deepseek系列模型属于DeepSeek
+     */
+    @Override
+    public boolean ownsModel(String model) {
+        return LLMClient.super.ownsModel(model) || StringUtils.startsWithAny(model.toLowerCase(), "deepseek");
+    }
+
+    /**
+     * 获取API密钥
+     *
+     * @return API密钥
+     */
+    private String getApiKey() {
+        String deepseekApiKey = SpringUtils.getPropertyOrDefault("DEEPSEEK_API_KEY", "");
+        if (StringUtils.isBlank(deepseekApiKey)) {
+            throw new RuntimeException("DEEPSEEK API key is required. Please provide it or set it in the environment variables.");
+        }
+        return deepseekApiKey;
+    }
+
+    /**
+     * 解析模型响应，提取回复内容
+     *
+     * @param response 模型接口返回的原始响应
+     * @return 回复内容，解析失败时返回空字符串
+     */
+    private String parseResponse(String response) {
         if (StringUtils.isBlank(response)) {
             return "";
         }
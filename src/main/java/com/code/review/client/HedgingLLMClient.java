@@ -0,0 +1,371 @@
+package com.code.review.client;
+
+import com.code.review.utils.LLMResponder;
+import com.code.review.utils.PromptCacheStats;
+import com.code.review.utils.RetryScheduler;
+import com.code.review.utils.ReviewDeadline;
+import com.code.review.utils.SpringUtils;
+import com.code.review.utils.TokenEstimator;
+import com.code.review.utils.TokenUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 对冲请求客户端，降低大模型调用的长尾耗时
+ * <p>
+ * 异步请求发出后超过同等规模请求最近耗时的 LLM_HEDGE_PERCENTILE 分位数仍未返回时，向备用供应商（或备用模型）再发送一次相同的请求，
+ * 先返回有效内容的结果生效，另一个请求随即取消。对冲次数不超过总请求数的 LLM_HEDGE_MAX_RATE（百分比），
+ * 同等规模的耗时样本不足 LLM_HEDGE_MIN_SAMPLES 时不对冲。
+ * <p>
+ * 异步请求不是流式的，无法得知是否已开始响应，耗时样本按用户消息的估算token数分组（2的幂次），
+ * 大变更的正常生成耗时只与同等规模的请求比较，不会按短请求的分位数触发对冲。
+ * <p>
+ * 同步调用直接发给主客户端，保留流式输出及评审截止时间内返回部分内容的处理，不对冲。
+ */
+@Slf4j
+public class HedgingLLMClient implements LLMClient {
+
+    /**
+     * 按主供应商统计的耗时样本与对冲次数
+     */
+    private static final Map<String, Hedge> HEDGES = new ConcurrentHashMap<>();
+
+    private final LLMClient primary;
+    private final LLMClient secondary;
+    private final String secondaryModel;
+    private final Hedge hedge;
+
+    /**
+     * @param primary        主客户端
+     * @param secondary      对冲请求使用的客户端，可与主客户端相同
+     * @param secondaryModel 对冲请求使用的模型，为空时使用供应商默认模型
+     */
+    public HedgingLLMClient(LLMClient primary, LLMClient secondary, String secondaryModel) {
+        this.primary = primary;
+        this.secondary = secondary;
+        this.secondaryModel = StringUtils.trimToNull(secondaryModel);
+        this.hedge = HEDGES.computeIfAbsent(primary.getProvider(), key -> new Hedge());
+    }
+
+    @Override
+    public String completions(List<Map<String, String>> messages) {
+        return primary.completions(messages);
+    }
+
+    @Override
+    public String completions(List<Map<String, String>> messages, String model) {
+        return primary.completions(messages, model);
+    }
+
+    /**
+     * 结构化JSON输出直接发给主客户端，不对冲
+     */
+    @Override
+    public String completionsJson(List<Map<String, String>> messages, String model, Map<String, Object> jsonSchema) {
+        return primary.completionsJson(messages, model, jsonSchema);
+    }
+
+    @Override
+    public boolean supportsJsonOutput() {
+        return primary.supportsJsonOutput();
+    }
+
+    @Override
+    public CompletableFuture<String> completionsAsync(List<Map<String, String>> messages) {
+        return callHedged(messages, null, () -> primary.completionsAsync(messages), () -> secondaryCall(messages, null));
+    }
+
+    @Override
+    public CompletableFuture<String> completionsAsync(List<Map<String, String>> messages, String model) {
+        return callHedged(messages, model, () -> primary.completionsAsync(messages, model), () -> secondaryCall(messages, model));
+    }
+
+    /**
+     * 备用客户端同样支持结构化输出时才对冲，否则直接发给主客户端
+     */
+    @Override
+    public CompletableFuture<String> completionsJsonAsync(List<Map<String, String>> messages, String model, Map<String, Object> jsonSchema) {
+        if (!secondary.supportsJsonOutput()) {
+            return primary.completionsJsonAsync(messages, model, jsonSchema);
+        }
+        return callHedged(messages, model, () -> primary.completionsJsonAsync(messages, model, jsonSchema),
+                () -> secondary.completionsJsonAsync(messages, secondaryModelFor(model), jsonSchema));
+    }
+
+    @Override
+    public String getProvider() {
+        return primary.getProvider();
+    }
+
+    @Override
+    public String getDefaultModel() {
+        return primary.getDefaultModel();
+    }
+
+    @Override
+    public boolean ownsModel(String model) {
+        return primary.ownsModel(model);
+    }
+
+    /**
+     * 主请求与对冲请求可能响应的供应商及模型
+     */
+    @Override
+    public Map<String, String> resolveModels(String model) {
+        Map<String, String> models = new LinkedHashMap<>(primary.resolveModels(model));
+        secondary.resolveModels(secondaryModelFor(model)).forEach(models::putIfAbsent);
+        return models;
+    }
+
+    @Override
+    public long getRemainingOpenMillis() {
+        return primary.getRemainingOpenMillis();
+    }
+
+    /**
+     * 对冲请求优先使用配置的备用模型；发给同一客户端且未配置备用模型时沿用调用方指定的模型
+     */
+    private CompletableFuture<String> secondaryCall(List<Map<String, String>> messages, String model) {
+        String hedgeModel = secondaryModelFor(model);
+        return hedgeModel == null ? secondary.completionsAsync(messages) : secondary.completionsAsync(messages, hedgeModel);
+    }
+
+    /**
+     * 对冲请求使用的模型，为null时使用备用供应商的默认模型
+     */
+    private String secondaryModelFor(String model) {
+        if (secondaryModel != null) {
+            return secondaryModel;
+        }
+        return secondary == primary ? model : null;
+    }
+
+    /**
+     * 发出主请求，超过对冲延迟仍未返回时发出对冲请求；调用方取消返回的Future时同时取消所有进行中的请求
+     * <p>
+     * 两个请求各自记录实际响应的供应商与模型，生效的结果写入调用方的 {@link LLMResponder}。
+     *
+     * @param messages 消息列表，按其规模选择耗时样本分组
+     * @param model    调用方指定的模型，为null时使用默认模型
+     */
+    private CompletableFuture<String> callHedged(List<Map<String, String>> messages, String model, Supplier<CompletableFuture<String>> primaryCall,
+                                                 Supplier<CompletableFuture<String>> secondaryCall) {
+        CompletableFuture<String> result = new CompletableFuture<>();
+        // 对冲请求在定时器线程中发出，需要带上当前项目与评审任务的截止时间
+        String project = PromptCacheStats.currentProject();
+        ReviewDeadline deadline = ReviewDeadline.current();
+        // 路由客户端会写入实际响应的供应商与模型，否则为发出请求的客户端及其模型
+        LLMResponder responder = LLMResponder.current();
+        LLMResponder primaryResponder = new LLMResponder();
+        primaryResponder.record(primary.getProvider(), model != null ? model : primary.getDefaultModel());
+        LLMResponder secondaryResponder = new LLMResponder();
+        String hedgeModel = secondaryModelFor(model);
+        secondaryResponder.record(secondary.getProvider(), hedgeModel != null ? hedgeModel : secondary.getDefaultModel());
+        AtomicInteger pending = new AtomicInteger(1);
+        int sizeClass = sizeClass(messages);
+        long start = System.currentTimeMillis();
+        hedge.onRequest();
+
+        CompletableFuture<String> primaryFuture = launch(project, deadline, primaryResponder, primaryCall);
+        result.whenComplete((value, error) -> primaryFuture.cancel(true));
+        primaryFuture.whenComplete((value, error) -> {
+            // 被对冲请求抢先后取消时的耗时是实际耗时的下限，同样计入样本，避免慢请求从样本中消失
+            if (error == null || primaryFuture.isCancelled()) {
+                hedge.addSample(sizeClass, System.currentTimeMillis() - start);
+            }
+            settle(result, value, error, pending, responder, primaryResponder, false);
+        });
+
+        long delay = hedge.getDelay(sizeClass);
+        if (delay < 0) {
+            return result;
+        }
+        ScheduledFuture<?> timer = RetryScheduler.schedule(() -> {
+            if (result.isDone()) {
+                return;
+            }
+            if (!hedge.tryAcquire()) {
+                return;
+            }
+            pending.incrementAndGet();
+            log.info("大模型[{}]请求超过{}ms未返回，发出对冲请求", primary.getProvider(), delay);
+            CompletableFuture<String> secondaryFuture = launch(project, deadline, secondaryResponder, secondaryCall);
+            result.whenComplete((value, error) -> secondaryFuture.cancel(true));
+            secondaryFuture.whenComplete((value, error) -> settle(result, value, error, pending, responder, secondaryResponder, true));
+        }, delay);
+        result.whenComplete((value, error) -> timer.cancel(false));
+        return result;
+    }
+
+    private CompletableFuture<String> launch(String project, ReviewDeadline deadline, LLMResponder responder,
+                                             Supplier<CompletableFuture<String>> call) {
+        try {
+            return PromptCacheStats.callWithProject(project,
+                    () -> ReviewDeadline.callWithDeadline(deadline, () -> LLMResponder.callWith(responder, call)));
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * 先返回有效内容的请求生效，生效前写入其响应的供应商与模型；请求失败且另一个请求仍在进行时等待其结果
+     */
+    private void settle(CompletableFuture<String> result, String value, Throwable error, AtomicInteger pending,
+                        LLMResponder responder, LLMResponder attempt, boolean hedged) {
+        if (error == null && StringUtils.isNotBlank(value)) {
+            synchronized (result) {
+                if (result.isDone()) {
+                    return;
+                }
+                if (responder != null) {
+                    responder.record(attempt.getProvider(), attempt.getModel());
+                }
+                result.complete(value);
+            }
+            if (hedged) {
+                hedge.won.increment();
+            }
+            return;
+        }
+        if (pending.decrementAndGet() > 0) {
+            return;
+        }
+        if (error != null) {
+            result.completeExceptionally(error);
+        } else {
+            result.complete(value);
+        }
+    }
+
+    /**
+     * 按用户消息的估算token数分组：256以下为第0组，之后每翻一倍为一组
+     */
+    private static int sizeClass(List<Map<String, String>> messages) {
+        double cjkTokensPerChar = TokenUtils.getTokenizer().getCjkTokensPerChar();
+        int tokens = 0;
+        for (Map<String, String> message : messages) {
+            if (!"system".equals(message.get("role"))) {
+                tokens += TokenEstimator.estimate(message.get("content"), cjkTokensPerChar);
+            }
+        }
+        return Math.min(Hedge.SIZE_CLASSES - 1, 32 - Integer.numberOfLeadingZeros(tokens >> 8));
+    }
+
+    /**
+     * 获取各供应商的对冲统计信息
+     *
+     * @return 按主供应商组织的请求数、对冲次数、对冲获胜次数与当前对冲延迟
+     */
+    public static Map<String, Object> getStats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        HEDGES.forEach((provider, hedge) -> result.put(provider, hedge.getStats()));
+        return result;
+    }
+
+    /**
+     * 单个主供应商的耗时样本、对冲预算与统计
+     */
+    private static class Hedge {
+
+        /**
+         * 对冲预算最多积累的次数，避免长时间空闲后集中对冲
+         */
+        private static final double MAX_BUDGET = 5;
+
+        /**
+         * 耗时样本的分组数，最大组包含32768及以上token的请求
+         */
+        private static final int SIZE_CLASSES = 9;
+
+        private final long[][] samples;
+        private final int[] sampleCount = new int[SIZE_CLASSES];
+        private final int[] nextSample = new int[SIZE_CLASSES];
+        private double budget;
+
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder fired = new LongAdder();
+        private final LongAdder won = new LongAdder();
+        private final LongAdder budgetDenied = new LongAdder();
+
+        Hedge() {
+            this.samples = new long[SIZE_CLASSES][Math.max(1, Integer.parseInt(SpringUtils.getPropertyOrDefault("LLM_HEDGE_WINDOW", "100")))];
+        }
+
+        /**
+         * 每个请求按 LLM_HEDGE_MAX_RATE 增加对冲预算
+         */
+        synchronized void onRequest() {
+            requests.increment();
+            double maxRate = Double.parseDouble(SpringUtils.getPropertyOrDefault("LLM_HEDGE_MAX_RATE", "10"));
+            budget = Math.min(MAX_BUDGET, budget + maxRate / 100);
+        }
+
+        synchronized boolean tryAcquire() {
+            if (budget < 1) {
+                budgetDenied.increment();
+                return false;
+            }
+            budget -= 1;
+            fired.increment();
+            return true;
+        }
+
+        synchronized void addSample(int sizeClass, long latencyMillis) {
+            long[] window = samples[sizeClass];
+            window[nextSample[sizeClass]] = latencyMillis;
+            nextSample[sizeClass] = (nextSample[sizeClass] + 1) % window.length;
+            sampleCount[sizeClass] = Math.min(window.length, sampleCount[sizeClass] + 1);
+        }
+
+        /**
+         * 计算对冲延迟：同组最近耗时的 LLM_HEDGE_PERCENTILE 分位数，不低于 LLM_HEDGE_MIN_DELAY
+         *
+         * @param sizeClass 请求规模分组
+         * @return 对冲延迟（毫秒），样本不足时返回-1
+         */
+        synchronized long getDelay(int sizeClass) {
+            int minSamples = Integer.parseInt(SpringUtils.getPropertyOrDefault("LLM_HEDGE_MIN_SAMPLES", "20"));
+            int count = sampleCount[sizeClass];
+            if (count == 0 || count < minSamples) {
+                return -1;
+            }
+            double percentile = Double.parseDouble(SpringUtils.getPropertyOrDefault("LLM_HEDGE_PERCENTILE", "95"));
+            long[] sorted = Arrays.copyOf(samples[sizeClass], count);
+            Arrays.sort(sorted);
+            int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+            long minDelay = Long.parseLong(SpringUtils.getPropertyOrDefault("LLM_HEDGE_MIN_DELAY", "1000"));
+            return Math.max(minDelay, sorted[Math.max(0, Math.min(sorted.length - 1, index))]);
+        }
+
+        Map<String, Object> getStats() {
+            long requestCount = requests.sum();
+            long firedCount = fired.sum();
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("requests", requestCount);
+            stats.put("hedgesFired", firedCount);
+            stats.put("hedgesWon", won.sum());
+            stats.put("budgetDenied", budgetDenied.sum());
+            stats.put("hedgeRate", requestCount == 0 ? 0 : firedCount * 100.0 / requestCount);
+            Map<String, Object> delays = new LinkedHashMap<>();
+            for (int i = 0; i < SIZE_CLASSES; i++) {
+                long delay = getDelay(i);
+                if (delay >= 0) {
+                    delays.put(i == 0 ? "tokens0-255" : "tokens" + (256 << (i - 1)) + (i == SIZE_CLASSES - 1 ? "+" : "-" + ((256 << i) - 1)), delay);
+                }
+            }
+            stats.put("hedgeDelayMillis", delays);
+            return stats;
+        }
+    }
+}
@@ -1,18 +1,136 @@
 package com.code.review.client;
 
 import com.code.review.utils.HttpClientUtils;
+import com.code.review.utils.LLMLatency;
+import com.code.review.utils.LLMStreamStats;
+import com.code.review.utils.PromptCacheStats;
+import com.code.review.utils.ReviewDeadline;
+import com.code.review.utils.ReviewDeadlineExceededException;
 import com.code.review.utils.SpringUtils;
+import com.code.review.utils.SseEventParser;
+import com.code.review.utils.TokenBudgetAllocator;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.commons.lang3.StringUtils;
 
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 
 public interface LLMClient {
     String completions(List<Map<String, String>> messages);
 
     String completions(List<Map<String, String>> messages, String model);
 
+    CompletableFuture<String> completionsAsync(List<Map<String, String>> messages);
+
+    CompletableFuture<String> completionsAsync(List<Map<String, String>> messages, String model);
+
+    /**
+     * 要求模型按JSON Schema输出结构化结果，请求体中携带 response_format 参数
+     *
+     * @param messages   消息列表
+     * @param model      模型名称，为null时使用供应商默认模型
+     * @param jsonSchema 输出结果的JSON Schema
+     * @return 模型输出的JSON内容
+     * @throws UnsupportedOperationException 供应商不支持结构化输出
+     */
+    default String completionsJson(List<Map<String, String>> messages, String model, Map<String, Object> jsonSchema) {
+        throw new UnsupportedOperationException("大模型[" + getProvider() + "]不支持结构化JSON输出");
+    }
+
+    /**
+     * 异步要求模型按JSON Schema输出结构化结果，请求体中携带 response_format 参数
+     *
+     * @param messages   消息列表
+     * @param model      模型名称，为null时使用供应商默认模型
+     * @param jsonSchema 输出结果的JSON Schema
+     * @return 模型输出的JSON内容的Future，供应商不支持结构化输出时以 UnsupportedOperationException 异常结束
+     */
+    default CompletableFuture<String> completionsJsonAsync(List<Map<String, String>> messages, String model, Map<String, Object> jsonSchema) {
+        return CompletableFuture.failedFuture(new UnsupportedOperationException("大模型[" + getProvider() + "]不支持结构化JSON输出"));
+    }
+
+    /**
+     * 是否支持结构化JSON输出，支持时可调用 {@link #completionsJson} 与 {@link #completionsJsonAsync}
+     *
+     * @return 默认不支持
+     */
+    default boolean supportsJsonOutput() {
+        return false;
+    }
+
+    /**
+     * 构建 response_format 参数
+     * <p>
+     * 默认使用多数OpenAI兼容接口都支持的 json_object 模式，JSON Schema 需在提示词中说明；支持 json_schema 的供应商覆盖此方法。
+     *
+     * @param jsonSchema 输出结果的JSON Schema
+     * @return response_format 参数
+     */
+    default Map<String, Object> buildResponseFormat(Map<String, Object> jsonSchema) {
+        return Map.of("type", "json_object");
+    }
+
+    /**
+     * 获取供应商名称，用于统计
+     *
+     * @return 供应商名称
+     */
+    String getProvider();
+
+    /**
+     * 获取供应商的默认模型
+     *
+     * @return 默认模型名称，无模型概念（如Coze工作流）时返回空字符串
+     */
+    default String getDefaultModel() {
+        return "";
+    }
+
+    /**
+     * 指定的模型是否属于该供应商，多供应商路由时只把指定的模型发给所属的供应商
+     *
+     * @param model 模型名称
+     * @return 默认只认为默认模型属于该供应商
+     */
+    default boolean ownsModel(String model) {
+        return StringUtils.isNotBlank(model) && model.equalsIgnoreCase(getDefaultModel());
+    }
+
+    /**
+     * 获取可能响应请求的供应商及其使用的模型，用于查找按实际模型缓存的评审结果
+     *
+     * @param model 调用方指定的模型，为null时使用供应商默认模型
+     * @return 按优先顺序排列的供应商及模型
+     */
+    default Map<String, String> resolveModels(String model) {
+        Map<String, String> models = new LinkedHashMap<>();
+        models.put(getProvider(), model != null ? model : getDefaultModel());
+        return models;
+    }
+
+    /**
+     * 获取剩余熔断时间（毫秒），未熔断或未开启熔断时返回0
+     *
+     * @return 剩余熔断时间
+     */
+    default long getRemainingOpenMillis() {
+        return 0;
+    }
+
+    /**
+     * 是否开启流式输出
+     *
+     * @return 配置LLM_STREAM_ENABLED为1时返回true
+     */
+    default boolean isStreamEnabled() {
+        return "1".equals(SpringUtils.getPropertyOrDefault("LLM_STREAM_ENABLED", "1"));
+    }
+
     /**
      * 构建通用的基础请求体
      *
@@ -26,13 +144,13 @@ public interface LLMClient {
         requestBody.put("messages", messages);
         requestBody.put("temperature", 0.8);
         requestBody.put("stream", false);
-        requestBody.put("max_tokens", 6000);
+        requestBody.put("max_tokens", TokenBudgetAllocator.completionMaxTokens(messages));
 
         return requestBody;
     }
 
     /**
-     * 调用AI模型接口获取结果
+     * 调用AI模型接口获取结果，超过当前评审任务的剩余时间时中止请求
      *
      * @param url         AI服务接口地址
      * @param requestBody 请求体参数映射
@@ -40,6 +158,8 @@ public interface LLMClient {
      * @return AI模型返回的响应结果
      */
     default String callAIModel(String url, Map<String, Object> requestBody, String apiKey) {
+        // 评审任务剩余时间不足时不再发出请求
+        ReviewDeadline.checkCurrentRemaining("llm");
         try {
             // 构建HTTP请求头，包含认证信息和内容类型
             Map<String, String> headers = new HashMap<>();
@@ -52,10 +172,190 @@ public interface LLMClient {
             // 将请求体转换为JSON字符串格式
             String jsonBody = objectMapper.writeValueAsString(requestBody);
 
-            // 发送POST请求到AI服务接口
-            return HttpClientUtils.post(url, jsonBody, null, headers);
+            // 发送POST请求到AI服务接口，超过评审任务的剩余时间时中止，请求失败时抛出异常以便熔断器统计；
+            // 状态码非200时保留HttpStatusException，并发限制器据此识别限流与服务端错误
+            LLMLatency latency = LLMLatency.current();
+            ReviewDeadline deadline = ReviewDeadline.current();
+            long start = System.currentTimeMillis();
+            String response;
+            try {
+                response = HttpClientUtils.postOrThrow(url, jsonBody, headers, false, ReviewDeadline.currentRemainingMillis());
+            } catch (Exception e) {
+                if (deadline != null) {
+                    deadline.check("llm");
+                }
+                throw e;
+            } finally {
+                if (latency != null) {
+                    latency.recordResponse(System.currentTimeMillis() - start);
+                }
+            }
+            if (response == null) {
+                throw new RuntimeException("AI服务接口调用失败，url：" + url);
+            }
+            PromptCacheStats.recordResponse(PromptCacheStats.currentProject(), response);
+            return response;
+        } catch (ReviewDeadlineExceededException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("获取AI内容出现异常，异常原因：" + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 异步调用AI模型接口获取结果，等待模型生成期间不占用业务线程；到达发起时所属评审任务的截止时间时取消请求
+     *
+     * @param url         AI服务接口地址
+     * @param requestBody 请求体参数映射
+     * @param apiKey      认证密钥
+     * @return AI模型返回的响应结果的Future
+     */
+    default CompletableFuture<String> callAIModelAsync(String url, Map<String, Object> requestBody, String apiKey) {
+        try {
+            // 评审任务剩余时间不足时不再发出请求
+            ReviewDeadline.checkCurrentRemaining("llm");
+
+            // 构建HTTP请求头，包含认证信息和内容类型
+            Map<String, String> headers = new HashMap<>();
+            headers.put("Content-Type", "application/json");
+            headers.put("Authorization", "Bearer " + apiKey);
+
+            // 将请求体转换为JSON字符串格式
+            String jsonBody = SpringUtils.getBean(ObjectMapper.class).writeValueAsString(requestBody);
+
+            // 异步发送POST请求到AI服务接口，响应完成时按发起时的项目记录usage，到达评审任务的截止时间时取消
+            String project = PromptCacheStats.currentProject();
+            LLMLatency latency = LLMLatency.current();
+            ReviewDeadline deadline = ReviewDeadline.current();
+            long start = System.currentTimeMillis();
+            CompletableFuture<String> future = HttpClientUtils.postAsync(url, jsonBody, headers);
+            if (deadline != null) {
+                deadline.bound(future);
+            }
+            future.thenAccept(response -> {
+                if (latency != null) {
+                    latency.recordResponse(System.currentTimeMillis() - start);
+                }
+                PromptCacheStats.recordResponse(project, response);
+            });
+            return future;
+        } catch (ReviewDeadlineExceededException e) {
+            return CompletableFuture.failedFuture(e);
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(new RuntimeException("获取AI内容出现异常，异常原因：" + e.getMessage(), e));
+        }
+    }
+
+    /**
+     * 以流式方式调用AI模型接口，边接收SSE事件边拼接内容
+     * <p>
+     * 整体受截止时间LLM_STREAM_DEADLINE及评审任务剩余时间约束，超时后中止请求并返回已接收的部分内容；
+     * 首个token耗时与总耗时记录在 {@link LLMStreamStats} 及当前的 {@link LLMLatency}。
+     *
+     * @param url              AI服务接口地址
+     * @param requestBody      请求体参数映射
+     * @param apiKey           认证密钥
+     * @param contentExtractor 从单个事件中提取增量内容，无内容时返回null
+     * @return 拼接后的完整内容，超时时为部分内容
+     */
+    default String callAIModelStream(String url, Map<String, Object> requestBody, String apiKey,
+                                     Function<SseEventParser.SseEvent, String> contentExtractor) {
+        // 评审任务剩余时间不足时不再发出请求
+        ReviewDeadline.checkCurrentRemaining("llm");
+        long deadlineMillis = ReviewDeadline.capMillis(Long.parseLong(SpringUtils.getPropertyOrDefault("LLM_STREAM_DEADLINE", "180000")));
+        LLMLatency latency = LLMLatency.currentOrNew();
+        long start = System.currentTimeMillis();
+        long[] firstTokenAt = {-1};
+        StringBuilder content = new StringBuilder();
+
+        try {
+            // 构建HTTP请求头，包含认证信息和内容类型
+            Map<String, String> headers = new HashMap<>();
+            headers.put("Content-Type", "application/json");
+            headers.put("Accept", "text/event-stream");
+            headers.put("Authorization", "Bearer " + apiKey);
+
+            // 请求体包含stream参数时改为流式输出并在最后一个事件中返回usage，Coze工作流等本身即为流式的接口不做修改
+            if (requestBody.containsKey("stream")) {
+                requestBody.put("stream", true);
+                requestBody.put("stream_options", Map.of("include_usage", true));
+            }
+            String project = PromptCacheStats.currentProject();
+            String jsonBody = SpringUtils.getBean(ObjectMapper.class).writeValueAsString(requestBody);
+
+            HttpClientUtils.postStream(url, jsonBody, headers, deadlineMillis, inputStream ->
+                    SseEventParser.parse(inputStream, event -> {
+                        // OpenAI兼容接口以[DONE]表示输出结束
+                        if ("[DONE]".equals(event.getData())) {
+                            return false;
+                        }
+                        String data = event.getData();
+                        if (data.contains("\"usage\"") && !data.contains("\"usage\":null")) {
+                            PromptCacheStats.recordResponse(project, data);
+                        }
+                        String delta = contentExtractor.apply(event);
+                        if (StringUtils.isNotEmpty(delta)) {
+                            if (firstTokenAt[0] < 0) {
+                                firstTokenAt[0] = System.currentTimeMillis() - start;
+                                latency.recordFirstToken(firstTokenAt[0]);
+                            }
+                            content.append(delta);
+                        }
+                        return true;
+                    }));
+        } catch (Exception e) {
+            // 超过截止时间被中止时返回已接收的部分内容
+            long elapsed = System.currentTimeMillis() - start;
+            if (elapsed < deadlineMillis || content.length() == 0) {
+                // 因评审任务到达截止时间被中止时抛出截止时间异常，不计为供应商的失败
+                ReviewDeadline.checkCurrent("llm");
+                throw new RuntimeException("获取AI内容出现异常，异常原因：" + e.getMessage(), e);
+            }
+            latency.recordResponse(elapsed);
+            LLMStreamStats.record(getProvider(), firstTokenAt[0], elapsed, true);
+            return content.toString();
+        }
+
+        latency.recordResponse(System.currentTimeMillis() - start);
+        LLMStreamStats.record(getProvider(), firstTokenAt[0], System.currentTimeMillis() - start, false);
+        return content.toString();
+    }
+
+    /**
+     * 转换异步调用的结果，调用方取消返回的Future时同时取消原始请求
+     * <p>
+     * 直接使用 thenApply 得到的Future被取消时不会中止底层HTTP请求。
+     *
+     * @param source 原始请求的Future
+     * @param mapper 结果转换
+     * @return 转换后的Future
+     */
+    static <T, R> CompletableFuture<R> mapAsync(CompletableFuture<T> source, Function<T, R> mapper) {
+        CompletableFuture<R> result = source.thenApply(mapper);
+        result.whenComplete((value, error) -> {
+            if (result.isCancelled()) {
+                source.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * 提取OpenAI兼容接口流式响应中的增量内容（choices[0].delta.content）
+     *
+     * @param event SSE事件
+     * @return 增量内容，无内容时返回null
+     */
+    static String parseChatCompletionChunk(SseEventParser.SseEvent event) {
+        if (StringUtils.isBlank(event.getData())) {
+            return null;
+        }
+        try {
+            JsonNode chunk = SpringUtils.getBean(ObjectMapper.class).readTree(event.getData());
+            JsonNode content = chunk.path("choices").path(0).path("delta").path("content");
+            return content.isTextual() ? content.asText() : null;
         } catch (Exception e) {
-            throw new RuntimeException("获取AI内容出现异常，异常原因：" + e.getMessage());
+            return null;
         }
     }
 }
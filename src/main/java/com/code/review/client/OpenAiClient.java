@@ -5,34 +5,158 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @Slf4j
 public class OpenAiClient implements LLMClient {
     @Override
     public String completions(List<Map<String, String>> messages) {
         // 获取模型名称
-        String openaiApiModel = SpringUtils.getPropertyOrDefault("OPENAI_API_MODEL", "gpt-4o-mini");
+        String openaiApiModel = getDefaultModel();
         return completions(messages, openaiApiModel);
     }
 
     @Override
     public String completions(List<Map<String, String>> messages, String model) {
         // 获取API密钥
-        String openaiApiKey = SpringUtils.getPropertyOrDefault("OPENAI_API_KEY", "");
-        if (StringUtils.isBlank(openaiApiKey)) {
-            throw new RuntimeException("OPENAI API key is required. Please provide it or set it in the environment variables.");
-        }
+        String openaiApiKey = getApiKey();
         // 请求地址
         String url = SpringUtils.getPropertyOrDefault("OPENAI_API_URL", "https://api.openai.com/v1/chat/completions");
 
         // 构建请求体参数，指定模型和相关配置
         Map<String, Object> requestBody = generalBaseRequestBody(messages, model);
 
+        // 开启流式输出时边接收边拼接增量内容
+        if (isStreamEnabled()) {
+            return callAIModelStream(url, requestBody, openaiApiKey, LLMClient::parseChatCompletionChunk);
+        }
+
         // 调用AI模型接口获取结果
         String response = callAIModel(url, requestBody, openaiApiKey);
 
+        return parseResponse(response);
+    }
+
+    @Override
+    public CompletableFuture<String> completionsAsync(List<Map<String, String>> messages) {
+        // 获取模型名称
+        String openaiApiModel = getDefaultModel();
+        return completionsAsync(messages, openaiApiModel);
+    }
+
+    @Override
+    public CompletableFuture<String> completionsAsync(List<Map<String, String>> messages, String model) {
+        // 获取API密钥
+        String openaiApiKey = getApiKey();
+        // 请求地址
+        String url = SpringUtils.getPropertyOrDefault("OPENAI_API_URL", "https://api.openai.com/v1/chat/completions");
+
+        // 构建请求体参数，指定模型和相关配置
+        Map<String, Object> requestBody = generalBaseRequestBody(messages, model);
+
+        // 异步调用AI模型接口获取结果
+        return LLMClient.mapAsync(callAIModelAsync(url, requestBody, openaiApiKey), this::parseResponse);
+    }
+
+    @Override
+    public String completionsJson(List<Map<String, String>> messages, String model, Map<String, Object> jsonSchema) {
+        // 获取模型名称
+        String openaiApiModel = StringUtils.defaultIfBlank(model, getDefaultModel());
+        // 获取API密钥
+        String openaiApiKey = getApiKey();
+        // 请求地址
+        String url = SpringUtils.getPropertyOrDefault("OPENAI_API_URL", "https://api.openai.com/v1/chat/completions");
+
+        // 构建请求体参数，要求模型按JSON输出
+        Map<String, Object> requestBody = generalBaseRequestBody(messages, openaiApiModel);
+        requestBody.put("response_format", buildResponseFormat(jsonSchema));
+
+        // 开启流式输出时边接收边拼接增量内容
+        if (isStreamEnabled()) {
+            return callAIModelStream(url, requestBody, openaiApiKey, LLMClient::parseChatCompletionChunk);
+        }
+        return parseResponse(callAIModel(url, requestBody, openaiApiKey));
+    }
+
+    @Override
+    public CompletableFuture<String> completionsJsonAsync(List<Map<String, String>> messages, String model, Map<String, Object> jsonSchema) {
+        // 获取模型名称
+        String openaiApiModel = StringUtils.defaultIfBlank(model, getDefaultModel());
+        // 获取API密钥
+        String openaiApiKey = getApiKey();
+        // 请求地址
+        String url = SpringUtils.getPropertyOrDefault("OPENAI_API_URL", "https://api.openai.com/v1/chat/completions");
+
+        // 构建请求体参数，要求模型按JSON输出
+        Map<String, Object> requestBody = generalBaseRequestBody(messages, openaiApiModel);
+        requestBody.put("response_format", buildResponseFormat(jsonSchema));
+
+        // 异步调用AI模型接口获取结果
+        return LLMClient.mapAsync(callAIModelAsync(url, requestBody, openaiApiKey), this::parseResponse);
+    }
+
+    @Override
+    public boolean supportsJsonOutput() {
+        return true;
+    }
+
+    /**
+     * OpenAI支持按JSON Schema严格约束输出
+     */
+    @Override
+    public Map<String, Object> buildResponseFormat(Map<String, Object> jsonSchema) {
+        Map<String, Object> schema = new HashMap<>();
+        schema.put("name", "review_report");
+        schema.put("strict", true);
+        schema.put("schema", jsonSchema);
+
+        Map<String, Object> responseFormat = new HashMap<>();
+        responseFormat.put("type", "json_schema");
+        responseFormat.put("json_schema", schema);
+        return responseFormat;
+    }
+
+    @Override
+    public String getProvider() {
+        return "openai";
+    }
+
+    @Override
+    public String getDefaultModel() {
+        return SpringUtils.getPropertyOrDefault("OPENAI_API_MODEL", "gpt-4o-mini");
+    }
+
+    /**
+     * gpt、chatgpt及o系列推理模型属于OpenAI
+     */
+    @Override
+    public boolean ownsModel(String model) {
+        return LLMClient.super.ownsModel(model) || StringUtils.startsWithAny(model.toLowerCase(), "gpt-", "chatgpt", "o1", "o3", "o4");
+    }
+
+    /**
+     * 获取API密钥
+     *
+     * @return API密钥
+     */
+    private String getApiKey() {
+        String openaiApiKey = SpringUtils.getPropertyOrDefault("OPENAI_API_KEY", "");
+        if (StringUtils.isBlank(openaiApiKey)) {
+            throw new RuntimeException("OPENAI API key is required. Please provide it or set it in the environment variables.");
+        }
+        return openaiApiKey;
+    }
+
+    /**
+     * 解析模型响应，提取回复内容
+     *
+     * @param response 模型接口返回的原始响应
+     * @return 回复内容，解析失败时返回空字符串
+     */
+    private String parseResponse(String response) {
         if (StringUtils.isBlank(response)) {
             return "";
         }
@@ -8,35 +8,154 @@ import org.apache.commons.lang3.StringUtils;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @Slf4j
 public class QwenClient implements LLMClient {
     @Override
     public String completions(List<Map<String, String>> messages) {
         // 获取模型名称
-        String qwenApiModel = SpringUtils.getPropertyOrDefault("QWEN_API_MODEL", "qwen-plus");
+        String qwenApiModel = getDefaultModel();
         return completions(messages, qwenApiModel);
     }
 
     @Override
     public String completions(List<Map<String, String>> messages, String model) {
         // 获取API密钥
-        String qwenApiKey = SpringUtils.getPropertyOrDefault("QWEN_API_KEY", "");
-        if (StringUtils.isBlank(qwenApiKey)) {
-            throw new RuntimeException("QWEN API key is required. Please provide it or set it in the environment variables.");
+        String qwenApiKey = getApiKey();
+        // 请求地址
+        String url = SpringUtils.getPropertyOrDefault("QWEN_API_URL", "https://dashscope.aliyuncs.com/compatible-mode/v1/chat/completions");
+
+        // 构建请求体参数，指定模型和相关配置
+        Map<String, Object> requestBody = buildRequestBody(messages, model);
+
+        // 开启流式输出时边接收边拼接增量内容
+        if (isStreamEnabled()) {
+            return callAIModelStream(url, requestBody, qwenApiKey, LLMClient::parseChatCompletionChunk);
         }
+
+        // 调用AI模型接口获取结果
+        String response = callAIModel(url, requestBody, qwenApiKey);
+
+        return parseResponse(response);
+    }
+
+    @Override
+    public CompletableFuture<String> completionsAsync(List<Map<String, String>> messages) {
+        // 获取模型名称
+        String qwenApiModel = getDefaultModel();
+        return completionsAsync(messages, qwenApiModel);
+    }
+
+    @Override
+    public CompletableFuture<String> completionsAsync(List<Map<String, String>> messages, String model) {
+        // 获取API密钥
+        String qwenApiKey = getApiKey();
         // 请求地址
         String url = SpringUtils.getPropertyOrDefault("QWEN_API_URL", "https://dashscope.aliyuncs.com/compatible-mode/v1/chat/completions");
 
         // 构建请求体参数，指定模型和相关配置
+        Map<String, Object> requestBody = buildRequestBody(messages, model);
+
+        // 异步调用AI模型接口获取结果
+        return LLMClient.mapAsync(callAIModelAsync(url, requestBody, qwenApiKey), this::parseResponse);
+    }
+
+    @Override
+    public String completionsJson(List<Map<String, String>> messages, String model, Map<String, Object> jsonSchema) {
+        // 获取模型名称
+        String qwenApiModel = StringUtils.defaultIfBlank(model, getDefaultModel());
+        // 获取API密钥
+        String qwenApiKey = getApiKey();
+        // 请求地址
+        String url = SpringUtils.getPropertyOrDefault("QWEN_API_URL", "https://dashscope.aliyuncs.com/compatible-mode/v1/chat/completions");
+
+        // 构建请求体参数，要求模型按JSON输出
+        Map<String, Object> requestBody = buildRequestBody(messages, qwenApiModel);
+        requestBody.put("response_format", buildResponseFormat(jsonSchema));
+
+        // 开启流式输出时边接收边拼接增量内容
+        if (isStreamEnabled()) {
+            return callAIModelStream(url, requestBody, qwenApiKey, LLMClient::parseChatCompletionChunk);
+        }
+        return parseResponse(callAIModel(url, requestBody, qwenApiKey));
+    }
+
+    @Override
+    public CompletableFuture<String> completionsJsonAsync(List<Map<String, String>> messages, String model, Map<String, Object> jsonSchema) {
+        // 获取模型名称
+        String qwenApiModel = StringUtils.defaultIfBlank(model, getDefaultModel());
+        // 获取API密钥
+        String qwenApiKey = getApiKey();
+        // 请求地址
+        String url = SpringUtils.getPropertyOrDefault("QWEN_API_URL", "https://dashscope.aliyuncs.com/compatible-mode/v1/chat/completions");
+
+        // 构建请求体参数，要求模型按JSON输出
+        Map<String, Object> requestBody = generalBaseRequestBody(messages, qwenApiModel);
+        requestBody.put("response_format", buildResponseFormat(jsonSchema));
+
+        // 异步调用AI模型接口获取结果
+        return LLMClient.mapAsync(callAIModelAsync(url, requestBody, qwenApiKey), this::parseResponse);
+    }
+
+    @Override
+    public boolean supportsJsonOutput() {
+        return true;
+    }
+
+    @Override
+    public String getProvider() {
+        return "qwen";
+    }
+
+    @Override
+    public String getDefaultModel() {
+        return SpringUtils.getPropertyOrDefault("QWEN_API_MODEL", "qwen-plus");
+    }
+
+    /**
+     * qwen、qwq系列模型属于通义千问
+     */
+    @Override
+    public boolean ownsModel(String model) {
+        return LLMClient.super.ownsModel(model) || StringUtils.startsWithAny(model.toLowerCase(), "qwen", "qwq");
+    }
+
+    /**
+     * 构建请求体参数，关闭思考模式
+     *
+     * @param messages 消息列表
+     * @param model    模型名称
+     * @return 请求体Map
+     */
+    private Map<String, Object> buildRequestBody(List<Map<String, String>> messages, String model) {
         Map<String, Object> requestBody = generalBaseRequestBody(messages, model);
         Map<String, Boolean> extraBody = new HashMap<>();
         extraBody.put("enable_thinking", false);
         requestBody.put("extra_body", extraBody);
+        return requestBody;
+    }
 
-        // 调用AI模型接口获取结果
-        String response = callAIModel(url, requestBody, qwenApiKey);
+    /**
+     * 获取API密钥
+     *
+     * @return API密钥
+     */
+    private String getApiKey() {
+        String qwenApiKey = SpringUtils.getPropertyOrDefault("QWEN_API_KEY", "");
+        if (StringUtils.isBlank(qwenApiKey)) {
+            throw new RuntimeException("QWEN API key is required. Please provide it or set it in the environment variables.");
+        }
+        return qwenApiKey;
+    }
 
+    /**
+     * 解析模型响应，提取回复内容
+     *
+     * @param response 模型接口返回的原始响应
+     * @return 回复内容，解析失败时返回空字符串
+     */
+    private String parseResponse(String response) {
         if (StringUtils.isBlank(response)) {
             return "";
         }
@@ -0,0 +1,484 @@
+package com.code.review.client;
+
+import com.code.review.factory.LLMClientFactory;
+import com.code.review.utils.CircuitBreakerOpenException;
+import com.code.review.utils.ConcurrencyLimitExceededException;
+import com.code.review.utils.LLMLatency;
+import com.code.review.utils.LLMResponder;
+import com.code.review.utils.PromptCacheStats;
+import com.code.review.utils.RetryScheduler;
+import com.code.review.utils.ReviewDeadline;
+import com.code.review.utils.SpringUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * 多供应商路由客户端
+ * <p>
+ * 按供应商统计响应耗时和错误率的指数加权移动平均（EWMA），每次请求优先发送给当前最快的健康供应商，
+ * 耗时按权重折算（权重越大越优先）；调用失败或返回空内容时依次切换到下一个供应商。
+ * 耗时与熔断器、并发限制器一致：流式调用取首个token耗时，非流式调用按输出token数分组统计，
+ * 排序时按各组与其他供应商的耗时之比比较，避免短小的分诊、汇总请求与完整评审混在一起影响判断。
+ * 熔断中或错误率超过 LLM_ROUTING_MAX_ERROR_RATE 的供应商视为不健康，只在所有健康供应商都失败后才尝试。
+ * 熔断拒绝与本地排队超时的请求未实际发出，不计入错误率；评审任务超过截止时间或请求被取消时不计入错误率，也不再切换供应商。
+ * <p>
+ * 指定模型的请求只把该模型发给所属的供应商（见 {@link LLMClient#ownsModel}），切换到其他供应商时使用其默认模型；
+ * 实际响应的供应商与模型写入 {@link LLMResponder}。
+ */
+@Slf4j
+public class RoutingLLMClient implements LLMClient {
+
+    /**
+     * 各供应商的路由统计，按供应商名称共享
+     */
+    private static final Map<String, Route> ROUTES = new ConcurrentHashMap<>();
+
+    /**
+     * 各项目最近一次调用成功的供应商，用于保持项目与供应商的亲和性以命中提示词前缀缓存
+     */
+    private static final Map<String, String> PROJECT_AFFINITY = new ConcurrentHashMap<>();
+
+    private final List<Target> targets = new ArrayList<>();
+
+    /**
+     * @param weights 供应商名称及权重，按配置顺序排列
+     */
+    public RoutingLLMClient(Map<String, Integer> weights) {
+        weights.forEach((provider, weight) -> targets.add(
+                new Target(LLMClientFactory.getClient(provider), ROUTES.computeIfAbsent(provider, Route::new), Math.max(1, weight))));
+    }
+
+    @Override
+    public String completions(List<Map<String, String>> messages) {
+        return route(null, (client, model) -> client.completions(messages));
+    }
+
+    /**
+     * 指定的模型只发给所属的供应商，其他供应商使用各自的默认模型
+     */
+    @Override
+    public String completions(List<Map<String, String>> messages, String model) {
+        return route(model, (client, targetModel) -> targetModel == null ? client.completions(messages) : client.completions(messages, targetModel));
+    }
+
+    /**
+     * 指定的模型只发给所属的供应商，其他供应商使用各自的默认模型
+     */
+    @Override
+    public String completionsJson(List<Map<String, String>> messages, String model, Map<String, Object> jsonSchema) {
+        return route(model, (client, targetModel) -> client.completionsJson(messages, targetModel, jsonSchema));
+    }
+
+    /**
+     * 所有供应商都支持时才支持结构化JSON输出，保证切换供应商后输出格式一致
+     */
+    @Override
+    public boolean supportsJsonOutput() {
+        return targets.stream().allMatch(target -> target.client.supportsJsonOutput());
+    }
+
+    @Override
+    public CompletableFuture<String> completionsAsync(List<Map<String, String>> messages) {
+        return routeAsync(null, (client, model) -> client.completionsAsync(messages));
+    }
+
+    /**
+     * 指定的模型只发给所属的供应商，其他供应商使用各自的默认模型
+     */
+    @Override
+    public CompletableFuture<String> completionsAsync(List<Map<String, String>> messages, String model) {
+        return routeAsync(model, (client, targetModel) -> targetModel == null
+                ? client.completionsAsync(messages) : client.completionsAsync(messages, targetModel));
+    }
+
+    /**
+     * 指定的模型只发给所属的供应商，其他供应商使用各自的默认模型
+     */
+    @Override
+    public CompletableFuture<String> completionsJsonAsync(List<Map<String, String>> messages, String model, Map<String, Object> jsonSchema) {
+        return routeAsync(model, (client, targetModel) -> client.completionsJsonAsync(messages, targetModel, jsonSchema));
+    }
+
+    /**
+     * 按当前的路由顺序返回各供应商及其使用的模型
+     */
+    @Override
+    public Map<String, String> resolveModels(String model) {
+        Map<String, String> models = new LinkedHashMap<>();
+        for (Target target : rank(model)) {
+            models.put(target.route.provider, StringUtils.defaultIfBlank(modelFor(target, model), target.client.getDefaultModel()));
+        }
+        return models;
+    }
+
+    @Override
+    public String getProvider() {
+        return "routing";
+    }
+
+    /**
+     * 所有供应商都熔断时返回最短的剩余熔断时间
+     */
+    @Override
+    public long getRemainingOpenMillis() {
+        return targets.stream().mapToLong(target -> target.client.getRemainingOpenMillis()).min().orElse(0);
+    }
+
+    /**
+     * 依次尝试各供应商，成功时记录实际响应的供应商与模型
+     *
+     * @param model 调用方指定的模型，为null时使用各供应商的默认模型
+     * @param call  调用，参数为供应商客户端及其使用的模型（null表示默认模型）
+     */
+    private String route(String model, BiFunction<LLMClient, String, String> call) {
+        LLMResponder responder = LLMResponder.current();
+        RuntimeException lastError = null;
+        for (Target target : rank(model)) {
+            LLMLatency latency = new LLMLatency();
+            long start = System.currentTimeMillis();
+            try {
+                target.route.selected.increment();
+                String targetModel = modelFor(target, model);
+                String result = LLMLatency.callWith(latency, () -> call.apply(target.client, targetModel));
+                if (StringUtils.isNotBlank(result)) {
+                    target.route.onResult(latency, System.currentTimeMillis() - start, result, false);
+                    pin(PromptCacheStats.currentProject(), target);
+                    respond(responder, target, targetModel);
+                    return result;
+                }
+                target.route.onResult(latency, System.currentTimeMillis() - start, null, true);
+                lastError = new RuntimeException("大模型[" + target.route.provider + "]返回内容为空");
+            } catch (RuntimeException e) {
+                // 评审任务已超过截止时间，切换供应商也无法完成
+                if (ReviewDeadline.isAborted(e)) {
+                    throw e;
+                }
+                if (!isRejected(e)) {
+                    target.route.onResult(latency, System.currentTimeMillis() - start, null, true);
+                }
+                lastError = e;
+            }
+            target.route.failovers.increment();
+            log.warn("大模型[{}]调用失败，切换到下一个供应商，原因：{}", target.route.provider, lastError.getMessage());
+        }
+        throw lastError;
+    }
+
+    private CompletableFuture<String> routeAsync(String model, BiFunction<LLMClient, String, CompletableFuture<String>> call) {
+        CompletableFuture<String> result = new CompletableFuture<>();
+        // 切换供应商时在其他线程发起请求，需要带上当前项目、评审任务的截止时间与响应记录
+        String project = PromptCacheStats.currentProject();
+        ReviewDeadline deadline = ReviewDeadline.current();
+        LLMResponder responder = LLMResponder.current();
+        routeAsync(rank(model), 0, target -> PromptCacheStats.callWithProject(project,
+                        () -> ReviewDeadline.callWithDeadline(deadline, () -> call.apply(target.client, modelFor(target, model)))),
+                target -> {
+                    pin(project, target);
+                    respond(responder, target, modelFor(target, model));
+                }, result, null);
+        return result;
+    }
+
+    /**
+     * 依次尝试各供应商，调用方取消返回的Future时同时取消正在进行的请求
+     */
+    private void routeAsync(List<Target> ranked, int index, Function<Target, CompletableFuture<String>> call, Consumer<Target> onSuccess,
+                            CompletableFuture<String> result, Throwable lastError) {
+        if (result.isDone()) {
+            return;
+        }
+        if (index >= ranked.size()) {
+            result.completeExceptionally(lastError);
+            return;
+        }
+
+        Target target = ranked.get(index);
+        LLMLatency latency = new LLMLatency();
+        long start = System.currentTimeMillis();
+        target.route.selected.increment();
+        CompletableFuture<String> future;
+        try {
+            future = LLMLatency.callWith(latency, () -> call.apply(target));
+        } catch (Exception e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+        CompletableFuture<String> current = future;
+        result.whenComplete((value, error) -> {
+            if (result.isCancelled()) {
+                current.cancel(true);
+            }
+        });
+
+        future.whenComplete((value, error) -> {
+            if (current.isCancelled()) {
+                return;
+            }
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            // 评审任务已超过截止时间或请求被取消，不计入错误率也不再切换供应商
+            if (cause != null && ReviewDeadline.isAborted(cause)) {
+                result.completeExceptionally(cause);
+                return;
+            }
+            if (cause == null && StringUtils.isNotBlank(value)) {
+                target.route.onResult(latency, System.currentTimeMillis() - start, value, false);
+                onSuccess.accept(target);
+                result.complete(value);
+                return;
+            }
+            if (cause == null) {
+                cause = new RuntimeException("大模型[" + target.route.provider + "]返回内容为空");
+            }
+            if (!isRejected(cause)) {
+                target.route.onResult(latency, System.currentTimeMillis() - start, null, true);
+            }
+            target.route.failovers.increment();
+            log.warn("大模型[{}]调用失败，切换到下一个供应商，原因：{}", target.route.provider, cause.getMessage());
+            routeAsync(ranked, index + 1, call, onSuccess, result, cause);
+        });
+    }
+
+    /**
+     * 按健康状态和折算耗时排序：健康的供应商在前，耗时短的在前；指定模型时所属的供应商健康即排在最前
+     */
+    private List<Target> rank(String model) {
+        int maxErrorRate = Integer.parseInt(SpringUtils.getPropertyOrDefault("LLM_ROUTING_MAX_ERROR_RATE", "50"));
+        List<Target> healthy = new ArrayList<>();
+        List<Target> unhealthy = new ArrayList<>();
+        for (Target target : targets) {
+            boolean permitted = target.client.getRemainingOpenMillis() <= 0;
+            if (permitted && target.route.getErrorRate() * 100 < maxErrorRate) {
+                healthy.add(target);
+            } else {
+                unhealthy.add(target);
+            }
+        }
+        Map<Target, Double> scores = scores();
+        Comparator<Target> comparator = Comparator.comparingDouble(scores::get);
+        healthy.sort(comparator);
+        unhealthy.sort(comparator);
+        preferAffinity(healthy, scores);
+        preferOwner(healthy, model);
+        healthy.addAll(unhealthy);
+        return healthy;
+    }
+
+    /**
+     * 计算各供应商按权重折算后的相对耗时：每个分组内与有该组数据的供应商平均耗时相比，再按本供应商该组的样本数加权平均。
+     * 尚无统计数据的供应商为0，优先尝试；只有自己有数据的分组按1计
+     */
+    private Map<Target, Double> scores() {
+        Map<Target, double[]> latencies = new HashMap<>();
+        Map<Target, int[]> samples = new HashMap<>();
+        for (Target target : targets) {
+            synchronized (target.route) {
+                latencies.put(target, target.route.latency.clone());
+                samples.put(target, target.route.samples.clone());
+            }
+        }
+        double[] classTotal = new double[LLMLatency.SIZE_CLASSES];
+        int[] classProviders = new int[LLMLatency.SIZE_CLASSES];
+        for (Target target : targets) {
+            for (int i = 0; i < LLMLatency.SIZE_CLASSES; i++) {
+                if (samples.get(target)[i] > 0) {
+                    classTotal[i] += latencies.get(target)[i];
+                    classProviders[i]++;
+                }
+            }
+        }
+        Map<Target, Double> scores = new HashMap<>();
+        for (Target target : targets) {
+            double weighted = 0;
+            long count = 0;
+            for (int i = 0; i < LLMLatency.SIZE_CLASSES; i++) {
+                int n = samples.get(target)[i];
+                double average = classProviders[i] == 0 ? 0 : classTotal[i] / classProviders[i];
+                if (n > 0 && average > 0) {
+                    weighted += n * latencies.get(target)[i] / average;
+                    count += n;
+                }
+            }
+            scores.put(target, count == 0 ? 0 : weighted / count / target.weight);
+        }
+        return scores;
+    }
+
+    /**
+     * 熔断拒绝或本地并发限制排队超时：请求未实际发出，与供应商的健康状况无关，不计入错误率但仍切换供应商
+     */
+    private static boolean isRejected(Throwable error) {
+        Throwable cause = RetryScheduler.unwrap(error);
+        return cause instanceof CircuitBreakerOpenException || cause instanceof ConcurrencyLimitExceededException;
+    }
+
+    /**
+     * 指定的模型所属的供应商健康时优先使用；没有供应商拥有该模型时各供应商均使用默认模型
+     */
+    private void preferOwner(List<Target> healthy, String model) {
+        if (model == null) {
+            return;
+        }
+        for (int i = 0; i < healthy.size(); i++) {
+            if (healthy.get(i).client.ownsModel(model)) {
+                healthy.add(0, healthy.remove(i));
+                return;
+            }
+        }
+        if (targets.stream().noneMatch(target -> target.client.ownsModel(model))) {
+            log.warn("模型[{}]不属于任何路由的供应商，各供应商使用默认模型", model);
+        }
+    }
+
+    /**
+     * 供应商使用的模型：指定的模型属于该供应商时使用指定的模型，否则为null（默认模型）
+     */
+    private static String modelFor(Target target, String model) {
+        return model != null && target.client.ownsModel(model) ? model : null;
+    }
+
+    private static void respond(LLMResponder responder, Target target, String targetModel) {
+        if (responder != null) {
+            responder.record(target.route.provider, targetModel != null ? targetModel : target.client.getDefaultModel());
+        }
+    }
+
+    /**
+     * 当前项目上次使用的供应商仍健康且相对耗时不超过最快供应商的 LLM_ROUTING_AFFINITY_TOLERANCE 倍时优先使用，
+     * 使同一项目的请求落在同一供应商上以命中提示词前缀缓存
+     */
+    private void preferAffinity(List<Target> healthy, Map<Target, Double> scores) {
+        double tolerance = Double.parseDouble(SpringUtils.getPropertyOrDefault("LLM_ROUTING_AFFINITY_TOLERANCE", "1.5"));
+        String project = PromptCacheStats.currentProject();
+        if (tolerance <= 0 || project == null || healthy.size() < 2) {
+            return;
+        }
+        String provider = PROJECT_AFFINITY.get(project);
+        for (int i = 1; i < healthy.size(); i++) {
+            Target target = healthy.get(i);
+            if (target.route.provider.equals(provider) && scores.get(target) <= scores.get(healthy.get(0)) * tolerance) {
+                healthy.add(0, healthy.remove(i));
+                return;
+            }
+        }
+    }
+
+    private void pin(String project, Target target) {
+        if (project != null) {
+            PROJECT_AFFINITY.put(project, target.route.provider);
+        }
+    }
+
+    /**
+     * 获取各供应商的路由统计信息
+     *
+     * @return 按供应商组织的选中次数、切换次数、平均耗时与错误率
+     */
+    public static Map<String, Object> getStats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        ROUTES.forEach((provider, route) -> result.put(provider, route.getStats()));
+        return result;
+    }
+
+    /**
+     * 路由目标：供应商客户端、统计信息与权重
+     */
+    private static class Target {
+        private final LLMClient client;
+        private final Route route;
+        private final int weight;
+
+        Target(LLMClient client, Route route, int weight) {
+            this.client = client;
+            this.route = route;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * 单个供应商的路由统计
+     */
+    private static class Route {
+        private final String provider;
+        /**
+         * 各分组成功调用耗时的EWMA，分组同 {@link LLMLatency#sizeClass}
+         */
+        private final double[] latency = new double[LLMLatency.SIZE_CLASSES];
+        private final int[] samples = new int[LLMLatency.SIZE_CLASSES];
+        private double errorRate;
+        private long errorUpdatedAt;
+
+        private final LongAdder selected = new LongAdder();
+        private final LongAdder failovers = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+
+        Route(String provider) {
+            this.provider = provider;
+        }
+
+        /**
+         * 记录调用结果：收到首个token时计入首个token耗时分组，否则按HTTP请求耗时及输出token数分组
+         *
+         * @param record        本次调用的耗时记录
+         * @param elapsedMillis 路由测得的耗时，耗时记录中没有HTTP请求耗时时使用
+         * @param result        模型输出，失败时为null
+         * @param failed        是否失败
+         */
+        synchronized void onResult(LLMLatency record, long elapsedMillis, String result, boolean failed) {
+            double alpha = Double.parseDouble(SpringUtils.getPropertyOrDefault("LLM_ROUTING_EWMA_ALPHA", "0.2"));
+            if (failed) {
+                errors.increment();
+            }
+            errorRate = alpha * (failed ? 1 : 0) + (1 - alpha) * getErrorRate();
+            errorUpdatedAt = System.currentTimeMillis();
+            // 失败的调用耗时不代表正常响应速度，只更新错误率
+            if (!failed) {
+                long firstTokenMillis = record.getFirstTokenMillis();
+                long durationMillis = firstTokenMillis >= 0 ? firstTokenMillis : record.getResponseMillis(elapsedMillis);
+                int sizeClass = firstTokenMillis >= 0 ? 0 : LLMLatency.sizeClass(LLMLatency.estimateOutputTokens(result));
+                latency[sizeClass] = samples[sizeClass] > 0 ? alpha * durationMillis + (1 - alpha) * latency[sizeClass] : durationMillis;
+                samples[sizeClass]++;
+            }
+        }
+
+        /**
+         * 错误率随时间按半衰期衰减，避免因错误率过高不再被选中的供应商无法恢复
+         */
+        synchronized double getErrorRate() {
+            if (errorRate == 0) {
+                return 0;
+            }
+            long halfLife = Long.parseLong(SpringUtils.getPropertyOrDefault("LLM_ROUTING_ERROR_HALF_LIFE", "60000"));
+            long elapsed = System.currentTimeMillis() - errorUpdatedAt;
+            return errorRate * Math.pow(0.5, (double) elapsed / Math.max(1, halfLife));
+        }
+
+        synchronized Map<String, Object> getStats() {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("selected", selected.sum());
+            stats.put("failovers", failovers.sum());
+            stats.put("errors", errors.sum());
+            Map<String, Object> latencies = new LinkedHashMap<>();
+            for (int i = 0; i < LLMLatency.SIZE_CLASSES; i++) {
+                if (samples[i] > 0) {
+                    latencies.put(LLMLatency.sizeClassName(i), Math.round(latency[i]));
+                }
+            }
+            stats.put("ewmaLatencyMillis", latencies);
+            stats.put("ewmaErrorRate", Math.round(getErrorRate() * 100));
+            return stats;
+        }
+    }
+}
@@ -7,32 +7,139 @@ import org.apache.commons.lang3.StringUtils;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @Slf4j
 public class ZhiPuAiClient implements LLMClient {
     @Override
     public String completions(List<Map<String, String>> messages) {
         // 获取模型名称
-        String zhiPuApiModel = SpringUtils.getPropertyOrDefault("ZHIPU_API_MODEL", "glm-4.6");
+        String zhiPuApiModel = getDefaultModel();
         return completions(messages, zhiPuApiModel);
     }
 
     @Override
     public String completions(List<Map<String, String>> messages, String model) {
         // 获取API密钥
-        String zhiPuApiKey = SpringUtils.getPropertyOrDefault("ZHIPU_API_KEY", "");
-        if (StringUtils.isBlank(zhiPuApiKey)) {
-            throw new RuntimeException("ZHIPU API key is required. Please provide it or set it in the environment variables.");
-        }
+        String zhiPuApiKey = getApiKey();
         // 请求地址
         String url = SpringUtils.getPropertyOrDefault("ZHIPU_API_URL", "https://open.bigmodel.cn/api/paas/v4/chat/completions");
 
         // 构建请求体参数，指定模型和相关配置
         Map<String, Object> requestBody = generalBaseRequestBody(messages, model);
 
+        // 开启流式输出时边接收边拼接增量内容
+        if (isStreamEnabled()) {
+            return callAIModelStream(url, requestBody, zhiPuApiKey, LLMClient::parseChatCompletionChunk);
+        }
+
         // 调用AI模型接口获取结果
         String response = callAIModel(url, requestBody, zhiPuApiKey);
 
+        return parseResponse(response);
+    }
+
+    @Override
+    public CompletableFuture<String> completionsAsync(List<Map<String, String>> messages) {
+        // 获取模型名称
+        String zhiPuApiModel = getDefaultModel();
+        return completionsAsync(messages, zhiPuApiModel);
+    }
+
+    @Override
+    public CompletableFuture<String> completionsAsync(List<Map<String, String>> messages, String model) {
+        // 获取API密钥
+        String zhiPuApiKey = getApiKey();
+        // 请求地址
+        String url = SpringUtils.getPropertyOrDefault("ZHIPU_API_URL", "https://open.bigmodel.cn/api/paas/v4/chat/completions");
+
+        // 构建请求体参数，指定模型和相关配置
+        Map<String, Object> requestBody = generalBaseRequestBody(messages, model);
+
+        // 异步调用AI模型接口获取结果
+        return LLMClient.mapAsync(callAIModelAsync(url, requestBody, zhiPuApiKey), this::parseResponse);
+    }
+
+    @Override
+    public String completionsJson(List<Map<String, String>> messages, String model, Map<String, Object> jsonSchema) {
+        // 获取模型名称
+        String zhiPuApiModel = StringUtils.defaultIfBlank(model, getDefaultModel());
+        // 获取API密钥
+        String zhiPuApiKey = getApiKey();
+        // 请求地址
+        String url = SpringUtils.getPropertyOrDefault("ZHIPU_API_URL", "https://open.bigmodel.cn/api/paas/v4/chat/completions");
+
+        // 构建请求体参数，要求模型按JSON输出
+        Map<String, Object> requestBody = generalBaseRequestBody(messages, zhiPuApiModel);
+        requestBody.put("response_format", buildResponseFormat(jsonSchema));
+
+        // 开启流式输出时边接收边拼接增量内容
+        if (isStreamEnabled()) {
+            return callAIModelStream(url, requestBody, zhiPuApiKey, LLMClient::parseChatCompletionChunk);
+        }
+        return parseResponse(callAIModel(url, requestBody, zhiPuApiKey));
+    }
+
+    @Override
+    public CompletableFuture<String> completionsJsonAsync(List<Map<String, String>> messages, String model, Map<String, Object> jsonSchema) {
+        // 获取模型名称
+        String zhiPuApiModel = StringUtils.defaultIfBlank(model, getDefaultModel());
+        // 获取API密钥
+        String zhiPuApiKey = getApiKey();
+        // 请求地址
+        String url = SpringUtils.getPropertyOrDefault("ZHIPU_API_URL", "https://open.bigmodel.cn/api/paas/v4/chat/completions");
+
+        // 构建请求体参数，要求模型按JSON输出
+        Map<String, Object> requestBody = generalBaseRequestBody(messages, zhiPuApiModel);
+        requestBody.put("response_format", buildResponseFormat(jsonSchema));
+
+        // 异步调用AI模型接口获取结果
+        return LLMClient.mapAsync(callAIModelAsync(url, requestBody, zhiPuApiKey), this::parseResponse);
+    }
+
+    @Override
+    public boolean supportsJsonOutput() {
+        return true;
+    }
+
+    @Override
+    public String getProvider() {
+        return "zhipuai";
+    }
+
+    @Override
+    public String getDefaultModel() {
+        return SpringUtils.getPropertyOrDefault("ZHIPU_API_MODEL", "glm-4.6");
+    }
+
+    /**
+     * glm系列模型属于智谱
+     */
+    @Override
+    public boolean ownsModel(String model) {
+        return LLMClient.super.ownsModel(model) || StringUtils.startsWithAny(model.toLowerCase(), "glm");
+    }
+
+    /**
+     * 获取API密钥
+     *
+     * @return API密钥
+     */
+    private String getApiKey() {
+        String zhiPuApiKey = SpringUtils.getPropertyOrDefault("ZHIPU_API_KEY", "");
+        if (StringUtils.isBlank(zhiPuApiKey)) {
+            throw new RuntimeException("ZHIPU API key is required. Please provide it or set it in the environment variables.");
+        }
+        return zhiPuApiKey;
+    }
+
+    /**
+     * 解析模型响应，提取回复内容
+     *
+     * @param response 模型接口返回的原始响应
+     * @return 回复内容，解析失败时返回空字符串
+     */
+    private String parseResponse(String response) {
         if (StringUtils.isBlank(response)) {
             return "";
         }
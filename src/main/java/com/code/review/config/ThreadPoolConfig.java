@@ -19,6 +19,10 @@ public class ThreadPoolConfig {
     private static final int queueCapacity = 1000;
     // 线程池维护线程所允许的空闲时间
     private static final int keepAliveSeconds = 300;
+    // 获取Git变更的线程池大小
+    private static final int gitFetchCorePoolSize = 8;
+    private static final int gitFetchMaxPoolSize = 32;
+    private static final int gitFetchQueueCapacity = 1000;
 
     @Bean(name = "threadPoolTaskExecutor")
     public ThreadPoolTaskExecutor threadPoolTaskExecutor() {
@@ -31,4 +35,22 @@ public class ThreadPoolConfig {
         executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
         return executor;
     }
+
+    /**
+     * 获取Git变更（含重试）的线程池
+     * <p>
+     * 重试由 retry-scheduler 定时器线程发起，线程池饱和时不能由调用方线程执行阻塞的请求，否则会阻塞所有定时任务
+     * （截止时间取消、排队超时、对冲请求等），因此满时拒绝，由本次获取失败代替。
+     */
+    @Bean(name = "gitFetchExecutor")
+    public ThreadPoolTaskExecutor gitFetchExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setMaxPoolSize(gitFetchMaxPoolSize);
+        executor.setCorePoolSize(gitFetchCorePoolSize);
+        executor.setQueueCapacity(gitFetchQueueCapacity);
+        executor.setKeepAliveSeconds(keepAliveSeconds);
+        executor.setThreadNamePrefix("git-fetch-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        return executor;
+    }
 }
@@ -0,0 +1,183 @@
+package com.code.review.controller;
+
+import com.code.review.client.HedgingLLMClient;
+import com.code.review.client.RoutingLLMClient;
+import com.code.review.entity.AjaxResult;
+import com.code.review.utils.AdaptiveConcurrencyLimiter;
+import com.code.review.utils.CircuitBreaker;
+import com.code.review.utils.DiffStore;
+import com.code.review.utils.GitRateLimiter;
+import com.code.review.utils.HttpClientPool;
+import com.code.review.utils.HttpResponseCache;
+import com.code.review.utils.LLMStreamStats;
+import com.code.review.utils.PromptCacheStats;
+import com.code.review.utils.PromptWriter;
+import com.code.review.utils.RetryScheduler;
+import com.code.review.utils.ReviewDeadline;
+import com.code.review.utils.ReviewResultCache;
+import com.code.review.utils.ReviewTriage;
+import com.code.review.utils.TokenBudgetAllocator;
+import com.code.review.utils.TokenEstimator;
+import com.code.review.utils.TokenUtils;
+import com.code.review.utils.HttpTrafficStats;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 运行指标查询接口
+ */
+@RestController
+@RequestMapping("/review/metrics")
+public class MetricsController {
+
+    /**
+     * 查询HTTP连接池统计信息
+     */
+    @GetMapping("/http")
+    public AjaxResult httpPoolStats() {
+        return AjaxResult.success(HttpClientPool.getPoolStats());
+    }
+
+    /**
+     * 查询HTTP流量统计信息，包括压缩前后的字节数
+     */
+    @GetMapping("/compression")
+    public AjaxResult compressionStats() {
+        return AjaxResult.success(HttpTrafficStats.getStats());
+    }
+
+    /**
+     * 查询Git API响应缓存统计信息
+     */
+    @GetMapping("/cache")
+    public AjaxResult cacheStats() {
+        return AjaxResult.success(HttpResponseCache.getStats());
+    }
+
+    /**
+     * 查询Git API限流统计信息，包括各令牌的剩余配额与排队等待时长
+     */
+    @GetMapping("/ratelimit")
+    public AjaxResult rateLimitStats() {
+        return AjaxResult.success(GitRateLimiter.getStats());
+    }
+
+    /**
+     * 查询重试统计信息，包括按原因统计的重试次数与等待总时长
+     */
+    @GetMapping("/retry")
+    public AjaxResult retryStats() {
+        return AjaxResult.success(RetryScheduler.getStats());
+    }
+
+    /**
+     * 查询熔断器状态，包括各大模型供应商的失败率、慢调用率与熔断状态
+     */
+    @GetMapping("/breaker")
+    public AjaxResult breakerStats() {
+        return AjaxResult.success(CircuitBreaker.getAllStats());
+    }
+
+    /**
+     * 查询大模型流式输出统计信息，包括各供应商的首个token耗时与部分结果次数
+     */
+    @GetMapping("/stream")
+    public AjaxResult streamStats() {
+        return AjaxResult.success(LLMStreamStats.getStats());
+    }
+
+    /**
+     * 查询评审结果缓存统计信息，包括各级缓存的命中次数与命中率
+     */
+    @GetMapping("/review-cache")
+    public AjaxResult reviewCacheStats() {
+        return AjaxResult.success(ReviewResultCache.getStats());
+    }
+
+    /**
+     * 查询大模型路由统计信息，包括各供应商的选中次数、切换次数、平均耗时与错误率
+     */
+    @GetMapping("/routing")
+    public AjaxResult routingStats() {
+        return AjaxResult.success(RoutingLLMClient.getStats());
+    }
+
+    /**
+     * 查询大模型并发限制统计信息，包括各供应商的当前上限、进行中请求数与排队等待时长
+     */
+    @GetMapping("/concurrency")
+    public AjaxResult concurrencyStats() {
+        return AjaxResult.success(AdaptiveConcurrencyLimiter.getAllStats());
+    }
+
+    /**
+     * 查询提示词前缀缓存命中统计，包括各项目的命中率与节省的token数
+     */
+    @GetMapping("/prompt-cache")
+    public AjaxResult promptCacheStats() {
+        return AjaxResult.success(PromptCacheStats.getStats());
+    }
+
+    /**
+     * 查询大模型对冲请求统计信息，包括各供应商的对冲次数、对冲获胜次数与当前对冲延迟
+     */
+    @GetMapping("/hedge")
+    public AjaxResult hedgeStats() {
+        return AjaxResult.success(HedgingLLMClient.getStats());
+    }
+
+    /**
+     * 查询评审任务截止时间统计信息，包括降级次数、逾期完成数与各阶段的超时次数
+     */
+    @GetMapping("/deadline")
+    public AjaxResult deadlineStats() {
+        return AjaxResult.success(ReviewDeadline.getStats());
+    }
+
+    /**
+     * 查询评审初筛统计信息，包括各风险级别的变更数、完整审查耗时与估算节省的大模型耗时
+     */
+    @GetMapping("/triage")
+    public AjaxResult triageStats() {
+        return AjaxResult.success(ReviewTriage.getStats());
+    }
+
+    /**
+     * 查询分词器信息与token快速估算的统计信息
+     */
+    @GetMapping("/tokenizer")
+    public AjaxResult tokenizerStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("tokenizer", TokenUtils.getTokenizer().getName());
+        stats.put("estimator", TokenEstimator.getStats());
+        return AjaxResult.success(stats);
+    }
+
+    /**
+     * 查询token预算分配统计信息，包括裁剪与省略的文件数
+     */
+    @GetMapping("/budget")
+    public AjaxResult budgetStats() {
+        return AjaxResult.success(TokenBudgetAllocator.getStats());
+    }
+
+    /**
+     * 查询提示词紧凑序列化统计信息，包括与原格式相比节省的字符数与token数
+     */
+    @GetMapping("/prompt")
+    public AjaxResult promptStats() {
+        return AjaxResult.success(PromptWriter.getStats());
+    }
+
+    /**
+     * 查询diff存储统计信息，包括进行中任务的堆内与溢出到磁盘的字节数
+     */
+    @GetMapping("/diffstore")
+    public AjaxResult diffStoreStats() {
+        return AjaxResult.success(DiffStore.getStats());
+    }
+}
@@ -1,6 +1,8 @@
 package com.code.review.entity;
 
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
 
 @Data
 public class ChangeInfo {
@@ -8,6 +10,12 @@ public class ChangeInfo {
      * 差异信息
      */
     private String diff;
+    /**
+     * 溢出到磁盘的差异信息（内存映射的只读视图），与diff二者只有一个有值
+     */
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private CharSequence spilledDiff;
     /**
      * 新文件路径
      */
@@ -20,4 +28,31 @@ public class ChangeInfo {
      * 删除行数
      */
     private Integer deletions;
+
+    /**
+     * 获取差异信息，已溢出到磁盘时从映射视图复制一份
+     */
+    public String getDiff() {
+        return diff != null || spilledDiff == null ? diff : spilledDiff.toString();
+    }
+
+    /**
+     * 获取差异信息，已溢出到磁盘时直接返回映射视图，不复制到堆内
+     */
+    public CharSequence getDiffContent() {
+        return diff != null ? diff : spilledDiff;
+    }
+
+    /**
+     * 设置 {@link com.code.review.utils.DiffStore} 返回的差异信息
+     */
+    public void setDiffContent(CharSequence content) {
+        if (content == null || content instanceof String) {
+            this.diff = (String) content;
+            this.spilledDiff = null;
+        } else {
+            this.diff = null;
+            this.spilledDiff = content;
+        }
+    }
 }
@@ -4,6 +4,7 @@ import com.fasterxml.jackson.databind.JsonNode;
 import lombok.Data;
 
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 
@@ -25,6 +26,10 @@ public class MergeRequestEventEntity {
     private int deletions;
     private String lastCommitId;
     private String commitMessages;
+    /**
+     * 结构化输出时审查报告中的问题列表，Markdown输出时为null
+     */
+    private List<ReviewReport.Issue> issues;
 
     public MergeRequestEventEntity() {
     }
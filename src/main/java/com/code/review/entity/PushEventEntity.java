@@ -24,6 +24,10 @@ public class PushEventEntity {
     private int additions;
     private int deletions;
     private String commitMessages;
+    /**
+     * 结构化输出时审查报告中的问题列表，Markdown输出时为null
+     */
+    private List<ReviewReport.Issue> issues;
 
     public PushEventEntity() {
     }
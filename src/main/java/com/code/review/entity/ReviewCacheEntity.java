@@ -0,0 +1,35 @@
+package com.code.review.entity;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 评审结果缓存记录
+ */
+@Data
+public class ReviewCacheEntity {
+
+    /**
+     * 缓存键：变更内容、提示模板、评审风格及模型的SHA-256摘要
+     */
+    private String cacheKey;
+    private String provider;
+    private String model;
+    private String reviewResult;
+    private LocalDateTime createdAt;
+    private LocalDateTime expiresAt;
+
+    public ReviewCacheEntity() {
+    }
+
+    public ReviewCacheEntity(String cacheKey, String provider, String model, String reviewResult,
+                             LocalDateTime createdAt, LocalDateTime expiresAt) {
+        this.cacheKey = cacheKey;
+        this.provider = provider;
+        this.model = model;
+        this.reviewResult = reviewResult;
+        this.createdAt = createdAt;
+        this.expiresAt = expiresAt;
+    }
+}
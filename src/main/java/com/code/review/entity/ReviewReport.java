@@ -0,0 +1,48 @@
+package com.code.review.entity;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 结构化的代码审查结果，由大模型按JSON Schema输出
+ */
+@Data
+public class ReviewReport {
+    /**
+     * 总分（0-100）
+     */
+    private Integer score;
+    /**
+     * 总体评价
+     */
+    private String summary;
+    /**
+     * 问题列表
+     */
+    private List<Issue> issues = new ArrayList<>();
+
+    /**
+     * 单个问题
+     */
+    @Data
+    public static class Issue {
+        /**
+         * 文件路径
+         */
+        private String file;
+        /**
+         * 行号，无法定位时为0
+         */
+        private Integer line;
+        /**
+         * 严重程度：high | medium | low
+         */
+        private String severity;
+        /**
+         * 问题描述及优化建议
+         */
+        private String message;
+    }
+}
@@ -0,0 +1,20 @@
+package com.code.review.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 代码审查结果：发布到Git及通知使用的文本，以及结构化输出时解析出的报告
+ */
+@Getter
+@AllArgsConstructor
+public class ReviewResult {
+    /**
+     * 审查结果文本（Markdown）
+     */
+    private final String content;
+    /**
+     * 结构化输出（REVIEW_OUTPUT_FORMAT=json）时解析出的报告，Markdown输出或解析失败时为null
+     */
+    private final ReviewReport report;
+}
@@ -1,6 +1,9 @@
 package com.code.review.entity.github;
 
 import com.code.review.utils.HttpClientUtils;
+import com.code.review.utils.JsonStreamUtils;
+import com.code.review.utils.RetryPolicy;
+import com.code.review.utils.RetryScheduler;
 import com.code.review.utils.SpringUtils;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -13,6 +16,10 @@ import org.apache.commons.lang3.StringUtils;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Predicate;
 
 @Slf4j
 @Data
@@ -84,87 +91,108 @@ public class PullRequestHandlerEntity {
         }
     }
 
+    /**
+     * 获取 GitHub Pull Request 的全部变更文件列表。
+     *
+     * @return JsonNode 包含 Pull Request 变更信息的 JSON 节点。如果失败或无数据，返回 MissingNode 实例。
+     */
+    public JsonNode getPullRequestChanges() {
+        return getPullRequestChanges(changeNode -> true);
+    }
+
     /**
      * 获取 GitHub Pull Request 的变更文件列表。
+     *
+     * @param filter 变更过滤条件，基于转换后的 new_path、status 等字段判断
+     * @return JsonNode 包含 Pull Request 变更信息的 JSON 节点。如果失败或无数据，返回 MissingNode 实例。
+     */
+    public JsonNode getPullRequestChanges(Predicate<JsonNode> filter) {
+        return getPullRequestChangesAsync(filter).join();
+    }
+
+    /**
+     * 异步获取 GitHub Pull Request 的变更文件列表。
      * <p>
      * 该方法会检查当前事件类型是否为 "pull_request"，如果不是则记录警告并返回空节点。
-     * 若是有效的 Pull Request 事件，则通过 GitHub API 请求对应的变更文件信息，并进行重试机制处理可能的延迟问题。
-     * 返回的数据包括每个文件的 diff 内容、新路径、新增行数和删除行数等关键字段。
+     * 若是有效的 Pull Request 事件，则通过 GitHub API 请求对应的变更文件信息，
+     * 可能的延迟及服务端错误由 {@link RetryScheduler} 按退避时间重试，等待期间不占用线程。
+     * 返回的数据包括每个文件的 diff 内容、新路径、状态、新增行数和删除行数等关键字段。
+     * 响应以流的方式逐个解析，在读取 patch 内容前即应用过滤条件，只保留通过过滤的变更。
      *
-     * @return JsonNode 包含 Pull Request 变更信息的 JSON 节点。如果失败或无数据，返回 MissingNode 实例。
+     * @param filter 变更过滤条件，基于转换后的 new_path、status 等字段判断
+     * @return 包含 Pull Request 变更信息的 JSON 节点的Future。如果失败或无数据，结果为 MissingNode 实例。
      */
-    public JsonNode getPullRequestChanges() {
+    public CompletableFuture<JsonNode> getPullRequestChangesAsync(Predicate<JsonNode> filter) {
         // 检查是否为 Pull Request Hook 事件
         if (!"pull_request".equals(this.eventType)) {
             log.warn("Invalid event type: {}. Only 'pull_request' event is supported now.", this.eventType);
-            return MissingNode.getInstance();
+            return CompletableFuture.completedFuture(MissingNode.getInstance());
         }
 
-        // GitHub pull request changes API可能存在延迟，多次尝试
-        int maxRetries = 3; // 最大重试次数
-        int retryDelay = 10000; // 重试间隔（毫秒）
+        // 调用 GitHub API 获取 Pull Request 的 files（变更）
+        String url = "https://api.github.com/repos/" + this.repoFullName + "/pulls/" + this.pullRequestNumber + "/files";
 
-        for (int i = 0; i < maxRetries; i++) {
-            try {
-                // 调用 GitHub API 获取 Pull Request 的 files（变更）
-                String url = "https://api.github.com/repos/" + this.repoFullName + "/pulls/" + this.pullRequestNumber + "/files";
-
-                // 设置请求头信息，包含GitHub访问令牌
-                HashMap<String, String> headers = new HashMap<>();
-                headers.put("Authorization", "token " + this.gitHubToken);
-                headers.put("Accept", "application/vnd.github.v3+json");
-
-                String response = HttpClientUtils.get(url, null, headers);
+        // 设置请求头信息，包含GitHub访问令牌
+        HashMap<String, String> headers = new HashMap<>();
+        headers.put("Authorization", "token " + this.gitHubToken);
+        headers.put("Accept", "application/vnd.github.v3+json");
 
-                if (StringUtils.isBlank(response)) {
-                    log.error("Failed to get changes from GitHub，url：{}", url);
-                    // 如果是最后一次尝试，则返回空节点
-                    if (i == maxRetries - 1) {
-                        return MissingNode.getInstance();
-                    }
-                } else {
-                    JsonNode jsonNode = this.objectMapper.readTree(response);
-                    // 成功获取到有效数据则直接返回
-                    if (!jsonNode.isEmpty()) {
-                        ArrayNode changesArrayNode = this.objectMapper.createArrayNode();
-
-                        for (JsonNode node : jsonNode) {
-                            ObjectNode changeNode = this.objectMapper.createObjectNode();
-
-                            changeNode.put("diff", node.path("patch").asText(""));
-                            changeNode.put("new_path", node.path("filename").asText(""));
-                            changeNode.put("additions", node.path("additions").asInt(0));
-                            changeNode.put("deletions", node.path("deletions").asInt(0));
-
-                            changesArrayNode.add(changeNode);
-                        }
-
-                        return changesArrayNode;
-                    } else {
-                        log.info("Changes is empty, retrying in {} seconds...(attempt {} / {})，url：{}", retryDelay / 1000, i + 1, maxRetries, url);
-                        // 如果不是最后一次尝试，则等待后继续重试
-                        if (i < maxRetries - 1) {
-                            Thread.sleep(retryDelay);
-                        }
-                    }
-                }
-            } catch (Exception e) {
-                log.error("getPullRequestChanges error：{}", e.getMessage());
-                // 如果是最后一次尝试，则返回空节点
-                if (i == maxRetries - 1) {
-                    return MissingNode.getInstance();
-                }
-                try {
-                    Thread.sleep(retryDelay);
-                } catch (InterruptedException ie) {
-                    Thread.currentThread().interrupt();
+        // GitHub pull request changes API可能存在延迟，变更为空时按NOT_READY策略重试
+        // 重试在定时器线程中发起，阻塞的请求交给专用线程池执行，线程池满时拒绝而不是在定时器线程中执行
+        Executor executor = SpringUtils.getBean("gitFetchExecutor");
+        return RetryScheduler.retry("github_pull_request_changes",
+                        () -> CompletableFuture.supplyAsync(() -> fetchPullRequestChanges(url, headers, filter), executor),
+                        (changes, error) -> error != null ? RetryScheduler.classify(error) : (changes == null ? RetryPolicy.NOT_READY : null))
+                .thenApply(changes -> changes == null ? (JsonNode) MissingNode.getInstance() : changes)
+                .exceptionally(e -> {
+                    log.error("getPullRequestChanges error：{}，url：{}", e.getMessage(), url);
                     return MissingNode.getInstance();
-                }
+                });
+    }
+
+    /**
+     * 请求一次 Pull Request 的变更文件
+     *
+     * @param url     请求地址
+     * @param headers 请求头
+     * @param filter  变更过滤条件
+     * @return 通过过滤的变更；变更尚未生成时返回null
+     */
+    private JsonNode fetchPullRequestChanges(String url, Map<String, String> headers, Predicate<JsonNode> filter) {
+        try {
+            // 流式解析变更文件，只保留通过过滤的变更
+            ArrayNode changesArrayNode = this.objectMapper.createArrayNode();
+            Integer total = HttpClientUtils.getStream(url, null, headers,
+                    inputStream -> JsonStreamUtils.forEachElement(inputStream, this.objectMapper, null,
+                            node -> filter.test(toChangeNode(node)),
+                            node -> changesArrayNode.add(toChangeNode(node))));
+
+            if (total == null || total == 0) {
+                log.info("Changes is empty，url：{}", url);
+                return null;
             }
+            return changesArrayNode;
+        } catch (Exception e) {
+            throw new CompletionException(e);
         }
+    }
 
-        // 尝试完所有次数仍未获得有效数据，返回空节点
-        return MissingNode.getInstance();
+    /**
+     * 将GitHub返回的文件变更转换为统一的变更节点
+     *
+     * @param node GitHub文件变更节点
+     * @return 包含 diff、new_path、status、additions、deletions 字段的变更节点
+     */
+    private ObjectNode toChangeNode(JsonNode node) {
+        ObjectNode changeNode = this.objectMapper.createObjectNode();
+
+        changeNode.put("diff", node.path("patch").asText(""));
+        changeNode.put("new_path", node.path("filename").asText(""));
+        changeNode.put("status", node.path("status").asText(""));
+        changeNode.put("additions", node.path("additions").asInt(0));
+        changeNode.put("deletions", node.path("deletions").asInt(0));
+
+        return changeNode;
     }
 
     /**
@@ -178,52 +206,74 @@ public class PullRequestHandlerEntity {
      * @return 返回一个包含所有提交信息的 JsonNode 对象；如果请求失败或事件类型不匹配，则返回 MissingNode 实例。
      */
     public JsonNode getPullRequestCommits() {
-        try {
-            // 检查是否为 Pull Request Hook 事件
-            if (!"pull_request".equals(this.eventType)) {
-                log.warn("Invalid event type: {}. Only 'pull_request' event is supported now.", this.eventType);
-                return MissingNode.getInstance();
-            }
-
-            // 调用 GitHub API 获取 Pull Request 的 commits
-            String url = "https://api.github.com/repos/" + this.repoFullName + "/pulls/" + this.pullRequestNumber + "/commits";
-
-            // 设置请求头信息，包含GitHub访问令牌
-            HashMap<String, String> headers = new HashMap<>();
-            headers.put("Authorization", "token " + this.gitHubToken);
-            headers.put("Accept", "application/vnd.github.v3+json");
-
-            String response = HttpClientUtils.get(url, null, headers);
-
-            if (StringUtils.isBlank(response)) {
-                log.error("getMergeRequestCommits http error，url：{}", url);
-                return MissingNode.getInstance();
-            }
+        return getPullRequestCommitsAsync().join();
+    }
 
-            // 解析JSON响应数据并提取所需字段
-            JsonNode jsonNode = this.objectMapper.readTree(response);
-            ArrayNode changesArrayNode = this.objectMapper.createArrayNode();
+    /**
+     * 异步获取 Pull Request 的提交记录（commits）信息，可与变更文件的获取并行进行。
+     *
+     * @return 包含所有提交信息的 JsonNode 的 Future；如果请求失败或事件类型不匹配，则结果为 MissingNode 实例。
+     */
+    public CompletableFuture<JsonNode> getPullRequestCommitsAsync() {
+        // 检查是否为 Pull Request Hook 事件
+        if (!"pull_request".equals(this.eventType)) {
+            log.warn("Invalid event type: {}. Only 'pull_request' event is supported now.", this.eventType);
+            return CompletableFuture.completedFuture(MissingNode.getInstance());
+        }
 
-            for (JsonNode node : jsonNode) {
-                ObjectNode changeNode = this.objectMapper.createObjectNode();
-                JsonNode commitNode = node.path("commit");
+        // 调用 GitHub API 获取 Pull Request 的 commits
+        String url = "https://api.github.com/repos/" + this.repoFullName + "/pulls/" + this.pullRequestNumber + "/commits";
 
-                changeNode.put("id", node.path("sha").asText(""));
-                changeNode.put("title", commitNode.path("message").asText("").split("\n")[0]);
-                changeNode.put("message", commitNode.path("message").asText(""));
-                changeNode.put("author_name", commitNode.path("author").path("name").asText(""));
-                changeNode.put("author_email", commitNode.path("author").path("email").asText(""));
-                changeNode.put("created_at", commitNode.path("author").path("date").asText(""));
-                changeNode.put("web_url", node.path("html_url").asText(""));
+        // 设置请求头信息，包含GitHub访问令牌
+        HashMap<String, String> headers = new HashMap<>();
+        headers.put("Authorization", "token " + this.gitHubToken);
+        headers.put("Accept", "application/vnd.github.v3+json");
 
-                changesArrayNode.add(changeNode);
-            }
+        return HttpClientUtils.getAsync(url, null, headers)
+                .thenApply(response -> {
+                    if (StringUtils.isBlank(response)) {
+                        log.error("getMergeRequestCommits http error，url：{}", url);
+                        return (JsonNode) MissingNode.getInstance();
+                    }
+                    try {
+                        return parseCommits(response);
+                    } catch (Exception e) {
+                        throw new CompletionException(e);
+                    }
+                })
+                .exceptionally(e -> {
+                    log.error("getPullRequestCommits error：{}", e.getMessage());
+                    return MissingNode.getInstance();
+                });
+    }
 
-            return changesArrayNode;
-        } catch (Exception e) {
-            log.error("getPullRequestCommits error：{}", e.getMessage());
-            return MissingNode.getInstance();
+    /**
+     * 解析GitHub返回的提交记录，提取所需字段
+     *
+     * @param response GitHub API返回的原始响应
+     * @return 提交信息数组节点
+     */
+    private JsonNode parseCommits(String response) throws Exception {
+        // 解析JSON响应数据并提取所需字段
+        JsonNode jsonNode = this.objectMapper.readTree(response);
+        ArrayNode changesArrayNode = this.objectMapper.createArrayNode();
+
+        for (JsonNode node : jsonNode) {
+            ObjectNode changeNode = this.objectMapper.createObjectNode();
+            JsonNode commitNode = node.path("commit");
+
+            changeNode.put("id", node.path("sha").asText(""));
+            changeNode.put("title", commitNode.path("message").asText("").split("\n")[0]);
+            changeNode.put("message", commitNode.path("message").asText(""));
+            changeNode.put("author_name", commitNode.path("author").path("name").asText(""));
+            changeNode.put("author_email", commitNode.path("author").path("email").asText(""));
+            changeNode.put("created_at", commitNode.path("author").path("date").asText(""));
+            changeNode.put("web_url", node.path("html_url").asText(""));
+
+            changesArrayNode.add(changeNode);
         }
+
+        return changesArrayNode;
     }
 
     /**
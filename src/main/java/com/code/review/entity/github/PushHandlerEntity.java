@@ -2,6 +2,7 @@ package com.code.review.entity.github;
 
 import com.code.review.entity.CommitInfo;
 import com.code.review.utils.HttpClientUtils;
+import com.code.review.utils.JsonStreamUtils;
 import com.code.review.utils.SpringUtils;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -16,6 +17,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Predicate;
 
 @Slf4j
 @Data
@@ -71,18 +73,28 @@ public class PushHandlerEntity {
         return commitList;
     }
 
+    /**
+     * 获取 Push 事件中的全部代码变更信息。
+     *
+     * @return 包含文件变更信息的 JsonNode，若无法获取则返回 MissingNode 实例
+     */
+    public JsonNode getPushChanges() {
+        return getPushChanges(changeNode -> true);
+    }
+
     /**
      * 获取 Push 事件中的代码变更信息。
      * <p>
      * 该方法首先判断当前事件类型是否为 "push"，并且提交列表不为空。
      * 然后根据是否存在 `before` 和 `after` 提交 ID 来决定如何获取变更：
-     * - 若存在，则调用 {@link #repositoryCompare(String, String)} 进行比较；
+     * - 若存在，则调用 {@link #repositoryCompare(String, String, Predicate)} 进行比较；
      * - 若不存在，则尝试从每个 commit 中逐个获取其父提交，并进行比较；
      * - 对于创建或删除分支的情况也有特殊处理。
      *
+     * @param filter 变更过滤条件，在读取 patch 内容前基于转换后的 new_path、status 等字段判断
      * @return 包含文件变更信息的 JsonNode，若无法获取则返回 MissingNode 实例
      */
-    public JsonNode getPushChanges() {
+    public JsonNode getPushChanges(Predicate<JsonNode> filter) {
         // 检测是否为push事件
         if (!"push".equals(this.eventType)) {
             log.warn("Invalid event type: {}. Only 'push' event is supported now.", this.eventType);
@@ -112,7 +124,7 @@ public class PushHandlerEntity {
             }
 
             // 比较仓库差异并返回结果
-            return repositoryCompare(before, after);
+            return repositoryCompare(before, after, filter);
         } else {
             // 如果before和after不存在，尝试通过commits获取
             log.info("before or after not found in webhook data, trying to get changes from commits.");
@@ -126,7 +138,7 @@ public class PushHandlerEntity {
 
                 // 只有当父提交ID存在时才进行比较
                 if (StringUtils.isNotBlank(parentCommitId)) {
-                    JsonNode jsonNode = repositoryCompare(parentCommitId, commitId);
+                    JsonNode jsonNode = repositoryCompare(parentCommitId, commitId, filter);
 
                     // 将比较结果中的每个文件变更信息添加到总的结果数组中
                     if (jsonNode.isArray()) {
@@ -142,12 +154,15 @@ public class PushHandlerEntity {
 
     /**
      * 比较仓库中两个提交之间的差异
+     * <p>
+     * 响应以流的方式解析 files 数组，只保留通过过滤的文件变更。
      *
      * @param before 比较的起始提交SHA或分支名
      * @param after  比较的结束提交SHA或分支名
+     * @param filter 变更过滤条件
      * @return 包含文件差异信息的JSON节点，如果发生错误则返回缺失节点
      */
-    private JsonNode repositoryCompare(String before, String after) {
+    private JsonNode repositoryCompare(String before, String after, Predicate<JsonNode> filter) {
         try {
             // 构造获取仓库差异的API URL
             String url = "https://api.github.com/repos/" + this.repoFullName + "/compare/" + before + "..." + after;
@@ -157,29 +172,17 @@ public class PushHandlerEntity {
             headers.put("Authorization", "token " + this.gitHubToken);
             headers.put("Accept", "application/vnd.github.v3+json");
 
-            // 发送HTTP GET请求获取比较结果
-            String response = HttpClientUtils.get(url, null, headers);
-            if (StringUtils.isBlank(response)) {
+            // 发送HTTP GET请求，流式解析并提取所需字段
+            ArrayNode diffArrayNode = this.objectMapper.createArrayNode();
+            Integer total = HttpClientUtils.getStream(url, null, headers,
+                    inputStream -> JsonStreamUtils.forEachElement(inputStream, this.objectMapper, "files",
+                            node -> filter.test(toChangeNode(node)),
+                            node -> diffArrayNode.add(toChangeNode(node))));
+            if (total == null) {
                 log.error("repositoryCompare http error，url：{}", url);
                 return MissingNode.getInstance();
             }
 
-            // 解析JSON响应数据并提取所需字段
-            JsonNode diffNodes = this.objectMapper.readTree(response).path("files");
-            ArrayNode diffArrayNode = this.objectMapper.createArrayNode();
-
-            for (JsonNode node : diffNodes) {
-                ObjectNode diff = this.objectMapper.createObjectNode();
-
-                diff.put("diff", node.path("patch").asText(""));
-                diff.put("new_path", node.path("filename").asText(""));
-                diff.put("status", node.path("status").asText(""));
-                diff.put("additions", node.path("additions").asInt(0));
-                diff.put("deletions", node.path("deletions").asInt(0));
-
-                diffArrayNode.add(diff);
-            }
-
             return diffArrayNode;
         } catch (Exception e) {
             log.error("repositoryCompare exception：", e);
@@ -187,6 +190,24 @@ public class PushHandlerEntity {
         }
     }
 
+    /**
+     * 将GitHub返回的文件变更转换为统一的变更节点
+     *
+     * @param node GitHub文件变更节点
+     * @return 包含 diff、new_path、status、additions、deletions 字段的变更节点
+     */
+    private ObjectNode toChangeNode(JsonNode node) {
+        ObjectNode diff = this.objectMapper.createObjectNode();
+
+        diff.put("diff", node.path("patch").asText(""));
+        diff.put("new_path", node.path("filename").asText(""));
+        diff.put("status", node.path("status").asText(""));
+        diff.put("additions", node.path("additions").asInt(0));
+        diff.put("deletions", node.path("deletions").asInt(0));
+
+        return diff;
+    }
+
     /**
      * 获取指定提交的父提交ID
      *
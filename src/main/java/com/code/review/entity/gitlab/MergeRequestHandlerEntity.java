@@ -1,9 +1,13 @@
 package com.code.review.entity.gitlab;
 
 import com.code.review.utils.HttpClientUtils;
+import com.code.review.utils.JsonStreamUtils;
+import com.code.review.utils.RetryPolicy;
+import com.code.review.utils.RetryScheduler;
 import com.code.review.utils.SpringUtils;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.MissingNode;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
@@ -11,6 +15,10 @@ import org.apache.commons.lang3.StringUtils;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Predicate;
 
 @Slf4j
 @Data
@@ -85,73 +93,87 @@ public class MergeRequestHandlerEntity {
         }
     }
 
+    /**
+     * 获取 GitLab Merge Request 的全部变更内容（changes）。
+     *
+     * @return 返回 changes 数组节点；如果失败或无数据，则返回 MissingNode 实例
+     */
+    public JsonNode getMergeRequestChanges() {
+        return getMergeRequestChanges(changeNode -> true);
+    }
+
     /**
      * 获取 GitLab Merge Request 的变更内容（changes）。
+     *
+     * @param filter 变更过滤条件，基于 new_path、deleted_file 等字段判断
+     * @return 返回通过过滤的 changes 数组节点；如果失败或无数据，则返回 MissingNode 实例
+     */
+    public JsonNode getMergeRequestChanges(Predicate<JsonNode> filter) {
+        return getMergeRequestChangesAsync(filter).join();
+    }
+
+    /**
+     * 异步获取 GitLab Merge Request 的变更内容（changes）。
      * <p>
      * 该方法会检查当前事件类型是否为 "merge_request"，如果不是则记录警告日志并返回空节点。
      * 若是合法事件，则通过 GitLab API 请求指定 Merge Request 的 changes 数据。
-     * 由于 GitLab API 可能存在延迟导致获取不到数据，因此采用多次重试机制以提高成功率。
+     * 响应以流的方式逐个解析变更文件，在读取diff内容前即应用过滤条件，只保留通过过滤的变更。
+     * 由于 GitLab API 可能存在延迟导致获取不到数据，因此由 {@link RetryScheduler} 按退避时间重试，
+     * 等待期间不占用线程。
      *
-     * @return 返回包含 changes 内容的 JsonNode；如果失败或无数据，则返回 MissingNode 实例
+     * @param filter 变更过滤条件，基于 new_path、deleted_file 等字段判断
+     * @return 通过过滤的 changes 数组节点的Future；如果失败或无数据，则结果为 MissingNode 实例
      */
-    public JsonNode getMergeRequestChanges() {
+    public CompletableFuture<JsonNode> getMergeRequestChangesAsync(Predicate<JsonNode> filter) {
         // 检查是否为 Merge Request Hook 事件
         if (!"merge_request".equals(this.eventType)) {
             log.warn("Invalid event type: {}. Only 'merge_request' event is supported now.", this.eventType);
-            return MissingNode.getInstance();
+            return CompletableFuture.completedFuture(MissingNode.getInstance());
         }
 
-        // Gitlab merge request changes API可能存在延迟，多次尝试
-        int maxRetries = 3; // 最大重试次数
-        int retryDelay = 10000; // 重试间隔（毫秒）
-
-        for (int i = 0; i < maxRetries; i++) {
-            try {
-                // 调用 GitLab API 获取 Merge Request 的 changes
-                String url = this.gitlabUrl + "/api/v4/projects/" + this.projectId + "/merge_requests/" + this.mergeRequestIid + "/changes?access_raw_diffs=true";
+        // 调用 GitLab API 获取 Merge Request 的 changes
+        String url = this.gitlabUrl + "/api/v4/projects/" + this.projectId + "/merge_requests/" + this.mergeRequestIid + "/changes?access_raw_diffs=true";
 
-                // 设置请求头信息，包含GitLab访问令牌
-                HashMap<String, String> headers = new HashMap<>();
-                headers.put("Private-Token", this.gitlabToken);
-
-                String response = HttpClientUtils.get(url, null, headers);
+        // 设置请求头信息，包含GitLab访问令牌
+        HashMap<String, String> headers = new HashMap<>();
+        headers.put("Private-Token", this.gitlabToken);
 
-                if (StringUtils.isBlank(response)) {
-                    log.error("Failed to get changes from GitLab，url：{}", url);
-                    // 如果是最后一次尝试，则返回空节点
-                    if (i == maxRetries - 1) {
-                        return MissingNode.getInstance();
-                    }
-                } else {
-                    JsonNode jsonNode = this.objectMapper.readTree(response);
-                    // 成功获取到有效数据则直接返回
-                    if (!jsonNode.path("changes").isEmpty()) {
-                        return jsonNode;
-                    } else {
-                        log.info("Changes is empty, retrying in {} seconds...(attempt {} / {})，url：{}", retryDelay / 1000, i + 1, maxRetries, url);
-                        // 如果不是最后一次尝试，则等待后继续重试
-                        if (i < maxRetries - 1) {
-                            Thread.sleep(retryDelay);
-                        }
-                    }
-                }
-            } catch (Exception e) {
-                log.error("getMergeRequestChanges error：{}", e.getMessage());
-                // 如果是最后一次尝试，则返回空节点
-                if (i == maxRetries - 1) {
+        // Gitlab merge request changes API可能存在延迟，changes为空时按NOT_READY策略重试
+        // 重试在定时器线程中发起，阻塞的请求交给专用线程池执行，线程池满时拒绝而不是在定时器线程中执行
+        Executor executor = SpringUtils.getBean("gitFetchExecutor");
+        return RetryScheduler.retry("gitlab_merge_request_changes",
+                        () -> CompletableFuture.supplyAsync(() -> fetchMergeRequestChanges(url, headers, filter), executor),
+                        (changes, error) -> error != null ? RetryScheduler.classify(error) : (changes == null ? RetryPolicy.NOT_READY : null))
+                .thenApply(changes -> changes == null ? (JsonNode) MissingNode.getInstance() : changes)
+                .exceptionally(e -> {
+                    log.error("getMergeRequestChanges error：{}，url：{}", e.getMessage(), url);
                     return MissingNode.getInstance();
-                }
-                try {
-                    Thread.sleep(retryDelay);
-                } catch (InterruptedException ie) {
-                    Thread.currentThread().interrupt();
-                    return MissingNode.getInstance();
-                }
+                });
+    }
+
+    /**
+     * 请求一次 Merge Request 的 changes
+     *
+     * @param url     请求地址
+     * @param headers 请求头
+     * @param filter  变更过滤条件
+     * @return 通过过滤的变更；changes尚未生成时返回null
+     */
+    private JsonNode fetchMergeRequestChanges(String url, Map<String, String> headers, Predicate<JsonNode> filter) {
+        try {
+            // 流式解析 changes 数组，只保留通过过滤的变更
+            ArrayNode changes = this.objectMapper.createArrayNode();
+            Integer total = HttpClientUtils.getStream(url, null, headers,
+                    inputStream -> JsonStreamUtils.forEachElement(inputStream, this.objectMapper, "changes", filter, changes::add));
+
+            if (total == null || total == 0) {
+                log.info("Changes is empty，url：{}", url);
+                return null;
             }
+            return changes;
+        } catch (Exception e) {
+            throw new CompletionException(e);
         }
-
-        // 尝试完所有次数仍未获得有效数据，返回空节点
-        return MissingNode.getInstance();
     }
 
     /**
@@ -160,34 +182,47 @@ public class MergeRequestHandlerEntity {
      * @return JsonNode 包含commit信息的JSON节点，如果获取失败则返回MissingNode实例
      */
     public JsonNode getMergeRequestCommits() {
-        try {
-            // 检查是否为 Merge Request Hook 事件
-            if (!"merge_request".equals(this.eventType)) {
-                log.warn("Invalid event type: {}. Only 'merge_request' event is supported now.", this.eventType);
-                return MissingNode.getInstance();
-            }
+        return getMergeRequestCommitsAsync().join();
+    }
 
-            // 调用 GitLab API 获取 Merge Request 的 commits
-            String url = this.gitlabUrl + "/api/v4/projects/" + this.projectId + "/merge_requests/" + this.mergeRequestIid + "/commits";
+    /**
+     * 异步获取Merge Request的提交记录，可与changes的获取并行进行
+     *
+     * @return 包含commit信息的JSON节点的Future，如果获取失败则结果为MissingNode实例
+     */
+    public CompletableFuture<JsonNode> getMergeRequestCommitsAsync() {
+        // 检查是否为 Merge Request Hook 事件
+        if (!"merge_request".equals(this.eventType)) {
+            log.warn("Invalid event type: {}. Only 'merge_request' event is supported now.", this.eventType);
+            return CompletableFuture.completedFuture(MissingNode.getInstance());
+        }
 
-            // 获取请求头信息，包含GitLab访问令牌
-            HashMap<String, String> headers = new HashMap<>();
-            headers.put("Private-Token", this.gitlabToken);
+        // 调用 GitLab API 获取 Merge Request 的 commits
+        String url = this.gitlabUrl + "/api/v4/projects/" + this.projectId + "/merge_requests/" + this.mergeRequestIid + "/commits";
 
-            String response = HttpClientUtils.get(url, null, headers);
+        // 获取请求头信息，包含GitLab访问令牌
+        HashMap<String, String> headers = new HashMap<>();
+        headers.put("Private-Token", this.gitlabToken);
 
-            // 检查HTTP响应是否为空
-            if (StringUtils.isBlank(response)) {
-                log.error("getMergeRequestCommits http error，url：{}", url);
-                return MissingNode.getInstance();
-            }
+        return HttpClientUtils.getAsync(url, null, headers)
+                .thenApply(response -> {
+                    // 检查HTTP响应是否为空
+                    if (StringUtils.isBlank(response)) {
+                        log.error("getMergeRequestCommits http error，url：{}", url);
+                        return (JsonNode) MissingNode.getInstance();
+                    }
 
-            // 解析JSON响应数据
-            return this.objectMapper.readTree(response);
-        } catch (Exception e) {
-            log.error("getMergeRequestCommits error：{}", e.getMessage());
-            return MissingNode.getInstance();
-        }
+                    // 解析JSON响应数据
+                    try {
+                        return this.objectMapper.readTree(response);
+                    } catch (Exception e) {
+                        throw new CompletionException(e);
+                    }
+                })
+                .exceptionally(e -> {
+                    log.error("getMergeRequestCommits error：{}", e.getMessage());
+                    return MissingNode.getInstance();
+                });
     }
 
     /**
@@ -2,10 +2,12 @@ package com.code.review.entity.gitlab;
 
 import com.code.review.entity.CommitInfo;
 import com.code.review.utils.HttpClientUtils;
+import com.code.review.utils.JsonStreamUtils;
 import com.code.review.utils.SpringUtils;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.MissingNode;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
@@ -15,6 +17,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Predicate;
 
 @Slf4j
 @Data
@@ -79,11 +82,21 @@ public class PushHandlerEntity {
     }
 
     /**
-     * 获取推送变更信息
+     * 获取全部推送变更信息
      *
      * @return JsonNode 包含推送变更信息的JSON节点，如果无法获取有效变更信息则返回MissingNode实例
      */
     public JsonNode getPushChanges() {
+        return getPushChanges(changeNode -> true);
+    }
+
+    /**
+     * 获取推送变更信息
+     *
+     * @param filter 变更过滤条件，在读取diff内容前基于 new_path、deleted_file 等字段判断
+     * @return JsonNode 包含通过过滤的推送变更信息的JSON节点，如果无法获取有效变更信息则返回MissingNode实例
+     */
+    public JsonNode getPushChanges(Predicate<JsonNode> filter) {
         // 检测是否为push事件
         if (!"push".equals(this.eventType)) {
             log.warn("Invalid event type: {}. Only 'push' event is supported now.", this.eventType);
@@ -118,17 +131,20 @@ public class PushHandlerEntity {
         }
 
         // 比较仓库差异并返回结果
-        return repositoryCompare(before, after);
+        return repositoryCompare(before, after, filter);
     }
 
     /**
      * 比较GitLab仓库中两个提交之间的差异
+     * <p>
+     * 响应以流的方式解析，只保留通过过滤的diff。
      *
      * @param before 起始提交的SHA值
      * @param after  结束提交的SHA值
+     * @param filter 变更过滤条件
      * @return 返回比较结果的JsonNode对象，如果出现异常或错误则返回MissingNode实例
      */
-    private JsonNode repositoryCompare(String before, String after) {
+    private JsonNode repositoryCompare(String before, String after, Predicate<JsonNode> filter) {
         try {
             // 构造GitLab API比较接口URL
             String url = this.gitlabUrl + "/api/v4/projects/" + this.projectId + "/repository/compare?from=" + before + "&to=" + after;
@@ -137,15 +153,16 @@ public class PushHandlerEntity {
             HashMap<String, String> headers = new HashMap<>();
             headers.put("Private-Token", this.gitlabToken);
 
-            // 发送HTTP GET请求获取比较结果
-            String response = HttpClientUtils.get(url, null, headers);
-            if (StringUtils.isBlank(response)) {
+            // 发送HTTP GET请求，流式解析diffs数组
+            ArrayNode diffs = this.objectMapper.createArrayNode();
+            Integer total = HttpClientUtils.getStream(url, null, headers,
+                    inputStream -> JsonStreamUtils.forEachElement(inputStream, this.objectMapper, "diffs", filter, diffs::add));
+            if (total == null) {
                 log.error("repositoryCompare http error，url：{}", url);
                 return MissingNode.getInstance();
             }
 
-            // 解析响应结果为JsonNode并返回
-            return this.objectMapper.readTree(response).path("diffs");
+            return diffs;
         } catch (Exception e) {
             log.error("repositoryCompare exception：", e);
             return MissingNode.getInstance();
@@ -1,27 +1,171 @@
 package com.code.review.factory;
 
 import com.code.review.client.*;
+import com.code.review.utils.BpeTokenizer;
 import com.code.review.utils.SpringUtils;
+import com.code.review.utils.Tokenizer;
+import com.knuddels.jtokkit.api.EncodingType;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
 import org.springframework.stereotype.Component;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Slf4j
 @Component
 public class LLMClientFactory {
 
+    /**
+     * 获取大模型客户端
+     * <p>
+     * 配置了 LLM_PROVIDERS（如 deepseek:3,qwen:1）且包含多个供应商时返回 {@link RoutingLLMClient}，
+     * 否则使用 LLM_PROVIDER 指定的单个供应商。开启 LLM_HEDGE_ENABLED 时包装为 {@link HedgingLLMClient}。
+     *
+     * @return 大模型客户端
+     */
     public static LLMClient getClient() {
+        LLMClient client = getPrimaryClient();
+        if (!"1".equals(SpringUtils.getPropertyOrDefault("LLM_HEDGE_ENABLED", "0"))) {
+            return client;
+        }
+        // 未配置备用供应商时对冲请求仍发给主客户端，可通过 LLM_HEDGE_MODEL 换用其他模型
+        String hedgeProvider = SpringUtils.getPropertyOrDefault("LLM_HEDGE_PROVIDER", "");
+        LLMClient secondary = StringUtils.isBlank(hedgeProvider) ? client : getClient(hedgeProvider.trim());
+        return new HedgingLLMClient(client, secondary, SpringUtils.getPropertyOrDefault("LLM_HEDGE_MODEL", ""));
+    }
+
+    private static LLMClient getPrimaryClient() {
+        Map<String, Integer> weights = parseProviderWeights(SpringUtils.getPropertyOrDefault("LLM_PROVIDERS", ""));
+        if (weights.size() > 1) {
+            return new RoutingLLMClient(weights);
+        }
+        if (weights.size() == 1) {
+            return getClient(weights.keySet().iterator().next());
+        }
+
         String provider = SpringUtils.getPropertyOrDefault("LLM_PROVIDER", "deepseek");
+        return getClient(provider);
+    }
+
+    /**
+     * 获取与大模型配置对应的分词器
+     * <p>
+     * 多供应商路由时取校准系数最大的供应商的分词器，按其计算的预算在其他供应商处同样不会超出。
+     *
+     * @return 分词器
+     */
+    public static Tokenizer getTokenizer() {
+        Map<String, Integer> weights = parseProviderWeights(SpringUtils.getPropertyOrDefault("LLM_PROVIDERS", ""));
+        if (weights.isEmpty()) {
+            return getTokenizer(SpringUtils.getPropertyOrDefault("LLM_PROVIDER", "deepseek"));
+        }
+        BpeTokenizer result = null;
+        for (String provider : weights.keySet()) {
+            BpeTokenizer tokenizer = getTokenizer(provider);
+            if (result == null || tokenizer.getRatio() > result.getRatio()) {
+                result = tokenizer;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 获取指定供应商的分词器
+     * <p>
+     * 编码优先使用 TOKENIZER_{供应商} 配置（如 o200k_base、cl100k_base），未配置时按供应商与模型选择：
+     * OpenAI 的 gpt-4o 及之后的模型使用 o200k_base，其他 OpenAI 模型使用 cl100k_base；
+     * DeepSeek、通义千问、智谱的词表与 o200k_base 一样对中文做了优化，默认使用 o200k_base。
+     * 校准系数为 TOKENIZER_{供应商}_RATIO。
+     *
+     * @param provider 供应商名称
+     * @return 分词器
+     */
+    public static BpeTokenizer getTokenizer(String provider) {
+        String key = provider.trim().toUpperCase();
+        double ratio = Double.parseDouble(SpringUtils.getPropertyOrDefault("TOKENIZER_" + key + "_RATIO", "1"));
+        EncodingType type = EncodingType.fromName(SpringUtils.getPropertyOrDefault("TOKENIZER_" + key, "").trim())
+                .orElseGet(() -> defaultEncoding(key.toLowerCase(), SpringUtils.getPropertyOrDefault(key + "_API_MODEL", "")));
+        return new BpeTokenizer(type, ratio);
+    }
+
+    private static EncodingType defaultEncoding(String provider, String model) {
+        switch (provider) {
+            case "openai":
+                String name = StringUtils.defaultIfBlank(model, "gpt-4o-mini").toLowerCase();
+                return StringUtils.startsWithAny(name, "gpt-4o", "gpt-4.1", "gpt-5", "o1", "o3", "o4")
+                        ? EncodingType.O200K_BASE : EncodingType.CL100K_BASE;
+            case "deepseek":
+            case "qwen":
+            case "zhipuai":
+                return EncodingType.O200K_BASE;
+            default:
+                return EncodingType.CL100K_BASE;
+        }
+    }
+
+    /**
+     * 解析供应商及权重配置，格式为 供应商:权重，多个以逗号分隔，权重缺省为1
+     * <p>
+     * Coze工作流的入参与对话接口不同，与其他供应商混合配置时忽略。
+     *
+     * @param config 配置内容
+     * @return 按配置顺序排列的供应商及权重
+     */
+    private static Map<String, Integer> parseProviderWeights(String config) {
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        if (StringUtils.isBlank(config)) {
+            return weights;
+        }
+        for (String item : config.split(",")) {
+            if (StringUtils.isBlank(item)) {
+                continue;
+            }
+            String[] parts = item.trim().split(":");
+            int weight = parts.length > 1 ? Integer.parseInt(parts[1].trim()) : 1;
+            weights.put(parts[0].trim().toLowerCase(), weight);
+        }
+        if (weights.size() > 1 && weights.remove("coze") != null) {
+            log.warn("Coze工作流不支持与其他供应商混合路由，已忽略");
+        }
+        return weights;
+    }
+
+    /**
+     * 获取指定供应商的客户端，按配置包装为 {@link ConcurrencyLimitLLMClient} 与 {@link CircuitBreakerLLMClient}
+     *
+     * @param provider 供应商名称
+     * @return 大模型客户端
+     */
+    public static LLMClient getClient(String provider) {
+        LLMClient client;
         switch (provider.toLowerCase()) {
             case "openai":
-                return new OpenAiClient();
+                client = new OpenAiClient();
+                break;
             case "zhipuai":
-                return new ZhiPuAiClient();
+                client = new ZhiPuAiClient();
+                break;
             case "qwen":
-                return new QwenClient();
+                client = new QwenClient();
+                break;
             case "deepseek":
-                return new DeepSeekClient();
+                client = new DeepSeekClient();
+                break;
             case "coze":
-                return new CozeClient();
+                client = new CozeClient();
+                break;
             default:
                 throw new IllegalArgumentException("Unknown LLM provider: " + provider);
         }
+
+        // 并发限制在熔断之内，熔断时直接快速失败，不再排队
+        if ("1".equals(SpringUtils.getPropertyOrDefault("LLM_LIMIT_ENABLED", "1"))) {
+            client = new ConcurrencyLimitLLMClient(provider.toLowerCase(), client);
+        }
+        if ("1".equals(SpringUtils.getPropertyOrDefault("LLM_BREAKER_ENABLED", "1"))) {
+            client = new CircuitBreakerLLMClient(provider.toLowerCase(), client);
+        }
+        return client;
     }
 }
@@ -0,0 +1,17 @@
+package com.code.review.mapper;
+
+import com.code.review.entity.ReviewCacheEntity;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.time.LocalDateTime;
+
+@Mapper
+public interface ReviewCacheMapper {
+
+    ReviewCacheEntity selectByCacheKey(@Param("cacheKey") String cacheKey, @Param("now") LocalDateTime now);
+
+    void upsertReviewCache(ReviewCacheEntity entity);
+
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
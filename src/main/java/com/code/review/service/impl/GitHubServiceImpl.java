@@ -7,10 +7,16 @@ import com.code.review.event.EventManager;
 import com.code.review.mapper.MergeRequestMapper;
 import com.code.review.service.GitHubService;
 import com.code.review.utils.AICodeReviewUtils;
+import com.code.review.utils.DiffScanner;
+import com.code.review.utils.DiffStore;
 import com.code.review.utils.GitUtils;
 import com.code.review.utils.NotifierUtils;
+import com.code.review.utils.PathMatcher;
+import com.code.review.utils.RetryScheduler;
+import com.code.review.utils.ReviewDeadline;
 import com.code.review.utils.SpringUtils;
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
@@ -20,10 +26,9 @@ import org.springframework.util.CollectionUtils;
 import jakarta.annotation.Resource;
 import jakarta.servlet.http.HttpServletRequest;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.regex.Pattern;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 
@@ -33,7 +38,6 @@ public class GitHubServiceImpl implements GitHubService {
     @Resource
     private MergeRequestMapper mergeRequestMapper;
 
-    private static final Pattern PATTERN = Pattern.compile("@@ -\\d+,\\d+ \\+0,0 @@");
     private static final EventManager eventManager = EventManager.getInstance();
 
     /**
@@ -60,20 +64,23 @@ public class GitHubServiceImpl implements GitHubService {
 
         ThreadPoolTaskExecutor threadPoolTaskExecutor = SpringUtils.getBean("threadPoolTaskExecutor");
 
+        // 评审任务的截止时间从接收Webhook时开始计算，包含线程池中的排队时间
+        ReviewDeadline deadline = ReviewDeadline.start();
+
         // 多线程处理不同事件类型
         if ("pull_request".equals(eventType)) {
             log.info("Handle GitHub Pull Request Event");
-            threadPoolTaskExecutor.execute(() -> {
+            threadPoolTaskExecutor.execute(ReviewDeadline.wrap(deadline, () -> {
                 // 处理pull_request事件
                 handlePullRequestEvent(rootNode, gitHubToken, gitHubUrl, gitHubUrlSlug);
-            });
+            }));
             return AjaxResult.success("pull_request will process asynchronously.");
         } else if ("push".equals(eventType)) {
             log.info("Handle GitHub Push Event");
-            threadPoolTaskExecutor.execute(() -> {
+            threadPoolTaskExecutor.execute(ReviewDeadline.wrap(deadline, () -> {
                 // 处理push事件
                 handlePushEvent(rootNode, gitHubToken, gitHubUrl, gitHubUrlSlug);
-            });
+            }));
             return AjaxResult.success("push will process asynchronously.");
         } else {
             return AjaxResult.warn("Unsupported eventType type，received：" + eventType);
@@ -91,7 +98,11 @@ public class GitHubServiceImpl implements GitHubService {
      * @param gitHubUrlSlug  GitHub 仓库的 URL 标识符（如 owner/repo）
      */
     private void handlePushEvent(JsonNode rootNode, String gitHubToken, String gitHubUrl, String gitHubUrlSlug) {
-        try {
+        // 评审结束时删除溢出到磁盘的diff临时文件
+        try (DiffStore diffStore = DiffStore.open()) {
+            // 在线程池中排队超过截止时间的任务不再处理
+            ReviewDeadline.checkCurrent("queue");
+
             // 检测是否开启Push Review功能
             boolean pushReviewEnabled = "1".equals(SpringUtils.getPropertyOrDefault("PUSH_REVIEW_ENABLED", "1"));
 
@@ -106,17 +117,19 @@ public class GitHubServiceImpl implements GitHubService {
 
             String reviewResult = "Push Review未开启";
             int score = 0;
+            List<ReviewReport.Issue> issues = null;
             int additions = 0;
             int deletions = 0;
 
             if (pushReviewEnabled) {
-                // 获取PUSH的changes
-                JsonNode pushChanges = handler.getPushChanges();
-                List<ChangeInfo> changes = filterChanges(pushChanges);
+                // 获取PUSH的changes，流式解析时即过滤掉不支持的文件
+                PathMatcher matcher = PathMatcher.forProject(handler.getProjectName());
+                JsonNode pushChanges = handler.getPushChanges(changeNode -> acceptChange(changeNode, matcher));
+                List<ChangeInfo> changes = filterChanges(pushChanges, matcher, diffStore);
 
                 // 如果没有符合要求的变更文件，则记录提示信息
                 if (CollectionUtils.isEmpty(changes)) {
-                    log.info("未检测到PUSH代码的修改,修改文件可能不满足SUPPORTED_EXTENSIONS。");
+                    log.info("未检测到PUSH代码的修改,修改文件可能不满足SUPPORTED_EXTENSIONS或被排除。");
                     reviewResult = "关注的文件没有修改";
                 } else {
                     // 拼接所有提交的消息文本
@@ -125,10 +138,12 @@ public class GitHubServiceImpl implements GitHubService {
                             .collect(Collectors.joining(";"));
 
                     // 调用AI接口，获取代码评审结果
-                    reviewResult = AICodeReviewUtils.reviewAndStripCode(changes.toString(), commitText, handler.getProjectName());
+                    ReviewResult review = AICodeReviewUtils.reviewChanges(changes, commitText, handler.getProjectName());
+                    reviewResult = review.getContent();
 
-                    // 解析评审得分
-                    score = AICodeReviewUtils.parseReviewScore(reviewResult);
+                    // 结构化输出时总分与问题列表直接取自报告，Markdown输出时从文本中解析总分
+                    score = AICodeReviewUtils.parseReviewScore(review);
+                    issues = review.getReport() != null ? review.getReport().getIssues() : null;
 
                     // 使用stream计算总的新增行数和删除行数
                     additions = changes.stream()
@@ -146,10 +161,11 @@ public class GitHubServiceImpl implements GitHubService {
                     // 将review结果提交到GitHub的 notes
                     handler.addPushNote("Auto Review Result：\n" + reviewResult);
                 }
+                ReviewDeadline.finishCurrent();
             }
 
             // 构造 PushEventEntity 并触发事件通知
-            eventManager.emit("push_reviewed", new PushEventEntity(
+            PushEventEntity event = new PushEventEntity(
                     handler.getProjectName(),
                     rootNode.path("sender").path("login").asText(""),
                     handler.getBranchName(),
@@ -161,7 +177,9 @@ public class GitHubServiceImpl implements GitHubService {
                     rootNode,
                     additions,
                     deletions
-            ));
+            );
+            event.setIssues(issues);
+            eventManager.emit("push_reviewed", event);
         } catch (Exception e) {
             // 记录异常日志并发送通知
             String message = "Push request event error: " + e.getMessage();
@@ -188,6 +206,9 @@ public class GitHubServiceImpl implements GitHubService {
      */
     private void handlePullRequestEvent(JsonNode rootNode, String gitHubToken, String gitHubUrl, String gitHubUrlSlug) {
         try {
+            // 在线程池中排队超过截止时间的任务不再处理
+            ReviewDeadline.checkCurrent("queue");
+
             // 检测是否开启Merge请求过滤功能
             boolean mergeReviewOnlyProtectedBranchesEnabled = "1".equals(SpringUtils.getPropertyOrDefault("MERGE_REVIEW_ONLY_PROTECTED_BRANCHES_ENABLED", "0"));
 
@@ -216,11 +237,50 @@ public class GitHubServiceImpl implements GitHubService {
             }
 
             // 仅仅在PR创建或更新时进行Code Review
-            // 获取Pull Request的changes
-            JsonNode pullRequestChanges = handler.getPullRequestChanges();
-            List<ChangeInfo> changes = filterChanges(pullRequestChanges);
+            // 异步获取Pull Request的commits，与changes的获取并行进行
+            CompletableFuture<JsonNode> commitsFuture = handler.getPullRequestCommitsAsync();
+
+            // 异步获取Pull Request的changes，流式解析时即过滤掉不支持的文件；
+            // changes未就绪时由定时器重试，获取完成后再在线程池中继续评审（大模型熔断时暂缓评审），等待期间不占用线程
+            PathMatcher matcher = PathMatcher.forProject(handler.getProjectName());
+            ThreadPoolTaskExecutor threadPoolTaskExecutor = SpringUtils.getBean("threadPoolTaskExecutor");
+            ReviewDeadline deadline = ReviewDeadline.current();
+            handler.getPullRequestChangesAsync(changeNode -> acceptChange(changeNode, matcher))
+                    .thenAccept(pullRequestChanges -> AICodeReviewUtils.runWhenLLMAvailable(
+                            () -> reviewPullRequest(rootNode, handler, pullRequestChanges, commitsFuture, gitHubUrlSlug, lastCommitId), threadPoolTaskExecutor, deadline))
+                    .whenComplete((ignored, error) -> {
+                        // 获取changes失败（重试耗尽、不可重试的错误、超过截止时间）或提交评审任务失败时记录并通知
+                        if (error != null) {
+                            String message = "Pull request event error: " + RetryScheduler.unwrap(error).getMessage();
+                            log.error(message);
+                            NotifierUtils.sendNotification(message);
+                        }
+                    });
+        } catch (Exception e) {
+            // 记录异常日志并发送通知
+            String message = "Pull request event error: " + e.getMessage();
+            log.error(message);
+            NotifierUtils.sendNotification(message);
+        }
+    }
+
+    /**
+     * 获取到 Pull Request 的变更后进行代码审查，将审查结果发布为评论，并触发相关事件通知。
+     *
+     * @param rootNode           包含 Pull Request 事件数据的 JSON 节点
+     * @param handler            Pull Request 处理对象
+     * @param pullRequestChanges Pull Request 的变更节点
+     * @param commitsFuture      Pull Request 提交记录的Future
+     * @param gitHubUrlSlug      GitHub URL 中用于标识项目的部分
+     * @param lastCommitId       最后一次提交的ID
+     */
+    private void reviewPullRequest(JsonNode rootNode, PullRequestHandlerEntity handler, JsonNode pullRequestChanges,
+                                   CompletableFuture<JsonNode> commitsFuture, String gitHubUrlSlug, String lastCommitId) {
+        // 评审结束时删除溢出到磁盘的diff临时文件
+        try (DiffStore diffStore = DiffStore.open()) {
+            List<ChangeInfo> changes = filterChanges(pullRequestChanges, PathMatcher.forProject(handler.getProjectName()), diffStore);
             if (CollectionUtils.isEmpty(changes)) {
-                log.info("未检测到Pull Request有关代码的修改,修改文件可能不满足SUPPORTED_EXTENSIONS。");
+                log.info("未检测到Pull Request有关代码的修改,修改文件可能不满足SUPPORTED_EXTENSIONS或被排除。");
                 return;
             }
 
@@ -229,7 +289,7 @@ public class GitHubServiceImpl implements GitHubService {
             int deletions = changes.stream().mapToInt(ChangeInfo::getDeletions).sum();
 
             // 获取Pull Request的commits
-            JsonNode pullRequestCommits = handler.getPullRequestCommits();
+            JsonNode pullRequestCommits = commitsFuture.join();
             if (pullRequestCommits.isEmpty()) {
                 log.info("Failed to get commits");
                 return;
@@ -239,7 +299,9 @@ public class GitHubServiceImpl implements GitHubService {
                     .map(commit -> commit.path("title").asText(""))
                     .collect(Collectors.joining(";"));
 
-            String reviewResult = AICodeReviewUtils.reviewAndStripCode(changes.toString(), commitsText, handler.getProjectName());
+            // 结构化输出时总分与问题列表直接取自报告，Markdown输出时从文本中解析总分
+            ReviewResult review = AICodeReviewUtils.reviewChanges(changes, commitsText, handler.getProjectName());
+            String reviewResult = review.getContent();
 
             // 如果评审结果为空，则设置默认提示信息；否则将其作为 note 发布至 Git
             if (StringUtils.isBlank(reviewResult)) {
@@ -248,16 +310,17 @@ public class GitHubServiceImpl implements GitHubService {
                 // 将review结果提交到GitHub的 notes
                 handler.addPullRequestNote("Auto Review Result：\n" + reviewResult);
             }
+            ReviewDeadline.finishCurrent();
 
             // 构造 MergeRequestEventEntity 并触发事件通知
-            eventManager.emit("merge_request_review_result", new MergeRequestEventEntity(
+            MergeRequestEventEntity event = new MergeRequestEventEntity(
                     handler.getProjectName(),
                     rootNode.path("pull_request").path("user").path("login").asText(""),
                     handler.getSourceBranch(),
                     handler.getTargetBranch(),
                     LocalDateTime.now(),
                     pullRequestCommits,
-                    AICodeReviewUtils.parseReviewScore(reviewResult),
+                    AICodeReviewUtils.parseReviewScore(review),
                     rootNode.path("pull_request").path("html_url").asText(""),
                     reviewResult,
                     gitHubUrlSlug,
@@ -265,7 +328,9 @@ public class GitHubServiceImpl implements GitHubService {
                     additions,
                     deletions,
                     lastCommitId
-            ));
+            );
+            event.setIssues(review.getReport() != null ? review.getReport().getIssues() : null);
+            eventManager.emit("merge_request_review_result", event);
         } catch (Exception e) {
             // 记录异常日志并发送通知
             String message = "Pull request event error: " + e.getMessage();
@@ -281,65 +346,78 @@ public class GitHubServiceImpl implements GitHubService {
      * 最终只保留具有有效扩展名且未被完全删除的文件变更信息。
      *
      * @param changeNodes 包含多个变更记录的 JsonNode 对象
+     * @param matcher     文件路径过滤器
+     * @param diffStore   评审任务的diff存储
      * @return 符合条件的变更信息列表
      */
-    private List<ChangeInfo> filterChanges(JsonNode changeNodes) {
-        List<ChangeInfo> changes = new ArrayList<>();
-
-        // 从环境变量中获取支持的文件扩展名，默认为.java,.py,.php
-        String supportedExtensions = SpringUtils.getPropertyOrDefault("SUPPORTED_EXTENSIONS", ".java,.py,.php");
-
-        // 根据英文逗号分割字符串，得到支持的文件扩展名数组
-        String[] extensions = supportedExtensions.split(",");
-
-        // 遍历所有变更节点，过滤出符合条件的变更信息
-        for (JsonNode changeNode : changeNodes) {
-            String newPath = changeNode.path("new_path").asText("");
+    private List<ChangeInfo> filterChanges(JsonNode changeNodes, PathMatcher matcher, DiffStore diffStore) {
+        // 遍历所有变更节点，过滤出符合条件的变更信息，文件较多时并行处理
+        return DiffScanner.mapChanges(changeNodes, changeNode -> toChangeInfo(changeNode, matcher, diffStore));
+    }
 
-            // 优先检查status字段是否为"removed"
-            if ("removed".equals(changeNode.path("status").asText(""))) {
-                log.info("Detected file deletion via status field：{}", newPath);
-                continue;
-            }
+    /**
+     * 将单个变更节点转换为变更信息，一次扫描diff判断是否为整文件删除
+     *
+     * @param changeNode 变更的JSON节点
+     * @param matcher    文件路径过滤器
+     * @param diffStore  评审任务的diff存储
+     * @return 变更信息，已删除、不支持或二进制文件返回null
+     */
+    private ChangeInfo toChangeInfo(JsonNode changeNode, PathMatcher matcher, DiffStore diffStore) {
+        String newPath = changeNode.path("new_path").asText("");
 
-            // 如果没有status字段或status不为"removed"，继续检查diff模式
-            String diff = changeNode.path("diff").asText("");
-            if (StringUtils.isNotBlank(diff) && PATTERN.matcher(diff).find()) {
-                // 检查除了diff头部外的所有行是否都以减号开头
-                String[] diffLines = diff.split("\n");  // 分割所有行
-                boolean allStartWithMinus = true;
-
-                // 跳过第一行(索引0)，检查其余行
-                for (int i = 1; i < diffLines.length; i++) {
-                    String line = diffLines[i];
-                    if (!line.startsWith("-") && !line.isEmpty()) {
-                        allStartWithMinus = false;
-                        break;
-                    }
-                }
+        // 优先检查status字段及文件扩展名
+        if (!acceptChange(changeNode, matcher)) {
+            return null;
+        }
 
-                // 如果所有行都以减号开头，则认为该文件被删除，则跳过处理
-                if (allStartWithMinus) {
-                    log.info("Detected file deletion via diff pattern: {}", newPath);
-                    continue;
-                }
-            }
+        // 如果没有status字段或status不为"removed"，继续检查diff模式
+        String diff = changeNode.path("diff").asText("");
+        DiffScanner.Result scan = DiffScanner.scan(diff);
+        if (scan.isDeletedFile()) {
+            log.info("Detected file deletion via diff pattern: {}", newPath);
+            return null;
+        }
+        if (scan.isBinary()) {
+            log.info("Skip binary file: {}", newPath);
+            return null;
+        }
+        if (PathMatcher.isGenerated(diff)) {
+            log.info("Skip generated file: {}", newPath);
+            return null;
+        }
 
-            // 过滤 `new_path` 以支持的扩展名结尾的元素，仅保留diff和new_path字段
-            if (!StringUtils.endsWithAny(newPath, extensions)) {
-                continue;
-            }
+        // 构造变更信息对象，增删行数优先使用GitHub返回的统计
+        ChangeInfo changeInfo = new ChangeInfo();
+        changeInfo.setDiffContent(diffStore.put(diff));
+        changeInfo.setNewPath(newPath);
+        if (changeInfo.getSpilledDiff() != null && changeNode instanceof ObjectNode) {
+            // diff已溢出到磁盘，不再由JSON节点持有
+            ((ObjectNode) changeNode).remove("diff");
+        }
+        changeInfo.setAdditions(changeNode.path("additions").asInt(scan.getAdditions()));
+        changeInfo.setDeletions(changeNode.path("deletions").asInt(scan.getDeletions()));
+        return changeInfo;
+    }
 
-            // 构造变更信息对象并添加到结果列表
-            ChangeInfo changeInfo = new ChangeInfo();
-            changeInfo.setDiff(diff);
-            changeInfo.setNewPath(newPath);
-            changeInfo.setAdditions(changeNode.path("additions").asInt(0));
-            changeInfo.setDeletions(changeNode.path("deletions").asInt(0));
+    /**
+     * 判断变更是否需要Review，仅依赖路径和状态字段，可在读取diff内容之前调用
+     *
+     * @param changeNode 变更的JSON节点
+     * @param matcher    文件路径过滤器
+     * @return 是否保留该变更
+     */
+    private boolean acceptChange(JsonNode changeNode, PathMatcher matcher) {
+        String newPath = changeNode.path("new_path").asText("");
 
-            changes.add(changeInfo);
+        // 检查status字段是否为"removed"
+        if ("removed".equals(changeNode.path("status").asText(""))) {
+            log.info("Detected file deletion via status field：{}", newPath);
+            return false;
         }
-        return changes;
+
+        // 过滤 `new_path` 以支持的扩展名结尾的元素
+        return matcher.matches(newPath);
     }
 
     /**
@@ -7,10 +7,16 @@ import com.code.review.event.EventManager;
 import com.code.review.mapper.MergeRequestMapper;
 import com.code.review.service.GitLabService;
 import com.code.review.utils.AICodeReviewUtils;
+import com.code.review.utils.DiffScanner;
+import com.code.review.utils.DiffStore;
 import com.code.review.utils.GitUtils;
 import com.code.review.utils.NotifierUtils;
+import com.code.review.utils.PathMatcher;
+import com.code.review.utils.RetryScheduler;
+import com.code.review.utils.ReviewDeadline;
 import com.code.review.utils.SpringUtils;
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
@@ -21,9 +27,9 @@ import jakarta.annotation.Resource;
 import jakarta.servlet.http.HttpServletRequest;
 import java.net.URI;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 
@@ -63,20 +69,23 @@ public class GitLabServiceImpl implements GitLabService {
         String eventType = rootNode.path("object_kind").asText("");
         ThreadPoolTaskExecutor threadPoolTaskExecutor = SpringUtils.getBean("threadPoolTaskExecutor");
 
+        // 评审任务的截止时间从接收Webhook时开始计算，包含线程池中的排队时间
+        ReviewDeadline deadline = ReviewDeadline.start();
+
         // 多线程处理不同事件类型
         if ("merge_request".equals(eventType)) {
             log.info("Handle GitLab Merge Request Event");
-            threadPoolTaskExecutor.execute(() -> {
+            threadPoolTaskExecutor.execute(ReviewDeadline.wrap(deadline, () -> {
                 // 处理merge_request事件
                 handleMergeRequestEvent(rootNode, gitlabToken, gitlabUrl, gitlabUrlSlug);
-            });
+            }));
             return AjaxResult.success("merge_request will process asynchronously.");
         } else if ("push".equals(eventType)) {
             log.info("Handle GitLab Push Event");
-            threadPoolTaskExecutor.execute(() -> {
+            threadPoolTaskExecutor.execute(ReviewDeadline.wrap(deadline, () -> {
                 // 处理push事件
                 handlePushEvent(rootNode, gitlabToken, gitlabUrl, gitlabUrlSlug);
-            });
+            }));
             return AjaxResult.success("push will process asynchronously.");
         } else {
             return AjaxResult.warn("Unsupported event type，received：" + eventType);
@@ -96,6 +105,9 @@ public class GitLabServiceImpl implements GitLabService {
      */
     private void handleMergeRequestEvent(JsonNode rootNode, String gitlabToken, String gitlabUrl, String gitlabUrlSlug) {
         try {
+            // 在线程池中排队超过截止时间的任务不再处理
+            ReviewDeadline.checkCurrent("queue");
+
             // 检测是否开启Merge请求过滤功能
             boolean mergeReviewOnlyProtectedBranchesEnabled = "1".equals(SpringUtils.getPropertyOrDefault("MERGE_REVIEW_ONLY_PROTECTED_BRANCHES_ENABLED", "0"));
 
@@ -139,11 +151,51 @@ public class GitLabServiceImpl implements GitLabService {
             }
 
             // 仅仅在MR创建或更新时进行Code Review
-            // 获取Merge Request的changes
-            JsonNode mergeRequestChanges = handler.getMergeRequestChanges();
-            List<ChangeInfo> changes = filterChanges(mergeRequestChanges);
+            // 异步获取Merge Request的commits，与changes的获取并行进行
+            CompletableFuture<JsonNode> commitsFuture = handler.getMergeRequestCommitsAsync();
+
+            // 异步获取Merge Request的changes，流式解析时即过滤掉不支持的文件；
+            // changes未就绪时由定时器重试，获取完成后再在线程池中继续评审（大模型熔断时暂缓评审），等待期间不占用线程
+            PathMatcher matcher = PathMatcher.forProject(handler.getProjectName());
+            ThreadPoolTaskExecutor threadPoolTaskExecutor = SpringUtils.getBean("threadPoolTaskExecutor");
+            ReviewDeadline deadline = ReviewDeadline.current();
+            handler.getMergeRequestChangesAsync(changeNode -> acceptChange(changeNode, matcher))
+                    .thenAccept(mergeRequestChanges -> AICodeReviewUtils.runWhenLLMAvailable(
+                            () -> reviewMergeRequest(rootNode, handler, mergeRequestChanges, commitsFuture, gitlabUrlSlug, lastCommitId), threadPoolTaskExecutor, deadline))
+                    .whenComplete((ignored, error) -> {
+                        // 获取changes失败（重试耗尽、不可重试的错误、超过截止时间）或提交评审任务失败时记录并通知
+                        if (error != null) {
+                            String message = "Merge request event error: " + RetryScheduler.unwrap(error).getMessage();
+                            log.error(message);
+                            NotifierUtils.sendNotification(message);
+                        }
+                    });
+        } catch (Exception e) {
+            // 记录异常日志并发送通知
+            String message = "Merge request event error: " + e.getMessage();
+            log.error(message);
+            NotifierUtils.sendNotification(message);
+        }
+    }
+
+    /**
+     * 获取到 Merge Request 的变更后进行 AI Code Review，将评审结果以评论形式发布到 GitLab，并触发事件通知。
+     *
+     * @param rootNode            包含 Merge Request 事件数据的 JSON 节点
+     * @param handler             Merge Request 处理对象
+     * @param mergeRequestChanges Merge Request 的变更节点
+     * @param commitsFuture       Merge Request 提交记录的Future
+     * @param gitlabUrlSlug       用于标识项目的 URL Slug（路径）
+     * @param lastCommitId        最后一次提交的ID
+     */
+    private void reviewMergeRequest(JsonNode rootNode, MergeRequestHandlerEntity handler, JsonNode mergeRequestChanges,
+                                    CompletableFuture<JsonNode> commitsFuture, String gitlabUrlSlug, String lastCommitId) {
+        // 评审结束时删除溢出到磁盘的diff临时文件
+        try (DiffStore diffStore = DiffStore.open()) {
+            JsonNode objectAttributesNode = rootNode.path("object_attributes");
+            List<ChangeInfo> changes = filterChanges(mergeRequestChanges, PathMatcher.forProject(handler.getProjectName()), diffStore);
             if (CollectionUtils.isEmpty(changes)) {
-                log.info("未检测到Merge Request有关代码的修改,修改文件可能不满足SUPPORTED_EXTENSIONS。");
+                log.info("未检测到Merge Request有关代码的修改,修改文件可能不满足SUPPORTED_EXTENSIONS或被排除。");
                 return;
             }
 
@@ -152,7 +204,7 @@ public class GitLabServiceImpl implements GitLabService {
             int deletions = changes.stream().mapToInt(ChangeInfo::getDeletions).sum();
 
             // 获取Merge Request的commits
-            JsonNode mergeRequestCommits = handler.getMergeRequestCommits();
+            JsonNode mergeRequestCommits = commitsFuture.join();
             if (mergeRequestCommits.isEmpty()) {
                 log.info("Failed to get commits");
                 return;
@@ -162,7 +214,9 @@ public class GitLabServiceImpl implements GitLabService {
                     .map(commit -> commit.path("title").asText(""))
                     .collect(Collectors.joining(";"));
 
-            String reviewResult = AICodeReviewUtils.reviewAndStripCode(changes.toString(), commitsText, handler.getProjectName());
+            // 结构化输出时总分与问题列表直接取自报告，Markdown输出时从文本中解析总分
+            ReviewResult review = AICodeReviewUtils.reviewChanges(changes, commitsText, handler.getProjectName());
+            String reviewResult = review.getContent();
 
             // 如果评审结果为空，则设置默认提示信息；否则将其作为 note 发布至 Git
             if (StringUtils.isBlank(reviewResult)) {
@@ -171,16 +225,17 @@ public class GitLabServiceImpl implements GitLabService {
                 // 将review结果提交到Gitlab的 notes
                 handler.addMergeRequestNote("Auto Review Result：\n" + reviewResult);
             }
+            ReviewDeadline.finishCurrent();
 
             // 构造 MergeRequestEventEntity 并触发事件通知
-            eventManager.emit("merge_request_review", new MergeRequestEventEntity(
+            MergeRequestEventEntity event = new MergeRequestEventEntity(
                     handler.getProjectName(),
                     rootNode.path("user").path("username").asText(""),
                     handler.getSourceBranch(),
                     handler.getTargetBranch(),
                     LocalDateTime.now(),
                     mergeRequestCommits,
-                    AICodeReviewUtils.parseReviewScore(reviewResult),
+                    AICodeReviewUtils.parseReviewScore(review),
                     objectAttributesNode.path("url").asText(""),
                     reviewResult,
                     gitlabUrlSlug,
@@ -188,7 +243,9 @@ public class GitLabServiceImpl implements GitLabService {
                     additions,
                     deletions,
                     lastCommitId
-            ));
+            );
+            event.setIssues(review.getReport() != null ? review.getReport().getIssues() : null);
+            eventManager.emit("merge_request_review", event);
         } catch (Exception e) {
             // 记录异常日志并发送通知
             String message = "Merge request event error: " + e.getMessage();
@@ -208,7 +265,11 @@ public class GitLabServiceImpl implements GitLabService {
      * @param gitlabUrlSlug 当前项目的 URL Slug（路径标识）
      */
     private void handlePushEvent(JsonNode rootNode, String gitlabToken, String gitlabUrl, String gitlabUrlSlug) {
-        try {
+        // 评审结束时删除溢出到磁盘的diff临时文件
+        try (DiffStore diffStore = DiffStore.open()) {
+            // 在线程池中排队超过截止时间的任务不再处理
+            ReviewDeadline.checkCurrent("queue");
+
             // 检测是否开启Push Review功能
             boolean pushReviewEnabled = "1".equals(SpringUtils.getPropertyOrDefault("PUSH_REVIEW_ENABLED", "1"));
 
@@ -223,17 +284,19 @@ public class GitLabServiceImpl implements GitLabService {
 
             String reviewResult = "Push Review未开启";
             int score = 0;
+            List<ReviewReport.Issue> issues = null;
             int additions = 0;
             int deletions = 0;
 
             if (pushReviewEnabled) {
-                // 获取PUSH的changes
-                JsonNode pushChanges = handler.getPushChanges();
-                List<ChangeInfo> changes = filterChanges(pushChanges);
+                // 获取PUSH的changes，流式解析时即过滤掉不支持的文件
+                PathMatcher matcher = PathMatcher.forProject(handler.getProjectName());
+                JsonNode pushChanges = handler.getPushChanges(changeNode -> acceptChange(changeNode, matcher));
+                List<ChangeInfo> changes = filterChanges(pushChanges, matcher, diffStore);
 
                 // 如果没有符合要求的变更文件，则记录提示信息
                 if (CollectionUtils.isEmpty(changes)) {
-                    log.info("未检测到PUSH代码的修改,修改文件可能不满足SUPPORTED_EXTENSIONS。");
+                    log.info("未检测到PUSH代码的修改,修改文件可能不满足SUPPORTED_EXTENSIONS或被排除。");
                     reviewResult = "关注的文件没有修改";
                 } else {
                     // 拼接所有提交的消息文本
@@ -242,10 +305,12 @@ public class GitLabServiceImpl implements GitLabService {
                             .collect(Collectors.joining(";"));
 
                     // 调用AI接口，获取代码评审结果
-                    reviewResult = AICodeReviewUtils.reviewAndStripCode(changes.toString(), commitText, handler.getProjectName());
+                    ReviewResult review = AICodeReviewUtils.reviewChanges(changes, commitText, handler.getProjectName());
+                    reviewResult = review.getContent();
 
-                    // 解析评审得分
-                    score = AICodeReviewUtils.parseReviewScore(reviewResult);
+                    // 结构化输出时总分与问题列表直接取自报告，Markdown输出时从文本中解析总分
+                    score = AICodeReviewUtils.parseReviewScore(review);
+                    issues = review.getReport() != null ? review.getReport().getIssues() : null;
 
                     // 使用stream计算总的新增行数和删除行数
                     additions = changes.stream()
@@ -263,10 +328,11 @@ public class GitLabServiceImpl implements GitLabService {
                     // 将review结果提交到Gitlab的 notes
                     handler.addPushNote("Auto Review Result：\n" + reviewResult);
                 }
+                ReviewDeadline.finishCurrent();
             }
 
             // 构造 PushEventEntity 并触发事件通知
-            eventManager.emit("push_reviewed", new PushEventEntity(
+            PushEventEntity event = new PushEventEntity(
                     handler.getProjectName(),
                     rootNode.path("user_username").asText(""),
                     handler.getBranchName(),
@@ -278,7 +344,9 @@ public class GitLabServiceImpl implements GitLabService {
                     rootNode,
                     additions,
                     deletions
-            ));
+            );
+            event.setIssues(issues);
+            eventManager.emit("push_reviewed", event);
         } catch (Exception e) {
             // 记录异常日志并发送通知
             String message = "Handle push event error: " + e.getMessage();
@@ -291,60 +359,71 @@ public class GitLabServiceImpl implements GitLabService {
      * 过滤数据，只保留支持的文件类型以及必要的字段信息
      *
      * @param changeNodes 变更的JSON节点
+     * @param matcher     文件路径过滤器
+     * @param diffStore   评审任务的diff存储
      * @return 过滤后的变更信息列表，仅包含支持的文件类型及必要字段
      */
-    private List<ChangeInfo> filterChanges(JsonNode changeNodes) {
-        List<ChangeInfo> changes = new ArrayList<>();
-
-        // 从环境变量中获取支持的文件扩展名，默认为.java,.py,.php
-        String supportedExtensions = SpringUtils.getPropertyOrDefault("SUPPORTED_EXTENSIONS", ".java,.py,.php");
-
-        // 根据英文逗号分割字符串，得到支持的文件扩展名数组
-        String[] extensions = supportedExtensions.split(",");
-
-        // 遍历所有变更节点，过滤出符合条件的变更信息
-        for (JsonNode changeNode : changeNodes) {
-            // 跳过已删除的文件
-            if (changeNode.path("deleted_file").asBoolean(false)) {
-                continue;
-            }
-
-            // 过滤 `new_path` 以支持的扩展名结尾的元素，仅保留diff和new_path字段
-            if (!StringUtils.endsWithAny(changeNode.path("new_path").asText(""), extensions)) {
-                continue;
-            }
+    private List<ChangeInfo> filterChanges(JsonNode changeNodes, PathMatcher matcher, DiffStore diffStore) {
+        // 遍历所有变更节点，过滤出符合条件的变更信息，文件较多时并行处理
+        return DiffScanner.mapChanges(changeNodes, changeNode -> toChangeInfo(changeNode, matcher, diffStore));
+    }
 
-            // 获取diff内容和新路径
-            String diff = changeNode.path("diff").asText("");
-            String newPath = changeNode.path("new_path").asText("");
+    /**
+     * 将单个变更节点转换为变更信息，一次扫描diff统计增删行数
+     *
+     * @param changeNode 变更的JSON节点
+     * @param matcher    文件路径过滤器
+     * @param diffStore  评审任务的diff存储
+     * @return 变更信息，已删除、不支持或二进制文件返回null
+     */
+    private ChangeInfo toChangeInfo(JsonNode changeNode, PathMatcher matcher, DiffStore diffStore) {
+        // 跳过已删除及不支持的文件
+        if (!acceptChange(changeNode, matcher)) {
+            return null;
+        }
 
-            // 统计新增行数和删除行数
-            int additions = 0;
-            int deletions = 0;
+        // 获取diff内容和新路径
+        String diff = changeNode.path("diff").asText("");
+        String newPath = changeNode.path("new_path").asText("");
 
-            // 如果diff内容不为空，则逐行分析统计增删行数
-            if (StringUtils.isNotBlank(diff)) {
-                String[] lines = diff.split("\n");
-                for (String line : lines) {
-                    if (line.startsWith("+") && !line.startsWith("++")) {
-                        additions++;
-                    } else if (line.startsWith("-") && !line.startsWith("--")) {
-                        deletions++;
-                    }
-                }
-            }
+        DiffScanner.Result scan = DiffScanner.scan(diff);
+        if (scan.isBinary()) {
+            log.info("Skip binary file: {}", newPath);
+            return null;
+        }
+        if (PathMatcher.isGenerated(diff)) {
+            log.info("Skip generated file: {}", newPath);
+            return null;
+        }
 
-            // 构造变更信息对象并添加到结果列表
-            ChangeInfo changeInfo = new ChangeInfo();
-            changeInfo.setDiff(diff);
-            changeInfo.setNewPath(newPath);
-            changeInfo.setAdditions(additions);
-            changeInfo.setDeletions(deletions);
+        // 构造变更信息对象
+        ChangeInfo changeInfo = new ChangeInfo();
+        changeInfo.setDiffContent(diffStore.put(diff));
+        changeInfo.setNewPath(newPath);
+        if (changeInfo.getSpilledDiff() != null && changeNode instanceof ObjectNode) {
+            // diff已溢出到磁盘，不再由JSON节点持有
+            ((ObjectNode) changeNode).remove("diff");
+        }
+        changeInfo.setAdditions(scan.getAdditions());
+        changeInfo.setDeletions(scan.getDeletions());
+        return changeInfo;
+    }
 
-            changes.add(changeInfo);
+    /**
+     * 判断变更是否需要Review，仅依赖路径和删除标记，可在读取diff内容之前调用
+     *
+     * @param changeNode 变更的JSON节点
+     * @param matcher    文件路径过滤器
+     * @return 是否保留该变更
+     */
+    private boolean acceptChange(JsonNode changeNode, PathMatcher matcher) {
+        // 跳过已删除的文件
+        if (changeNode.path("deleted_file").asBoolean(false)) {
+            return false;
         }
 
-        return changes;
+        // 过滤 `new_path` 以支持的扩展名结尾的元素
+        return matcher.matches(changeNode.path("new_path").asText(""));
     }
 
     /**
@@ -1,11 +1,19 @@
 package com.code.review.utils;
 
 import com.code.review.client.LLMClient;
+import com.code.review.entity.ChangeInfo;
+import com.code.review.entity.ReviewReport;
+import com.code.review.entity.ReviewResult;
 import com.code.review.factory.LLMClientFactory;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
+import org.springframework.util.CollectionUtils;
 
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -13,6 +21,10 @@ import java.util.regex.Pattern;
 public class AICodeReviewUtils {
 
     private static final Map<String, Map<String, String>> prompts;
+    private static final Map<String, Map<String, String>> jsonPrompts;
+    private static final Map<String, Map<String, String>> reducePrompts;
+    private static final Map<String, Map<String, String>> reduceJsonPrompts;
+    private static final Map<String, Map<String, String>> triagePrompts;
     private static final LLMClient llmClient;
     private static final Pattern SCORE_PATTERN = Pattern.compile("总分[:：]\\s*(\\d+)分?");
 
@@ -20,8 +32,24 @@ public class AICodeReviewUtils {
     }
 
     static {
-        prompts = loadPrompts(SpringUtils.getPropertyOrDefault("REVIEW_STYLE", "professional"));
+        String style = SpringUtils.getPropertyOrDefault("REVIEW_STYLE", "professional");
+        prompts = loadPrompts(style);
+        jsonPrompts = new PromptLoader().loadPrompts("code_review_json_prompt", style);
+        reducePrompts = new PromptLoader().loadPrompts("code_review_reduce_prompt", style);
+        reduceJsonPrompts = new PromptLoader().loadPrompts("code_review_reduce_json_prompt", style);
+        triagePrompts = new PromptLoader().loadPrompts("code_review_triage_prompt", style);
         llmClient = LLMClientFactory.getClient();
+
+        // 完整评审报告按评分标准逐项输出，篇幅与变更规模无关，按报告长度预留补全token
+        int reportTokens = Integer.parseInt(SpringUtils.getPropertyOrDefault("REVIEW_REPORT_COMPLETION_TOKENS", "6000"));
+        for (Map<String, Map<String, String>> reviewPrompts : List.of(prompts, jsonPrompts)) {
+            for (String key : List.of("system_message", "cached_system_message")) {
+                Map<String, String> message = reviewPrompts.get(key);
+                if (message != null) {
+                    TokenBudgetAllocator.registerCompletionFloor(message.get("content"), reportTokens);
+                }
+            }
+        }
     }
 
     /**
@@ -35,6 +63,319 @@ public class AICodeReviewUtils {
         return new PromptLoader().loadPrompts("code_review_prompt", style);
     }
 
+    /**
+     * 在大模型可用时执行评审任务
+     * <p>
+     * 当前供应商处于熔断状态时，评审任务不占用线程，而是在熔断结束后再提交到线程池执行，
+     * 最多等待 LLM_BREAKER_MAX_PARK_TIMES 次，超过后直接执行（由熔断器快速失败）。
+     * 熔断剩余时间超过评审任务的剩余时间时不再等待。
+     *
+     * @param task     评审任务
+     * @param executor 执行评审任务的线程池
+     * @param deadline 评审任务的截止时间，可为null
+     */
+    public static void runWhenLLMAvailable(Runnable task, Executor executor, ReviewDeadline deadline) {
+        runWhenLLMAvailable(ReviewDeadline.wrap(deadline, task), executor, deadline, 0);
+    }
+
+    private static void runWhenLLMAvailable(Runnable task, Executor executor, ReviewDeadline deadline, int parkedTimes) {
+        int maxParkTimes = Integer.parseInt(SpringUtils.getPropertyOrDefault("LLM_BREAKER_MAX_PARK_TIMES", "3"));
+        if (parkedTimes < maxParkTimes) {
+            long remainingOpenMillis = llmClient.getRemainingOpenMillis();
+            if (remainingOpenMillis > 0 && (deadline == null || remainingOpenMillis < deadline.getRemainingMillis())) {
+                log.warn("大模型[{}]熔断中，评审任务暂缓{}ms后执行", llmClient.getProvider(), remainingOpenMillis);
+                // 线程池饱和时由提交线程执行任务，不能在定时器线程中提交，否则会阻塞所有定时任务
+                RetryScheduler.schedule(() -> CompletableFuture.runAsync(() -> runWhenLLMAvailable(task, executor, deadline, parkedTimes + 1)),
+                        remainingOpenMillis);
+                return;
+            }
+        }
+        executor.execute(task);
+    }
+
+    /**
+     * 审查变更列表
+     * <p>
+     * 变更内容未超过 REVIEW_MAX_TOKENS 时整体审查；超过时按文件和diff块拆分为多个部分，
+     * 以有限的并发度并行审查各部分（map），再将各部分结果合并为一份包含总分的报告（reduce），不截断任何内容。
+     * Coze工作流无法指定合并提示词，仍按截断方式整体审查。
+     * <p>
+     * 当前线程带有 {@link ReviewDeadline} 时，剩余时间不足 REVIEW_DOWNGRADE_THRESHOLD 则降级为 REVIEW_FALLBACK_MODEL，
+     * 并截断到 REVIEW_FALLBACK_MAX_TOKENS 后整体审查，不再拆分；已超过截止时间时抛出 {@link ReviewDeadlineExceededException}。
+     * <p>
+     * 开启 REVIEW_TRIAGE_ENABLED 时先由 {@link ReviewTriage} 初筛，简单修改直接返回初筛结果，不再完整审查。
+     *
+     * @param changes     过滤后的变更列表
+     * @param commitText  提交信息文本
+     * @param projectName 项目名称
+     * @return 代码审查结果，结构化输出时同时带有解析出的报告
+     */
+    public static ReviewResult reviewChanges(List<ChangeInfo> changes, String commitText, String projectName) {
+        // 审查期间发起的大模型请求按项目统计提示词缓存命中
+        return PromptCacheStats.callWithProject(projectName, () -> doReviewChanges(changes, commitText, projectName));
+    }
+
+    private static ReviewResult doReviewChanges(List<ChangeInfo> changes, String commitText, String projectName) {
+        if (CollectionUtils.isEmpty(changes)) {
+            log.info("changes is empty");
+            return new ReviewResult("代码为空", null);
+        }
+
+        String changeText = PromptWriter.write(changes);
+        PromptWriter.recordSavings(changes, changeText);
+        ReviewDeadline deadline = ReviewDeadline.current();
+        if (deadline != null) {
+            deadline.check("tokenize");
+        }
+
+        // 初筛为简单修改时直接返回简短结果，不再调用主模型完整审查
+        ReviewTriage.Result triage = triageChanges(changeText, commitText, deadline);
+        if (triage != null && triage.getLevel() == ReviewTriage.Level.TRIVIAL) {
+            log.info("变更经初筛判定为简单修改，跳过完整审查");
+            return new ReviewResult(ReviewTriage.renderTrivial(triage), null);
+        }
+
+        long start = System.currentTimeMillis();
+        ReviewResult reviewResult = reviewFull(changes, changeText, commitText, projectName, deadline);
+        if (triage != null) {
+            ReviewTriage.recordReview(triage.getLevel(), System.currentTimeMillis() - start);
+        }
+        return reviewResult;
+    }
+
+    /**
+     * 使用小模型和简短提示词对变更初筛
+     * <p>
+     * 变更超过 REVIEW_TRIAGE_MAX_TOKENS 时不初筛（按一般变更处理）；初筛失败时同样按一般变更完整审查。
+     *
+     * @param changeText 变更内容
+     * @param commitText 提交信息文本
+     * @param deadline   评审任务的截止时间，可为null
+     * @return 初筛结果，未开启初筛、使用Coze工作流或剩余时间不足时返回null
+     */
+    private static ReviewTriage.Result triageChanges(String changeText, String commitText, ReviewDeadline deadline) {
+        if (!ReviewTriage.isEnabled() || "coze".equals(getProvider()) || (deadline != null && deadline.shouldDowngrade())) {
+            return null;
+        }
+        int triageMaxTokens = Integer.parseInt(SpringUtils.getPropertyOrDefault("REVIEW_TRIAGE_MAX_TOKENS", "3000"));
+        if (TokenUtils.exceeds(changeText, triageMaxTokens)) {
+            ReviewTriage.recordSkipped();
+            return new ReviewTriage.Result(ReviewTriage.Level.NORMAL, 0, "");
+        }
+
+        long start = System.currentTimeMillis();
+        try {
+            List<Map<String, String>> messages = new ArrayList<>();
+            Map<String, String> userMessage = new HashMap<>(triagePrompts.get("user_message"));
+            userMessage.put("content", PromptWriter.format(userMessage.get("content"), changeText, commitText));
+            messages.add(triagePrompts.get("system_message"));
+            messages.add(userMessage);
+
+            String triageModel = StringUtils.trimToNull(SpringUtils.getPropertyOrDefault("REVIEW_TRIAGE_MODEL", ""));
+            ReviewTriage.Result result = ReviewTriage.parse(callLLM(messages, triageModel));
+            ReviewTriage.recordTriage(result.getLevel(), System.currentTimeMillis() - start);
+            log.info("变更初筛级别：{}", result.getLevel());
+            return result;
+        } catch (Exception e) {
+            log.error("变更初筛失败，按一般变更完整审查：{}", e.getMessage());
+            ReviewTriage.recordFailure(System.currentTimeMillis() - start);
+            return new ReviewTriage.Result(ReviewTriage.Level.NORMAL, 0, "");
+        }
+    }
+
+    /**
+     * 完整审查变更列表，超过 REVIEW_MAX_TOKENS 时拆分并行审查后合并
+     */
+    private static ReviewResult reviewFull(List<ChangeInfo> changes, String changeText, String commitText, String projectName,
+                                     ReviewDeadline deadline) {
+        int reviewMaxTokens = Integer.parseInt(SpringUtils.getPropertyOrDefault("REVIEW_MAX_TOKENS", "10000"));
+
+        // 剩余时间不足时改用备用模型与更短的提示词
+        if (deadline != null && deadline.shouldDowngrade()) {
+            int fallbackMaxTokens = Integer.parseInt(SpringUtils.getPropertyOrDefault("REVIEW_FALLBACK_MAX_TOKENS", "4000"));
+            String fallbackModel = StringUtils.trimToNull(SpringUtils.getPropertyOrDefault("REVIEW_FALLBACK_MODEL", ""));
+            int fallbackBudget = Math.min(reviewMaxTokens, fallbackMaxTokens);
+            String fallbackText = PromptWriter.write(TokenBudgetAllocator.allocate(changes, fallbackBudget));
+            return reviewAndStripCode(fallbackText, commitText, projectName, fallbackBudget, fallbackModel);
+        }
+
+        if (!TokenUtils.exceeds(changes, reviewMaxTokens)) {
+            return reviewAndStripCode(changeText, commitText, projectName, reviewMaxTokens, null);
+        }
+        // 不拆分审查时按文件优先级分配预算，代替截断末尾
+        boolean mapReduceEnabled = "1".equals(SpringUtils.getPropertyOrDefault("REVIEW_MAP_REDUCE_ENABLED", "1"));
+        if (!mapReduceEnabled || "coze".equals(getProvider())) {
+            String allocatedText = PromptWriter.write(TokenBudgetAllocator.allocate(changes, reviewMaxTokens));
+            return reviewAndStripCode(allocatedText, commitText, projectName, reviewMaxTokens, null);
+        }
+
+        int chunkMaxTokens = Integer.parseInt(SpringUtils.getPropertyOrDefault("REVIEW_CHUNK_MAX_TOKENS", String.valueOf(reviewMaxTokens)));
+        List<List<ChangeInfo>> chunks = ChangeChunker.split(changes, chunkMaxTokens);
+        log.info("变更内容超过{} tokens，拆分为{}部分并行审查", reviewMaxTokens, chunks.size());
+
+        List<ReviewResult> chunkResults = reviewChunks(chunks, commitText, projectName, deadline).join();
+        return reduceChunkResults(chunkResults, commitText, deadline);
+    }
+
+    /**
+     * 并行审查各部分变更，同时进行中的请求数不超过 REVIEW_MAP_PARALLELISM
+     * <p>
+     * 每个工作链完成一部分后再领取下一部分，等待模型响应期间不占用线程；到达截止时间时取消进行中的请求，剩余部分不再审查。
+     *
+     * @param chunks      拆分后的各部分变更
+     * @param commitText  提交信息文本
+     * @param projectName 项目名称
+     * @param deadline    评审任务的截止时间，可为null
+     * @return 按顺序排列的各部分审查结果
+     */
+    private static CompletableFuture<List<ReviewResult>> reviewChunks(List<List<ChangeInfo>> chunks, String commitText, String projectName,
+                                                                      ReviewDeadline deadline) {
+        int parallelism = Math.max(1, Integer.parseInt(SpringUtils.getPropertyOrDefault("REVIEW_MAP_PARALLELISM", "4")));
+        ReviewResult[] results = new ReviewResult[chunks.size()];
+        AtomicInteger nextIndex = new AtomicInteger();
+
+        CompletableFuture<?>[] workers = new CompletableFuture[Math.min(parallelism, chunks.size())];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = reviewNextChunk(chunks, commitText, projectName, deadline, results, nextIndex);
+        }
+        return CompletableFuture.allOf(workers).thenApply(v -> Arrays.asList(results));
+    }
+
+    private static CompletableFuture<Void> reviewNextChunk(List<List<ChangeInfo>> chunks, String commitText, String projectName,
+                                                           ReviewDeadline deadline, ReviewResult[] results, AtomicInteger nextIndex) {
+        int index = nextIndex.getAndIncrement();
+        if (index >= chunks.size()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        CompletableFuture<ReviewResult> future;
+        try {
+            // 剩余时间不足时后续部分改用备用模型
+            String model = null;
+            if (deadline != null) {
+                deadline.check("llm");
+                model = deadline.shouldDowngrade() ? StringUtils.trimToNull(SpringUtils.getPropertyOrDefault("REVIEW_FALLBACK_MODEL", "")) : null;
+            }
+            // 后续部分在上一部分完成的线程中发起，需要带上截止时间，请求超时不超过剩余时间
+            String chunkModel = model;
+            future = PromptCacheStats.callWithProject(projectName, () -> ReviewDeadline.callWithDeadline(deadline,
+                    () -> reviewChunkAsync(PromptWriter.write(chunks.get(index)), commitText, projectName, chunkModel)));
+            if (deadline != null) {
+                future = deadline.bound(future);
+            }
+        } catch (Exception e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+        return future.handle((result, error) -> {
+                    if (error != null) {
+                        // 到达截止时间被取消的请求没有异常信息
+                        String reason = error instanceof CancellationException ? "超过截止时间" : error.getMessage();
+                        log.error("第{}部分代码审查失败：{}", index + 1, reason);
+                        results[index] = new ReviewResult("第" + (index + 1) + "部分代码审查失败：" + reason, null);
+                    } else {
+                        results[index] = result;
+                    }
+                    return null;
+                })
+                .thenCompose(v -> reviewNextChunk(chunks, commitText, projectName, deadline, results, nextIndex));
+    }
+
+    /**
+     * 异步审查一部分变更，优先使用缓存的审查结果
+     *
+     * @param model 模型名称，为null时使用供应商默认模型
+     */
+    private static CompletableFuture<ReviewResult> reviewChunkAsync(String changeText, String commitText, String projectName, String model) {
+        if (ReviewResultCache.isEnabled()) {
+            ReviewResult cachedResult = getCachedReview(changeText, model);
+            if (cachedResult != null) {
+                return CompletableFuture.completedFuture(cachedResult);
+            }
+        }
+
+        LLMResponder responder = new LLMResponder();
+        List<Map<String, String>> messages = buildMessages(changeText, commitText, projectName);
+        CompletableFuture<String> future = LLMResponder.callWith(responder, () -> {
+            // 结构化输出模式下同样携带 response_format，保证各部分结果都能解析出评分
+            if (isJsonOutput()) {
+                return llmClient.completionsJsonAsync(messages, model, ReviewReportUtils.SCHEMA);
+            }
+            return model == null ? llmClient.completionsAsync(messages) : llmClient.completionsAsync(messages, model);
+        });
+        return LLMClient.mapAsync(future, result -> {
+            String content = StringUtils.defaultString(result);
+            ReviewResult reviewResult = toReviewResult(content);
+            cacheReviewResult(changeText, content, reviewResult, responder, model);
+            return reviewResult;
+        });
+    }
+
+    /**
+     * 合并各部分的审查结果，生成包含总分的完整报告
+     * <p>
+     * 合并失败或剩余时间不足时直接拼接各部分结果，总分取各部分得分的平均值，问题列表合并各部分报告中的问题。
+     *
+     * @param chunkResults 各部分审查结果
+     * @param commitText   提交信息文本
+     * @param deadline     评审任务的截止时间，可为null
+     * @return 合并后的审查结果
+     */
+    private static ReviewResult reduceChunkResults(List<ReviewResult> chunkResults, String commitText, ReviewDeadline deadline) {
+        StringBuilder reports = new StringBuilder();
+        for (int i = 0; i < chunkResults.size(); i++) {
+            reports.append("### 第").append(i + 1).append("部分审查结果\n")
+                    .append(chunkResults.get(i).getContent()).append("\n\n");
+        }
+
+        // 剩余时间不足时不再调用大模型合并
+        if (deadline != null && (deadline.isExpired() || deadline.shouldDowngrade())) {
+            log.warn("评审任务剩余时间不足，直接拼接各部分审查结果");
+            return concatChunkResults(chunkResults, reports);
+        }
+
+        try {
+            // 结构化输出模式下合并结果同样按JSON输出，总分从JSON中读取
+            boolean jsonOutput = isJsonOutput();
+            Map<String, Map<String, String>> prompts = jsonOutput ? reduceJsonPrompts : reducePrompts;
+            List<Map<String, String>> messages = new ArrayList<>();
+            Map<String, String> userMessage = new HashMap<>(prompts.get("user_message"));
+            userMessage.put("content", PromptWriter.format(userMessage.get("content"), chunkResults.size(), reports, commitText));
+            messages.add(prompts.get("system_message"));
+            messages.add(userMessage);
+
+            ReviewResult reviewResult = toReviewResult(jsonOutput ? callLLMJson(messages, null) : callLLM(messages));
+            if (StringUtils.isNotBlank(reviewResult.getContent())) {
+                return reviewResult;
+            }
+        } catch (Exception e) {
+            log.error("合并各部分审查结果失败：{}", e.getMessage());
+        }
+
+        return concatChunkResults(chunkResults, reports);
+    }
+
+    /**
+     * 拼接各部分审查结果，总分取各部分得分的平均值；有结构化报告的部分合并为一份报告
+     */
+    private static ReviewResult concatChunkResults(List<ReviewResult> chunkResults, StringBuilder reports) {
+        int score = (int) chunkResults.stream()
+                .mapToInt(AICodeReviewUtils::parseReviewScore)
+                .filter(value -> value > 0)
+                .average()
+                .orElse(0);
+        ReviewReport merged = null;
+        for (ReviewResult chunkResult : chunkResults) {
+            if (chunkResult.getReport() != null) {
+                if (merged == null) {
+                    merged = new ReviewReport();
+                    merged.setScore(score);
+                }
+                merged.getIssues().addAll(chunkResult.getReport().getIssues());
+            }
+        }
+        return new ReviewResult(reports + "总分:" + score + "分", merged);
+    }
+
     /**
      * 审查并清理代码文本
      * <p>
@@ -48,59 +389,201 @@ public class AICodeReviewUtils {
      * @return 代码审查结果字符串，如果输入代码为空则返回"代码为空"，否则返回格式化后的审查结果
      */
     public static String reviewAndStripCode(String changeText, String commitText, String projectName) {
+        // 获取最长token数
+        int reviewMaxTokens = Integer.parseInt(SpringUtils.getPropertyOrDefault("REVIEW_MAX_TOKENS", "10000"));
+        return reviewAndStripCode(changeText, commitText, projectName, reviewMaxTokens, null).getContent();
+    }
+
+    /**
+     * 按指定的token上限与模型审查代码文本
+     *
+     * @param changeText      待审查的代码变更文本
+     * @param commitText      提交信息文本
+     * @param projectName     项目名称
+     * @param reviewMaxTokens 变更内容的最大token数，超出部分截断
+     * @param model           模型名称，为null时使用供应商默认模型
+     * @return 代码审查结果
+     */
+    private static ReviewResult reviewAndStripCode(String changeText, String commitText, String projectName, int reviewMaxTokens, String model) {
         if (StringUtils.isBlank(changeText)) {
             log.info("changeText is blank");
-            return "代码为空";
+            return new ReviewResult("代码为空", null);
         }
 
-        // 获取最长token数
-        int reviewMaxTokens = Integer.parseInt(SpringUtils.getPropertyOrDefault("REVIEW_MAX_TOKENS", "10000"));
+        // 超过reviewMaxTokens时截断changes_text，计数与截断只编码一遍
+        TokenUtils.Truncation truncation = TokenUtils.truncate(changeText, reviewMaxTokens);
+        if (truncation.isTruncated()) {
+            log.info("变更内容超过{} tokens，已截断", reviewMaxTokens);
+            changeText = truncation.getText();
+        }
 
-        // 计算tokens数量，如果超过REVIEW_MAX_TOKENS，截断changes_text
-        int countTokens = TokenUtils.countTokens(changeText);
-        if (countTokens > reviewMaxTokens) {
-            changeText = TokenUtils.truncateTextByTokens(changeText, reviewMaxTokens);
+        // 相同的变更内容、提示模板与模型直接复用已有的评审结果
+        if (ReviewResultCache.isEnabled()) {
+            ReviewResult cachedResult = getCachedReview(changeText, model);
+            if (cachedResult != null) {
+                log.info("命中评审结果缓存");
+                return cachedResult;
+            }
         }
 
         // 调用代码审查方法，获取审查结果
-        String reviewResult = reviewCode(changeText, commitText, projectName).trim();
+        ReviewDeadline deadline = ReviewDeadline.current();
+        if (deadline != null) {
+            deadline.check("llm");
+        }
+        List<Map<String, String>> messages = buildMessages(changeText, commitText, projectName);
+        LLMResponder responder = new LLMResponder();
+        String content = LLMResponder.callWith(responder, () -> isJsonOutput() ? callLLMJson(messages, model) : callLLM(messages, model));
+        ReviewResult reviewResult = toReviewResult(content);
+        cacheReviewResult(changeText, content, reviewResult, responder, model);
+
+        return reviewResult;
+    }
+
+    /**
+     * 将模型输出转换为审查结果：结构化输出模式下解析JSON并在本地渲染为Markdown，解析失败时按Markdown原样使用
+     */
+    private static ReviewResult toReviewResult(String content) {
+        if (isJsonOutput()) {
+            ReviewReport report = ReviewReportUtils.parse(content);
+            if (report != null) {
+                return new ReviewResult(ReviewReportUtils.render(report), report);
+            }
+        }
+        return new ReviewResult(stripReviewResult(content), null);
+    }
+
+    /**
+     * 去除审查结果外层的markdown代码块标记
+     */
+    private static String stripReviewResult(String reviewResult) {
+        reviewResult = reviewResult.trim();
         if (reviewResult.startsWith("```markdown") && reviewResult.endsWith("```")) {
             reviewResult = reviewResult.substring(10, reviewResult.length() - 3);
         }
-
         return reviewResult.trim();
     }
 
     /**
-     * 对代码变更进行审查并生成审查意见
+     * 查询缓存的评审结果，按客户端可能使用的各供应商及模型（多供应商路由、对冲请求时有多个）依次查找
+     *
+     * @param changeText 截断后的变更内容
+     * @param model      模型名称，为null时使用供应商默认模型
+     * @return 评审结果，未命中时返回null
+     */
+    private static ReviewResult getCachedReview(String changeText, String model) {
+        List<String> keys = new ArrayList<>();
+        llmClient.resolveModels(model).forEach((provider, resolvedModel) -> keys.add(buildReviewCacheKey(changeText, provider, resolvedModel)));
+        String cached = ReviewResultCache.get(keys);
+        return cached == null ? null : toReviewResult(cached);
+    }
+
+    /**
+     * 按实际响应的供应商与模型缓存审查结果，只缓存包含总分的完整结果，避免缓存因超时截断的部分内容
+     * <p>
+     * 结构化输出时缓存模型输出的JSON，命中后重新解析，报告中的问题列表不会丢失。
+     *
+     * @param content      模型输出内容
+     * @param reviewResult 由模型输出转换的审查结果
+     * @param responder    实际响应的供应商与模型，未记录时为当前客户端及指定的模型
+     */
+    private static void cacheReviewResult(String changeText, String content, ReviewResult reviewResult, LLMResponder responder, String model) {
+        if (!ReviewResultCache.isEnabled() || parseReviewScore(reviewResult) <= 0) {
+            return;
+        }
+        String provider = responder.isRecorded() ? responder.getProvider() : getProvider();
+        String resolvedModel = responder.isRecorded() ? responder.getModel() : (model != null ? model : llmClient.getDefaultModel());
+        String cached = reviewResult.getReport() != null ? content : reviewResult.getContent();
+        ReviewResultCache.put(buildReviewCacheKey(changeText, provider, resolvedModel), provider, resolvedModel, cached);
+    }
+
+    /**
+     * 计算评审结果缓存键，提交信息与项目名称不参与计算
+     *
+     * @param changeText 截断后的变更内容
+     * @param provider   供应商名称
+     * @param model      模型名称
+     * @return 缓存键
+     */
+    private static String buildReviewCacheKey(String changeText, String provider, String model) {
+        String style = SpringUtils.getPropertyOrDefault("REVIEW_STYLE", "professional");
+        // Coze的提示词配置在工作流中，以工作流ID代替提示模板
+        String promptTemplate;
+        Map<String, Map<String, String>> reviewPrompts = getReviewPrompts();
+        if ("coze".equals(provider)) {
+            promptTemplate = SpringUtils.getPropertyOrDefault("COZE_WORKFLOW_ID", "");
+        } else if (isPromptCacheLayout()) {
+            promptTemplate = reviewPrompts.get("cached_system_message").get("content") + "\n" + reviewPrompts.get("cached_user_message").get("content");
+        } else {
+            promptTemplate = reviewPrompts.get("system_message").get("content") + "\n" + reviewPrompts.get("user_message").get("content");
+        }
+        return ReviewResultCache.buildKey(changeText, promptTemplate, style, provider, model);
+    }
+
+    /**
+     * 是否使用前缀缓存布局的提示词
+     */
+    private static boolean isPromptCacheLayout() {
+        return "1".equals(SpringUtils.getPropertyOrDefault("PROMPT_CACHE_LAYOUT", "1")) && getReviewPrompts().containsKey("cached_user_message");
+    }
+
+    /**
+     * 是否使用结构化JSON输出：配置 REVIEW_OUTPUT_FORMAT 为json且供应商支持 response_format
+     */
+    private static boolean isJsonOutput() {
+        return "json".equalsIgnoreCase(SpringUtils.getPropertyOrDefault("REVIEW_OUTPUT_FORMAT", "markdown")) && llmClient.supportsJsonOutput();
+    }
+
+    /**
+     * 获取当前输出模式下的审查提示词
+     */
+    private static Map<String, Map<String, String>> getReviewPrompts() {
+        return isJsonOutput() ? jsonPrompts : prompts;
+    }
+
+    /**
+     * 获取当前客户端的供应商名称，多供应商路由时为routing
+     */
+    private static String getProvider() {
+        return llmClient.getProvider();
+    }
+
+    /**
+     * 构建代码审查的消息数组，包含系统提示和用户问题
      *
      * @param changeText  变更的代码内容文本
      * @param commitText  提交信息文本
      * @param projectName 项目名称
-     * @return LLM模型返回的代码审查结果
+     * @return 消息列表
      */
-    private static String reviewCode(String changeText, String commitText, String projectName) {
-        // 构建消息数组，包含系统提示和用户问题
+    private static List<Map<String, String>> buildMessages(String changeText, String commitText, String projectName) {
         List<Map<String, String>> messages = new ArrayList<>();
+        Map<String, Map<String, String>> reviewPrompts = getReviewPrompts();
 
-        String provider = SpringUtils.getPropertyOrDefault("LLM_PROVIDER", "deepseek");
-        if ("coze".equals(provider)) {
+        if ("coze".equals(getProvider())) {
             Map<String, String> message = new HashMap<>();
             message.put("commits_text", commitText);
             message.put("diffs_text", changeText);
             message.put("project_name", projectName);
 
             messages.add(message);
+        } else if (isPromptCacheLayout()) {
+            // 静态指令在前且逐字节一致，项目名称紧随其后，便于命中供应商的提示词前缀缓存
+            Map<String, String> userMessage = new HashMap<>(reviewPrompts.get("cached_user_message"));
+            userMessage.put("content", PromptWriter.format(userMessage.get("content"), projectName, changeText, commitText));
+
+            messages.add(reviewPrompts.get("cached_system_message"));
+            messages.add(userMessage);
         } else {
-            Map<String, String> systemMessage = prompts.get("system_message");
-            Map<String, String> userMessage = new HashMap<>(prompts.get("user_message"));
-            String content = String.format(userMessage.get("content"), changeText, commitText);
+            Map<String, String> systemMessage = reviewPrompts.get("system_message");
+            Map<String, String> userMessage = new HashMap<>(reviewPrompts.get("user_message"));
+            String content = PromptWriter.format(userMessage.get("content"), changeText, commitText);
             userMessage.put("content", content);
 
             messages.add(systemMessage);
             messages.add(userMessage);
         }
-        return callLLM(messages);
+        return messages;
     }
 
     /**
@@ -110,16 +593,59 @@ public class AICodeReviewUtils {
      * @return 大语言模型的响应结果字符串
      */
     private static String callLLM(List<Map<String, String>> messages) {
+        return callLLM(messages, null);
+    }
+
+    /**
+     * 使用指定模型调用大语言模型
+     *
+     * @param messages 消息列表
+     * @param model    模型名称，为null时使用供应商默认模型
+     * @return 大语言模型的响应结果字符串
+     */
+    private static String callLLM(List<Map<String, String>> messages, String model) {
         // 记录发送AI代码审查请求的日志
         log.info("向 AI 发送代码 Review 请求");
         // 调用大语言模型客户端获取代码审查结果
-        String reviewResult = llmClient.completions(messages);
+        String reviewResult = model == null ? llmClient.completions(messages) : llmClient.completions(messages, model);
         // 记录AI代码审查响应的日志
         log.debug("AI 响应代码 Review 结果: \n{}", reviewResult);
 
         return StringUtils.isBlank(reviewResult) ? "" : reviewResult;
     }
 
+    /**
+     * 调用大语言模型进行代码审查，要求按 {@link ReviewReportUtils#SCHEMA} 输出JSON
+     *
+     * @param messages 消息列表
+     * @param model    模型名称，为null时使用供应商默认模型
+     * @return 模型输出的JSON内容
+     */
+    private static String callLLMJson(List<Map<String, String>> messages, String model) {
+        log.info("向 AI 发送代码 Review 请求（结构化输出）");
+        String reviewResult = llmClient.completionsJson(messages, model, ReviewReportUtils.SCHEMA);
+        log.debug("AI 响应代码 Review 结果: \n{}", reviewResult);
+
+        return StringUtils.isBlank(reviewResult) ? "" : reviewResult;
+    }
+
+    /**
+     * 获取审查结果的评分：结构化输出时直接取报告中的总分，Markdown输出时从文本中解析
+     *
+     * @param reviewResult 审查结果
+     * @return 评分分数，无法获取时返回0
+     */
+    public static int parseReviewScore(ReviewResult reviewResult) {
+        if (reviewResult == null) {
+            return 0;
+        }
+        ReviewReport report = reviewResult.getReport();
+        if (report != null && report.getScore() != null) {
+            return report.getScore();
+        }
+        return parseReviewScore(reviewResult.getContent());
+    }
+
     /**
      * 解析评审结果字符串，提取其中的评分分数
      *
@@ -0,0 +1,248 @@
+package com.code.review.utils;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 自适应并发限制器（AIMD）
+ * <p>
+ * 响应耗时稳定时线性增加并发上限（每个上限周期约+1），遇到429、5xx、超时或耗时超过基线的 _LATENCY_TOLERANCE 倍时
+ * 按 _DECREASE_RATIO 成倍降低上限；超过上限的请求排队等待，等待超过 _QUEUE_TIMEOUT 后以
+ * {@link ConcurrencyLimitExceededException} 失败，而不是直接发给服务端。
+ * <p>
+ * 分诊、合并等短请求与数千token的完整评审耗时相差一个数量级，基线耗时按请求规模分组统计：首个token耗时单独一组，
+ * 其余按输出token数的2的幂次分组，每次调用只与同组的基线比较。
+ * <p>
+ * 配置项按 {前缀}_INITIAL / _MIN / _MAX / _DECREASE_RATIO / _LATENCY_TOLERANCE / _QUEUE_TIMEOUT 读取。
+ */
+@Slf4j
+public class AdaptiveConcurrencyLimiter {
+
+    private static final Map<String, AdaptiveConcurrencyLimiter> LIMITERS = new ConcurrentHashMap<>();
+
+    private final String name;
+    private final String configPrefix;
+
+    private double limit;
+    private int inFlight;
+    private final Deque<Waiter> waiters = new ArrayDeque<>();
+
+    /**
+     * 开始比较基线前同组需要的最少样本数
+     */
+    private static final int MIN_BASELINE_SAMPLES = 5;
+
+    /**
+     * 各组的基线耗时，成功调用耗时的慢速移动平均
+     */
+    private final double[] baselineLatency = new double[LLMLatency.SIZE_CLASSES];
+    private final int[] baselineSamples = new int[LLMLatency.SIZE_CLASSES];
+    private long lastDecreaseAt;
+
+    private final LongAdder acquired = new LongAdder();
+    private final LongAdder queued = new LongAdder();
+    private final LongAdder queueWaitMillis = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder decreases = new LongAdder();
+
+    private AdaptiveConcurrencyLimiter(String name, String configPrefix) {
+        this.name = name;
+        this.configPrefix = configPrefix;
+        this.limit = getDouble("_INITIAL", 8);
+    }
+
+    /**
+     * 获取指定名称的限制器，不存在时创建
+     *
+     * @param name         限制器名称
+     * @param configPrefix 配置项前缀
+     * @return 限制器
+     */
+    public static AdaptiveConcurrencyLimiter of(String name, String configPrefix) {
+        return LIMITERS.computeIfAbsent(name, key -> new AdaptiveConcurrencyLimiter(key, configPrefix));
+    }
+
+    /**
+     * 申请一个并发名额，未超过上限时立即返回，否则排队等待
+     *
+     * @return 获得名额时完成的Future；排队超时时以 {@link ConcurrencyLimitExceededException} 异常结束
+     */
+    public CompletableFuture<Void> acquireAsync() {
+        Waiter waiter;
+        synchronized (this) {
+            if (inFlight < (int) limit && waiters.isEmpty()) {
+                inFlight++;
+                acquired.increment();
+                return CompletableFuture.completedFuture(null);
+            }
+            waiter = new Waiter();
+            waiters.addLast(waiter);
+            queued.increment();
+        }
+
+        long timeout = (long) getDouble("_QUEUE_TIMEOUT", 60000);
+        ScheduledFuture<?> timeoutTask = RetryScheduler.schedule(() -> {
+            synchronized (this) {
+                if (!waiters.remove(waiter)) {
+                    return;
+                }
+                rejected.increment();
+            }
+            waiter.future.completeExceptionally(new ConcurrencyLimitExceededException(name, timeout));
+        }, timeout);
+        waiter.future.whenComplete((value, error) -> {
+            timeoutTask.cancel(false);
+            queueWaitMillis.add(System.currentTimeMillis() - waiter.enqueuedAt);
+        });
+        return waiter.future;
+    }
+
+    /**
+     * 申请一个并发名额，排队时阻塞当前线程
+     *
+     * @throws ConcurrencyLimitExceededException 排队超时
+     */
+    public void acquire() {
+        try {
+            acquireAsync().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 记录调用结果并释放名额
+     *
+     * @param latencyMillis 调用耗时：流式调用为首个token耗时，非流式调用为HTTP请求耗时
+     * @param outputTokens  输出的token数，耗时为首个token耗时时传0
+     * @param overloaded    是否出现过载信号（429、5xx、超时）
+     */
+    public void onResult(long latencyMillis, int outputTokens, boolean overloaded) {
+        int sizeClass = LLMLatency.sizeClass(outputTokens);
+        synchronized (this) {
+            double tolerance = getDouble("_LATENCY_TOLERANCE", 2.0);
+            double baseline = baselineLatency[sizeClass];
+            boolean latencySpike = baselineSamples[sizeClass] >= MIN_BASELINE_SAMPLES && latencyMillis > baseline * tolerance;
+
+            if (overloaded || latencySpike) {
+                decrease(overloaded ? "overload" : "latency " + latencyMillis + "ms, baseline " + Math.round(baseline) + "ms", baseline);
+            } else {
+                // 加性增加：每完成约limit个请求上限加1
+                limit = Math.min(getDouble("_MAX", 64), limit + 1.0 / limit);
+            }
+            if (!overloaded) {
+                baselineLatency[sizeClass] = baselineSamples[sizeClass] == 0 ? latencyMillis : baseline * 0.95 + latencyMillis * 0.05;
+                baselineSamples[sizeClass]++;
+            }
+            inFlight = Math.max(0, inFlight - 1);
+        }
+        drain();
+    }
+
+    /**
+     * 释放名额，不计入统计（如调用方取消的请求）
+     */
+    public void release() {
+        synchronized (this) {
+            inFlight = Math.max(0, inFlight - 1);
+        }
+        drain();
+    }
+
+    /**
+     * 成倍降低上限，同一个基线耗时周期内只降低一次，避免同一批失败请求连续降低
+     */
+    private void decrease(String reason, double baseline) {
+        long now = System.currentTimeMillis();
+        if (now - lastDecreaseAt < Math.max(1000, (long) baseline)) {
+            return;
+        }
+        lastDecreaseAt = now;
+        double previous = limit;
+        limit = Math.max(getDouble("_MIN", 1), limit * getDouble("_DECREASE_RATIO", 0.5));
+        decreases.increment();
+        log.warn("并发限制器[{}]降低上限：{} -> {}，原因：{}", name, (int) previous, (int) limit, reason);
+    }
+
+    /**
+     * 上限允许时唤醒排队的请求
+     */
+    private void drain() {
+        while (true) {
+            Waiter waiter;
+            synchronized (this) {
+                if (waiters.isEmpty() || inFlight >= (int) limit) {
+                    return;
+                }
+                waiter = waiters.pollFirst();
+                inFlight++;
+                acquired.increment();
+            }
+            if (!waiter.future.complete(null)) {
+                // 等待方已取消，归还名额
+                synchronized (this) {
+                    inFlight = Math.max(0, inFlight - 1);
+                }
+            }
+        }
+    }
+
+    private double getDouble(String suffix, double defaultValue) {
+        return Double.parseDouble(SpringUtils.getPropertyOrDefault(this.configPrefix + suffix, String.valueOf(defaultValue)));
+    }
+
+    /**
+     * 获取统计信息
+     */
+    public synchronized Map<String, Object> getStats() {
+        long queuedCount = queued.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("limit", (int) limit);
+        stats.put("inFlight", inFlight);
+        stats.put("waiting", waiters.size());
+        stats.put("acquired", acquired.sum());
+        stats.put("queued", queuedCount);
+        stats.put("avgQueueWaitMillis", queuedCount == 0 ? 0 : queueWaitMillis.sum() / queuedCount);
+        stats.put("rejected", rejected.sum());
+        stats.put("decreases", decreases.sum());
+        Map<String, Object> baselines = new LinkedHashMap<>();
+        for (int i = 0; i < LLMLatency.SIZE_CLASSES; i++) {
+            if (baselineSamples[i] > 0) {
+                baselines.put(LLMLatency.sizeClassName(i), Math.round(baselineLatency[i]));
+            }
+        }
+        stats.put("baselineLatencyMillis", baselines);
+        return stats;
+    }
+
+    /**
+     * 获取所有限制器的统计信息
+     *
+     * @return 按名称组织的统计信息
+     */
+    public static Map<String, Object> getAllStats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        LIMITERS.forEach((name, limiter) -> result.put(name, limiter.getStats()));
+        return result;
+    }
+
+    /**
+     * 排队中的请求
+     */
+    private static class Waiter {
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+        private final long enqueuedAt = System.currentTimeMillis();
+    }
+}
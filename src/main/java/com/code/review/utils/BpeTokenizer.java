@@ -0,0 +1,81 @@
+package com.code.review.utils;
+
+import com.knuddels.jtokkit.Encodings;
+import com.knuddels.jtokkit.api.Encoding;
+import com.knuddels.jtokkit.api.EncodingRegistry;
+import com.knuddels.jtokkit.api.EncodingResult;
+import com.knuddels.jtokkit.api.EncodingType;
+
+/**
+ * 基于 jtokkit BPE 编码的分词器
+ * <p>
+ * 非 OpenAI 供应商没有可用的本地词表，使用相近的编码并乘以校准系数 ratio
+ * （供应商实际 token 数 / 本地编码 token 数，可按接口返回的 usage 校准）。
+ * 编码器全局共享，只在首次使用时加载。
+ */
+public class BpeTokenizer implements Tokenizer {
+
+    private static final EncodingRegistry REGISTRY = Encodings.newLazyEncodingRegistry();
+
+    private final EncodingType type;
+    private final Encoding encoding;
+    private final double ratio;
+
+    /**
+     * @param type  编码类型
+     * @param ratio 校准系数，1表示与本地编码一致
+     */
+    public BpeTokenizer(EncodingType type, double ratio) {
+        this.type = type;
+        this.encoding = REGISTRY.getEncoding(type);
+        this.ratio = ratio > 0 ? ratio : 1;
+    }
+
+    @Override
+    public String getName() {
+        return ratio == 1 ? type.getName() : type.getName() + "*" + ratio;
+    }
+
+    @Override
+    public int countTokens(String text) {
+        return scale(encoding.countTokens(text));
+    }
+
+    @Override
+    public boolean exceeds(String text, int maxTokens) {
+        return encoding.encode(text, localLimit(maxTokens)).isTruncated();
+    }
+
+    @Override
+    public TokenUtils.Truncation truncate(String text, int maxTokens) {
+        EncodingResult result = encoding.encode(text, localLimit(maxTokens));
+        int tokens = scale(result.getTokens().size());
+        if (!result.isTruncated()) {
+            return new TokenUtils.Truncation(text, tokens, false);
+        }
+        return new TokenUtils.Truncation(encoding.decode(result.getTokens()), tokens, true);
+    }
+
+    /**
+     * o200k 词表收录了更多中文词，平均每个汉字约0.8个token；cl100k 等较小的词表约1.2个
+     */
+    @Override
+    public double getCjkTokensPerChar() {
+        return (type == EncodingType.O200K_BASE ? 0.8 : 1.2) * ratio;
+    }
+
+    public double getRatio() {
+        return ratio;
+    }
+
+    private int scale(int localTokens) {
+        return ratio == 1 ? localTokens : (int) Math.ceil(localTokens * ratio);
+    }
+
+    /**
+     * 将供应商的token上限换算为本地编码的token上限
+     */
+    private int localLimit(int maxTokens) {
+        return ratio == 1 ? maxTokens : Math.max(0, (int) Math.floor(maxTokens / ratio));
+    }
+}
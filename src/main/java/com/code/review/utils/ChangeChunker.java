@@ -0,0 +1,138 @@
+package com.code.review.utils;
+
+import com.code.review.entity.ChangeInfo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 变更拆分工具
+ * <p>
+ * 按token预算把变更列表拆分为多个部分，优先按文件边界拆分；单个文件超过预算时按diff块（@@）拆分，
+ * 单个diff块仍超过预算时按行均分，并在每一段前保留该块的块头。拆分过程不丢弃任何内容。
+ */
+public class ChangeChunker {
+
+    private ChangeChunker() {
+    }
+
+    /**
+     * 按token预算拆分变更列表
+     *
+     * @param changes   变更列表
+     * @param maxTokens 每部分的最大token数
+     * @return 拆分后的各部分变更
+     */
+    public static List<List<ChangeInfo>> split(List<ChangeInfo> changes, int maxTokens) {
+        List<List<ChangeInfo>> chunks = new ArrayList<>();
+        List<ChangeInfo> current = new ArrayList<>();
+        int currentTokens = 0;
+
+        for (ChangeInfo change : changes) {
+            for (Piece piece : splitChange(change, maxTokens)) {
+                // 当前部分放不下时另起一部分
+                if (!current.isEmpty() && currentTokens + piece.tokens > maxTokens) {
+                    chunks.add(current);
+                    current = new ArrayList<>();
+                    currentTokens = 0;
+                }
+                current.add(piece.change);
+                currentTokens += piece.tokens;
+            }
+        }
+        if (!current.isEmpty()) {
+            chunks.add(current);
+        }
+        return chunks;
+    }
+
+    /**
+     * 拆分单个文件的变更
+     */
+    private static List<Piece> splitChange(ChangeInfo change, int maxTokens) {
+        int tokens = TokenUtils.countTokens(change);
+        CharSequence content = change.getDiffContent();
+        if (tokens <= maxTokens || content == null || content.length() == 0) {
+            return List.of(new Piece(change, tokens));
+        }
+
+        // 按diff块拆分，再把相邻的块合并到预算以内；逐块从原内容复制，溢出到磁盘的diff不整体复制到堆内
+        List<Piece> pieces = new ArrayList<>();
+        StringBuilder diff = new StringBuilder();
+        int diffTokens = 0;
+        int[] hunkOffsets = DiffScanner.scan(content).getHunkOffsets();
+        for (int i = 0; i < DiffScanner.hunkCount(hunkOffsets); i++) {
+            String hunk = DiffScanner.hunk(content, hunkOffsets, i);
+            for (String segment : splitOversizedHunk(hunk, maxTokens)) {
+                int segmentTokens = TokenUtils.countTokens(segment);
+                if (diff.length() > 0 && diffTokens + segmentTokens > maxTokens) {
+                    pieces.add(newPiece(change, diff.toString()));
+                    diff.setLength(0);
+                    diffTokens = 0;
+                }
+                diff.append(segment);
+                diffTokens += segmentTokens;
+            }
+        }
+        if (diff.length() > 0) {
+            pieces.add(newPiece(change, diff.toString()));
+        }
+        return pieces;
+    }
+
+    /**
+     * 单个diff块超过预算时按行均分，每段保留块头以便定位
+     */
+    private static List<String> splitOversizedHunk(String hunk, int maxTokens) {
+        int tokens = TokenUtils.countTokens(hunk);
+        if (tokens <= maxTokens) {
+            return List.of(hunk);
+        }
+
+        List<String> lines = Arrays.asList(hunk.split("\n"));
+        String header = lines.get(0).startsWith("@@") ? lines.get(0) : null;
+        List<String> body = header == null ? lines : lines.subList(1, lines.size());
+        // 按token数估算段数，并为块头预留余量
+        int segments = (int) Math.ceil(tokens * 1.1 / maxTokens);
+        int linesPerSegment = Math.max(1, (int) Math.ceil((double) body.size() / segments));
+
+        List<String> result = new ArrayList<>();
+        for (int start = 0; start < body.size(); start += linesPerSegment) {
+            StringBuilder segment = new StringBuilder();
+            if (header != null) {
+                segment.append(header).append('\n');
+            }
+            for (String line : body.subList(start, Math.min(body.size(), start + linesPerSegment))) {
+                segment.append(line).append('\n');
+            }
+            result.add(segment.toString());
+        }
+        return result;
+    }
+
+    private static Piece newPiece(ChangeInfo change, String diff) {
+        ChangeInfo piece = new ChangeInfo();
+        piece.setNewPath(change.getNewPath());
+        piece.setDiff(diff);
+
+        // 按拆分后的diff重新统计新增、删除行数
+        DiffScanner.Result scan = DiffScanner.scan(diff);
+        piece.setAdditions(scan.getAdditions());
+        piece.setDeletions(scan.getDeletions());
+        return new Piece(piece, TokenUtils.countTokens(PromptWriter.write(piece)));
+    }
+
+    /**
+     * 拆分后的一段变更及其token数
+     */
+    private static class Piece {
+        private final ChangeInfo change;
+        private final int tokens;
+
+        Piece(ChangeInfo change, int tokens) {
+            this.change = change;
+            this.tokens = tokens;
+        }
+    }
+}
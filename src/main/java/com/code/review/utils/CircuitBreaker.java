@@ -0,0 +1,261 @@
+package com.code.review.utils;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 熔断器
+ * <p>
+ * 在固定大小的滑动窗口内统计最近调用的失败率和慢调用率，超过阈值后熔断（OPEN），熔断期间直接快速失败；
+ * 熔断时间结束后进入半开（HALF_OPEN）状态，只放行少量探测请求，探测出现失败或慢调用率超过阈值时再次熔断，否则恢复（CLOSED）。
+ * <p>
+ * 慢调用的阈值为 _SLOW_CALL_MILLIS 加上每个输出token _SLOW_CALL_MILLIS_PER_TOKEN，输出越长允许的耗时越长；
+ * 调用方以首个token耗时作为耗时时输出token数传0。
+ * <p>
+ * 配置项按 {前缀}_WINDOW_SIZE / _MIN_CALLS / _FAILURE_RATE / _SLOW_CALL_RATE / _SLOW_CALL_MILLIS / _SLOW_CALL_MILLIS_PER_TOKEN /
+ * _OPEN_MILLIS / _HALF_OPEN_PROBES 读取。
+ */
+@Slf4j
+public class CircuitBreaker {
+
+    /**
+     * 熔断器状态
+     */
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private static final Map<String, CircuitBreaker> BREAKERS = new ConcurrentHashMap<>();
+
+    private final String name;
+    private final String configPrefix;
+
+    private State state = State.CLOSED;
+    private long openedAt;
+
+    /**
+     * 滑动窗口，记录最近每次调用是否失败、是否为慢调用
+     */
+    private boolean[] failures;
+    private boolean[] slowCalls;
+    private int windowIndex;
+    private int windowCount;
+
+    private int probesInFlight;
+    private int probeSuccesses;
+    private int slowProbes;
+
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder opened = new LongAdder();
+
+    private CircuitBreaker(String name, String configPrefix) {
+        this.name = name;
+        this.configPrefix = configPrefix;
+        resetWindow();
+    }
+
+    /**
+     * 获取指定名称的熔断器，不存在时创建
+     *
+     * @param name         熔断器名称
+     * @param configPrefix 配置项前缀
+     * @return 熔断器
+     */
+    public static CircuitBreaker of(String name, String configPrefix) {
+        return BREAKERS.computeIfAbsent(name, key -> new CircuitBreaker(key, configPrefix));
+    }
+
+    /**
+     * 申请执行一次调用，熔断状态下抛出 {@link CircuitBreakerOpenException}
+     */
+    public synchronized void acquire() {
+        long now = System.currentTimeMillis();
+        if (state == State.OPEN && now - openedAt >= getInt("_OPEN_MILLIS", 30000)) {
+            transitionTo(State.HALF_OPEN);
+        }
+
+        if (state == State.OPEN) {
+            rejected.increment();
+            throw new CircuitBreakerOpenException(name, getRemainingOpenMillis());
+        }
+        if (state == State.HALF_OPEN) {
+            if (probesInFlight >= getInt("_HALF_OPEN_PROBES", 2)) {
+                rejected.increment();
+                throw new CircuitBreakerOpenException(name, 0);
+            }
+            probesInFlight++;
+        }
+        calls.increment();
+    }
+
+    /**
+     * 记录调用结果
+     *
+     * @param durationMillis 调用耗时
+     * @param failed         是否失败
+     */
+    public void onResult(long durationMillis, boolean failed) {
+        onResult(durationMillis, 0, failed);
+    }
+
+    /**
+     * 记录调用结果
+     *
+     * @param durationMillis 调用耗时
+     * @param outputTokens   输出的token数，用于放宽慢调用阈值
+     * @param failed         是否失败
+     */
+    public synchronized void onResult(long durationMillis, int outputTokens, boolean failed) {
+        long slowCallMillis = getInt("_SLOW_CALL_MILLIS", 30000) + (long) outputTokens * getInt("_SLOW_CALL_MILLIS_PER_TOKEN", 100);
+        boolean slow = durationMillis >= slowCallMillis;
+
+        if (state == State.HALF_OPEN) {
+            probesInFlight = Math.max(0, probesInFlight - 1);
+            if (failed) {
+                transitionTo(State.OPEN);
+                return;
+            }
+            if (slow) {
+                slowProbes++;
+            }
+            // 单个慢探测不足以判断，全部探测结束后按慢调用率决定是否恢复
+            int probes = getInt("_HALF_OPEN_PROBES", 2);
+            if (++probeSuccesses >= probes) {
+                transitionTo(slowProbes * 100 / probeSuccesses >= getInt("_SLOW_CALL_RATE", 80) ? State.OPEN : State.CLOSED);
+            }
+            return;
+        }
+        if (state == State.OPEN) {
+            return;
+        }
+
+        // 写入滑动窗口
+        failures[windowIndex] = failed;
+        slowCalls[windowIndex] = slow;
+        windowIndex = (windowIndex + 1) % failures.length;
+        windowCount = Math.min(windowCount + 1, failures.length);
+
+        if (windowCount < getInt("_MIN_CALLS", 5)) {
+            return;
+        }
+        if (getFailureRate() >= getInt("_FAILURE_RATE", 50) || getSlowCallRate() >= getInt("_SLOW_CALL_RATE", 80)) {
+            transitionTo(State.OPEN);
+        }
+    }
+
+    /**
+     * 释放一次已申请但被取消的调用，不计入统计
+     */
+    public synchronized void release() {
+        if (state == State.HALF_OPEN) {
+            probesInFlight = Math.max(0, probesInFlight - 1);
+        }
+    }
+
+    /**
+     * 获取当前状态，熔断时间已过时视为半开
+     */
+    public synchronized State getState() {
+        if (state == State.OPEN && getRemainingOpenMillis() <= 0) {
+            return State.HALF_OPEN;
+        }
+        return state;
+    }
+
+    /**
+     * 是否允许调用（非熔断状态）
+     */
+    public boolean isCallPermitted() {
+        return getState() != State.OPEN;
+    }
+
+    /**
+     * 获取剩余熔断时间（毫秒）
+     */
+    public synchronized long getRemainingOpenMillis() {
+        if (state != State.OPEN) {
+            return 0;
+        }
+        return Math.max(0, openedAt + getInt("_OPEN_MILLIS", 30000) - System.currentTimeMillis());
+    }
+
+    private void transitionTo(State newState) {
+        log.warn("熔断器[{}]状态变更：{} -> {}，failureRate={}%，slowCallRate={}%", name, state, newState, getFailureRate(), getSlowCallRate());
+        state = newState;
+        probesInFlight = 0;
+        probeSuccesses = 0;
+        slowProbes = 0;
+        if (newState == State.OPEN) {
+            openedAt = System.currentTimeMillis();
+            opened.increment();
+        }
+        if (newState == State.CLOSED) {
+            resetWindow();
+        }
+    }
+
+    private void resetWindow() {
+        int windowSize = Math.max(1, getInt("_WINDOW_SIZE", 20));
+        failures = new boolean[windowSize];
+        slowCalls = new boolean[windowSize];
+        windowIndex = 0;
+        windowCount = 0;
+    }
+
+    private int getFailureRate() {
+        return rate(failures);
+    }
+
+    private int getSlowCallRate() {
+        return rate(slowCalls);
+    }
+
+    private int rate(boolean[] outcomes) {
+        if (windowCount == 0) {
+            return 0;
+        }
+        int count = 0;
+        for (int i = 0; i < windowCount; i++) {
+            if (outcomes[i]) {
+                count++;
+            }
+        }
+        return count * 100 / windowCount;
+    }
+
+    private int getInt(String suffix, int defaultValue) {
+        return Integer.parseInt(SpringUtils.getPropertyOrDefault(this.configPrefix + suffix, String.valueOf(defaultValue)));
+    }
+
+    /**
+     * 获取统计信息
+     */
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("state", getState().name());
+        stats.put("failureRate", getFailureRate());
+        stats.put("slowCallRate", getSlowCallRate());
+        stats.put("windowCalls", windowCount);
+        stats.put("remainingOpenMillis", getRemainingOpenMillis());
+        stats.put("calls", calls.sum());
+        stats.put("rejected", rejected.sum());
+        stats.put("opened", opened.sum());
+        return stats;
+    }
+
+    /**
+     * 获取所有熔断器的统计信息
+     *
+     * @return 按名称组织的统计信息
+     */
+    public static Map<String, Object> getAllStats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        BREAKERS.forEach((name, breaker) -> result.put(name, breaker.getStats()));
+        return result;
+    }
+}
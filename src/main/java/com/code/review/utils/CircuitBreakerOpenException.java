@@ -0,0 +1,27 @@
+package com.code.review.utils;
+
+import lombok.Getter;
+
+/**
+ * 熔断器处于熔断状态时拒绝调用抛出的异常
+ */
+@Getter
+public class CircuitBreakerOpenException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 熔断器名称
+     */
+    private final String name;
+    /**
+     * 剩余熔断时间（毫秒）
+     */
+    private final long remainingOpenMillis;
+
+    public CircuitBreakerOpenException(String name, long remainingOpenMillis) {
+        super("熔断器[" + name + "]已打开，请求被拒绝，剩余熔断时间" + remainingOpenMillis + "ms");
+        this.name = name;
+        this.remainingOpenMillis = remainingOpenMillis;
+    }
+}
@@ -0,0 +1,27 @@
+package com.code.review.utils;
+
+import lombok.Getter;
+
+/**
+ * 并发数超过上限且排队超时时抛出的异常
+ */
+@Getter
+public class ConcurrencyLimitExceededException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 限制器名称
+     */
+    private final String name;
+    /**
+     * 排队等待时间（毫秒）
+     */
+    private final long waitMillis;
+
+    public ConcurrencyLimitExceededException(String name, long waitMillis) {
+        super("并发限制器[" + name + "]排队超时，已等待" + waitMillis + "ms");
+        this.name = name;
+        this.waitMillis = waitMillis;
+    }
+}
@@ -0,0 +1,218 @@
+package com.code.review.utils;
+
+import com.code.review.entity.ChangeInfo;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * diff 内容分析工具
+ * <p>
+ * 逐字符扫描一遍 diff，不拆分行数组，同时得到新增行数、删除行数、各diff块（@@）的起始位置、
+ * 是否为整文件删除以及是否为二进制文件。GitLab 与 GitHub 的变更过滤共用此工具，
+ * 文件数不少于 DIFF_PARALLEL_MIN_FILES 时按文件并行处理。
+ * <p>
+ * 扫描与拆分接受 CharSequence，溢出到磁盘的diff直接读取映射视图，拆分时只为用到的diff块生成字符串。
+ */
+public class DiffScanner {
+
+    private static final String DELETED_FILE_RANGE = "+0,0 @@";
+
+    private DiffScanner() {
+    }
+
+    /**
+     * 扫描 diff 内容
+     *
+     * @param diff diff 内容，可为null
+     * @return 扫描结果
+     */
+    public static Result scan(CharSequence diff) {
+        if (diff == null || diff.isEmpty()) {
+            return new Result(0, 0, new int[0], false, false);
+        }
+
+        int additions = 0;
+        int deletions = 0;
+        int[] hunkOffsets = new int[8];
+        int hunkCount = 0;
+        boolean binary = false;
+        boolean deletedFileHeader = false;
+        boolean onlyDeletions = true;
+
+        int length = diff.length();
+        int start = 0;
+        boolean firstLine = true;
+        while (start < length) {
+            int end = indexOfNewline(diff, start, length);
+            char first = diff.charAt(start);
+            if (first == '@' && startsWith(diff, "@@", start)) {
+                if (hunkCount == 0) {
+                    deletedFileHeader = lineContains(diff, start, end, DELETED_FILE_RANGE);
+                }
+                if (hunkCount == hunkOffsets.length) {
+                    hunkOffsets = Arrays.copyOf(hunkOffsets, hunkCount * 2);
+                }
+                hunkOffsets[hunkCount++] = start;
+            } else if (hunkCount > 0 && first == '+') {
+                additions++;
+            } else if (hunkCount > 0 && first == '-') {
+                deletions++;
+            } else if (hunkCount == 0 && (startsWith(diff, "Binary files ", start) || startsWith(diff, "GIT binary patch", start))) {
+                binary = true;
+            }
+            // 除第一行（块头）及"\ No newline at end of file"标记外的非空行都以减号开头时视为整文件删除
+            if (!firstLine && end > start && first != '-' && first != '\\') {
+                onlyDeletions = false;
+            }
+            firstLine = false;
+            start = end + 1;
+        }
+
+        return new Result(additions, deletions, Arrays.copyOf(hunkOffsets, hunkCount),
+                deletedFileHeader && onlyDeletions, binary);
+    }
+
+    /**
+     * 查找下一个换行符，String 使用 indexOf 的内建实现，映射视图逐字符查找
+     *
+     * @return 换行符位置，没有时返回length
+     */
+    private static int indexOfNewline(CharSequence text, int start, int length) {
+        if (text instanceof String) {
+            int end = ((String) text).indexOf('\n', start);
+            return end < 0 ? length : end;
+        }
+        for (int i = start; i < length; i++) {
+            if (text.charAt(i) == '\n') {
+                return i;
+            }
+        }
+        return length;
+    }
+
+    private static boolean startsWith(CharSequence text, String prefix, int offset) {
+        if (offset + prefix.length() > text.length()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (text.charAt(offset + i) != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean lineContains(CharSequence text, int start, int end, String target) {
+        for (int i = start; i + target.length() <= end; i++) {
+            if (startsWith(text, target, i)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 按diff块（@@）拆分，第一个块之前的内容（如文件头）归入第一个块，每个块都以换行结尾
+     *
+     * @param diff diff 内容
+     * @return 各diff块
+     */
+    public static List<String> splitHunks(CharSequence diff) {
+        return splitHunks(diff, scan(diff).getHunkOffsets());
+    }
+
+    /**
+     * 按已扫描出的diff块起始位置拆分
+     *
+     * @param diff        diff 内容
+     * @param hunkOffsets 各diff块的起始位置
+     * @return 各diff块
+     */
+    public static List<String> splitHunks(CharSequence diff, int[] hunkOffsets) {
+        List<String> hunks = new ArrayList<>();
+        if (diff == null || diff.length() == 0) {
+            return hunks;
+        }
+        for (int i = 0; i < hunkCount(hunkOffsets); i++) {
+            hunks.add(hunk(diff, hunkOffsets, i));
+        }
+        return hunks;
+    }
+
+    /**
+     * diff块数量，没有@@行的diff整体视为一个块
+     *
+     * @param hunkOffsets 各diff块的起始位置
+     * @return diff块数量
+     */
+    public static int hunkCount(int[] hunkOffsets) {
+        return Math.max(1, hunkOffsets.length);
+    }
+
+    /**
+     * 取出单个diff块，只复制该块的内容；第一个块之前的内容归入第一个块，结果以换行结尾
+     *
+     * @param diff        diff 内容，不能为空
+     * @param hunkOffsets 各diff块的起始位置
+     * @param index       块序号，取值范围 [0, hunkCount)
+     * @return diff块
+     */
+    public static String hunk(CharSequence diff, int[] hunkOffsets, int index) {
+        int start = index == 0 ? 0 : hunkOffsets[index];
+        int end = index + 1 < hunkOffsets.length ? hunkOffsets[index + 1] : diff.length();
+        String text = diff.subSequence(start, end).toString();
+        return text.endsWith("\n") ? text : text + "\n";
+    }
+
+    /**
+     * 将变更节点转换为变更信息，文件数不少于 DIFF_PARALLEL_MIN_FILES 时并行转换，结果保持原顺序
+     *
+     * @param changeNodes 变更节点
+     * @param mapper      转换方法，返回null表示跳过该变更
+     * @return 变更信息列表
+     */
+    public static <T> List<ChangeInfo> mapChanges(Iterable<T> changeNodes, Function<T, ChangeInfo> mapper) {
+        List<T> nodes = new ArrayList<>();
+        changeNodes.forEach(nodes::add);
+        int parallelMinFiles = Integer.parseInt(SpringUtils.getPropertyOrDefault("DIFF_PARALLEL_MIN_FILES", "50"));
+        return (nodes.size() < parallelMinFiles ? nodes.stream() : nodes.parallelStream())
+                .map(mapper)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 扫描结果
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class Result {
+        /**
+         * 新增行数
+         */
+        private final int additions;
+        /**
+         * 删除行数
+         */
+        private final int deletions;
+        /**
+         * 各diff块（@@行）的起始位置
+         */
+        private final int[] hunkOffsets;
+        /**
+         * 是否为整文件删除：第一个块的新文件范围为 +0,0 且其余行都是删除行（忽略文件末尾无换行的标记）
+         */
+        private final boolean deletedFile;
+        /**
+         * 是否为二进制文件
+         */
+        private final boolean binary;
+    }
+}
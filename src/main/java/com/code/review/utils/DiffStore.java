@@ -0,0 +1,231 @@
+package com.code.review.utils;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 评审任务的diff存储
+ * <p>
+ * 超大的合并请求（重命名、第三方库更新等）中所有diff都以字符串常驻堆内，多个任务同时处理时容易引起长时间GC。
+ * 单个diff不超过 DIFF_SPILL_THRESHOLD 字节且任务累计不超过 DIFF_JOB_HEAP_LIMIT 字节时保留在堆内，
+ * 否则以UTF-16写入任务的临时文件，并返回内存映射的只读 {@link java.nio.CharBuffer} 视图，
+ * 构建提示词时直接从映射视图复制到提示词缓冲区，不再生成中间字符串。
+ * <p>
+ * 每个评审任务打开一个存储，任务结束时关闭并删除临时文件；已返回的映射视图在关闭后仍然有效。
+ * <p>
+ * 存储接收的是解析接口响应后已生成的字符串，溢出减少的是任务期间常驻的堆内存，不能降低解析单个diff时的峰值。
+ */
+@Slf4j
+public class DiffStore implements AutoCloseable {
+
+    /**
+     * 写入临时文件时每次编码的字符数
+     */
+    private static final int WRITE_CHUNK_CHARS = 32 * 1024;
+
+    private static final Set<DiffStore> OPEN_STORES = ConcurrentHashMap.newKeySet();
+    private static final LongAdder JOBS = new LongAdder();
+    private static final LongAdder TOTAL_HEAP_BYTES = new LongAdder();
+    private static final LongAdder TOTAL_SPILLED_BYTES = new LongAdder();
+    private static final LongAdder TOTAL_SPILLED_DIFFS = new LongAdder();
+    private static final LongAdder SPILL_FAILURES = new LongAdder();
+
+    private final long spillThreshold;
+    private final long jobHeapLimit;
+    private final Path directory;
+
+    private final AtomicLong heapBytes = new AtomicLong();
+    private final AtomicLong spilledBytes = new AtomicLong();
+    private final AtomicInteger spilledDiffs = new AtomicInteger();
+
+    private Path file;
+    private FileChannel channel;
+    private ByteBuffer writeBuffer;
+    private long position;
+    private boolean closed;
+
+    private DiffStore(long spillThreshold, long jobHeapLimit, Path directory) {
+        this.spillThreshold = spillThreshold;
+        this.jobHeapLimit = jobHeapLimit;
+        this.directory = directory;
+    }
+
+    /**
+     * 为评审任务打开diff存储，首次溢出时才创建临时文件
+     *
+     * @return diff存储
+     */
+    public static DiffStore open() {
+        long spillThreshold = Long.parseLong(SpringUtils.getPropertyOrDefault("DIFF_SPILL_THRESHOLD", "262144"));
+        long jobHeapLimit = Long.parseLong(SpringUtils.getPropertyOrDefault("DIFF_JOB_HEAP_LIMIT", "16777216"));
+        String directory = SpringUtils.getPropertyOrDefault("DIFF_SPILL_DIR", "");
+        DiffStore store = new DiffStore(spillThreshold, jobHeapLimit, StringUtils.isBlank(directory)
+                ? Paths.get(System.getProperty("java.io.tmpdir"), "ai-code-review-diffs") : Paths.get(directory.trim()));
+        OPEN_STORES.add(store);
+        JOBS.increment();
+        return store;
+    }
+
+    /**
+     * 保存diff
+     *
+     * @param diff diff 内容
+     * @return 保留在堆内时为原字符串，溢出到磁盘时为内存映射的只读视图；写入临时文件失败时保留在堆内
+     */
+    public CharSequence put(String diff) {
+        if (diff == null || diff.isEmpty()) {
+            return diff;
+        }
+        long bytes = (long) diff.length() * Character.BYTES;
+        if (bytes <= spillThreshold && reserveHeapBytes(bytes)) {
+            return diff;
+        }
+        try {
+            return spill(diff);
+        } catch (IOException e) {
+            SPILL_FAILURES.increment();
+            log.warn("diff写入临时文件失败，保留在内存中：{}", e.getMessage());
+            addHeapBytes(bytes);
+            return diff;
+        }
+    }
+
+    /**
+     * 在任务堆内限额以内预留空间，多个文件并行保存时不会超出限额
+     *
+     * @return 是否预留成功
+     */
+    private boolean reserveHeapBytes(long bytes) {
+        while (true) {
+            long current = heapBytes.get();
+            if (current + bytes > jobHeapLimit) {
+                return false;
+            }
+            if (heapBytes.compareAndSet(current, current + bytes)) {
+                TOTAL_HEAP_BYTES.add(bytes);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 写入临时文件失败时仍保留在堆内，此时允许超出限额
+     */
+    private void addHeapBytes(long bytes) {
+        heapBytes.addAndGet(bytes);
+        TOTAL_HEAP_BYTES.add(bytes);
+    }
+
+    private synchronized CharSequence spill(String diff) throws IOException {
+        if (closed) {
+            throw new IOException("diff存储已关闭");
+        }
+        if (channel == null) {
+            Files.createDirectories(directory);
+            file = Files.createTempFile(directory, "diff-", ".tmp");
+            channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            writeBuffer = ByteBuffer.allocateDirect(WRITE_CHUNK_CHARS * Character.BYTES);
+        }
+
+        long start = position;
+        for (int offset = 0; offset < diff.length(); offset += WRITE_CHUNK_CHARS) {
+            int end = Math.min(diff.length(), offset + WRITE_CHUNK_CHARS);
+            writeBuffer.clear();
+            writeBuffer.asCharBuffer().put(diff, offset, end);
+            writeBuffer.limit((end - offset) * Character.BYTES);
+            while (writeBuffer.hasRemaining()) {
+                position += channel.write(writeBuffer, position);
+            }
+        }
+
+        long size = position - start;
+        spilledBytes.addAndGet(size);
+        spilledDiffs.incrementAndGet();
+        TOTAL_SPILLED_BYTES.add(size);
+        TOTAL_SPILLED_DIFFS.increment();
+        // 映射在通道关闭、文件删除后仍然有效，页面由操作系统按需加载，不占用堆内存
+        return channel.map(FileChannel.MapMode.READ_ONLY, start, size).asCharBuffer().asReadOnlyBuffer();
+    }
+
+    /**
+     * 堆内保存的diff字节数（按UTF-16计算）
+     */
+    public long getHeapBytes() {
+        return heapBytes.get();
+    }
+
+    /**
+     * 溢出到磁盘的diff字节数
+     */
+    public long getSpilledBytes() {
+        return spilledBytes.get();
+    }
+
+    /**
+     * 溢出到磁盘的diff个数
+     */
+    public int getSpilledDiffs() {
+        return spilledDiffs.get();
+    }
+
+    /**
+     * 关闭存储并删除临时文件
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        OPEN_STORES.remove(this);
+        if (channel == null) {
+            return;
+        }
+        log.info("评审任务diff占用堆内存{}字节，溢出到磁盘{}个共{}字节", getHeapBytes(), getSpilledDiffs(), getSpilledBytes());
+        try {
+            channel.close();
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("删除diff临时文件{}失败：{}", file, e.getMessage());
+        }
+    }
+
+    /**
+     * 获取diff存储统计信息
+     *
+     * @return 进行中任务的堆内与溢出字节数，以及累计的任务数、堆内字节数、溢出个数与字节数
+     */
+    public static Map<String, Object> getStats() {
+        long heapBytes = 0;
+        long spilledBytes = 0;
+        for (DiffStore store : OPEN_STORES) {
+            heapBytes += store.getHeapBytes();
+            spilledBytes += store.getSpilledBytes();
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("openJobs", OPEN_STORES.size());
+        stats.put("heapBytes", heapBytes);
+        stats.put("spilledBytes", spilledBytes);
+        stats.put("totalJobs", JOBS.sum());
+        stats.put("totalHeapBytes", TOTAL_HEAP_BYTES.sum());
+        stats.put("totalSpilledDiffs", TOTAL_SPILLED_DIFFS.sum());
+        stats.put("totalSpilledBytes", TOTAL_SPILLED_BYTES.sum());
+        stats.put("spillFailures", SPILL_FAILURES.sum());
+        return stats;
+    }
+}
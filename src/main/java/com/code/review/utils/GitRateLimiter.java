@@ -0,0 +1,280 @@
+package com.code.review.utils;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpResponse;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * GitHub/GitLab API限流调度器
+ * <p>
+ * 按“主机 + 访问令牌”维护令牌桶，根据响应头中的剩余配额和重置时间计算补充速率，
+ * 把剩余配额均匀分摊到重置前的时间内，在配额耗尽之前就对请求进行排队限速，而不是等到服务端返回403/429。
+ * <ul>
+ *     <li>GitHub：X-RateLimit-Limit / X-RateLimit-Remaining / X-RateLimit-Reset</li>
+ *     <li>GitLab：RateLimit-Limit / RateLimit-Remaining / RateLimit-Reset</li>
+ * </ul>
+ */
+@Slf4j
+public class GitRateLimiter {
+
+    private static final Map<String, Bucket> BUCKETS = new ConcurrentHashMap<>();
+
+    private GitRateLimiter() {
+    }
+
+    /**
+     * 为一次请求预留配额
+     *
+     * @param uri     请求地址
+     * @param headers 请求头，用于识别访问令牌
+     * @return 发送请求前需要等待的毫秒数
+     */
+    public static long reserve(URI uri, Map<String, String> headers) {
+        Bucket bucket = getBucket(uri, headers);
+        if (bucket == null) {
+            return 0;
+        }
+
+        long waitMillis = bucket.reserve(System.currentTimeMillis());
+        long maxWait = Long.parseLong(SpringUtils.getPropertyOrDefault("GIT_RATE_LIMIT_MAX_WAIT", "120000"));
+        if (waitMillis > maxWait) {
+            bucket.cancel();
+            throw new RuntimeException("Git API配额不足，预计需等待" + waitMillis + "ms，host=" + uri.getHost());
+        }
+        if (waitMillis > 0) {
+            log.info("Git API限流排队，host={}，wait={}ms，remaining={}", uri.getHost(), waitMillis, bucket.remaining);
+        }
+        bucket.queueWaitMillis.add(waitMillis);
+        return waitMillis;
+    }
+
+    /**
+     * 在当前线程中等待配额
+     *
+     * @param uri     请求地址
+     * @param headers 请求头
+     */
+    public static void acquire(URI uri, Map<String, String> headers) throws InterruptedException {
+        long waitMillis = reserve(uri, headers);
+        if (waitMillis > 0) {
+            Thread.sleep(waitMillis);
+        }
+    }
+
+    /**
+     * 根据响应头更新剩余配额
+     *
+     * @param uri      请求地址
+     * @param headers  请求头
+     * @param response HTTP响应
+     */
+    public static void update(URI uri, Map<String, String> headers, HttpResponse response) {
+        Bucket bucket = getBucket(uri, headers);
+        if (bucket == null) {
+            return;
+        }
+
+        long limit = headerLong(response, "X-RateLimit-Limit", "RateLimit-Limit");
+        long remaining = headerLong(response, "X-RateLimit-Remaining", "RateLimit-Remaining");
+        long reset = headerLong(response, "X-RateLimit-Reset", "RateLimit-Reset");
+        long retryAfter = headerLong(response, "Retry-After");
+
+        long now = System.currentTimeMillis();
+        // 被限流时按Retry-After或重置时间暂停该令牌的请求
+        int statusCode = response.getCode();
+        if ((statusCode == 429 || statusCode == 403 && remaining == 0) && (retryAfter > 0 || reset > 0)) {
+            long blockedUntil = retryAfter > 0 ? now + retryAfter * 1000 : reset * 1000;
+            bucket.block(blockedUntil);
+            log.warn("Git API触发限流，host={}，暂停至{}", uri.getHost(), blockedUntil);
+        }
+        if (remaining >= 0 && reset > 0) {
+            bucket.update(limit, remaining, reset * 1000, now);
+        }
+    }
+
+    /**
+     * 获取限流统计信息
+     *
+     * @return 各令牌的剩余配额、重置时间及排队等待时长
+     */
+    public static Map<String, Object> getStats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        for (Map.Entry<String, Bucket> entry : BUCKETS.entrySet()) {
+            Bucket bucket = entry.getValue();
+            Map<String, Object> stats = new LinkedHashMap<>();
+            synchronized (bucket) {
+                stats.put("limit", bucket.limit);
+                stats.put("remaining", bucket.remaining);
+                stats.put("resetAt", bucket.resetAt);
+                stats.put("ratePerSecond", Math.round(bucket.rate * 1000 * 1000) / 1000D);
+            }
+            long requests = bucket.requests.sum();
+            long waited = bucket.queueWaitMillis.sum();
+            stats.put("requests", requests);
+            stats.put("queuedRequests", bucket.queued.sum());
+            stats.put("totalQueueWaitMillis", waited);
+            stats.put("avgQueueWaitMillis", requests == 0 ? 0 : waited / requests);
+            result.put(entry.getKey(), stats);
+        }
+        return result;
+    }
+
+    /**
+     * 获取请求对应的令牌桶，非Git API或未携带令牌的请求不限流
+     */
+    private static Bucket getBucket(URI uri, Map<String, String> headers) {
+        if (uri.getHost() == null || HttpDestination.resolve(uri.getHost()) != HttpDestination.GIT
+                || !"1".equals(SpringUtils.getPropertyOrDefault("GIT_RATE_LIMIT_ENABLED", "1"))) {
+            return null;
+        }
+        String token = null;
+        if (headers != null) {
+            for (Map.Entry<String, String> header : headers.entrySet()) {
+                if (StringUtils.equalsAnyIgnoreCase(header.getKey(), "Authorization", "Private-Token")) {
+                    token = header.getValue();
+                    break;
+                }
+            }
+        }
+        if (StringUtils.isBlank(token)) {
+            return null;
+        }
+        return BUCKETS.computeIfAbsent(uri.getHost().toLowerCase() + "#" + fingerprint(token), key -> new Bucket());
+    }
+
+    /**
+     * 计算令牌指纹，统计信息中不暴露令牌原文
+     */
+    private static String fingerprint(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            StringBuilder builder = new StringBuilder();
+            for (int i = 0; i < 4; i++) {
+                builder.append(String.format("%02x", digest[i]));
+            }
+            return builder.toString();
+        } catch (Exception e) {
+            return Integer.toHexString(token.hashCode());
+        }
+    }
+
+    private static long headerLong(HttpResponse response, String... names) {
+        for (String name : names) {
+            Header header = response.getFirstHeader(name);
+            if (header != null) {
+                try {
+                    return Long.parseLong(header.getValue().trim());
+                } catch (NumberFormatException e) {
+                    return -1;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 单个令牌的令牌桶
+     */
+    private static class Bucket {
+        /**
+         * 配额总量、剩余配额及重置时间，未收到响应头前为-1
+         */
+        private long limit = -1;
+        private long remaining = -1;
+        private long resetAt = -1;
+        /**
+         * 当前可用令牌数，可为负数表示已被排队的请求预留
+         */
+        private double tokens;
+        /**
+         * 每毫秒补充的令牌数
+         */
+        private double rate;
+        private long lastRefill;
+        private long blockedUntil;
+
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder queued = new LongAdder();
+        private final LongAdder queueWaitMillis = new LongAdder();
+
+        /**
+         * 预留一个令牌，返回需要等待的毫秒数
+         */
+        synchronized long reserve(long now) {
+            requests.increment();
+            long wait = Math.max(0, blockedUntil - now);
+
+            // 尚未获取到配额信息，或已过重置时间，不做限速
+            if (remaining < 0 || resetAt <= now) {
+                if (wait > 0) {
+                    queued.increment();
+                }
+                return wait;
+            }
+
+            refill(now);
+            tokens -= 1;
+            remaining = Math.max(0, remaining - 1);
+            // 剩余配额充足时不限速，低于阈值后按补充速率排队
+            double paceRatio = Double.parseDouble(SpringUtils.getPropertyOrDefault("GIT_RATE_LIMIT_PACE_RATIO", "0.2"));
+            if (limit > 0 && remaining > limit * paceRatio) {
+                tokens = Math.max(tokens, 0);
+            } else if (tokens < 0) {
+                long tokenWait = rate > 0 ? (long) Math.ceil(-tokens / rate) : resetAt - now;
+                wait = Math.max(wait, Math.min(tokenWait, resetAt - now));
+            }
+            if (wait > 0) {
+                queued.increment();
+            }
+            return wait;
+        }
+
+        /**
+         * 取消最近一次预留
+         */
+        synchronized void cancel() {
+            tokens += 1;
+            remaining += remaining >= 0 ? 1 : 0;
+        }
+
+        synchronized void block(long until) {
+            blockedUntil = Math.max(blockedUntil, until);
+        }
+
+        /**
+         * 按响应头更新配额，并重新计算补充速率：保留一部分配额后，把剩余配额平摊到重置前的时间内
+         */
+        synchronized void update(long limit, long remaining, long resetAt, long now) {
+            refill(now);
+            boolean first = this.limit < 0;
+            this.limit = limit;
+            this.remaining = remaining;
+            this.resetAt = resetAt;
+
+            long reserveQuota = Long.parseLong(SpringUtils.getPropertyOrDefault("GIT_RATE_LIMIT_RESERVE", "50"));
+            long burst = Long.parseLong(SpringUtils.getPropertyOrDefault("GIT_RATE_LIMIT_BURST", "20"));
+            long usable = Math.max(0, remaining - reserveQuota);
+            long window = Math.max(1000, resetAt - now);
+            this.rate = (double) usable / window;
+            // 首次获取到配额时填满令牌桶，突发量不超过可用配额
+            this.tokens = first ? Math.min(burst, usable) : Math.min(tokens, Math.min(burst, usable));
+        }
+
+        private void refill(long now) {
+            if (lastRefill > 0 && now > lastRefill) {
+                long burst = Long.parseLong(SpringUtils.getPropertyOrDefault("GIT_RATE_LIMIT_BURST", "20"));
+                tokens = Math.min(burst, tokens + (now - lastRefill) * rate);
+            }
+            lastRefill = now;
+        }
+    }
+}
@@ -0,0 +1,298 @@
+package com.code.review.utils;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.classic.ExecChainHandler;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.config.TlsConfig;
+import org.apache.hc.client5.http.impl.ChainElement;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManager;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.ssl.ClientTlsStrategyBuilder;
+import org.apache.hc.client5.http.ssl.NoopHostnameVerifier;
+import org.apache.hc.core5.http.ClassicHttpResponse;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.http2.HttpVersionPolicy;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.pool.PoolStats;
+import org.apache.hc.core5.reactor.IOReactorConfig;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+
+import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 全局共享的HTTP连接池
+ * <p>
+ * 所有出站请求复用同一个HttpClient，按目标地址限制连接数，保持长连接并定期清理空闲连接，
+ * 避免每次请求都重新进行TCP和TLS握手。
+ */
+@Slf4j
+public class HttpClientPool {
+
+    private static volatile CloseableHttpClient httpClient;
+    private static volatile PoolingHttpClientConnectionManager connectionManager;
+    private static volatile CloseableHttpAsyncClient httpAsyncClient;
+    private static volatile PoolingAsyncClientConnectionManager asyncConnectionManager;
+
+    /**
+     * 已注册的目标地址及其分类，用于设置单路由连接数和统计
+     */
+    private static final Map<HttpRoute, HttpDestination> ROUTES = new ConcurrentHashMap<>();
+
+    private HttpClientPool() {
+    }
+
+    /**
+     * 获取共享的HttpClient，首次调用时初始化连接池
+     *
+     * @return 共享的HttpClient
+     */
+    public static CloseableHttpClient getClient() throws Exception {
+        if (httpClient == null) {
+            synchronized (HttpClientPool.class) {
+                if (httpClient == null) {
+                    init();
+                }
+            }
+        }
+        return httpClient;
+    }
+
+    /**
+     * 获取共享的异步HttpClient，首次调用时初始化
+     * <p>
+     * 异步客户端基于IO Reactor，少量IO线程即可驱动大量并发请求；对支持的目标地址通过ALPN协商使用HTTP/2。
+     *
+     * @return 共享的异步HttpClient
+     */
+    public static CloseableHttpAsyncClient getAsyncClient() throws Exception {
+        if (httpAsyncClient == null) {
+            synchronized (HttpClientPool.class) {
+                if (httpAsyncClient == null) {
+                    initAsync();
+                }
+            }
+        }
+        return httpAsyncClient;
+    }
+
+    /**
+     * 初始化连接池与HttpClient
+     */
+    private static void init() throws Exception {
+        int maxTotal = Integer.parseInt(SpringUtils.getPropertyOrDefault("HTTP_POOL_MAX_TOTAL", "200"));
+        int connectTimeout = Integer.parseInt(SpringUtils.getPropertyOrDefault("HTTP_CONNECT_TIMEOUT", "5000"));
+        int timeToLive = Integer.parseInt(SpringUtils.getPropertyOrDefault("HTTP_CONNECTION_TTL_SECONDS", "300"));
+        int idleEvict = Integer.parseInt(SpringUtils.getPropertyOrDefault("HTTP_IDLE_EVICT_SECONDS", "30"));
+
+        PoolingHttpClientConnectionManager manager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setSSLSocketFactory(SSLUtils.createInsecureSocketFactory())
+                .setMaxConnTotal(maxTotal)
+                .setMaxConnPerRoute(HttpDestination.GIT.getMaxPerRoute())
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.ofMilliseconds(connectTimeout))
+                        .setValidateAfterInactivity(TimeValue.ofSeconds(10))
+                        .setTimeToLive(TimeValue.ofSeconds(timeToLive))
+                        .build())
+                .build();
+
+        // 响应解压由内置的ContentCompressionExec完成（gzip/deflate，存在brotli解码库时同时支持br），
+        // 在其内外两侧分别统计解压前后的响应体字节数
+        httpClient = HttpClients.custom()
+                .setConnectionManager(manager)
+                .addExecInterceptorAfter(ChainElement.COMPRESS.name(), "traffic-wire", trafficInterceptor(true))
+                .addExecInterceptorBefore(ChainElement.COMPRESS.name(), "traffic-raw", trafficInterceptor(false))
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.ofSeconds(idleEvict))
+                .build();
+        connectionManager = manager;
+        // 补充设置已注册路由的最大连接数
+        ROUTES.forEach((route, destination) -> manager.setMaxPerRoute(route, destination.getMaxPerRoute()));
+
+        // 应用关闭时释放连接
+        Runtime.getRuntime().addShutdownHook(new Thread(HttpClientPool::shutdown, "http-pool-shutdown"));
+        log.info("HTTP连接池初始化完成，maxTotal={}，connectTimeout={}ms，idleEvict={}s", maxTotal, connectTimeout, idleEvict);
+    }
+
+    /**
+     * 创建统计响应体字节数的执行链拦截器
+     *
+     * @param wire 是否统计解压前的字节数
+     * @return 执行链拦截器
+     */
+    private static ExecChainHandler trafficInterceptor(boolean wire) {
+        return (request, scope, chain) -> {
+            ClassicHttpResponse response = chain.proceed(request, scope);
+            HttpDestination destination = HttpDestination.resolve(scope.route.getTargetHost().getHostName());
+            response.setEntity(HttpTrafficStats.countingEntity(response.getEntity(), destination, wire));
+            return response;
+        };
+    }
+
+    /**
+     * 初始化异步连接池与异步HttpClient
+     */
+    private static void initAsync() throws Exception {
+        int maxTotal = Integer.parseInt(SpringUtils.getPropertyOrDefault("HTTP_POOL_MAX_TOTAL", "200"));
+        int connectTimeout = Integer.parseInt(SpringUtils.getPropertyOrDefault("HTTP_CONNECT_TIMEOUT", "5000"));
+        int timeToLive = Integer.parseInt(SpringUtils.getPropertyOrDefault("HTTP_CONNECTION_TTL_SECONDS", "300"));
+        int idleEvict = Integer.parseInt(SpringUtils.getPropertyOrDefault("HTTP_IDLE_EVICT_SECONDS", "30"));
+        int ioThreads = Integer.parseInt(SpringUtils.getPropertyOrDefault("HTTP_ASYNC_IO_THREADS", "4"));
+
+        PoolingAsyncClientConnectionManager manager = PoolingAsyncClientConnectionManagerBuilder.create()
+                .setTlsStrategy(ClientTlsStrategyBuilder.create()
+                        .setSslContext(SSLUtils.createInsecureSSLContext())
+                        .setHostnameVerifier(NoopHostnameVerifier.INSTANCE)
+                        .build())
+                .setMaxConnTotal(maxTotal)
+                .setMaxConnPerRoute(HttpDestination.GIT.getMaxPerRoute())
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.ofMilliseconds(connectTimeout))
+                        .setValidateAfterInactivity(TimeValue.ofSeconds(10))
+                        .setTimeToLive(TimeValue.ofSeconds(timeToLive))
+                        .build())
+                .setDefaultTlsConfig(TlsConfig.custom()
+                        .setVersionPolicy(HttpVersionPolicy.NEGOTIATE)
+                        .build())
+                .build();
+
+        CloseableHttpAsyncClient client = HttpAsyncClients.custom()
+                .setConnectionManager(manager)
+                .setIOReactorConfig(IOReactorConfig.custom()
+                        .setIoThreadCount(ioThreads)
+                        .build())
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.ofSeconds(idleEvict))
+                .build();
+        client.start();
+
+        asyncConnectionManager = manager;
+        httpAsyncClient = client;
+        ROUTES.forEach((route, destination) -> manager.setMaxPerRoute(route, destination.getMaxPerRoute()));
+
+        Runtime.getRuntime().addShutdownHook(new Thread(HttpClientPool::shutdownAsync, "http-async-pool-shutdown"));
+        log.info("异步HTTP连接池初始化完成，maxTotal={}，ioThreads={}", maxTotal, ioThreads);
+    }
+
+    /**
+     * 获取指定地址对应的请求配置，并按目标分类设置该路由的最大连接数
+     *
+     * @param uri 请求地址
+     * @return 请求配置
+     */
+    public static RequestConfig getRequestConfig(URI uri) {
+        HttpDestination destination = register(uri);
+        int keepAlive = Integer.parseInt(SpringUtils.getPropertyOrDefault("HTTP_KEEP_ALIVE_SECONDS", "60"));
+        int leaseTimeout = Integer.parseInt(SpringUtils.getPropertyOrDefault("HTTP_POOL_LEASE_TIMEOUT", "30000"));
+        return RequestConfig.custom()
+                .setResponseTimeout(Timeout.ofMilliseconds(destination.getResponseTimeout()))
+                .setConnectionRequestTimeout(Timeout.ofMilliseconds(leaseTimeout))
+                .setConnectionKeepAlive(TimeValue.ofSeconds(keepAlive))
+                .build();
+    }
+
+    /**
+     * 注册目标路由，首次出现时按分类设置最大连接数
+     *
+     * @param uri 请求地址
+     * @return 目标分类
+     */
+    private static HttpDestination register(URI uri) {
+        HttpDestination destination = HttpDestination.resolve(uri.getHost());
+        if (uri.getHost() == null) {
+            return destination;
+        }
+
+        String scheme = uri.getScheme() == null ? "http" : uri.getScheme().toLowerCase();
+        boolean secure = "https".equals(scheme);
+        int port = uri.getPort() > 0 ? uri.getPort() : (secure ? 443 : 80);
+        HttpRoute route = new HttpRoute(new HttpHost(scheme, uri.getHost(), port), null, secure);
+
+        if (ROUTES.putIfAbsent(route, destination) == null) {
+            int maxPerRoute = destination.getMaxPerRoute();
+            if (connectionManager != null) {
+                connectionManager.setMaxPerRoute(route, maxPerRoute);
+            }
+            if (asyncConnectionManager != null) {
+                asyncConnectionManager.setMaxPerRoute(route, maxPerRoute);
+            }
+        }
+        return destination;
+    }
+
+    /**
+     * 获取连接池统计信息，包括总体及各目标地址的租用、等待和空闲连接数
+     *
+     * @return 统计信息
+     */
+    public static Map<String, Object> getPoolStats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        PoolingHttpClientConnectionManager manager = connectionManager;
+        PoolingAsyncClientConnectionManager asyncManager = asyncConnectionManager;
+        result.put("initialized", manager != null);
+        result.put("asyncInitialized", asyncManager != null);
+        if (manager != null) {
+            result.put("total", toMap(manager.getTotalStats()));
+        }
+        if (asyncManager != null) {
+            result.put("asyncTotal", toMap(asyncManager.getTotalStats()));
+        }
+
+        Map<String, Object> routes = new LinkedHashMap<>();
+        for (Map.Entry<HttpRoute, HttpDestination> entry : ROUTES.entrySet()) {
+            Map<String, Object> routeStats = new LinkedHashMap<>();
+            routeStats.put("destination", entry.getValue().name());
+            if (manager != null) {
+                routeStats.put("sync", toMap(manager.getStats(entry.getKey())));
+            }
+            if (asyncManager != null) {
+                routeStats.put("async", toMap(asyncManager.getStats(entry.getKey())));
+            }
+            routes.put(entry.getKey().getTargetHost().toURI(), routeStats);
+        }
+        result.put("routes", routes);
+        return result;
+    }
+
+    private static Map<String, Object> toMap(PoolStats stats) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("leased", stats.getLeased());
+        map.put("pending", stats.getPending());
+        map.put("available", stats.getAvailable());
+        map.put("max", stats.getMax());
+        return map;
+    }
+
+    /**
+     * 关闭连接池
+     */
+    public static void shutdown() {
+        CloseableHttpClient client = httpClient;
+        if (client != null) {
+            client.close(CloseMode.GRACEFUL);
+            log.info("HTTP连接池已关闭");
+        }
+    }
+
+    /**
+     * 关闭异步连接池
+     */
+    public static void shutdownAsync() {
+        CloseableHttpAsyncClient client = httpAsyncClient;
+        if (client != null) {
+            client.close(CloseMode.GRACEFUL);
+            log.info("异步HTTP连接池已关闭");
+        }
+    }
+}
@@ -2,33 +2,67 @@ package com.code.review.utils;
 
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.client5.http.async.methods.SimpleRequestBuilder;
+import org.apache.hc.client5.http.async.methods.SimpleRequestProducer;
+import org.apache.hc.client5.http.async.methods.SimpleResponseConsumer;
 import org.apache.hc.client5.http.classic.methods.HttpGet;
 import org.apache.hc.client5.http.classic.methods.HttpPost;
-import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.classic.methods.HttpUriRequestBase;
+import org.apache.hc.client5.http.entity.DeflateInputStream;
 import org.apache.hc.client5.http.entity.UrlEncodedFormEntity;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
 import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.core5.concurrent.FutureCallback;
 import org.apache.hc.core5.http.ClassicHttpRequest;
 import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.Header;
 import org.apache.hc.core5.http.HttpEntity;
+import org.apache.hc.core5.http.HttpHeaders;
 import org.apache.hc.core5.http.NameValuePair;
+import org.apache.hc.core5.http.io.HttpClientResponseHandler;
+import org.apache.hc.core5.http.io.entity.ByteArrayEntity;
 import org.apache.hc.core5.http.io.entity.EntityUtils;
 import org.apache.hc.core5.http.io.entity.StringEntity;
 import org.apache.hc.core5.http.message.BasicNameValuePair;
 import org.springframework.util.CollectionUtils;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * HTTP客户端工具类，封装了常用的HTTP GET/POST请求方法
+ * <p>
+ * 所有请求通过 {@link HttpClientPool} 复用连接，超时时间按目标地址分类配置。
+ * 响应体默认协商gzip/deflate压缩，请求体可按目标分类开启gzip压缩，压缩前后字节数记录在 {@link HttpTrafficStats}。
  */
 @Slf4j
 public class HttpClientUtils {
 
+    /**
+     * 响应输入流处理器，用于在不缓存完整响应体的情况下流式处理响应内容
+     */
+    @FunctionalInterface
+    public interface StreamHandler<T> {
+        T handle(InputStream inputStream) throws IOException;
+    }
+
     /**
      * 发送GET请求
      *
@@ -55,11 +89,96 @@ public class HttpClientUtils {
 
         // 构建带参数的URL
         String fullUrl = buildUrlWithParams(url, params);
+
+        // Git API请求经过响应缓存，支持条件请求与并发请求合并
+        if (HttpResponseCache.isCacheable(fullUrl)) {
+            return HttpResponseCache.get(fullUrl, headers, cached -> executeConditionalGet(fullUrl, headers, cached));
+        }
+
         HttpGet httpGet = new HttpGet(fullUrl);
 
         return executeHttpRequest(httpGet, headers);
     }
 
+    /**
+     * 发送条件GET请求，已有缓存时携带If-None-Match/If-Modified-Since请求头
+     *
+     * @param fullUrl 完整请求地址
+     * @param headers 请求头
+     * @param cached  已缓存的条目，可能为null
+     * @return 服务端返回304时返回cached本身，返回200时返回新条目，其他状态码返回null
+     * @throws Exception 请求异常
+     */
+    private static HttpResponseCache.Entry executeConditionalGet(String fullUrl, Map<String, String> headers,
+                                                                 HttpResponseCache.Entry cached) throws Exception {
+        HttpGet httpGet = new HttpGet(fullUrl);
+        if (cached != null) {
+            if (StringUtils.isNotBlank(cached.getEtag())) {
+                httpGet.setHeader(HttpHeaders.IF_NONE_MATCH, cached.getEtag());
+            }
+            if (StringUtils.isNotBlank(cached.getLastModified())) {
+                httpGet.setHeader(HttpHeaders.IF_MODIFIED_SINCE, cached.getLastModified());
+            }
+        }
+
+        return executeHttpRequest(httpGet, headers, response -> {
+            HttpEntity entity = response.getEntity();
+            int statusCode = response.getCode();
+            if (statusCode == 304 && cached != null) {
+                EntityUtils.consume(entity);
+                return cached;
+            }
+            if (statusCode != 200) {
+                log.error("状态码不为200，statusCode=【{}】", statusCode);
+                EntityUtils.consume(entity);
+                return null;
+            }
+
+            String body = entity == null ? null : EntityUtils.toString(entity, StandardCharsets.UTF_8);
+            Header etag = response.getFirstHeader(HttpHeaders.ETAG);
+            Header lastModified = response.getFirstHeader(HttpHeaders.LAST_MODIFIED);
+            return HttpResponseCache.newEntry(fullUrl, body,
+                    etag == null ? null : etag.getValue(), lastModified == null ? null : lastModified.getValue());
+        });
+    }
+
+    /**
+     * 发送GET请求并以流的方式处理响应体
+     * <p>
+     * 响应内容不会被整体读取为字符串，而是直接交给处理器逐步读取，适用于体积较大的响应。
+     *
+     * @param url           请求地址
+     * @param params        请求参数
+     * @param headers       请求头
+     * @param streamHandler 响应输入流处理器
+     * @return 处理器返回的结果，响应体为空时返回null
+     * @throws HttpStatusException 状态码不为200
+     * @throws Exception           请求异常
+     */
+    public static <T> T getStream(String url, Map<String, String> params, Map<String, String> headers, StreamHandler<T> streamHandler) throws Exception {
+        log.debug("调用getStream, url=【{}】", url);
+
+        // 构建带参数的URL
+        String fullUrl = buildUrlWithParams(url, params);
+        HttpGet httpGet = new HttpGet(fullUrl);
+
+        return executeHttpRequest(httpGet, headers, response -> {
+            HttpEntity entity = response.getEntity();
+            int statusCode = response.getCode();
+            if (statusCode != 200) {
+                log.error("状态码不为200，statusCode=【{}】", statusCode);
+                EntityUtils.consume(entity);
+                throw new HttpStatusException(statusCode, fullUrl);
+            }
+            if (entity == null) {
+                return null;
+            }
+            try (InputStream inputStream = entity.getContent()) {
+                return streamHandler.handle(inputStream);
+            }
+        });
+    }
+
     /**
      * 发送POST请求
      *
@@ -132,6 +251,22 @@ public class HttpClientUtils {
      */
     public static String post(String url, String entityString, Map<String, String> params,
                               Map<String, String> headers, boolean jsonPost) {
+        return post(url, entityString, params, headers, jsonPost, 0);
+    }
+
+    /**
+     * 统一的POST请求方法，超过截止时间后中止请求
+     *
+     * @param url            请求地址
+     * @param entityString   实体字符串
+     * @param params         表单参数
+     * @param headers        请求头
+     * @param jsonPost       是否为JSON格式
+     * @param deadlineMillis 截止时间（毫秒），小于等于0表示只受响应超时限制
+     * @return 响应结果字符串，请求失败或被中止时返回null
+     */
+    public static String post(String url, String entityString, Map<String, String> params,
+                              Map<String, String> headers, boolean jsonPost, long deadlineMillis) {
         log.debug("调用post, url=【{}】", url);
 
         HttpPost httpPost = new HttpPost(url);
@@ -142,12 +277,152 @@ public class HttpClientUtils {
             httpPost.setEntity(httpEntity);
         }
 
+        // 到达截止时间时中止请求
+        ScheduledFuture<?> deadlineTask = deadlineMillis > 0 ? RetryScheduler.schedule(httpPost::cancel, deadlineMillis) : null;
         try {
             return executeHttpRequest(httpPost, headers);
         } catch (Exception e) {
             log.error("调用post Exception, url=【{}】,param=【{}】", url, params, e);
             return null;
+        } finally {
+            if (deadlineTask != null) {
+                deadlineTask.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * 统一的POST请求方法，请求失败时抛出异常而不是返回null，供需要区分失败原因的调用方使用
+     * <p>
+     * 状态码非200时抛出 {@link HttpStatusException}，调用方可据此区分限流、服务端错误与其他失败。
+     *
+     * @param url            请求地址
+     * @param entityString   实体字符串
+     * @param headers        请求头
+     * @param jsonPost       是否为JSON格式
+     * @param deadlineMillis 截止时间（毫秒），小于等于0表示只受响应超时限制
+     * @return 响应结果字符串，响应体为空时返回null
+     * @throws HttpStatusException 状态码不为200
+     * @throws Exception           请求异常或超过截止时间被中止
+     */
+    public static String postOrThrow(String url, String entityString, Map<String, String> headers,
+                                     boolean jsonPost, long deadlineMillis) throws Exception {
+        log.debug("调用postOrThrow, url=【{}】", url);
+
+        HttpPost httpPost = new HttpPost(url);
+        HttpEntity httpEntity = buildHttpEntity(entityString, null, jsonPost);
+        if (httpEntity != null) {
+            httpPost.setEntity(httpEntity);
+        }
+
+        // 到达截止时间时中止请求
+        ScheduledFuture<?> deadlineTask = deadlineMillis > 0 ? RetryScheduler.schedule(httpPost::cancel, deadlineMillis) : null;
+        try {
+            return executeHttpRequest(httpPost, headers, response -> {
+                HttpEntity entity = response.getEntity();
+                int statusCode = response.getCode();
+                if (statusCode != 200) {
+                    log.error("状态码不为200，statusCode=【{}】", statusCode);
+                    EntityUtils.consume(entity);
+                    throw new HttpStatusException(statusCode, url);
+                }
+                if (entity == null) {
+                    return null;
+                }
+                String body = EntityUtils.toString(entity, StandardCharsets.UTF_8);
+                EntityUtils.consume(entity);
+                return body;
+            });
+        } finally {
+            if (deadlineTask != null) {
+                deadlineTask.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * 发送JSON格式的POST请求并以流的方式处理响应体，适用于SSE等边生成边返回的响应
+     * <p>
+     * 超过截止时间后中止请求，处理器正在读取的输入流会抛出异常，由调用方决定是否使用已读取的部分内容。
+     *
+     * @param url            请求地址
+     * @param entityString   JSON请求体
+     * @param headers        请求头
+     * @param deadlineMillis 截止时间（毫秒），小于等于0表示不限制
+     * @param streamHandler  响应输入流处理器
+     * @return 处理器返回的结果，响应体为空时返回null
+     * @throws HttpStatusException 状态码不为200
+     * @throws Exception           请求异常或超过截止时间被中止
+     */
+    public static <T> T postStream(String url, String entityString, Map<String, String> headers,
+                                   long deadlineMillis, StreamHandler<T> streamHandler) throws Exception {
+        log.debug("调用postStream, url=【{}】", url);
+
+        HttpPost httpPost = new HttpPost(url);
+        httpPost.setEntity(new StringEntity(entityString, ContentType.APPLICATION_JSON));
+
+        // 到达截止时间时中止请求
+        ScheduledFuture<?> deadlineTask = deadlineMillis > 0 ? RetryScheduler.schedule(httpPost::cancel, deadlineMillis) : null;
+        try {
+            return executeHttpRequest(httpPost, headers, response -> {
+                HttpEntity entity = response.getEntity();
+                int statusCode = response.getCode();
+                if (statusCode != 200) {
+                    log.error("状态码不为200，statusCode=【{}】", statusCode);
+                    EntityUtils.consume(entity);
+                    throw new HttpStatusException(statusCode, url);
+                }
+                if (entity == null) {
+                    return null;
+                }
+                try (InputStream inputStream = entity.getContent()) {
+                    return streamHandler.handle(inputStream);
+                }
+            });
+        } finally {
+            if (deadlineTask != null) {
+                deadlineTask.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * 异步发送带请求头的GET请求
+     * <p>
+     * 请求由异步客户端的IO线程驱动，调用线程不会阻塞；状态码非200时以 {@link HttpStatusException} 异常结束。
+     * 取消返回的Future会同时中止底层请求。
+     *
+     * @param url     请求地址
+     * @param params  请求参数
+     * @param headers 请求头
+     * @return 响应结果字符串的Future
+     */
+    public static CompletableFuture<String> getAsync(String url, Map<String, String> params, Map<String, String> headers) {
+        log.debug("调用getAsync, url=【{}】", url);
+
+        String fullUrl = buildUrlWithParams(url, params);
+        SimpleHttpRequest request = SimpleRequestBuilder.get(fullUrl).build();
+
+        return executeAsyncHttpRequest(request, headers);
+    }
+
+    /**
+     * 异步发送带请求头的JSON格式POST请求
+     *
+     * @param url          请求地址
+     * @param entityString JSON实体字符串
+     * @param headers      请求头
+     * @return 响应结果字符串的Future
+     */
+    public static CompletableFuture<String> postAsync(String url, String entityString, Map<String, String> headers) {
+        log.debug("调用postAsync, url=【{}】", url);
+
+        SimpleRequestBuilder builder = SimpleRequestBuilder.post(url);
+        if (StringUtils.isNotBlank(entityString)) {
+            builder.setBody(entityString, ContentType.APPLICATION_JSON);
         }
+
+        return executeAsyncHttpRequest(builder.build(), headers);
     }
 
     /**
@@ -229,33 +504,222 @@ public class HttpClientUtils {
     }
 
     /**
-     * 执行HTTP请求的统一方法
+     * 执行HTTP请求的统一方法，使用共享连接池中的HttpClient
      *
      * @param request HTTP请求对象
      * @param headers 请求头
      * @return 响应结果字符串
      * @throws Exception 请求异常
      */
-    private static String executeHttpRequest(ClassicHttpRequest request, Map<String, String> headers) throws Exception {
-        try (CloseableHttpClient httpClient = SSLUtils.createInsecureHttpClient()) {
-            // 设置请求配置（需要类型转换）
-            if (request instanceof HttpGet) {
-                ((HttpGet) request).setConfig(getConfig());
-            } else if (request instanceof HttpPost) {
-                ((HttpPost) request).setConfig(getConfig());
+    private static String executeHttpRequest(HttpUriRequestBase request, Map<String, String> headers) throws Exception {
+        return executeHttpRequest(request, headers, response -> {
+            try {
+                return handleHttpResponse(response);
+            } catch (Exception e) {
+                log.error("处理HTTP响应时发生异常", e);
+                throw new RuntimeException(e);
             }
+        });
+    }
+
+    /**
+     * 使用指定的响应处理器执行HTTP请求，响应处理完成后连接自动归还连接池
+     *
+     * @param request         HTTP请求对象
+     * @param headers         请求头
+     * @param responseHandler 响应处理器
+     * @return 响应处理器返回的结果
+     * @throws Exception 请求异常
+     */
+    private static <T> T executeHttpRequest(HttpUriRequestBase request, Map<String, String> headers,
+                                            HttpClientResponseHandler<T> responseHandler) throws Exception {
+        CloseableHttpClient httpClient = HttpClientPool.getClient();
 
-            addHeaders(request, headers);
+        // 按目标地址设置请求配置
+        request.setConfig(HttpClientPool.getRequestConfig(request.getUri()));
+
+        addHeaders(request, headers);
+
+        HttpDestination destination = HttpDestination.resolve(request.getUri().getHost());
+        // 关闭响应压缩时显式声明identity，避免客户端自动添加Accept-Encoding
+        if (!destination.isResponseCompression() && !request.containsHeader(HttpHeaders.ACCEPT_ENCODING)) {
+            request.setHeader(HttpHeaders.ACCEPT_ENCODING, "identity");
+        }
+
+        // 按配置压缩请求体
+        HttpEntity entity = request.getEntity();
+        if (entity != null) {
+            byte[] raw = EntityUtils.toByteArray(entity);
+            byte[] wire = compressRequestBody(raw, destination);
+            if (wire != raw) {
+                request.setEntity(new ByteArrayEntity(wire, ContentType.parseLenient(entity.getContentType()), "gzip"));
+            }
+            HttpTrafficStats.recordRequest(destination, raw.length, wire.length);
+        } else {
+            HttpTrafficStats.recordRequest(destination, 0, 0);
+        }
+
+        // Git API请求按令牌剩余配额排队，并从响应头更新配额
+        URI uri = request.getUri();
+        GitRateLimiter.acquire(uri, headers);
+        return httpClient.execute(request, response -> {
+            GitRateLimiter.update(uri, headers, response);
+            return responseHandler.handleResponse(response);
+        });
+    }
+
+    /**
+     * 执行异步HTTP请求的统一方法，使用共享的异步HttpClient
+     *
+     * @param request 异步HTTP请求对象
+     * @param headers 请求头
+     * @return 响应结果字符串的Future
+     */
+    private static CompletableFuture<String> executeAsyncHttpRequest(SimpleHttpRequest request, Map<String, String> headers) {
+        CompletableFuture<String> result = new CompletableFuture<>();
+        try {
+            CloseableHttpAsyncClient httpAsyncClient = HttpClientPool.getAsyncClient();
+            String url = request.getUri().toString();
 
-            return httpClient.execute(request, response -> {
-                try {
-                    return handleHttpResponse(response);
-                } catch (Exception e) {
-                    log.error("处理HTTP响应时发生异常", e);
-                    throw new RuntimeException(e);
+            // 按目标地址设置请求配置
+            request.setConfig(HttpClientPool.getRequestConfig(request.getUri()));
+
+            if (!CollectionUtils.isEmpty(headers)) {
+                for (Map.Entry<String, String> header : headers.entrySet()) {
+                    request.addHeader(header.getKey(), header.getValue());
                 }
-            });
+            }
+
+            // 异步客户端不会自动解压响应，由getBodyText按Content-Encoding解码
+            HttpDestination destination = HttpDestination.resolve(request.getUri().getHost());
+            if (destination.isResponseCompression() && !request.containsHeader(HttpHeaders.ACCEPT_ENCODING)) {
+                request.setHeader(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate");
+            }
+
+            // 按配置压缩请求体
+            byte[] raw = request.getBodyBytes();
+            if (raw != null) {
+                byte[] wire = compressRequestBody(raw, destination);
+                if (wire != raw) {
+                    request.setBody(wire, request.getContentType());
+                    request.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+                }
+                HttpTrafficStats.recordRequest(destination, raw.length, wire.length);
+            } else {
+                HttpTrafficStats.recordRequest(destination, 0, 0);
+            }
+
+            // Git API请求按令牌剩余配额排队，等待期间不占用线程
+            URI uri = request.getUri();
+            long waitMillis = GitRateLimiter.reserve(uri, headers);
+            Runnable send = () -> {
+                // 排队期间已被调用方取消
+                if (result.isDone()) {
+                    return;
+                }
+                Future<SimpleHttpResponse> future = httpAsyncClient.execute(
+                        SimpleRequestProducer.create(request),
+                        SimpleResponseConsumer.create(),
+                        new FutureCallback<SimpleHttpResponse>() {
+                            @Override
+                            public void completed(SimpleHttpResponse response) {
+                                GitRateLimiter.update(uri, headers, response);
+                                int statusCode = response.getCode();
+                                if (statusCode == 200) {
+                                    try {
+                                        result.complete(getBodyText(response, destination));
+                                    } catch (IOException e) {
+                                        log.error("解压响应体异常, url=【{}】，error=【{}】", url, e.getMessage());
+                                        result.completeExceptionally(e);
+                                    }
+                                } else {
+                                    log.error("状态码不为200，statusCode=【{}】，url=【{}】", statusCode, url);
+                                    result.completeExceptionally(new HttpStatusException(statusCode, url));
+                                }
+                            }
+
+                            @Override
+                            public void failed(Exception ex) {
+                                log.error("异步请求异常, url=【{}】，error=【{}】", url, ex.getMessage());
+                                result.completeExceptionally(ex);
+                            }
+
+                            @Override
+                            public void cancelled() {
+                                result.cancel(false);
+                            }
+                        });
+
+                // 调用方取消时中止底层请求
+                result.whenComplete((body, throwable) -> {
+                    if (result.isCancelled()) {
+                        future.cancel(true);
+                    }
+                });
+            };
+            if (waitMillis > 0) {
+                CompletableFuture.runAsync(send, CompletableFuture.delayedExecutor(waitMillis, TimeUnit.MILLISECONDS));
+            } else {
+                send.run();
+            }
+        } catch (Exception e) {
+            result.completeExceptionally(e);
         }
+        return result;
+    }
+
+    /**
+     * 读取异步响应体文本，按Content-Encoding解压，未声明字符集时按UTF-8解码
+     *
+     * @param response    异步HTTP响应
+     * @param destination 目标分类，用于统计字节数
+     * @return 响应内容字符串
+     * @throws IOException 解压异常
+     */
+    private static String getBodyText(SimpleHttpResponse response, HttpDestination destination) throws IOException {
+        byte[] body = response.getBodyBytes();
+        if (body == null) {
+            return null;
+        }
+        HttpTrafficStats.recordResponseWire(destination, body.length);
+
+        Header contentEncoding = response.getFirstHeader(HttpHeaders.CONTENT_ENCODING);
+        String encoding = contentEncoding == null ? "" : contentEncoding.getValue().trim().toLowerCase();
+        if ("gzip".equals(encoding) || "x-gzip".equals(encoding)) {
+            try (InputStream inputStream = new GZIPInputStream(new ByteArrayInputStream(body))) {
+                body = inputStream.readAllBytes();
+            }
+        } else if ("deflate".equals(encoding)) {
+            try (InputStream inputStream = new DeflateInputStream(new ByteArrayInputStream(body))) {
+                body = inputStream.readAllBytes();
+            }
+        }
+        HttpTrafficStats.recordResponseRaw(destination, body.length);
+
+        ContentType contentType = response.getContentType();
+        Charset charset = contentType != null && contentType.getCharset() != null ? contentType.getCharset() : StandardCharsets.UTF_8;
+        return new String(body, charset);
+    }
+
+    /**
+     * 按目标分类配置压缩请求体，未开启或请求体小于阈值时原样返回
+     *
+     * @param raw         原始请求体
+     * @param destination 目标分类
+     * @return 压缩后的请求体，未压缩时返回原数组
+     * @throws IOException 压缩异常
+     */
+    private static byte[] compressRequestBody(byte[] raw, HttpDestination destination) throws IOException {
+        int minBytes = Integer.parseInt(SpringUtils.getPropertyOrDefault("HTTP_GZIP_MIN_BYTES", "1024"));
+        if (!destination.isRequestCompression() || raw.length < minBytes) {
+            return raw;
+        }
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(raw.length / 4 + 64);
+        try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(outputStream)) {
+            gzipOutputStream.write(raw);
+        }
+        return outputStream.toByteArray();
     }
 
     /**
@@ -279,17 +743,4 @@ public class HttpClientUtils {
         }
         return null;
     }
-
-    /**
-     * 获取请求配置
-     *
-     * @return 请求配置对象
-     */
-    private static RequestConfig getConfig() {
-        int defaultTimeOut = 60000;
-        return RequestConfig.custom()
-                .setResponseTimeout(defaultTimeOut, TimeUnit.MILLISECONDS)
-                .setConnectionRequestTimeout(defaultTimeOut, TimeUnit.MILLISECONDS)
-                .build();
-    }
 }
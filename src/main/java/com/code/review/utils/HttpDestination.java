@@ -0,0 +1,117 @@
+package com.code.review.utils;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * HTTP请求目标分类，不同类别使用不同的超时与连接数配置
+ */
+public enum HttpDestination {
+    /**
+     * 大模型供应商接口，生成耗时长
+     */
+    LLM("HTTP_LLM_RESPONSE_TIMEOUT", 60000, "HTTP_LLM_MAX_PER_ROUTE", 50),
+    /**
+     * GitLab/GitHub API
+     */
+    GIT("HTTP_GIT_RESPONSE_TIMEOUT", 15000, "HTTP_GIT_MAX_PER_ROUTE", 20),
+    /**
+     * 企业微信等通知接口
+     */
+    NOTIFY("HTTP_NOTIFY_RESPONSE_TIMEOUT", 10000, "HTTP_NOTIFY_MAX_PER_ROUTE", 5);
+
+    private static final String[] LLM_URL_KEYS = {
+            "DEEPSEEK_API_URL", "OPENAI_API_URL", "ZHIPUAI_API_URL", "ZHIPU_API_URL", "QWEN_API_URL", "COZE_API_URL"
+    };
+    private static final String[] LLM_DEFAULT_HOSTS = {
+            "api.deepseek.com", "api.openai.com", "open.bigmodel.cn", "dashscope.aliyuncs.com", "api.coze.cn"
+    };
+    private static final String NOTIFY_DEFAULT_HOST = "qyapi.weixin.qq.com";
+
+    private static final Map<String, HttpDestination> HOST_CACHE = new ConcurrentHashMap<>();
+
+    private final String responseTimeoutKey;
+    private final int defaultResponseTimeout;
+    private final String maxPerRouteKey;
+    private final int defaultMaxPerRoute;
+
+    HttpDestination(String responseTimeoutKey, int defaultResponseTimeout, String maxPerRouteKey, int defaultMaxPerRoute) {
+        this.responseTimeoutKey = responseTimeoutKey;
+        this.defaultResponseTimeout = defaultResponseTimeout;
+        this.maxPerRouteKey = maxPerRouteKey;
+        this.defaultMaxPerRoute = defaultMaxPerRoute;
+    }
+
+    /**
+     * 获取响应超时时间（毫秒）
+     */
+    public int getResponseTimeout() {
+        return Integer.parseInt(SpringUtils.getPropertyOrDefault(this.responseTimeoutKey, String.valueOf(this.defaultResponseTimeout)));
+    }
+
+    /**
+     * 获取单个目标地址的最大连接数
+     */
+    public int getMaxPerRoute() {
+        return Integer.parseInt(SpringUtils.getPropertyOrDefault(this.maxPerRouteKey, String.valueOf(this.defaultMaxPerRoute)));
+    }
+
+    /**
+     * 是否请求服务端压缩响应体（Accept-Encoding）
+     */
+    public boolean isResponseCompression() {
+        return "1".equals(SpringUtils.getPropertyOrDefault("HTTP_" + name() + "_RESPONSE_COMPRESSION", "1"));
+    }
+
+    /**
+     * 是否使用gzip压缩请求体，需目标服务支持 Content-Encoding: gzip 的请求
+     */
+    public boolean isRequestCompression() {
+        return "1".equals(SpringUtils.getPropertyOrDefault("HTTP_" + name() + "_REQUEST_GZIP", "0"));
+    }
+
+    /**
+     * 根据主机名判断请求目标分类
+     * <p>
+     * 大模型地址取自各供应商的 *_API_URL 配置，通知地址取自 WECOM_WEBHOOK_URL，其余均视为Git API。
+     *
+     * @param host 主机名
+     * @return 目标分类
+     */
+    public static HttpDestination resolve(String host) {
+        if (StringUtils.isBlank(host)) {
+            return GIT;
+        }
+        return HOST_CACHE.computeIfAbsent(host.toLowerCase(), HttpDestination::classify);
+    }
+
+    private static HttpDestination classify(String host) {
+        for (String key : LLM_URL_KEYS) {
+            if (host.equals(hostOf(SpringUtils.getPropertyOrDefault(key, "")))) {
+                return LLM;
+            }
+        }
+        if (StringUtils.equalsAny(host, LLM_DEFAULT_HOSTS)) {
+            return LLM;
+        }
+        if (NOTIFY_DEFAULT_HOST.equals(host) || host.equals(hostOf(SpringUtils.getPropertyOrDefault("WECOM_WEBHOOK_URL", "")))) {
+            return NOTIFY;
+        }
+        return GIT;
+    }
+
+    private static String hostOf(String url) {
+        if (StringUtils.isBlank(url)) {
+            return "";
+        }
+        try {
+            String host = URI.create(url.trim()).getHost();
+            return host == null ? "" : host.toLowerCase();
+        } catch (Exception e) {
+            return "";
+        }
+    }
+}
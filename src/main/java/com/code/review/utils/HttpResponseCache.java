@@ -0,0 +1,235 @@
+package com.code.review.utils;
+
+import lombok.Getter;
+import org.apache.commons.lang3.StringUtils;
+
+import java.net.URI;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Git API GET请求的响应缓存
+ * <p>
+ * 1. 以SHA标识的资源（指定提交、两个提交之间的对比等）内容不可变，命中后直接返回；<br>
+ * 2. 其余资源保存ETag/Last-Modified，再次请求时发送条件请求，服务端返回304时复用缓存内容（GitHub的304响应不计入限流）；<br>
+ * 3. 相同请求并发时只发出一次，其余调用等待同一个结果；<br>
+ * 4. 按响应体大小限制缓存总量，超出时淘汰最久未使用的条目。
+ */
+public class HttpResponseCache {
+
+    /**
+     * 内容不可变的资源地址：commits/{sha}、compare/{sha}...{sha}、commits?ref_name={sha}
+     */
+    private static final Pattern IMMUTABLE_PATTERN = Pattern.compile(
+            "/commits/[0-9a-f]{40}(/diff)?([?#].*)?$|/compare/[0-9a-f]{40}\\.{2,3}[0-9a-f]{40}([?#].*)?$|[?&]ref_name=[0-9a-f]{40}(&|$)");
+
+    /**
+     * 缓存条目，按访问顺序排列，用于LRU淘汰
+     */
+    private static final LinkedHashMap<String, Entry> ENTRIES = new LinkedHashMap<>(64, 0.75f, true);
+
+    /**
+     * 正在进行中的请求
+     */
+    private static final Map<String, CompletableFuture<Entry>> IN_FLIGHT = new ConcurrentHashMap<>();
+
+    private static long totalBytes;
+
+    private static final LongAdder HITS = new LongAdder();
+    private static final LongAdder REVALIDATED = new LongAdder();
+    private static final LongAdder MISSES = new LongAdder();
+    private static final LongAdder SHARED = new LongAdder();
+    private static final LongAdder EVICTIONS = new LongAdder();
+
+    private HttpResponseCache() {
+    }
+
+    /**
+     * 响应加载器，根据已缓存的条目发送（条件）请求
+     */
+    @FunctionalInterface
+    public interface Loader {
+        /**
+         * @param cached 已缓存的条目，可能为null
+         * @return 服务端返回304时返回cached本身，返回200时返回新条目，请求失败返回null
+         */
+        Entry load(Entry cached) throws Exception;
+    }
+
+    /**
+     * 判断请求是否使用缓存，仅缓存Git API的请求
+     *
+     * @param url 完整请求地址
+     * @return 是否使用缓存
+     */
+    public static boolean isCacheable(String url) {
+        if (!"1".equals(SpringUtils.getPropertyOrDefault("HTTP_CACHE_ENABLED", "1"))) {
+            return false;
+        }
+        try {
+            return HttpDestination.resolve(URI.create(url).getHost()) == HttpDestination.GIT;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /**
+     * 通过缓存获取响应内容
+     *
+     * @param url     完整请求地址
+     * @param headers 请求头，参与缓存键计算，不同令牌的请求互不共享
+     * @param loader  响应加载器
+     * @return 响应内容，请求失败时返回null
+     * @throws Exception 请求异常
+     */
+    public static String get(String url, Map<String, String> headers, Loader loader) throws Exception {
+        String key = cacheKey(url, headers);
+
+        Entry cached;
+        synchronized (ENTRIES) {
+            cached = ENTRIES.get(key);
+        }
+        if (cached != null && cached.isImmutable()) {
+            HITS.increment();
+            return cached.getBody();
+        }
+
+        // 相同请求正在进行时直接等待其结果
+        CompletableFuture<Entry> future = new CompletableFuture<>();
+        CompletableFuture<Entry> existing = IN_FLIGHT.putIfAbsent(key, future);
+        if (existing != null) {
+            SHARED.increment();
+            try {
+                Entry entry = existing.join();
+                return entry == null ? null : entry.getBody();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+            }
+        }
+
+        try {
+            Entry loaded = loader.load(cached);
+            if (loaded != null && loaded == cached) {
+                REVALIDATED.increment();
+            } else {
+                MISSES.increment();
+                if (loaded != null) {
+                    put(key, loaded);
+                }
+            }
+            future.complete(loaded);
+            return loaded == null ? null : loaded.getBody();
+        } catch (Exception e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            IN_FLIGHT.remove(key, future);
+        }
+    }
+
+    /**
+     * 创建缓存条目
+     *
+     * @param url          请求地址
+     * @param body         响应内容
+     * @param etag         ETag响应头
+     * @param lastModified Last-Modified响应头
+     * @return 缓存条目
+     */
+    public static Entry newEntry(String url, String body, String etag, String lastModified) {
+        return new Entry(body, etag, lastModified, IMMUTABLE_PATTERN.matcher(url).find());
+    }
+
+    /**
+     * 写入缓存，无法重新验证且内容可变的响应不缓存
+     */
+    private static void put(String key, Entry entry) {
+        if (entry.getBody() == null || !entry.isImmutable()
+                && StringUtils.isBlank(entry.getEtag()) && StringUtils.isBlank(entry.getLastModified())) {
+            return;
+        }
+
+        long maxBytes = Long.parseLong(SpringUtils.getPropertyOrDefault("HTTP_CACHE_MAX_BYTES", "33554432"));
+        // 单个条目不超过总容量的1/4，避免大响应挤占整个缓存
+        if (entry.getSize() > maxBytes / 4) {
+            return;
+        }
+
+        synchronized (ENTRIES) {
+            Entry previous = ENTRIES.put(key, entry);
+            if (previous != null) {
+                totalBytes -= previous.getSize();
+            }
+            totalBytes += entry.getSize();
+
+            Iterator<Entry> iterator = ENTRIES.values().iterator();
+            while (totalBytes > maxBytes && iterator.hasNext()) {
+                totalBytes -= iterator.next().getSize();
+                iterator.remove();
+                EVICTIONS.increment();
+            }
+        }
+    }
+
+    private static String cacheKey(String url, Map<String, String> headers) {
+        if (headers == null || headers.isEmpty()) {
+            return url;
+        }
+        return url + "\n" + new TreeMap<>(headers);
+    }
+
+    /**
+     * 获取缓存统计信息
+     *
+     * @return 统计信息
+     */
+    public static Map<String, Object> getStats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        long hits = HITS.sum();
+        long revalidated = REVALIDATED.sum();
+        long misses = MISSES.sum();
+        long shared = SHARED.sum();
+        long total = hits + revalidated + misses + shared;
+        synchronized (ENTRIES) {
+            result.put("entries", ENTRIES.size());
+            result.put("bytes", totalBytes);
+        }
+        result.put("hits", hits);
+        result.put("revalidated", revalidated);
+        result.put("misses", misses);
+        result.put("shared", shared);
+        result.put("evictions", EVICTIONS.sum());
+        result.put("hitRatio", total == 0 ? 0D : Math.round((double) (hits + revalidated + shared) / total * 10000) / 10000D);
+        return result;
+    }
+
+    /**
+     * 缓存条目
+     */
+    @Getter
+    public static class Entry {
+        private final String body;
+        private final String etag;
+        private final String lastModified;
+        private final boolean immutable;
+        /**
+         * 估算占用的字节数
+         */
+        private final long size;
+
+        private Entry(String body, String etag, String lastModified, boolean immutable) {
+            this.body = body;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.immutable = immutable;
+            this.size = body == null ? 0 : body.length() * 2L;
+        }
+    }
+}
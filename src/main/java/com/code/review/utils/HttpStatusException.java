@@ -0,0 +1,27 @@
+package com.code.review.utils;
+
+import lombok.Getter;
+
+/**
+ * HTTP响应状态码非200时抛出的异常
+ */
+@Getter
+public class HttpStatusException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 响应状态码
+     */
+    private final int statusCode;
+    /**
+     * 请求地址
+     */
+    private final String url;
+
+    public HttpStatusException(int statusCode, String url) {
+        super("HTTP请求失败，statusCode=" + statusCode + "，url=" + url);
+        this.statusCode = statusCode;
+        this.url = url;
+    }
+}
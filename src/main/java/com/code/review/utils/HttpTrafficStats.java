@@ -0,0 +1,177 @@
+package com.code.review.utils;
+
+import org.apache.hc.core5.http.HttpEntity;
+import org.apache.hc.core5.http.io.entity.HttpEntityWrapper;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * HTTP流量统计
+ * <p>
+ * 按目标分类分别记录请求体、响应体压缩前后的字节数，用于评估压缩带来的带宽节省。
+ */
+public class HttpTrafficStats {
+
+    private static final Map<HttpDestination, Counter> COUNTERS = new EnumMap<>(HttpDestination.class);
+
+    static {
+        for (HttpDestination destination : HttpDestination.values()) {
+            COUNTERS.put(destination, new Counter());
+        }
+    }
+
+    private HttpTrafficStats() {
+    }
+
+    /**
+     * 记录请求体字节数
+     *
+     * @param destination 目标分类
+     * @param rawBytes    压缩前字节数
+     * @param wireBytes   实际发送的字节数
+     */
+    public static void recordRequest(HttpDestination destination, long rawBytes, long wireBytes) {
+        Counter counter = COUNTERS.get(destination);
+        counter.requests.increment();
+        counter.requestRawBytes.add(rawBytes);
+        counter.requestWireBytes.add(wireBytes);
+    }
+
+    /**
+     * 记录实际接收的响应体字节数（解压前）
+     *
+     * @param destination 目标分类
+     * @param wireBytes   字节数
+     */
+    public static void recordResponseWire(HttpDestination destination, long wireBytes) {
+        COUNTERS.get(destination).responseWireBytes.add(wireBytes);
+    }
+
+    /**
+     * 记录解压后的响应体字节数
+     *
+     * @param destination 目标分类
+     * @param rawBytes    字节数
+     */
+    public static void recordResponseRaw(HttpDestination destination, long rawBytes) {
+        COUNTERS.get(destination).responseRawBytes.add(rawBytes);
+    }
+
+    /**
+     * 包装响应实体，读取内容时统计字节数
+     *
+     * @param entity      原始响应实体
+     * @param destination 目标分类
+     * @param wire        是否为解压前的实体
+     * @return 包装后的实体
+     */
+    public static HttpEntity countingEntity(HttpEntity entity, HttpDestination destination, boolean wire) {
+        if (entity == null) {
+            return null;
+        }
+        LongAdder adder = wire ? COUNTERS.get(destination).responseWireBytes : COUNTERS.get(destination).responseRawBytes;
+        return new HttpEntityWrapper(entity) {
+            @Override
+            public InputStream getContent() throws IOException {
+                return new CountingInputStream(super.getContent(), adder);
+            }
+
+            @Override
+            public void writeTo(OutputStream outStream) throws IOException {
+                try (InputStream inputStream = getContent()) {
+                    inputStream.transferTo(outStream);
+                }
+            }
+        };
+    }
+
+    /**
+     * 获取流量统计信息
+     *
+     * @return 按目标分类的统计信息
+     */
+    public static Map<String, Object> getStats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        for (Map.Entry<HttpDestination, Counter> entry : COUNTERS.entrySet()) {
+            Counter counter = entry.getValue();
+            Map<String, Object> stats = new LinkedHashMap<>();
+            long requestRaw = counter.requestRawBytes.sum();
+            long requestWire = counter.requestWireBytes.sum();
+            long responseRaw = counter.responseRawBytes.sum();
+            long responseWire = counter.responseWireBytes.sum();
+            stats.put("requests", counter.requests.sum());
+            stats.put("requestRawBytes", requestRaw);
+            stats.put("requestWireBytes", requestWire);
+            stats.put("requestSavedRatio", savedRatio(requestRaw, requestWire));
+            stats.put("responseRawBytes", responseRaw);
+            stats.put("responseWireBytes", responseWire);
+            stats.put("responseSavedRatio", savedRatio(responseRaw, responseWire));
+            result.put(entry.getKey().name(), stats);
+        }
+        return result;
+    }
+
+    private static double savedRatio(long raw, long wire) {
+        if (raw <= 0) {
+            return 0D;
+        }
+        return Math.round((1 - (double) wire / raw) * 10000) / 10000D;
+    }
+
+    /**
+     * 单个目标分类的计数器
+     */
+    private static class Counter {
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder requestRawBytes = new LongAdder();
+        private final LongAdder requestWireBytes = new LongAdder();
+        private final LongAdder responseRawBytes = new LongAdder();
+        private final LongAdder responseWireBytes = new LongAdder();
+    }
+
+    /**
+     * 读取时累加字节数的输入流
+     */
+    private static class CountingInputStream extends FilterInputStream {
+        private final LongAdder adder;
+
+        CountingInputStream(InputStream in, LongAdder adder) {
+            super(in);
+            this.adder = adder;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                adder.increment();
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                adder.add(n);
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            if (skipped > 0) {
+                adder.add(skipped);
+            }
+            return skipped;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.code.review.utils;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * JSON流式解析工具类
+ * <p>
+ * 基于Jackson的JsonParser逐个读取数组元素，不把完整响应加载为字符串或树，
+ * 内存占用只与单个元素大小相关，适用于GitLab/GitHub返回的大体积diff数据。
+ */
+public class JsonStreamUtils {
+
+    /**
+     * 体积较大的diff内容字段，读取前先用已读到的字段进行预过滤
+     * <p>
+     * 预过滤只能依据diff之前出现的字段：GitHub的status、GitLab的new_path都在diff之前，
+     * 但GitLab的new_file/renamed_file/deleted_file在diff之后，已删除的文件仍会解析出diff，
+     * 只能在元素读取完毕后再过滤。
+     */
+    private static final Set<String> LAZY_FIELDS = Set.of("diff", "patch");
+
+    /**
+     * 逐个读取JSON数组中的元素
+     * <p>
+     * 每个元素在读取到diff/patch字段之前，会先使用已读取的字段（路径、状态等）调用预过滤条件，
+     * 不满足条件的元素直接跳过剩余内容，diff文本不会被解析出来；
+     * diff之后还有其他字段时，元素读取完毕后用完整的字段再过滤一次，不满足条件的元素不会交给处理器。
+     *
+     * @param inputStream  响应输入流
+     * @param objectMapper JSON解析器
+     * @param arrayField   数组所在的根对象字段名，为空表示根节点本身就是数组
+     * @param filter       元素预过滤条件
+     * @param consumer     通过过滤的元素处理器
+     * @return 数组中的元素总数（包括被过滤掉的元素）
+     * @throws IOException 读取或解析异常
+     */
+    public static int forEachElement(InputStream inputStream, ObjectMapper objectMapper, String arrayField,
+                                     Predicate<JsonNode> filter, Consumer<JsonNode> consumer) throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(inputStream)) {
+            if (!moveToArray(parser, arrayField)) {
+                return 0;
+            }
+
+            int count = 0;
+            JsonToken token;
+            while ((token = parser.nextToken()) != null && token != JsonToken.END_ARRAY) {
+                count++;
+                // 非对象元素直接跳过
+                if (token != JsonToken.START_OBJECT) {
+                    parser.skipChildren();
+                    continue;
+                }
+
+                JsonNode element = readElement(parser, objectMapper, filter);
+                if (element != null) {
+                    consumer.accept(element);
+                }
+            }
+            return count;
+        }
+    }
+
+    /**
+     * 将解析器移动到目标数组的起始位置
+     *
+     * @param parser     JSON解析器
+     * @param arrayField 数组字段名，为空表示根节点为数组
+     * @return 是否找到目标数组
+     */
+    private static boolean moveToArray(JsonParser parser, String arrayField) throws IOException {
+        JsonToken token = parser.nextToken();
+        if (StringUtils.isBlank(arrayField)) {
+            return token == JsonToken.START_ARRAY;
+        }
+        if (token != JsonToken.START_OBJECT) {
+            return false;
+        }
+
+        // 在根对象中查找目标字段，其余字段直接跳过
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            JsonToken valueToken = parser.nextToken();
+            if (arrayField.equals(name) && valueToken == JsonToken.START_ARRAY) {
+                return true;
+            }
+            parser.skipChildren();
+        }
+        return false;
+    }
+
+    /**
+     * 读取单个对象元素，在diff字段前执行预过滤，diff之后还有字段时读取完毕再过滤一次
+     *
+     * @param parser       位于START_OBJECT的解析器
+     * @param objectMapper JSON解析器
+     * @param filter       预过滤条件
+     * @return 读取到的元素，被过滤时返回null
+     */
+    private static JsonNode readElement(JsonParser parser, ObjectMapper objectMapper, Predicate<JsonNode> filter) throws IOException {
+        ObjectNode element = objectMapper.createObjectNode();
+        boolean checked = false;
+        // 预过滤之后是否又读取了其他字段
+        boolean fieldsAfterCheck = false;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            parser.nextToken();
+
+            if (!checked && LAZY_FIELDS.contains(name)) {
+                checked = true;
+                if (!filter.test(element)) {
+                    skipRemaining(parser);
+                    return null;
+                }
+            } else if (checked) {
+                fieldsAfterCheck = true;
+            }
+            element.set(name, objectMapper.readTree(parser));
+        }
+
+        // 元素中没有diff字段，或diff之后还有字段（如GitLab的deleted_file）时，读取完毕后再判断
+        if ((!checked || fieldsAfterCheck) && !filter.test(element)) {
+            return null;
+        }
+        return element;
+    }
+
+    /**
+     * 跳过当前对象中剩余的所有字段
+     *
+     * @param parser 位于某个字段值上的解析器
+     */
+    private static void skipRemaining(JsonParser parser) throws IOException {
+        parser.skipChildren();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            parser.nextToken();
+            parser.skipChildren();
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.code.review.utils;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.function.Supplier;
+
+/**
+ * 单次大模型调用的响应耗时
+ * <p>
+ * 完整评审要生成数千token，总耗时几十秒属于正常情况，不能直接作为供应商变慢或过载的信号。
+ * 熔断、并发限制等包装层在调用前创建记录并通过线程变量传给具体客户端：流式调用记录首个token耗时，
+ * 非流式调用记录HTTP请求本身的耗时（不含排队等待），包装层再结合输出的token数判断调用快慢。
+ * 异步调用在发起时捕获当前记录。
+ */
+public class LLMLatency {
+
+    private static final ThreadLocal<LLMLatency> CURRENT = new ThreadLocal<>();
+
+    /**
+     * 耗时分组数：首个token耗时一组，输出token数按2的幂次分组（最大组包含8192及以上）
+     */
+    public static final int SIZE_CLASSES = 15;
+
+    private volatile long firstTokenMillis = -1;
+    private volatile long responseMillis = -1;
+
+    /**
+     * 使用指定记录执行调用，调用期间发起的大模型请求将耗时写入该记录
+     *
+     * @param latency  耗时记录
+     * @param supplier 调用
+     * @return 调用结果
+     */
+    public static <T> T callWith(LLMLatency latency, Supplier<T> supplier) {
+        LLMLatency previous = CURRENT.get();
+        CURRENT.set(latency);
+        try {
+            return supplier.get();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    /**
+     * 获取当前线程的耗时记录
+     *
+     * @return 耗时记录，不在包装层内调用时返回null
+     */
+    public static LLMLatency current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * 获取当前线程的耗时记录，不存在时创建新的记录
+     */
+    public static LLMLatency currentOrNew() {
+        LLMLatency latency = CURRENT.get();
+        return latency != null ? latency : new LLMLatency();
+    }
+
+    /**
+     * 记录首个token耗时（流式调用）
+     */
+    public void recordFirstToken(long millis) {
+        this.firstTokenMillis = millis;
+    }
+
+    /**
+     * 记录HTTP请求从发出到响应完成的耗时
+     */
+    public void recordResponse(long millis) {
+        this.responseMillis = millis;
+    }
+
+    /**
+     * 首个token耗时，非流式调用或未收到内容时返回-1
+     */
+    public long getFirstTokenMillis() {
+        return firstTokenMillis;
+    }
+
+    /**
+     * HTTP请求耗时，未记录时返回调用方测得的耗时（含排队等待）
+     *
+     * @param elapsedMillis 调用方测得的耗时
+     */
+    public long getResponseMillis(long elapsedMillis) {
+        return responseMillis >= 0 ? responseMillis : elapsedMillis;
+    }
+
+    /**
+     * 计算耗时分组：输出token数为0（首个token耗时）为第0组，其余按2的幂次分组，
+     * 只有同组的耗时才可以相互比较
+     *
+     * @param outputTokens 输出的token数，耗时为首个token耗时时传0
+     * @return 分组序号，取值范围 [0, SIZE_CLASSES)
+     */
+    public static int sizeClass(int outputTokens) {
+        if (outputTokens <= 0) {
+            return 0;
+        }
+        return Math.min(SIZE_CLASSES - 1, 1 + (31 - Integer.numberOfLeadingZeros(outputTokens)));
+    }
+
+    /**
+     * 分组名称，用于统计信息展示
+     *
+     * @param sizeClass 分组序号
+     * @return 如 firstToken、tokens64-127、tokens8192+
+     */
+    public static String sizeClassName(int sizeClass) {
+        if (sizeClass == 0) {
+            return "firstToken";
+        }
+        return "tokens" + (1 << (sizeClass - 1)) + (sizeClass == SIZE_CLASSES - 1 ? "+" : "-" + ((1 << sizeClass) - 1));
+    }
+
+    /**
+     * 估算模型输出的token数
+     *
+     * @param output 模型输出内容
+     * @return 估算token数
+     */
+    public static int estimateOutputTokens(String output) {
+        if (StringUtils.isEmpty(output)) {
+            return 0;
+        }
+        return TokenEstimator.estimate(output, TokenUtils.getTokenizer().getCjkTokensPerChar());
+    }
+}
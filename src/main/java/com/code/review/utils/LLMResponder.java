@@ -0,0 +1,70 @@
+package com.code.review.utils;
+
+import java.util.function.Supplier;
+
+/**
+ * 实际响应大模型请求的供应商与模型
+ * <p>
+ * 多供应商路由、对冲请求时，调用前无法确定由哪个供应商的哪个模型返回结果。调用方创建记录并通过线程变量传入，
+ * 路由与对冲客户端在请求成功时写入实际响应的供应商与模型，评审结果按实际模型缓存。异步调用在发起时捕获当前记录。
+ */
+public class LLMResponder {
+
+    private static final ThreadLocal<LLMResponder> CURRENT = new ThreadLocal<>();
+
+    private volatile String provider;
+    private volatile String model;
+
+    /**
+     * 使用指定记录执行调用
+     *
+     * @param responder 响应记录
+     * @param supplier  调用
+     * @return 调用结果
+     */
+    public static <T> T callWith(LLMResponder responder, Supplier<T> supplier) {
+        LLMResponder previous = CURRENT.get();
+        CURRENT.set(responder);
+        try {
+            return supplier.get();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    /**
+     * 获取当前线程的响应记录
+     *
+     * @return 响应记录，调用方未设置时返回null
+     */
+    public static LLMResponder current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * 记录实际响应的供应商与模型
+     */
+    public void record(String provider, String model) {
+        this.model = model;
+        this.provider = provider;
+    }
+
+    /**
+     * 是否已记录
+     */
+    public boolean isRecorded() {
+        return provider != null;
+    }
+
+    public String getProvider() {
+        return provider;
+    }
+
+    public String getModel() {
+        return model;
+    }
+}
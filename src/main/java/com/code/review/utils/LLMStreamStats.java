@@ -0,0 +1,74 @@
+package com.code.review.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 大模型流式输出统计，按供应商记录首个token耗时（TTFT）、总耗时及超过截止时间返回部分结果的次数
+ */
+public class LLMStreamStats {
+
+    private static final Map<String, Stats> STATS = new ConcurrentHashMap<>();
+
+    private LLMStreamStats() {
+    }
+
+    /**
+     * 记录一次流式调用
+     *
+     * @param provider         供应商名称
+     * @param firstTokenMillis 首个token耗时，未收到内容时为-1
+     * @param totalMillis      总耗时
+     * @param partial          是否因超过截止时间只返回了部分结果
+     */
+    public static void record(String provider, long firstTokenMillis, long totalMillis, boolean partial) {
+        Stats stats = STATS.computeIfAbsent(provider, key -> new Stats());
+        stats.calls.increment();
+        stats.totalMillis.add(totalMillis);
+        if (firstTokenMillis >= 0) {
+            stats.firstTokenCalls.increment();
+            stats.firstTokenMillis.add(firstTokenMillis);
+            stats.maxFirstTokenMillis.accumulate(firstTokenMillis);
+        }
+        if (partial) {
+            stats.partial.increment();
+        }
+    }
+
+    /**
+     * 获取流式输出统计信息
+     *
+     * @return 各供应商的调用次数、平均/最大首个token耗时、平均总耗时及部分结果次数
+     */
+    public static Map<String, Object> getStats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        for (Map.Entry<String, Stats> entry : STATS.entrySet()) {
+            Stats stats = entry.getValue();
+            long calls = stats.calls.sum();
+            long firstTokenCalls = stats.firstTokenCalls.sum();
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("calls", calls);
+            map.put("avgFirstTokenMillis", firstTokenCalls == 0 ? 0 : stats.firstTokenMillis.sum() / firstTokenCalls);
+            map.put("maxFirstTokenMillis", stats.maxFirstTokenMillis.get());
+            map.put("avgTotalMillis", calls == 0 ? 0 : stats.totalMillis.sum() / calls);
+            map.put("partial", stats.partial.sum());
+            result.put(entry.getKey(), map);
+        }
+        return result;
+    }
+
+    /**
+     * 单个供应商的流式输出统计
+     */
+    private static class Stats {
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder firstTokenCalls = new LongAdder();
+        private final LongAdder firstTokenMillis = new LongAdder();
+        private final LongAccumulator maxFirstTokenMillis = new LongAccumulator(Math::max, 0);
+        private final LongAdder totalMillis = new LongAdder();
+        private final LongAdder partial = new LongAdder();
+    }
+}
@@ -0,0 +1,357 @@
+package com.code.review.utils;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * 变更文件路径过滤器
+ * <p>
+ * 文件需以 SUPPORTED_EXTENSIONS 中的扩展名结尾或命中 REVIEW_INCLUDE_PATHS，且不命中 REVIEW_EXCLUDE_PATHS
+ * 及 REVIEW_PATH_ATTRIBUTES 中标记为 linguist-generated / linguist-vendored 的路径；与 .gitattributes 相同，
+ * 同一路径命中多条属性时以最后一条为准。
+ * 扩展名编译为反向的后缀字典树，glob 编译为一个合并的正则表达式，按项目缓存编译结果，配置内容变化时重新编译。
+ * <p>
+ * 以上配置均可按项目覆盖：在配置名后追加项目名称（大写，非字母数字替换为下划线），如 REVIEW_EXCLUDE_PATHS_MY_PROJECT。
+ */
+@Slf4j
+public class PathMatcher {
+
+    private static final String[] CONFIG_KEYS = {
+            "SUPPORTED_EXTENSIONS", "REVIEW_INCLUDE_PATHS", "REVIEW_EXCLUDE_PATHS", "REVIEW_PATH_ATTRIBUTES"};
+
+    private static final Map<String, PathMatcher> CACHE = new ConcurrentHashMap<>();
+
+    /**
+     * 生成文件常见的文件头标记，只检查从第1行开始的diff块中前几行的注释
+     */
+    private static final Pattern GENERATED_MARKER = Pattern.compile(
+            "(?i)^\\s*(?://+|#+|/\\*+|\\*+|--|<!--|;+|%+)\\s*.*?(?:code generated .*do not edit|@generated"
+                    + "|generated by the protocol buffer compiler|auto-?generated (?:file|code|by|from)|(?:file|code) (?:is |was )?auto-?generated)");
+    /**
+     * 新文件从第1行开始的diff块头，如 @@ -0,0 +1,20 @@、@@ -1,5 +1,6 @@
+     */
+    private static final Pattern FIRST_LINE_HUNK = Pattern.compile("^@@ -(?:0,0|1(?:,\\d+)?) \\+1(?:,\\d+)? @@");
+    private static final int GENERATED_MARKER_LINES = 10;
+
+    private final String signature;
+    private final SuffixNode extensions;
+    private final GlobSet include;
+    private final GlobSet exclude;
+    private final GlobSet attributeInclude;
+    private final GlobSet attributeExclude;
+    private final List<AttributeRule> attributeRules;
+
+    private PathMatcher(String signature, String[] config) {
+        this.signature = signature;
+        this.extensions = SuffixNode.compile(split(config[0], ","));
+        this.include = compileGlobs(split(config[1], ","));
+        this.exclude = compileGlobs(split(config[2], ","));
+
+        // .gitattributes 格式：每行“路径 属性...”，行之间可用换行或分号分隔
+        List<String> generated = new ArrayList<>();
+        List<String> notGenerated = new ArrayList<>();
+        List<AttributeRule> rules = new ArrayList<>();
+        for (String line : split(config[3], "[;\\n]")) {
+            String[] parts = line.trim().split("\\s+");
+            // 同一行有多个相关属性时以最后一个为准
+            Boolean marked = null;
+            for (int i = 1; i < parts.length; i++) {
+                String attribute = parts[i];
+                if (attribute.startsWith("-linguist-") || attribute.endsWith("=false")) {
+                    marked = false;
+                } else if (attribute.startsWith("linguist-generated") || attribute.startsWith("linguist-vendored") || "-diff".equals(attribute)) {
+                    marked = true;
+                }
+            }
+            if (marked != null) {
+                (marked ? generated : notGenerated).add(parts[0]);
+                rules.add(new AttributeRule(compileGlobs(List.of(parts[0])), marked));
+            }
+        }
+        this.attributeInclude = compileGlobs(notGenerated);
+        this.attributeExclude = compileGlobs(generated);
+        this.attributeRules = rules;
+    }
+
+    /**
+     * 获取指定项目的路径过滤器，配置未变化时复用已编译的结果
+     *
+     * @param projectName 项目名称，可为null
+     * @return 路径过滤器
+     */
+    public static PathMatcher forProject(String projectName) {
+        String suffix = StringUtils.isBlank(projectName) ? "" : "_" + projectName.toUpperCase().replaceAll("[^A-Z0-9]", "_");
+        String[] config = new String[CONFIG_KEYS.length];
+        for (int i = 0; i < CONFIG_KEYS.length; i++) {
+            String global = SpringUtils.getPropertyOrDefault(CONFIG_KEYS[i], i == 0 ? ".java,.py,.php" : "");
+            config[i] = suffix.isEmpty() ? global : SpringUtils.getPropertyOrDefault(CONFIG_KEYS[i] + suffix, global);
+        }
+        String signature = String.join("\u0000", config);
+        return CACHE.compute(suffix, (key, cached) -> {
+            if (cached != null && cached.signature.equals(signature)) {
+                return cached;
+            }
+            log.info("编译文件路径过滤规则{}", suffix.isEmpty() ? "" : "，项目：" + projectName);
+            return new PathMatcher(signature, config);
+        });
+    }
+
+    /**
+     * 判断文件是否需要Review
+     *
+     * @param path 文件路径
+     * @return 是否需要Review
+     */
+    public boolean matches(String path) {
+        if (StringUtils.isEmpty(path)) {
+            return false;
+        }
+        if (!extensions.matchesSuffix(path) && (include == null || !include.matches(path))) {
+            return false;
+        }
+        if (exclude != null && exclude.matches(path)) {
+            return false;
+        }
+        if (attributeExclude == null || !attributeExclude.matches(path)) {
+            return true;
+        }
+        if (attributeInclude == null || !attributeInclude.matches(path)) {
+            return false;
+        }
+        // 同时命中标记与取消标记的属性时，按 .gitattributes 的规则以最后一条为准
+        for (int i = attributeRules.size() - 1; i >= 0; i--) {
+            AttributeRule rule = attributeRules.get(i);
+            if (rule.getGlobs().matches(path)) {
+                return !rule.isGenerated();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 判断diff是否来自生成的文件：第一个diff块从新文件第1行开始（即包含文件头），且前几行的注释中包含
+     * “Code generated ... DO NOT EDIT”、“@generated”等标记。diff块从文件中间开始时无法看到文件头，不做判断。
+     * REVIEW_SKIP_GENERATED 为0时不检查
+     *
+     * @param diff diff 内容
+     * @return 是否为生成的文件
+     */
+    public static boolean isGenerated(String diff) {
+        if (StringUtils.isEmpty(diff) || !"1".equals(SpringUtils.getPropertyOrDefault("REVIEW_SKIP_GENERATED", "1"))) {
+            return false;
+        }
+        // 第一个diff块之前可能有文件头（--- / +++）
+        int start = diff.startsWith("@@") ? 0 : diff.indexOf("\n@@") + 1;
+        if (start == 0 && !diff.startsWith("@@")) {
+            return false;
+        }
+        int end = diff.indexOf('\n', start);
+        if (end < 0 || !FIRST_LINE_HUNK.matcher(diff.substring(start, end)).find()) {
+            return false;
+        }
+        for (int i = 0; i < GENERATED_MARKER_LINES && end < diff.length(); i++) {
+            start = end + 1;
+            end = diff.indexOf('\n', start);
+            if (end < 0) {
+                end = diff.length();
+            }
+            if (start == end || diff.charAt(start) == '@') {
+                break;
+            }
+            // 删除行不属于新文件，“\ No newline”等标记也跳过
+            char prefix = diff.charAt(start);
+            if ((prefix == '+' || prefix == ' ') && GENERATED_MARKER.matcher(diff.substring(start + 1, end)).find()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static List<String> split(String value, String separator) {
+        List<String> result = new ArrayList<>();
+        if (StringUtils.isBlank(value)) {
+            return result;
+        }
+        for (String item : value.split(separator)) {
+            if (StringUtils.isNotBlank(item)) {
+                result.add(item.trim());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 编译多个glob，没有glob时返回null
+     * <p>
+     * 规则与 .gitignore 相近：不含“/”的glob匹配任意目录下的文件名，以“/”结尾的glob匹配目录下的所有文件，
+     * “**”匹配任意层目录，“*”与“?”不匹配“/”。
+     * 常见的“*.后缀”、文件名、“**&#47;目录/**”分别放入后缀字典树、文件名集合与目录名集合，其余glob合并编译为一个正则表达式。
+     */
+    static GlobSet compileGlobs(List<String> globs) {
+        if (globs.isEmpty()) {
+            return null;
+        }
+        List<String> suffixes = new ArrayList<>();
+        Set<String> names = new HashSet<>();
+        Set<String> directories = new HashSet<>();
+        StringBuilder regex = new StringBuilder();
+        for (String glob : globs) {
+            if (!StringUtils.containsAny(glob, "/*?[]{}")) {
+                names.add(glob);
+            } else if (glob.length() > 1 && glob.startsWith("*") && !StringUtils.containsAny(glob.substring(1), "/*?[]{}")) {
+                suffixes.add(glob.substring(1));
+            } else if (glob.startsWith("**/") && glob.endsWith("/**") && glob.length() > 6
+                    && !StringUtils.containsAny(glob.substring(3, glob.length() - 3), "/*?[]{}")) {
+                directories.add(glob.substring(3, glob.length() - 3));
+            } else {
+                if (regex.length() > 0) {
+                    regex.append('|');
+                }
+                regex.append("(?:").append(globToRegex(glob)).append(')');
+            }
+        }
+        return new GlobSet(suffixes.isEmpty() ? null : SuffixNode.compile(suffixes), names, directories,
+                regex.length() == 0 ? null : Pattern.compile(regex.toString()));
+    }
+
+    /**
+     * 将单个glob转换为正则表达式，规则见 {@link #compileGlobs(List)}
+     *
+     * @param glob glob
+     * @return 正则表达式
+     */
+    public static String globToRegex(String glob) {
+        String pattern = glob.startsWith("/") ? glob.substring(1) : glob;
+        if (pattern.endsWith("/")) {
+            pattern = pattern + "**";
+        }
+        StringBuilder regex = new StringBuilder();
+        if (!glob.startsWith("/") && !pattern.contains("/")) {
+            // 不含目录的glob匹配任意目录下的文件；其余部分不能匹配“/”，目录部分用占有量词逐级匹配，避免回溯
+            regex.append("(?:[^/]*/)*+");
+        }
+        int length = pattern.length();
+        for (int i = 0; i < length; i++) {
+            char c = pattern.charAt(i);
+            if (c == '*') {
+                if (i + 1 < length && pattern.charAt(i + 1) == '*') {
+                    boolean directory = i + 2 < length && pattern.charAt(i + 2) == '/';
+                    regex.append(directory ? "(?:[^/]*/)*" : ".*");
+                    i += directory ? 2 : 1;
+                } else {
+                    regex.append("[^/]*");
+                }
+            } else if (c == '?') {
+                regex.append("[^/]");
+            } else if ("\\.[]{}()+^$|".indexOf(c) >= 0) {
+                regex.append('\\').append(c);
+            } else {
+                regex.append(c);
+            }
+        }
+        return regex.toString();
+    }
+
+    /**
+     * 编译后的一组glob
+     */
+    @AllArgsConstructor
+    static class GlobSet {
+        /**
+         * “*.后缀”形式的glob，匹配文件名的后缀
+         */
+        private final SuffixNode suffixes;
+        /**
+         * 不含通配符与“/”的glob，匹配任意目录下的文件名
+         */
+        private final Set<String> names;
+        /**
+         * “**&#47;目录/**”形式的glob，匹配路径中任意一级目录
+         */
+        private final Set<String> directories;
+        /**
+         * 其余glob合并的正则表达式
+         */
+        private final Pattern pattern;
+
+        boolean matches(String path) {
+            int nameStart = path.lastIndexOf('/') + 1;
+            if (suffixes != null && suffixes.matchesSuffix(path, nameStart)) {
+                return true;
+            }
+            if (!names.isEmpty() && names.contains(nameStart == 0 ? path : path.substring(nameStart))) {
+                return true;
+            }
+            if (!directories.isEmpty()) {
+                for (int start = 0, end = path.indexOf('/'); end >= 0; start = end + 1, end = path.indexOf('/', start)) {
+                    if (directories.contains(path.substring(start, end))) {
+                        return true;
+                    }
+                }
+            }
+            return pattern != null && pattern.matcher(path).matches();
+        }
+    }
+
+    /**
+     * 一行路径属性：glob 及是否标记为生成文件
+     */
+    @Getter
+    @AllArgsConstructor
+    private static class AttributeRule {
+        private final GlobSet globs;
+        private final boolean generated;
+    }
+
+    /**
+     * 按扩展名倒序字符建立的后缀字典树，从路径末尾逐字符匹配
+     */
+    private static class SuffixNode {
+        private final Map<Character, SuffixNode> children = new HashMap<>();
+        private boolean terminal;
+
+        static SuffixNode compile(List<String> suffixes) {
+            SuffixNode root = new SuffixNode();
+            for (String suffix : suffixes) {
+                SuffixNode node = root;
+                for (int i = suffix.length() - 1; i >= 0; i--) {
+                    node = node.children.computeIfAbsent(suffix.charAt(i), key -> new SuffixNode());
+                }
+                node.terminal = true;
+            }
+            return root;
+        }
+
+        boolean matchesSuffix(String path) {
+            return matchesSuffix(path, 0);
+        }
+
+        /**
+         * 从路径末尾逐字符匹配，不超过 start 位置
+         */
+        boolean matchesSuffix(String path, int start) {
+            SuffixNode node = this;
+            for (int i = path.length() - 1; i >= start; i--) {
+                node = node.children.get(path.charAt(i));
+                if (node == null) {
+                    return false;
+                }
+                if (node.terminal) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.code.review.utils;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 提示词前缀缓存命中统计
+ * <p>
+ * 从大模型响应的usage字段中读取输入token数与命中缓存的token数，按项目统计命中率：
+ * DeepSeek为 prompt_cache_hit_tokens，OpenAI、通义千问、智谱等为 prompt_tokens_details.cached_tokens。
+ * 当前项目通过线程变量传递，异步调用在发起时捕获。
+ */
+@Slf4j
+public class PromptCacheStats {
+
+    private static final String UNKNOWN_PROJECT = "unknown";
+
+    private static final ThreadLocal<String> CURRENT_PROJECT = new ThreadLocal<>();
+
+    private static final Map<String, Stats> STATS = new ConcurrentHashMap<>();
+
+    private PromptCacheStats() {
+    }
+
+    /**
+     * 在指定项目下执行调用，调用期间发起的大模型请求计入该项目
+     *
+     * @param project  项目名称
+     * @param supplier 调用
+     * @return 调用结果
+     */
+    public static <T> T callWithProject(String project, Supplier<T> supplier) {
+        String previous = CURRENT_PROJECT.get();
+        CURRENT_PROJECT.set(project);
+        try {
+            return supplier.get();
+        } finally {
+            if (previous == null) {
+                CURRENT_PROJECT.remove();
+            } else {
+                CURRENT_PROJECT.set(previous);
+            }
+        }
+    }
+
+    /**
+     * 获取当前线程所属的项目
+     *
+     * @return 项目名称，未设置时返回null
+     */
+    public static String currentProject() {
+        return CURRENT_PROJECT.get();
+    }
+
+    /**
+     * 从完整的JSON响应中记录usage
+     *
+     * @param project  项目名称
+     * @param response 响应内容
+     */
+    public static void recordResponse(String project, String response) {
+        if (StringUtils.isBlank(response) || !response.contains("\"usage\"")) {
+            return;
+        }
+        try {
+            record(project, SpringUtils.getBean(ObjectMapper.class).readTree(response).path("usage"));
+        } catch (Exception e) {
+            log.debug("解析usage失败：{}", e.getMessage());
+        }
+    }
+
+    /**
+     * 记录一次请求的usage
+     *
+     * @param project 项目名称
+     * @param usage   usage节点
+     */
+    public static void record(String project, JsonNode usage) {
+        if (usage == null || !usage.isObject()) {
+            return;
+        }
+        long promptTokens = usage.path("prompt_tokens").asLong(0);
+        long cachedTokens = usage.has("prompt_cache_hit_tokens")
+                ? usage.path("prompt_cache_hit_tokens").asLong(0)
+                : usage.path("prompt_tokens_details").path("cached_tokens").asLong(0);
+
+        Stats stats = STATS.computeIfAbsent(StringUtils.defaultIfBlank(project, UNKNOWN_PROJECT), key -> new Stats());
+        stats.requests.increment();
+        stats.promptTokens.add(promptTokens);
+        stats.cachedTokens.add(cachedTokens);
+        if (cachedTokens > 0) {
+            stats.hitRequests.increment();
+        }
+    }
+
+    /**
+     * 获取各项目的缓存命中统计
+     *
+     * @return 各项目的请求数、命中请求数、输入token数、命中缓存的token数及命中率
+     */
+    public static Map<String, Object> getStats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        for (Map.Entry<String, Stats> entry : STATS.entrySet()) {
+            Stats stats = entry.getValue();
+            long promptTokens = stats.promptTokens.sum();
+            long cachedTokens = stats.cachedTokens.sum();
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("requests", stats.requests.sum());
+            map.put("hitRequests", stats.hitRequests.sum());
+            map.put("promptTokens", promptTokens);
+            map.put("savedTokens", cachedTokens);
+            map.put("hitRatio", promptTokens == 0 ? 0 : cachedTokens * 100.0 / promptTokens);
+            result.put(entry.getKey(), map);
+        }
+        return result;
+    }
+
+    /**
+     * 单个项目的缓存命中统计
+     */
+    private static class Stats {
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder hitRequests = new LongAdder();
+        private final LongAdder promptTokens = new LongAdder();
+        private final LongAdder cachedTokens = new LongAdder();
+    }
+}
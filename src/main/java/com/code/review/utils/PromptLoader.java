@@ -32,7 +32,8 @@ public class PromptLoader {
      *
      * @param promptKey 提示词配置的键名，用于在配置文件中查找对应的提示词模板
      * @param style     样式参数，用于渲染提示词模板
-     * @return 包含系统消息和用户消息的Map，键为"system_message"和"user_message"
+     * @return 包含系统消息和用户消息的Map，键为"system_message"和"user_message"，
+     * 配置了content_prompt时还包含前缀缓存布局的"cached_system_message"和"cached_user_message"
      * @throws RuntimeException 当配置文件未找到、提示词配置不存在或加载失败时抛出
      */
     public Map<String, Map<String, String>> loadPrompts(String promptKey, String style) {
@@ -63,6 +64,13 @@ public class PromptLoader {
             result.put("system_message", createMessage("system", systemPrompt));
             result.put("user_message", createMessage("user", userPrompt));
 
+            // 前缀缓存布局：静态指令全部放在系统提示词中，用户消息只包含每次请求不同的内容
+            if (prompts.containsKey("content_prompt")) {
+                String instructionPrompt = renderTemplate(prompts.get("instruction_prompt"), style);
+                result.put("cached_system_message", createMessage("system", systemPrompt + "\n\n" + instructionPrompt));
+                result.put("cached_user_message", createMessage("user", prompts.get("content_prompt")));
+            }
+
             return result;
         } catch (Exception e) {
             throw new RuntimeException("提示词配置加载失败: " + e.getMessage(), e);
@@ -0,0 +1,212 @@
+package com.code.review.utils;
+
+import com.code.review.entity.ChangeInfo;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 提示词中变更内容的紧凑序列化
+ * <p>
+ * 代替 ChangeInfo 的 toString()（ChangeInfo(diff=..., newPath=..., additions=..., deletions=...)）：
+ * 每个文件输出一行“### 路径 (+新增 -删除)”标题，其后为原样的diff，文件之间空一行，省去Java对象语法占用的token。
+ * 所有内容写入线程内复用的缓冲区，只在最后复制一次；提示模板的 %s 占位符同样在缓冲区内替换。
+ * <p>
+ * 按实际评审的变更统计与原格式相比节省的字符数与token数：diff内容两种格式相同，只计算各自包装部分的token数。
+ */
+public class PromptWriter {
+
+    /**
+     * 缓冲区超过该长度时不再复用，避免个别超大变更长期占用内存
+     */
+    private static final int MAX_REUSED_CAPACITY = 1 << 20;
+
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(8192));
+
+    private static final LongAdder PROMPTS = new LongAdder();
+    private static final LongAdder FILES = new LongAdder();
+    private static final LongAdder LEGACY_CHARS = new LongAdder();
+    private static final LongAdder COMPACT_CHARS = new LongAdder();
+    private static final LongAdder LEGACY_OVERHEAD_TOKENS = new LongAdder();
+    private static final LongAdder COMPACT_OVERHEAD_TOKENS = new LongAdder();
+
+    private PromptWriter() {
+    }
+
+    /**
+     * 将变更列表序列化为提示词中的变更内容
+     *
+     * @param changes 变更列表
+     * @return 变更内容文本
+     */
+    public static String write(List<ChangeInfo> changes) {
+        if (changes == null || changes.isEmpty()) {
+            return "";
+        }
+        StringBuilder out = acquire();
+        for (int i = 0; i < changes.size(); i++) {
+            if (i > 0) {
+                out.append('\n');
+            }
+            appendHeader(out, changes.get(i));
+            appendDiff(out, changes.get(i));
+        }
+        return release(out);
+    }
+
+    /**
+     * 统计一次评审的变更内容与原 toString() 格式相比节省的字符数与token数
+     *
+     * @param changes    变更列表
+     * @param changeText {@link #write(List)} 生成的变更内容
+     */
+    public static void recordSavings(List<ChangeInfo> changes, String changeText) {
+        if (changes == null || changes.isEmpty()) {
+            return;
+        }
+        // 两种格式中diff以外的包装部分
+        StringBuilder legacyOverhead = new StringBuilder("[]");
+        StringBuilder compactOverhead = new StringBuilder();
+        long legacyChars = 2;
+        for (int i = 0; i < changes.size(); i++) {
+            ChangeInfo change = changes.get(i);
+            if (i > 0) {
+                legacyOverhead.append(", ");
+                compactOverhead.append('\n');
+                legacyChars += 2;
+            }
+            String legacy = "ChangeInfo(diff=, newPath=" + change.getNewPath() + ", additions=" + change.getAdditions()
+                    + ", deletions=" + change.getDeletions() + ")";
+            legacyOverhead.append(legacy);
+            legacyChars += legacy.length() + (change.getDiffContent() == null ? 4 : change.getDiffContent().length());
+            appendHeader(compactOverhead, change);
+        }
+
+        PROMPTS.increment();
+        FILES.add(changes.size());
+        LEGACY_CHARS.add(legacyChars);
+        COMPACT_CHARS.add(changeText.length());
+        LEGACY_OVERHEAD_TOKENS.add(TokenUtils.countTokens(legacyOverhead.toString()));
+        COMPACT_OVERHEAD_TOKENS.add(TokenUtils.countTokens(compactOverhead.toString()));
+    }
+
+    /**
+     * 序列化单个文件的变更，格式与 {@link #write(List)} 中的单个文件相同，用于按文件计算token数
+     *
+     * @param change 变更信息
+     * @return 变更内容文本
+     */
+    public static String write(ChangeInfo change) {
+        StringBuilder out = acquire();
+        appendHeader(out, change);
+        appendDiff(out, change);
+        return release(out);
+    }
+
+    /**
+     * 序列化单个文件的标题行，用于不复制diff内容时计算文件路径等字段占用的token数
+     *
+     * @param change 变更信息
+     * @return 标题行
+     */
+    public static String writeHeader(ChangeInfo change) {
+        StringBuilder out = acquire();
+        appendHeader(out, change);
+        return release(out);
+    }
+
+    /**
+     * 按顺序替换提示模板中的 %s 占位符，%% 输出为 %，代替 String.format 避免再复制一遍变更内容
+     *
+     * @param template 提示模板
+     * @param args     占位符参数
+     * @return 替换后的提示词
+     */
+    public static String format(String template, Object... args) {
+        StringBuilder out = acquire();
+        int argIndex = 0;
+        int length = template.length();
+        for (int i = 0; i < length; i++) {
+            char c = template.charAt(i);
+            if (c == '%' && i + 1 < length) {
+                char next = template.charAt(i + 1);
+                if (next == 's' && argIndex < args.length) {
+                    out.append(args[argIndex++]);
+                    i++;
+                    continue;
+                }
+                if (next == '%') {
+                    out.append('%');
+                    i++;
+                    continue;
+                }
+            }
+            out.append(c);
+        }
+        return release(out);
+    }
+
+    private static void appendHeader(StringBuilder out, ChangeInfo change) {
+        out.append("### ").append(change.getNewPath())
+                .append(" (+").append(change.getAdditions() == null ? 0 : change.getAdditions())
+                .append(" -").append(change.getDeletions() == null ? 0 : change.getDeletions())
+                .append(")\n");
+    }
+
+    private static void appendDiff(StringBuilder out, ChangeInfo change) {
+        // 溢出到磁盘的diff直接从映射视图复制到缓冲区
+        CharSequence diff = change.getDiffContent();
+        if (diff == null || diff.length() == 0) {
+            return;
+        }
+        out.append(diff);
+        if (diff.charAt(diff.length() - 1) != '\n') {
+            out.append('\n');
+        }
+    }
+
+    private static StringBuilder acquire() {
+        StringBuilder out = BUFFER.get();
+        // 嵌套调用（如format的参数由write生成后再传入）时已在使用中的缓冲区不能复用
+        if (out.length() > 0) {
+            return new StringBuilder();
+        }
+        return out;
+    }
+
+    private static String release(StringBuilder out) {
+        String result = out.toString();
+        if (out == BUFFER.get()) {
+            if (out.capacity() > MAX_REUSED_CAPACITY) {
+                BUFFER.remove();
+            } else {
+                out.setLength(0);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 获取提示词序列化统计信息
+     *
+     * @return 请求数、文件数，以及与原 toString() 格式相比的字符数与包装部分token数
+     */
+    public static Map<String, Object> getStats() {
+        long legacyChars = LEGACY_CHARS.sum();
+        long compactChars = COMPACT_CHARS.sum();
+        long legacyTokens = LEGACY_OVERHEAD_TOKENS.sum();
+        long compactTokens = COMPACT_OVERHEAD_TOKENS.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("prompts", PROMPTS.sum());
+        stats.put("files", FILES.sum());
+        stats.put("legacyChars", legacyChars);
+        stats.put("compactChars", compactChars);
+        stats.put("savedChars", legacyChars - compactChars);
+        stats.put("legacyOverheadTokens", legacyTokens);
+        stats.put("compactOverheadTokens", compactTokens);
+        stats.put("savedTokens", legacyTokens - compactTokens);
+        return stats;
+    }
+}
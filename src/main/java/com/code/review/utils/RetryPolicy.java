@@ -0,0 +1,60 @@
+package com.code.review.utils;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 重试策略，不同的失败原因使用不同的重试次数与退避时间
+ * <p>
+ * 配置项按 RETRY_{策略名}_MAX_ATTEMPTS / RETRY_{策略名}_INITIAL_DELAY / RETRY_{策略名}_MAX_DELAY 覆盖默认值。
+ */
+public enum RetryPolicy {
+    /**
+     * 数据尚未就绪，例如Merge Request刚创建时GitLab还未生成changes，等待时间较长
+     */
+    NOT_READY(4, 2000, 15000),
+    /**
+     * 服务端5xx或429错误
+     */
+    SERVER_ERROR(3, 1000, 8000),
+    /**
+     * 连接或响应超时，快速重试
+     */
+    TIMEOUT(2, 500, 2000);
+
+    /**
+     * 每次重试的退避倍数
+     */
+    private static final double MULTIPLIER = 2.0;
+
+    private final int defaultMaxAttempts;
+    private final long defaultInitialDelay;
+    private final long defaultMaxDelay;
+
+    RetryPolicy(int defaultMaxAttempts, long defaultInitialDelay, long defaultMaxDelay) {
+        this.defaultMaxAttempts = defaultMaxAttempts;
+        this.defaultInitialDelay = defaultInitialDelay;
+        this.defaultMaxDelay = defaultMaxDelay;
+    }
+
+    /**
+     * 获取最大尝试次数（包括首次请求）
+     */
+    public int getMaxAttempts() {
+        return Integer.parseInt(SpringUtils.getPropertyOrDefault("RETRY_" + name() + "_MAX_ATTEMPTS", String.valueOf(this.defaultMaxAttempts)));
+    }
+
+    /**
+     * 计算第n次重试前的等待时间：指数退避，并在±50%范围内随机抖动，避免大量请求同时重试
+     *
+     * @param retry 第几次重试，从1开始
+     * @return 等待毫秒数
+     */
+    public long nextDelay(int retry) {
+        long initialDelay = Long.parseLong(SpringUtils.getPropertyOrDefault("RETRY_" + name() + "_INITIAL_DELAY", String.valueOf(this.defaultInitialDelay)));
+        long maxDelay = Long.parseLong(SpringUtils.getPropertyOrDefault("RETRY_" + name() + "_MAX_DELAY", String.valueOf(this.defaultMaxDelay)));
+
+        double delay = Math.min(maxDelay, initialDelay * Math.pow(MULTIPLIER, retry - 1));
+        double jitter = 0.5 + ThreadLocalRandom.current().nextDouble();
+        return (long) (delay * jitter);
+    }
+}
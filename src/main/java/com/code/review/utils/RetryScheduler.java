@@ -0,0 +1,204 @@
+package com.code.review.utils;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.client5.http.ConnectTimeoutException;
+
+import java.net.SocketTimeoutException;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+
+/**
+ * 非阻塞重试调度器
+ * <p>
+ * 失败后不在当前线程中sleep，而是通过定时器在退避时间后重新发起请求，等待期间不占用业务线程。
+ * 根据失败原因选择 {@link RetryPolicy}，整体受截止时间约束（同时不超过 {@link ReviewDeadline} 的剩余时间），超过截止时间不再重试。
+ */
+@Slf4j
+public class RetryScheduler {
+
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "retry-scheduler");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static final Map<String, Stats> STATS = new ConcurrentHashMap<>();
+
+    private RetryScheduler() {
+    }
+
+    /**
+     * 执行带重试的异步操作
+     *
+     * @param operation  操作名称，用于日志与统计
+     * @param attempt    单次尝试，返回该次请求的Future
+     * @param classifier 根据单次结果或异常判断是否需要重试，返回重试策略，返回null表示结束
+     * @return 最终结果的Future；重试耗尽时返回最后一次的结果或异常
+     */
+    public static <T> CompletableFuture<T> retry(String operation, Supplier<CompletableFuture<T>> attempt,
+                                                 BiFunction<T, Throwable, RetryPolicy> classifier) {
+        // 在评审任务中发起时，重试不超过任务的剩余时间
+        long deadlineMillis = ReviewDeadline.capMillis(Long.parseLong(SpringUtils.getPropertyOrDefault("RETRY_DEADLINE", "60000")));
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Stats stats = STATS.computeIfAbsent(operation, key -> new Stats());
+        stats.calls.increment();
+        run(operation, attempt, classifier, result, stats, 1, System.currentTimeMillis() + deadlineMillis);
+        return result;
+    }
+
+    private static <T> void run(String operation, Supplier<CompletableFuture<T>> attempt, BiFunction<T, Throwable, RetryPolicy> classifier,
+                                CompletableFuture<T> result, Stats stats, int attemptNo, long deadline) {
+        // 调用方已取消
+        if (result.isDone()) {
+            return;
+        }
+
+        CompletableFuture<T> future;
+        try {
+            future = attempt.get();
+        } catch (Exception e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+        // 调用方取消时同时取消当前尝试
+        CompletableFuture<T> current = future;
+        result.whenComplete((value, error) -> {
+            if (result.isCancelled()) {
+                current.cancel(true);
+            }
+        });
+
+        future.whenComplete((value, error) -> {
+            Throwable cause = unwrap(error);
+            RetryPolicy policy;
+            try {
+                policy = classifier.apply(value, cause);
+            } catch (Exception e) {
+                policy = null;
+            }
+
+            if (policy == null) {
+                complete(result, value, cause);
+                return;
+            }
+
+            long delay = policy.nextDelay(attemptNo);
+            if (attemptNo >= policy.getMaxAttempts() || System.currentTimeMillis() + delay > deadline) {
+                stats.exhausted.increment();
+                log.warn("{} 重试结束，原因：{}，已尝试{}次", operation, policy, attemptNo);
+                complete(result, value, cause);
+                return;
+            }
+
+            stats.retries.get(policy).increment();
+            stats.waitMillis.add(delay);
+            log.info("{} 第{}次尝试失败，原因：{}，{}ms后重试", operation, attemptNo, policy, delay);
+            SCHEDULER.schedule(() -> run(operation, attempt, classifier, result, stats, attemptNo + 1, deadline),
+                    delay, TimeUnit.MILLISECONDS);
+        });
+    }
+
+    /**
+     * 延迟执行任务，等待期间不占用线程
+     *
+     * @param task        任务
+     * @param delayMillis 延迟毫秒数
+     * @return 定时任务，可用于提前取消
+     */
+    public static ScheduledFuture<?> schedule(Runnable task, long delayMillis) {
+        return SCHEDULER.schedule(task, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private static <T> void complete(CompletableFuture<T> result, T value, Throwable cause) {
+        if (cause != null) {
+            result.completeExceptionally(cause);
+        } else {
+            result.complete(value);
+        }
+    }
+
+    /**
+     * 根据异常类型选择默认的重试策略：5xx及429按服务端错误重试，超时按超时重试，其余异常不重试
+     *
+     * @param error 异常
+     * @return 重试策略，不需要重试时返回null
+     */
+    public static RetryPolicy classify(Throwable error) {
+        Throwable cause = unwrap(error);
+        while (cause != null) {
+            if (cause instanceof HttpStatusException) {
+                int statusCode = ((HttpStatusException) cause).getStatusCode();
+                return statusCode >= 500 || statusCode == 429 ? RetryPolicy.SERVER_ERROR : null;
+            }
+            if (cause instanceof SocketTimeoutException || cause instanceof ConnectTimeoutException
+                    || cause instanceof TimeoutException) {
+                return RetryPolicy.TIMEOUT;
+            }
+            cause = cause.getCause();
+        }
+        return null;
+    }
+
+    /**
+     * 去掉 CompletableFuture 包装的 CompletionException / ExecutionException，返回实际的异常
+     *
+     * @param error 异常，可为null
+     * @return 实际的异常
+     */
+    public static Throwable unwrap(Throwable error) {
+        Throwable cause = error;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException) && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+
+    /**
+     * 获取重试统计信息
+     *
+     * @return 各操作的调用次数、按原因统计的重试次数、重试耗尽次数及等待总时长
+     */
+    public static Map<String, Object> getStats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        for (Map.Entry<String, Stats> entry : STATS.entrySet()) {
+            Stats stats = entry.getValue();
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("calls", stats.calls.sum());
+            Map<String, Object> retries = new LinkedHashMap<>();
+            stats.retries.forEach((policy, adder) -> retries.put(policy.name(), adder.sum()));
+            map.put("retries", retries);
+            map.put("exhausted", stats.exhausted.sum());
+            map.put("totalWaitMillis", stats.waitMillis.sum());
+            result.put(entry.getKey(), map);
+        }
+        return result;
+    }
+
+    /**
+     * 单个操作的重试统计
+     */
+    private static class Stats {
+        private final LongAdder calls = new LongAdder();
+        private final Map<RetryPolicy, LongAdder> retries = new EnumMap<>(RetryPolicy.class);
+        private final LongAdder exhausted = new LongAdder();
+        private final LongAdder waitMillis = new LongAdder();
+
+        Stats() {
+            for (RetryPolicy policy : RetryPolicy.values()) {
+                retries.put(policy, new LongAdder());
+            }
+        }
+    }
+}
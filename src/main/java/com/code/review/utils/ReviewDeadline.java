@@ -0,0 +1,287 @@
+package com.code.review.utils;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 评审任务的端到端截止时间
+ * <p>
+ * 接收Webhook时创建，随任务经过线程池排队、获取变更（含重试）、分词、调用大模型与发布结果各阶段：
+ * 获取变更的重试不超过剩余时间；剩余时间少于 REVIEW_DOWNGRADE_THRESHOLD 时改用 REVIEW_FALLBACK_MODEL
+ * 及不超过 REVIEW_FALLBACK_MAX_TOKENS 的提示词；剩余时间少于 REVIEW_MIN_REQUEST_MILLIS 时不再发起新的大模型请求。
+ * 因截止时间中止或取消的请求与供应商无关，不计入熔断、并发限制与路由统计，也不再切换供应商。
+ * <p>
+ * 当前任务的截止时间通过线程变量传递，切换线程时在发起处捕获。
+ */
+@Slf4j
+public class ReviewDeadline {
+
+    private static final ThreadLocal<ReviewDeadline> CURRENT = new ThreadLocal<>();
+
+    private static final LongAdder STARTED = new LongAdder();
+    private static final LongAdder DOWNGRADED = new LongAdder();
+    private static final LongAdder FINISHED = new LongAdder();
+    private static final LongAdder OVERDUE = new LongAdder();
+    private static final LongAdder TOTAL_ELAPSED = new LongAdder();
+    private static final Map<String, LongAdder> EXPIRED = new ConcurrentHashMap<>();
+
+    private final long startedAt;
+    private final long deadlineAt;
+    private final AtomicBoolean downgraded = new AtomicBoolean();
+
+    private ReviewDeadline(long startedAt, long timeoutMillis) {
+        this.startedAt = startedAt;
+        this.deadlineAt = startedAt + timeoutMillis;
+    }
+
+    /**
+     * 按 REVIEW_DEADLINE 创建截止时间
+     *
+     * @return 截止时间，REVIEW_DEADLINE 为0时返回null（不限制）
+     */
+    public static ReviewDeadline start() {
+        long timeoutMillis = Long.parseLong(SpringUtils.getPropertyOrDefault("REVIEW_DEADLINE", "300000"));
+        if (timeoutMillis <= 0) {
+            return null;
+        }
+        STARTED.increment();
+        return new ReviewDeadline(System.currentTimeMillis(), timeoutMillis);
+    }
+
+    /**
+     * 获取当前线程所属任务的截止时间
+     *
+     * @return 截止时间，未设置时返回null
+     */
+    public static ReviewDeadline current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * 在指定截止时间下执行任务
+     *
+     * @param deadline 截止时间，可为null
+     * @param task     任务
+     */
+    public static void runWithDeadline(ReviewDeadline deadline, Runnable task) {
+        callWithDeadline(deadline, () -> {
+            task.run();
+            return null;
+        });
+    }
+
+    /**
+     * 在指定截止时间下执行调用，用于在其他线程发起大模型请求时带上发起方的截止时间
+     *
+     * @param deadline 截止时间，可为null
+     * @param supplier 调用
+     * @return 调用结果
+     */
+    public static <T> T callWithDeadline(ReviewDeadline deadline, Supplier<T> supplier) {
+        ReviewDeadline previous = CURRENT.get();
+        if (deadline == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(deadline);
+        }
+        try {
+            return supplier.get();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    /**
+     * 包装任务，使其在其他线程执行时带上指定的截止时间
+     *
+     * @param deadline 截止时间，可为null
+     * @param task     任务
+     * @return 包装后的任务
+     */
+    public static Runnable wrap(ReviewDeadline deadline, Runnable task) {
+        return () -> runWithDeadline(deadline, task);
+    }
+
+    /**
+     * 按当前任务的剩余时间限制等待时长
+     *
+     * @param millis 原等待时长（毫秒）
+     * @return 不超过剩余时间的等待时长（至少1毫秒，避免0被视为不限制），当前线程没有截止时间时原样返回
+     */
+    public static long capMillis(long millis) {
+        ReviewDeadline deadline = CURRENT.get();
+        return deadline == null ? millis : Math.max(1, Math.min(millis, deadline.getRemainingMillis()));
+    }
+
+    /**
+     * 获取当前任务的剩余时间，用于限制单个请求的超时时间
+     *
+     * @return 剩余毫秒数（至少1毫秒），当前线程没有截止时间时返回0（不限制）
+     */
+    public static long currentRemainingMillis() {
+        ReviewDeadline deadline = CURRENT.get();
+        return deadline == null ? 0 : Math.max(1, deadline.getRemainingMillis());
+    }
+
+    /**
+     * 发起请求前检查当前任务的剩余时间，剩余时间少于 REVIEW_MIN_REQUEST_MILLIS 时不再发起，当前线程没有截止时间时不检查
+     *
+     * @param stage 当前阶段
+     * @throws ReviewDeadlineExceededException 剩余时间不足
+     */
+    public static void checkCurrentRemaining(String stage) {
+        ReviewDeadline deadline = CURRENT.get();
+        if (deadline == null) {
+            return;
+        }
+        long minMillis = Long.parseLong(SpringUtils.getPropertyOrDefault("REVIEW_MIN_REQUEST_MILLIS", "1000"));
+        if (deadline.getRemainingMillis() < Math.max(1, minMillis)) {
+            EXPIRED.computeIfAbsent(stage, key -> new LongAdder()).increment();
+            throw new ReviewDeadlineExceededException(stage, deadline.getElapsedMillis());
+        }
+    }
+
+    /**
+     * 判断异常是否由评审任务超过截止时间或请求被取消引起（含 CompletableFuture 包装的异常）
+     *
+     * @param error 异常，可为null
+     * @return 是否为截止时间或取消
+     */
+    public static boolean isAborted(Throwable error) {
+        Throwable cause = error;
+        while (cause != null) {
+            if (cause instanceof CancellationException || cause instanceof ReviewDeadlineExceededException) {
+                return true;
+            }
+            cause = cause.getCause();
+        }
+        return false;
+    }
+
+    /**
+     * 获取剩余时间
+     *
+     * @return 剩余毫秒数，已超过截止时间时为0
+     */
+    public long getRemainingMillis() {
+        return Math.max(0, deadlineAt - System.currentTimeMillis());
+    }
+
+    public long getElapsedMillis() {
+        return System.currentTimeMillis() - startedAt;
+    }
+
+    public boolean isExpired() {
+        return System.currentTimeMillis() >= deadlineAt;
+    }
+
+    /**
+     * 检查是否已超过截止时间
+     *
+     * @param stage 当前阶段
+     * @throws ReviewDeadlineExceededException 已超过截止时间
+     */
+    public void check(String stage) {
+        if (isExpired()) {
+            EXPIRED.computeIfAbsent(stage, key -> new LongAdder()).increment();
+            throw new ReviewDeadlineExceededException(stage, getElapsedMillis());
+        }
+    }
+
+    /**
+     * 检查当前线程所属任务是否已超过截止时间，当前线程没有截止时间时不检查
+     *
+     * @param stage 当前阶段
+     * @throws ReviewDeadlineExceededException 已超过截止时间
+     */
+    public static void checkCurrent(String stage) {
+        ReviewDeadline deadline = CURRENT.get();
+        if (deadline != null) {
+            deadline.check(stage);
+        }
+    }
+
+    /**
+     * 判断剩余时间是否已不足以使用主模型，同一任务只统计一次降级
+     *
+     * @return 剩余时间少于 REVIEW_DOWNGRADE_THRESHOLD 时返回true
+     */
+    public boolean shouldDowngrade() {
+        long threshold = Long.parseLong(SpringUtils.getPropertyOrDefault("REVIEW_DOWNGRADE_THRESHOLD", "90000"));
+        if (getRemainingMillis() >= threshold) {
+            return false;
+        }
+        if (downgraded.compareAndSet(false, true)) {
+            DOWNGRADED.increment();
+            log.warn("评审任务剩余时间{}ms不足{}ms，降级为备用模型与精简提示词", getRemainingMillis(), threshold);
+        }
+        return true;
+    }
+
+    /**
+     * 到达截止时间时取消尚未完成的请求
+     *
+     * @param future 请求的Future
+     * @return 原Future
+     */
+    public <T> CompletableFuture<T> bound(CompletableFuture<T> future) {
+        ScheduledFuture<?> timer = RetryScheduler.schedule(() -> future.cancel(true), getRemainingMillis());
+        future.whenComplete((value, error) -> timer.cancel(false));
+        return future;
+    }
+
+    /**
+     * 记录任务完成（结果已发布），超过截止时间完成的任务计为逾期
+     */
+    public void finish() {
+        long elapsed = getElapsedMillis();
+        FINISHED.increment();
+        TOTAL_ELAPSED.add(elapsed);
+        if (isExpired()) {
+            OVERDUE.increment();
+            log.warn("评审任务逾期完成，耗时{}ms", elapsed);
+        }
+    }
+
+    /**
+     * 记录当前线程所属任务完成，当前线程没有截止时间时不记录
+     */
+    public static void finishCurrent() {
+        ReviewDeadline deadline = CURRENT.get();
+        if (deadline != null) {
+            deadline.finish();
+        }
+    }
+
+    /**
+     * 获取截止时间统计信息
+     *
+     * @return 任务数、降级次数、完成数、逾期完成数、平均耗时及按阶段统计的超时次数
+     */
+    public static Map<String, Object> getStats() {
+        long finished = FINISHED.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("started", STARTED.sum());
+        stats.put("downgraded", DOWNGRADED.sum());
+        stats.put("finished", finished);
+        stats.put("overdue", OVERDUE.sum());
+        stats.put("avgElapsedMillis", finished == 0 ? 0 : TOTAL_ELAPSED.sum() / finished);
+        Map<String, Object> expired = new LinkedHashMap<>();
+        EXPIRED.forEach((stage, adder) -> expired.put(stage, adder.sum()));
+        stats.put("expired", expired);
+        return stats;
+    }
+}
@@ -0,0 +1,27 @@
+package com.code.review.utils;
+
+import lombok.Getter;
+
+/**
+ * 评审任务超过截止时间时抛出的异常
+ */
+@Getter
+public class ReviewDeadlineExceededException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 超时所在的阶段
+     */
+    private final String stage;
+    /**
+     * 任务已耗时（毫秒）
+     */
+    private final long elapsedMillis;
+
+    public ReviewDeadlineExceededException(String stage, long elapsedMillis) {
+        super("评审任务在[" + stage + "]阶段超过截止时间，已耗时" + elapsedMillis + "ms");
+        this.stage = stage;
+        this.elapsedMillis = elapsedMillis;
+    }
+}
@@ -0,0 +1,132 @@
+package com.code.review.utils;
+
+import com.code.review.entity.ReviewReport;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 结构化审查结果工具
+ * <p>
+ * 定义大模型输出 {@link ReviewReport} 所用的JSON Schema，解析模型返回的JSON，并在本地渲染为Markdown，
+ * 渲染结果以“总分:XX分”结尾，与Markdown输出模式的结果格式一致，便于发布评论、推送通知与缓存。
+ */
+@Slf4j
+public class ReviewReportUtils {
+
+    /**
+     * 审查结果的JSON Schema，满足OpenAI严格模式的要求：所有字段必填且不允许额外字段
+     */
+    public static final Map<String, Object> SCHEMA = buildSchema();
+
+    private static final Map<String, String> SEVERITY_LABELS = Map.of(
+            "high", "严重",
+            "medium", "一般",
+            "low", "建议");
+
+    private static final List<String> SEVERITY_ORDER = List.of("high", "medium", "low");
+
+    private ReviewReportUtils() {
+    }
+
+    private static Map<String, Object> buildSchema() {
+        Map<String, Object> issueProperties = new LinkedHashMap<>();
+        issueProperties.put("file", Map.of("type", "string", "description", "文件路径"));
+        issueProperties.put("line", Map.of("type", "integer", "description", "新文件中的行号，无法定位时为0"));
+        issueProperties.put("severity", Map.of("type", "string", "enum", SEVERITY_ORDER));
+        issueProperties.put("message", Map.of("type", "string", "description", "问题描述及优化建议"));
+
+        Map<String, Object> issue = new LinkedHashMap<>();
+        issue.put("type", "object");
+        issue.put("properties", issueProperties);
+        issue.put("required", List.of("file", "line", "severity", "message"));
+        issue.put("additionalProperties", false);
+
+        Map<String, Object> properties = new LinkedHashMap<>();
+        properties.put("score", Map.of("type", "integer", "description", "总分，0-100"));
+        properties.put("summary", Map.of("type", "string", "description", "总体评价"));
+        properties.put("issues", Map.of("type", "array", "items", issue));
+
+        Map<String, Object> schema = new LinkedHashMap<>();
+        schema.put("type", "object");
+        schema.put("properties", properties);
+        schema.put("required", List.of("score", "summary", "issues"));
+        schema.put("additionalProperties", false);
+        return schema;
+    }
+
+    /**
+     * 解析大模型返回的JSON审查结果，兼容外层包裹的 ```json 代码块
+     *
+     * @param content 模型输出内容
+     * @return 审查结果，内容不是合法的审查结果JSON时返回null
+     */
+    public static ReviewReport parse(String content) {
+        if (StringUtils.isBlank(content)) {
+            return null;
+        }
+        String json = content.trim();
+        if (json.startsWith("```")) {
+            json = StringUtils.substringBeforeLast(StringUtils.substringAfter(json, "\n"), "```").trim();
+        }
+        if (!json.startsWith("{")) {
+            return null;
+        }
+        try {
+            ObjectMapper objectMapper = SpringUtils.getBean(ObjectMapper.class);
+            ReviewReport report = objectMapper.readerFor(ReviewReport.class)
+                    .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                    .readValue(json);
+            return report.getScore() == null ? null : report;
+        } catch (Exception e) {
+            log.warn("解析结构化审查结果失败：{}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 将审查结果渲染为Markdown，问题按严重程度从高到低排列
+     *
+     * @param report 审查结果
+     * @return Markdown格式的审查报告，以“总分:XX分”结尾
+     */
+    public static String render(ReviewReport report) {
+        StringBuilder markdown = new StringBuilder();
+        if (StringUtils.isNotBlank(report.getSummary())) {
+            markdown.append("### 总体评价\n").append(report.getSummary().trim()).append("\n\n");
+        }
+
+        List<ReviewReport.Issue> issues = report.getIssues();
+        if (issues != null && !issues.isEmpty()) {
+            markdown.append("### 问题与建议\n");
+            int index = 1;
+            for (ReviewReport.Issue issue : issues.stream().sorted(Comparator.comparingInt(ReviewReportUtils::severityRank)).toList()) {
+                markdown.append(index++).append(". **[")
+                        .append(SEVERITY_LABELS.getOrDefault(StringUtils.lowerCase(issue.getSeverity()), "建议"))
+                        .append("]** ");
+                if (StringUtils.isNotBlank(issue.getFile())) {
+                    markdown.append('`').append(issue.getFile());
+                    if (issue.getLine() != null && issue.getLine() > 0) {
+                        markdown.append(':').append(issue.getLine());
+                    }
+                    markdown.append("` ");
+                }
+                markdown.append(StringUtils.defaultString(issue.getMessage()).trim()).append('\n');
+            }
+            markdown.append('\n');
+        }
+
+        return markdown.append("总分:").append(Math.max(0, Math.min(100, report.getScore()))).append("分").toString();
+    }
+
+    private static int severityRank(ReviewReport.Issue issue) {
+        int rank = SEVERITY_ORDER.indexOf(StringUtils.lowerCase(issue.getSeverity()));
+        return rank < 0 ? SEVERITY_ORDER.size() : rank;
+    }
+}
@@ -0,0 +1,253 @@
+package com.code.review.utils;
+
+import com.code.review.entity.ReviewCacheEntity;
+import com.code.review.mapper.ReviewCacheMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * 代码评审结果缓存
+ * <p>
+ * 同一份变更经常被重复评审：先Push评审再对同分支的MR评审、cherry-pick到多个发布分支、GitHub/GitLab镜像仓库等。
+ * 以规范化后的变更内容、提示模板、评审风格和模型的SHA-256摘要作为键，命中时直接返回上次的评审结果。
+ * <p>
+ * 1. 一级缓存为进程内LRU，按条目数限制大小；<br>
+ * 2. 二级缓存为数据库表review_result_cache，服务重启或多实例部署时共享；<br>
+ * 3. 两级缓存均按TTL过期。
+ */
+@Slf4j
+public class ReviewResultCache {
+
+    /**
+     * diff块头中的行号，cherry-pick到其他分支时通常只有行号不同
+     */
+    private static final Pattern HUNK_HEADER_PATTERN = Pattern.compile("^@@ -\\d+(,\\d+)? \\+\\d+(,\\d+)? @@");
+
+    /**
+     * 清理数据库过期记录的间隔（毫秒）
+     */
+    private static final long CLEANUP_INTERVAL = 3600000L;
+
+    /**
+     * 一级缓存条目，按访问顺序排列，用于LRU淘汰
+     */
+    private static final LinkedHashMap<String, ReviewCacheEntity> ENTRIES = new LinkedHashMap<>(64, 0.75f, true);
+
+    private static volatile long lastCleanupAt = System.currentTimeMillis();
+
+    private static final LongAdder MEMORY_HITS = new LongAdder();
+    private static final LongAdder DB_HITS = new LongAdder();
+    private static final LongAdder MISSES = new LongAdder();
+    private static final LongAdder PUTS = new LongAdder();
+    private static final LongAdder EVICTIONS = new LongAdder();
+    private static final LongAdder DB_ERRORS = new LongAdder();
+
+    private ReviewResultCache() {
+    }
+
+    /**
+     * 是否开启评审结果缓存
+     */
+    public static boolean isEnabled() {
+        return "1".equals(SpringUtils.getPropertyOrDefault("REVIEW_CACHE_ENABLED", "1"));
+    }
+
+    /**
+     * 计算缓存键
+     *
+     * @param changeText     待评审的变更内容
+     * @param promptTemplate 未填充变更内容的提示模板
+     * @param style          评审风格
+     * @param provider       大模型供应商
+     * @param model          模型名称
+     * @return 十六进制SHA-256摘要
+     */
+    public static String buildKey(String changeText, String promptTemplate, String style, String provider, String model) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String part : new String[]{provider, model, style, promptTemplate, normalize(changeText)}) {
+                digest.update(StringUtils.defaultString(part).getBytes(StandardCharsets.UTF_8));
+                // 分隔符，避免不同字段拼接后产生相同的输入
+                digest.update((byte) 0);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * 规范化变更内容：统一换行符、去除行尾空白、去除diff块头中的行号
+     *
+     * @param changeText 变更内容
+     * @return 规范化后的内容
+     */
+    private static String normalize(String changeText) {
+        if (StringUtils.isEmpty(changeText)) {
+            return "";
+        }
+        StringBuilder result = new StringBuilder(changeText.length());
+        for (String line : changeText.replace("\r\n", "\n").split("\n", -1)) {
+            line = StringUtils.stripEnd(line, null);
+            if (line.startsWith("@@")) {
+                line = HUNK_HEADER_PATTERN.matcher(line).replaceFirst("@@ @@");
+            }
+            result.append(line).append('\n');
+        }
+        return result.toString();
+    }
+
+    /**
+     * 查询缓存的评审结果，先查进程内缓存，未命中时查数据库并回填
+     *
+     * @param key 缓存键
+     * @return 评审结果，未命中或已过期时返回null
+     */
+    public static String get(String key) {
+        return get(List.of(key));
+    }
+
+    /**
+     * 按顺序查询多个缓存键，返回第一个命中的评审结果，如多供应商路由时各供应商及其模型对应的缓存键
+     *
+     * @param keys 缓存键
+     * @return 评审结果，均未命中或已过期时返回null
+     */
+    public static String get(List<String> keys) {
+        for (String key : keys) {
+            String result = lookup(key);
+            if (result != null) {
+                return result;
+            }
+        }
+        MISSES.increment();
+        return null;
+    }
+
+    private static String lookup(String key) {
+        LocalDateTime now = LocalDateTime.now();
+        synchronized (ENTRIES) {
+            ReviewCacheEntity entity = ENTRIES.get(key);
+            if (entity != null) {
+                if (entity.getExpiresAt().isAfter(now)) {
+                    MEMORY_HITS.increment();
+                    return entity.getReviewResult();
+                }
+                ENTRIES.remove(key);
+            }
+        }
+
+        if (isPersistEnabled()) {
+            try {
+                ReviewCacheEntity entity = SpringUtils.getBean(ReviewCacheMapper.class).selectByCacheKey(key, now);
+                if (entity != null && StringUtils.isNotBlank(entity.getReviewResult())) {
+                    DB_HITS.increment();
+                    putMemory(entity);
+                    return entity.getReviewResult();
+                }
+            } catch (Exception e) {
+                DB_ERRORS.increment();
+                log.warn("查询评审结果缓存失败：{}", e.getMessage());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 保存评审结果
+     *
+     * @param key          缓存键
+     * @param provider     大模型供应商
+     * @param model        模型名称
+     * @param reviewResult 评审结果
+     */
+    public static void put(String key, String provider, String model, String reviewResult) {
+        if (StringUtils.isBlank(reviewResult)) {
+            return;
+        }
+        long ttlMillis = Long.parseLong(SpringUtils.getPropertyOrDefault("REVIEW_CACHE_TTL", "604800000"));
+        LocalDateTime now = LocalDateTime.now();
+        ReviewCacheEntity entity = new ReviewCacheEntity(key, provider, model, reviewResult, now,
+                now.plus(ttlMillis, ChronoUnit.MILLIS));
+        putMemory(entity);
+        PUTS.increment();
+
+        if (isPersistEnabled()) {
+            try {
+                ReviewCacheMapper mapper = SpringUtils.getBean(ReviewCacheMapper.class);
+                mapper.upsertReviewCache(entity);
+                cleanupExpired(mapper, now);
+            } catch (Exception e) {
+                DB_ERRORS.increment();
+                log.warn("保存评审结果缓存失败：{}", e.getMessage());
+            }
+        }
+    }
+
+    private static void putMemory(ReviewCacheEntity entity) {
+        int maxEntries = Integer.parseInt(SpringUtils.getPropertyOrDefault("REVIEW_CACHE_MAX_ENTRIES", "500"));
+        synchronized (ENTRIES) {
+            ENTRIES.put(entity.getCacheKey(), entity);
+            // 超出条目数上限时淘汰最久未使用的条目
+            while (ENTRIES.size() > maxEntries) {
+                ENTRIES.remove(ENTRIES.keySet().iterator().next());
+                EVICTIONS.increment();
+            }
+        }
+    }
+
+    /**
+     * 定期删除数据库中已过期的记录
+     */
+    private static void cleanupExpired(ReviewCacheMapper mapper, LocalDateTime now) {
+        long current = System.currentTimeMillis();
+        if (current - lastCleanupAt < CLEANUP_INTERVAL) {
+            return;
+        }
+        lastCleanupAt = current;
+        int deleted = mapper.deleteExpired(now);
+        if (deleted > 0) {
+            log.info("删除过期的评审结果缓存{}条", deleted);
+        }
+    }
+
+    private static boolean isPersistEnabled() {
+        return "1".equals(SpringUtils.getPropertyOrDefault("REVIEW_CACHE_PERSIST_ENABLED", "1"));
+    }
+
+    /**
+     * 获取缓存统计信息
+     *
+     * @return 条目数、各级命中次数、未命中次数、命中率及淘汰次数
+     */
+    public static Map<String, Object> getStats() {
+        long memoryHits = MEMORY_HITS.sum();
+        long dbHits = DB_HITS.sum();
+        long misses = MISSES.sum();
+        long total = memoryHits + dbHits + misses;
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (ENTRIES) {
+            stats.put("entries", ENTRIES.size());
+        }
+        stats.put("memoryHits", memoryHits);
+        stats.put("dbHits", dbHits);
+        stats.put("misses", misses);
+        stats.put("hitRate", total == 0 ? 0 : (memoryHits + dbHits) * 100.0 / total);
+        stats.put("puts", PUTS.sum());
+        stats.put("evictions", EVICTIONS.sum());
+        stats.put("dbErrors", DB_ERRORS.sum());
+        return stats;
+    }
+}
@@ -0,0 +1,198 @@
+package com.code.review.utils;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 评审初筛
+ * <p>
+ * 完整审查之前先用便宜、快速的模型（REVIEW_TRIAGE_MODEL）和简短的提示词将变更分为简单、一般、高风险三级：
+ * 简单修改直接返回初筛给出的简短结果，一般与高风险的变更再交给主模型完整审查。
+ * 按级别统计变更数与大模型耗时，并以完整审查的平均耗时估算简单修改节省的时间。
+ */
+public class ReviewTriage {
+
+    private static final Pattern LEVEL_PATTERN = Pattern.compile("级别[:：]\\s*(trivial|normal|risky)", Pattern.CASE_INSENSITIVE);
+    private static final Pattern SCORE_PATTERN = Pattern.compile("总分[:：]\\s*(\\d+)");
+    private static final Pattern SUMMARY_PATTERN = Pattern.compile("说明[:：]\\s*(.+)");
+
+    private static final Map<Level, LevelStats> LEVEL_STATS = new EnumMap<>(Level.class);
+    private static final LongAdder TRIAGE_CALLS = new LongAdder();
+    private static final LongAdder TRIAGE_MILLIS = new LongAdder();
+    private static final LongAdder TRIAGE_FAILURES = new LongAdder();
+    private static final LongAdder TRIAGE_SKIPPED = new LongAdder();
+
+    static {
+        for (Level level : Level.values()) {
+            LEVEL_STATS.put(level, new LevelStats());
+        }
+    }
+
+    private ReviewTriage() {
+    }
+
+    /**
+     * 是否开启初筛
+     */
+    public static boolean isEnabled() {
+        return "1".equals(SpringUtils.getPropertyOrDefault("REVIEW_TRIAGE_ENABLED", "0"));
+    }
+
+    /**
+     * 解析初筛模型的输出
+     *
+     * @param response 初筛模型的输出，格式为 级别:xxx、总分:XX分、说明:xxx 各占一行
+     * @return 初筛结果，无法解析出级别时按一般变更处理
+     */
+    public static Result parse(String response) {
+        if (StringUtils.isBlank(response)) {
+            return new Result(Level.NORMAL, 0, "");
+        }
+        Matcher levelMatcher = LEVEL_PATTERN.matcher(response);
+        Level level = levelMatcher.find() ? Level.valueOf(levelMatcher.group(1).toUpperCase()) : Level.NORMAL;
+        Matcher scoreMatcher = SCORE_PATTERN.matcher(response);
+        int score = scoreMatcher.find() ? Integer.parseInt(scoreMatcher.group(1)) : 0;
+        Matcher summaryMatcher = SUMMARY_PATTERN.matcher(response);
+        String summary = summaryMatcher.find() ? summaryMatcher.group(1).trim() : "";
+        return new Result(level, score, summary);
+    }
+
+    /**
+     * 生成简单修改的简短评审结果，初筛未给出分数时使用 REVIEW_TRIAGE_TRIVIAL_SCORE
+     *
+     * @param result 初筛结果
+     * @return 包含总分的评审结果
+     */
+    public static String renderTrivial(Result result) {
+        int score = result.getScore() > 0 ? result.getScore()
+                : Integer.parseInt(SpringUtils.getPropertyOrDefault("REVIEW_TRIAGE_TRIVIAL_SCORE", "90"));
+        StringBuilder content = new StringBuilder("本次变更经初筛判定为低风险的简单修改，未进行完整审查。\n\n");
+        if (StringUtils.isNotBlank(result.getSummary())) {
+            content.append(result.getSummary()).append("\n\n");
+        }
+        return content.append("总分:").append(score).append("分").toString();
+    }
+
+    /**
+     * 记录一次初筛
+     *
+     * @param level        初筛级别
+     * @param triageMillis 初筛耗时
+     */
+    public static void recordTriage(Level level, long triageMillis) {
+        TRIAGE_CALLS.increment();
+        TRIAGE_MILLIS.add(triageMillis);
+        LEVEL_STATS.get(level).count.increment();
+    }
+
+    /**
+     * 记录一次初筛失败，失败的变更按一般变更完整审查
+     */
+    public static void recordFailure(long triageMillis) {
+        TRIAGE_FAILURES.increment();
+        recordTriage(Level.NORMAL, triageMillis);
+    }
+
+    /**
+     * 记录一次因变更过大跳过的初筛，跳过的变更按一般变更完整审查
+     */
+    public static void recordSkipped() {
+        TRIAGE_SKIPPED.increment();
+        LEVEL_STATS.get(Level.NORMAL).count.increment();
+    }
+
+    /**
+     * 记录完整审查的耗时
+     *
+     * @param level        初筛级别
+     * @param reviewMillis 完整审查耗时
+     */
+    public static void recordReview(Level level, long reviewMillis) {
+        LevelStats stats = LEVEL_STATS.get(level);
+        stats.reviews.increment();
+        stats.reviewMillis.add(reviewMillis);
+    }
+
+    /**
+     * 获取初筛统计信息
+     *
+     * @return 各级别的变更数与完整审查平均耗时、初筛耗时，以及估算节省的大模型耗时
+     */
+    public static Map<String, Object> getStats() {
+        long reviews = 0;
+        long reviewMillis = 0;
+        Map<String, Object> levels = new LinkedHashMap<>();
+        for (Map.Entry<Level, LevelStats> entry : LEVEL_STATS.entrySet()) {
+            LevelStats stats = entry.getValue();
+            long levelReviews = stats.reviews.sum();
+            long levelMillis = stats.reviewMillis.sum();
+            reviews += levelReviews;
+            reviewMillis += levelMillis;
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("count", stats.count.sum());
+            map.put("avgReviewMillis", levelReviews == 0 ? 0 : levelMillis / levelReviews);
+            levels.put(entry.getKey().name().toLowerCase(), map);
+        }
+
+        // 简单修改未进行完整审查，按其他级别完整审查的平均耗时估算节省的时间
+        long avgReviewMillis = reviews == 0 ? 0 : reviewMillis / reviews;
+        long savedMillis = LEVEL_STATS.get(Level.TRIVIAL).count.sum() * avgReviewMillis;
+        long triageMillis = TRIAGE_MILLIS.sum();
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("levels", levels);
+        stats.put("triageCalls", TRIAGE_CALLS.sum());
+        stats.put("triageFailures", TRIAGE_FAILURES.sum());
+        stats.put("triageSkipped", TRIAGE_SKIPPED.sum());
+        stats.put("triageMillis", triageMillis);
+        stats.put("estimatedSavedMillis", savedMillis);
+        stats.put("netSavedMillis", savedMillis - triageMillis);
+        return stats;
+    }
+
+    /**
+     * 初筛级别
+     */
+    public enum Level {
+        /**
+         * 简单修改（如文案、注释、格式、配置项微调），不需要完整审查
+         */
+        TRIVIAL,
+        /**
+         * 一般变更
+         */
+        NORMAL,
+        /**
+         * 高风险变更（如鉴权、SQL、并发、资金相关逻辑）
+         */
+        RISKY
+    }
+
+    /**
+     * 初筛结果
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class Result {
+        private final Level level;
+        private final int score;
+        private final String summary;
+    }
+
+    /**
+     * 单个级别的统计
+     */
+    private static class LevelStats {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder reviews = new LongAdder();
+        private final LongAdder reviewMillis = new LongAdder();
+    }
+}
@@ -16,25 +16,34 @@ import java.security.cert.X509Certificate;
 @Slf4j
 public class SSLUtils {
     /**
-     * 创建一个不验证SSL的HttpClient
+     * 创建一个信任所有证书的SSL上下文
      */
-    public static CloseableHttpClient createInsecureHttpClient() throws Exception {
+    public static SSLContext createInsecureSSLContext() throws Exception {
         // 创建信任所有证书的策略
         TrustStrategy acceptingTrustStrategy = (X509Certificate[] chain, String authType) -> true;
 
         // 创建SSL上下文
-        SSLContext sslContext = SSLContexts.custom()
+        return SSLContexts.custom()
                 .loadTrustMaterial(null, acceptingTrustStrategy)
                 .build();
+    }
 
-        // 创建SSL连接工厂
-        SSLConnectionSocketFactory csf = new SSLConnectionSocketFactory(
-                sslContext,
+    /**
+     * 创建一个不验证证书和主机名的SSL连接工厂
+     */
+    public static SSLConnectionSocketFactory createInsecureSocketFactory() throws Exception {
+        return new SSLConnectionSocketFactory(
+                createInsecureSSLContext(),
                 NoopHostnameVerifier.INSTANCE);
+    }
 
+    /**
+     * 创建一个不验证SSL的HttpClient
+     */
+    public static CloseableHttpClient createInsecureHttpClient() throws Exception {
         // 创建连接池管理器
         PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
-                .setSSLSocketFactory(csf)
+                .setSSLSocketFactory(createInsecureSocketFactory())
                 .build();
 
         // 创建HttpClient
@@ -0,0 +1,135 @@
+package com.code.review.utils;
+
+import lombok.Data;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Predicate;
+
+/**
+ * SSE（Server-Sent Events）事件解析器
+ * <p>
+ * 按行增量读取事件流，遇到空行时分发当前事件，多行data以换行拼接，注释行（以冒号开头）忽略。
+ * 每行只扫描一次，解析耗时与响应长度成线性关系，不需要等待完整响应。
+ */
+public class SseEventParser {
+
+    private SseEventParser() {
+    }
+
+    /**
+     * 解析输入流中的SSE事件
+     *
+     * @param inputStream 响应输入流
+     * @param consumer    事件处理器，返回false时停止解析
+     * @return 已分发的事件数
+     * @throws IOException 读取异常
+     */
+    public static int parse(InputStream inputStream, Predicate<SseEvent> consumer) throws IOException {
+        return parse(new InputStreamReader(inputStream, StandardCharsets.UTF_8), consumer);
+    }
+
+    /**
+     * 解析完整的SSE响应文本
+     *
+     * @param text     响应文本
+     * @param consumer 事件处理器，返回false时停止解析
+     * @return 已分发的事件数
+     */
+    public static int parse(String text, Predicate<SseEvent> consumer) {
+        try {
+            return parse(new StringReader(text), consumer);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static int parse(Reader reader, Predicate<SseEvent> consumer) throws IOException {
+        BufferedReader bufferedReader = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+        int count = 0;
+        String id = null;
+        String event = null;
+        StringBuilder data = null;
+
+        String line;
+        while ((line = bufferedReader.readLine()) != null) {
+            // 空行表示一个事件结束
+            if (line.isEmpty()) {
+                if (data != null || event != null) {
+                    count++;
+                    if (!consumer.test(new SseEvent(id, event, data == null ? "" : data.toString()))) {
+                        return count;
+                    }
+                }
+                event = null;
+                data = null;
+                continue;
+            }
+            // 注释行
+            if (line.charAt(0) == ':') {
+                continue;
+            }
+
+            int colon = line.indexOf(':');
+            String field = colon < 0 ? line : line.substring(0, colon);
+            String value = "";
+            if (colon >= 0) {
+                int start = colon + 1;
+                // 冒号后的第一个空格不属于字段值
+                if (start < line.length() && line.charAt(start) == ' ') {
+                    start++;
+                }
+                value = line.substring(start);
+            }
+
+            switch (field) {
+                case "data":
+                    if (data == null) {
+                        data = new StringBuilder(value);
+                    } else {
+                        data.append('\n').append(value);
+                    }
+                    break;
+                case "event":
+                    event = value;
+                    break;
+                case "id":
+                    id = value;
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        // 流结束时分发未以空行结尾的最后一个事件
+        if (data != null || event != null) {
+            count++;
+            consumer.test(new SseEvent(id, event, data == null ? "" : data.toString()));
+        }
+        return count;
+    }
+
+    /**
+     * SSE事件
+     */
+    @Data
+    public static class SseEvent {
+        /**
+         * 事件ID
+         */
+        private final String id;
+        /**
+         * 事件类型，未指定时为null
+         */
+        private final String event;
+        /**
+         * 事件数据，多行data以换行拼接
+         */
+        private final String data;
+    }
+}
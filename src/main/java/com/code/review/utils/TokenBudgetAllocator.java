@@ -0,0 +1,309 @@
+package com.code.review.utils;
+
+import com.code.review.entity.ChangeInfo;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * token 预算分配
+ * <p>
+ * 变更超过预算时不再截断拼接文本的末尾，而是按文件的审查价值分配预算：源码优先于测试与文档，
+ * 路径命中 REVIEW_BUDGET_RISK_PATTERNS 的文件权重更高，改动行数越多权重越高。按权重为各文件分配token份额，
+ * 用不完的份额再分给其他文件；超出份额的文件按diff块（@@）保留前面的块，份额不足一个块时按行截断。
+ * 份额低于 REVIEW_BUDGET_MIN_FILE_TOKENS 而被省略的文件、裁剪后在块边界处未用完的份额，都重新分给其余文件。
+ * <p>
+ * 同时计算补全的 max_tokens：完整评审报告的篇幅与变更规模无关，按提示词登记的报告长度预留；
+ * 分诊、合并等其他调用按输入规模计算，避免小变更也预留固定的输出长度。
+ */
+@Slf4j
+public class TokenBudgetAllocator {
+
+    private static final LongAdder ALLOCATIONS = new LongAdder();
+    private static final LongAdder TRIMMED_FILES = new LongAdder();
+    private static final LongAdder DROPPED_FILES = new LongAdder();
+    private static final LongAdder INPUT_TOKENS = new LongAdder();
+    private static final LongAdder OUTPUT_TOKENS = new LongAdder();
+    /**
+     * 系统提示词 -> 该提示词要求输出的报告所需的最少token数
+     */
+    private static final Map<String, Integer> COMPLETION_FLOORS = new ConcurrentHashMap<>();
+
+    private TokenBudgetAllocator() {
+    }
+
+    /**
+     * 按预算分配变更内容
+     *
+     * @param changes   变更列表
+     * @param maxTokens 变更内容的最大token数
+     * @return 按原顺序排列的变更，未超出预算时原样返回；份额不足 REVIEW_BUDGET_MIN_FILE_TOKENS 的文件被省略
+     */
+    public static List<ChangeInfo> allocate(List<ChangeInfo> changes, int maxTokens) {
+        if (changes == null || changes.isEmpty() || !TokenUtils.exceeds(changes, maxTokens)) {
+            return changes;
+        }
+
+        int size = changes.size();
+        int[] tokens = new int[size];
+        double[] weights = new double[size];
+        int inputTokens = 0;
+        for (int i = 0; i < size; i++) {
+            tokens[i] = TokenUtils.countTokens(changes.get(i));
+            weights[i] = weight(changes.get(i));
+            inputTokens += tokens[i];
+        }
+
+        int minFileTokens = Integer.parseInt(SpringUtils.getPropertyOrDefault("REVIEW_BUDGET_MIN_FILE_TOKENS", "200"));
+        // 已裁剪或省略的文件权重置0，不再参与分配；每次裁剪或省略后剩余预算在其余文件间重新分配
+        double[] pending = weights.clone();
+        ChangeInfo[] kept = new ChangeInfo[size];
+        int[] keptTokens = new int[size];
+        int budget = maxTokens;
+        while (true) {
+            int[] shares = share(tokens, pending, budget);
+            boolean droppedAny = false;
+            for (int i = 0; i < size; i++) {
+                if (pending[i] > 0 && shares[i] < tokens[i] && shares[i] < minFileTokens) {
+                    pending[i] = 0;
+                    droppedAny = true;
+                }
+            }
+            if (droppedAny) {
+                continue;
+            }
+            int next = -1;
+            for (int i = 0; i < size && next < 0; i++) {
+                if (pending[i] > 0 && shares[i] < tokens[i]) {
+                    next = i;
+                }
+            }
+            if (next < 0) {
+                // 其余文件的份额都足够，原样保留
+                for (int i = 0; i < size; i++) {
+                    if (pending[i] > 0) {
+                        kept[i] = changes.get(i);
+                        keptTokens[i] = tokens[i];
+                    }
+                }
+                break;
+            }
+            kept[next] = trim(changes.get(next), shares[next]);
+            pending[next] = 0;
+            if (kept[next] != null) {
+                keptTokens[next] = TokenUtils.countTokens(kept[next]);
+                budget = Math.max(0, budget - keptTokens[next]);
+            }
+        }
+
+        List<ChangeInfo> result = new ArrayList<>();
+        List<String> droppedPaths = new ArrayList<>();
+        int outputTokens = 0;
+        for (int i = 0; i < size; i++) {
+            if (kept[i] == null) {
+                droppedPaths.add(changes.get(i).getNewPath());
+                continue;
+            }
+            result.add(kept[i]);
+            outputTokens += keptTokens[i];
+            if (kept[i] != changes.get(i)) {
+                TRIMMED_FILES.increment();
+            }
+        }
+
+        ALLOCATIONS.increment();
+        DROPPED_FILES.add(droppedPaths.size());
+        INPUT_TOKENS.add(inputTokens);
+        OUTPUT_TOKENS.add(outputTokens);
+        log.info("变更内容{} tokens超过预算{}，按文件分配后保留{} tokens，省略文件：{}", inputTokens, maxTokens, outputTokens, droppedPaths);
+        return result;
+    }
+
+    /**
+     * 计算文件的审查权重
+     */
+    private static double weight(ChangeInfo change) {
+        String path = StringUtils.defaultString(change.getNewPath()).toLowerCase();
+        double weight = 1;
+        if (isTest(path)) {
+            weight *= Double.parseDouble(SpringUtils.getPropertyOrDefault("REVIEW_BUDGET_TEST_WEIGHT", "0.5"));
+        } else if (StringUtils.endsWithAny(path, ".md", ".txt")) {
+            weight *= Double.parseDouble(SpringUtils.getPropertyOrDefault("REVIEW_BUDGET_DOC_WEIGHT", "0.3"));
+        }
+        String riskPatterns = SpringUtils.getPropertyOrDefault("REVIEW_BUDGET_RISK_PATTERNS", "");
+        if (StringUtils.isNotBlank(riskPatterns)
+                && Arrays.stream(riskPatterns.split(",")).map(String::trim).anyMatch(pattern -> !pattern.isEmpty() && path.contains(pattern.toLowerCase()))) {
+            weight *= Double.parseDouble(SpringUtils.getPropertyOrDefault("REVIEW_BUDGET_RISK_WEIGHT", "2"));
+        }
+        // 改动行数越多越值得审查，取对数避免大文件独占预算
+        int churn = (change.getAdditions() == null ? 0 : change.getAdditions()) + (change.getDeletions() == null ? 0 : change.getDeletions());
+        return weight * (1 + Math.log1p(churn));
+    }
+
+    private static boolean isTest(String path) {
+        return StringUtils.containsAny(path, "/test/", "/tests/", "__tests__/")
+                || StringUtils.endsWithAny(path, "test.java", "tests.java", "_test.go", "_test.py")
+                || StringUtils.containsAny(path, ".test.", ".spec.")
+                || path.startsWith("test/") || path.startsWith("tests/");
+    }
+
+    /**
+     * 按权重分配份额，所需少于份额的文件只占用所需部分，剩余预算在其他文件间再次按权重分配；权重为0的文件不分配份额
+     */
+    static int[] share(int[] tokens, double[] weights, int maxTokens) {
+        int size = tokens.length;
+        int[] shares = new int[size];
+        boolean[] settled = new boolean[size];
+        int remaining = maxTokens;
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            double totalWeight = 0;
+            for (int i = 0; i < size; i++) {
+                if (!settled[i]) {
+                    totalWeight += weights[i];
+                }
+            }
+            if (totalWeight == 0) {
+                break;
+            }
+            // 本轮按同一剩余预算与总权重判断，全部判断完后再扣除，避免排在后面的文件份额被提前扣减
+            List<Integer> fits = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                if (!settled[i] && weights[i] > 0 && tokens[i] <= remaining * weights[i] / totalWeight) {
+                    fits.add(i);
+                }
+            }
+            for (int i : fits) {
+                settled[i] = true;
+                shares[i] = tokens[i];
+                remaining -= tokens[i];
+                changed = true;
+            }
+            if (!changed) {
+                for (int i = 0; i < size; i++) {
+                    if (!settled[i]) {
+                        shares[i] = (int) (remaining * weights[i] / totalWeight);
+                    }
+                }
+            }
+        }
+        return shares;
+    }
+
+    /**
+     * 按diff块裁剪文件的变更，保留份额以内的前几个块，第一个块已超出份额时按行截断
+     *
+     * @return 裁剪后的变更，diff为空时返回null
+     */
+    static ChangeInfo trim(ChangeInfo change, int share) {
+        CharSequence original = change.getDiffContent();
+        if (original == null || original.length() == 0) {
+            return null;
+        }
+        // 文件路径等字段占用的token
+        int budget = share - TokenUtils.countTokens(PromptWriter.writeHeader(change));
+        if (budget <= 0) {
+            return null;
+        }
+
+        // 逐块从原内容复制，溢出到磁盘的diff不整体复制到堆内，超出份额后的块不再复制
+        int[] hunkOffsets = DiffScanner.scan(original).getHunkOffsets();
+        int hunkCount = DiffScanner.hunkCount(hunkOffsets);
+        StringBuilder diff = new StringBuilder();
+        String firstHunk = null;
+        int used = 0;
+        int kept = 0;
+        for (int i = 0; i < hunkCount; i++) {
+            String hunk = DiffScanner.hunk(original, hunkOffsets, i);
+            int hunkTokens = TokenUtils.countTokens(hunk);
+            if (used + hunkTokens > budget) {
+                firstHunk = i == 0 ? hunk : null;
+                break;
+            }
+            diff.append(hunk);
+            used += hunkTokens;
+            kept++;
+        }
+        if (kept == 0) {
+            String text = TokenUtils.truncate(firstHunk, budget).getText();
+            int lastLine = text.lastIndexOf('\n');
+            if (lastLine <= 0) {
+                return null;
+            }
+            diff.append(text, 0, lastLine + 1).append("...（该diff块超出预算，其余行已省略）\n");
+            kept = 1;
+        }
+        if (kept < hunkCount) {
+            diff.append("...（省略").append(hunkCount - kept).append("个diff块）\n");
+        }
+
+        ChangeInfo trimmed = new ChangeInfo();
+        trimmed.setNewPath(change.getNewPath());
+        trimmed.setAdditions(change.getAdditions());
+        trimmed.setDeletions(change.getDeletions());
+        trimmed.setDiff(diff.toString());
+        return trimmed;
+    }
+
+    /**
+     * 登记系统提示词要求输出的报告长度，使用该提示词的调用 max_tokens 不低于此值
+     *
+     * @param systemPrompt 系统提示词内容
+     * @param minTokens    报告所需的最少token数
+     */
+    public static void registerCompletionFloor(String systemPrompt, int minTokens) {
+        if (StringUtils.isNotEmpty(systemPrompt)) {
+            COMPLETION_FLOORS.put(systemPrompt, minTokens);
+        }
+    }
+
+    /**
+     * 计算补全的 max_tokens：用户消息估算token数的 REVIEW_COMPLETION_RATIO 倍，
+     * 限制在 REVIEW_COMPLETION_MIN_TOKENS 与 REVIEW_COMPLETION_MAX_TOKENS 之间；
+     * 系统提示词登记了报告长度时不低于登记值，避免报告在末尾的总分之前被截断
+     *
+     * @param messages 消息列表
+     * @return 补全的最大token数
+     */
+    public static int completionMaxTokens(List<Map<String, String>> messages) {
+        int minTokens = Integer.parseInt(SpringUtils.getPropertyOrDefault("REVIEW_COMPLETION_MIN_TOKENS", "1000"));
+        int maxTokens = Integer.parseInt(SpringUtils.getPropertyOrDefault("REVIEW_COMPLETION_MAX_TOKENS", "6000"));
+        double ratio = Double.parseDouble(SpringUtils.getPropertyOrDefault("REVIEW_COMPLETION_RATIO", "0.5"));
+
+        double cjkTokensPerChar = TokenUtils.getTokenizer().getCjkTokensPerChar();
+        int inputTokens = 0;
+        for (Map<String, String> message : messages) {
+            // 系统提示词是固定的指令，输出长度只与用户消息中的变更规模相关
+            if ("system".equals(message.get("role"))) {
+                String content = message.get("content");
+                minTokens = Math.max(minTokens, content == null ? 0 : COMPLETION_FLOORS.getOrDefault(content, 0));
+            } else {
+                inputTokens += TokenEstimator.estimate(message.get("content"), cjkTokensPerChar);
+            }
+        }
+        return Math.max(minTokens, Math.min(maxTokens, (int) (inputTokens * ratio)));
+    }
+
+    /**
+     * 获取预算分配统计信息
+     *
+     * @return 分配次数、裁剪与省略的文件数、分配前后的token数
+     */
+    public static Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("allocations", ALLOCATIONS.sum());
+        stats.put("trimmedFiles", TRIMMED_FILES.sum());
+        stats.put("droppedFiles", DROPPED_FILES.sum());
+        stats.put("inputTokens", INPUT_TOKENS.sum());
+        stats.put("outputTokens", OUTPUT_TOKENS.sum());
+        return stats;
+    }
+}
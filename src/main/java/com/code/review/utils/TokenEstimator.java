@@ -0,0 +1,149 @@
+package com.code.review.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * token 数量快速估算
+ * <p>
+ * 按字符类别线性扫描一遍文本估算 token 数：英文单词与标识符每5个字符约1个token（至少1个），连续的标点每3个约1个token，
+ * 单个空格并入后面的单词，紧跟在标点后的换行并入标点，其余换行与连续缩进各约1个token，
+ * 中日韩字符按分词器给出的每字token数计算，其他字符每个1个token。
+ * 估算值在 TOKEN_ESTIMATE_MARGIN 误差范围内仍能确定与预算的大小关系时直接返回，否则交由分词器精确计算。
+ */
+public class TokenEstimator {
+
+    private static final LongAdder WITHIN = new LongAdder();
+    private static final LongAdder EXCEEDS = new LongAdder();
+    private static final LongAdder UNCERTAIN = new LongAdder();
+
+    private TokenEstimator() {
+    }
+
+    /**
+     * 估算文本的 token 数量
+     *
+     * @param text             输入文本
+     * @param cjkTokensPerChar 每个中日韩字符平均对应的token数
+     * @return 估算的 token 数量
+     */
+    public static int estimate(CharSequence text, double cjkTokensPerChar) {
+        if (text == null) {
+            return 0;
+        }
+        double tokens = 0;
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            char c = text.charAt(i);
+            int start = i;
+            if (isAsciiAlphanumeric(c)) {
+                while (i < length && isAsciiAlphanumeric(text.charAt(i))) {
+                    i++;
+                }
+                tokens += Math.max(1, (i - start + 2) / 5);
+            } else if (Character.isWhitespace(c)) {
+                // 空白中最后一个换行之后的部分为缩进
+                int lastNewline = -1;
+                while (i < length && Character.isWhitespace(text.charAt(i))) {
+                    if (text.charAt(i) == '\n') {
+                        lastNewline = i;
+                    }
+                    i++;
+                }
+                if (lastNewline < 0) {
+                    tokens += i - start > 1 ? 1 : 0;
+                } else {
+                    tokens += isAsciiPunctuation(start > 0 ? text.charAt(start - 1) : ' ') ? 0 : 1;
+                    tokens += i - lastNewline - 1 > 1 ? 1 : 0;
+                }
+            } else if (c < 0x80) {
+                while (i < length && isAsciiPunctuation(text.charAt(i))) {
+                    i++;
+                }
+                tokens += (i - start + 2) / 3;
+            } else {
+                tokens += isCjk(c) ? cjkTokensPerChar : 1;
+                i++;
+            }
+        }
+        return (int) Math.ceil(tokens);
+    }
+
+    /**
+     * 根据估算值判断文本是否超过预算
+     *
+     * @param estimatedTokens 估算的 token 数量
+     * @param maxTokens       最大token数
+     * @return 明显低于预算时为 {@link Verdict#WITHIN}，明显超过时为 {@link Verdict#EXCEEDS}，无法确定时为 {@link Verdict#UNCERTAIN}
+     */
+    public static Verdict check(int estimatedTokens, int maxTokens) {
+        double margin = Double.parseDouble(SpringUtils.getPropertyOrDefault("TOKEN_ESTIMATE_MARGIN", "0.3"));
+        if (estimatedTokens * (1 + margin) <= maxTokens) {
+            WITHIN.increment();
+            return Verdict.WITHIN;
+        }
+        if (estimatedTokens * (1 - margin) > maxTokens) {
+            EXCEEDS.increment();
+            return Verdict.EXCEEDS;
+        }
+        UNCERTAIN.increment();
+        return Verdict.UNCERTAIN;
+    }
+
+    private static boolean isAsciiAlphanumeric(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+    }
+
+    private static boolean isAsciiPunctuation(char c) {
+        return c < 0x80 && !isAsciiAlphanumeric(c) && !Character.isWhitespace(c);
+    }
+
+    /**
+     * 中日韩文字及全角标点
+     */
+    private static boolean isCjk(char c) {
+        return (c >= 0x4E00 && c <= 0x9FFF)
+                || (c >= 0x3400 && c <= 0x4DBF)
+                || (c >= 0x3000 && c <= 0x30FF)
+                || (c >= 0xAC00 && c <= 0xD7AF)
+                || (c >= 0xFF00 && c <= 0xFFEF);
+    }
+
+    /**
+     * 获取估算统计信息
+     *
+     * @return 估算直接得出结论与需要精确计算的次数
+     */
+    public static Map<String, Object> getStats() {
+        long within = WITHIN.sum();
+        long exceeds = EXCEEDS.sum();
+        long uncertain = UNCERTAIN.sum();
+        long total = within + exceeds + uncertain;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("within", within);
+        stats.put("exceeds", exceeds);
+        stats.put("uncertain", uncertain);
+        stats.put("shortCircuitRate", total == 0 ? 0 : (within + exceeds) * 100.0 / total);
+        return stats;
+    }
+
+    /**
+     * 估算结论
+     */
+    public enum Verdict {
+        /**
+         * 明显低于预算
+         */
+        WITHIN,
+        /**
+         * 明显超过预算
+         */
+        EXCEEDS,
+        /**
+         * 无法确定，需要精确计算
+         */
+        UNCERTAIN
+    }
+}
@@ -1,17 +1,51 @@
 package com.code.review.utils;
 
-import com.knuddels.jtokkit.Encodings;
-import com.knuddels.jtokkit.api.Encoding;
-import com.knuddels.jtokkit.api.EncodingType;
-import com.knuddels.jtokkit.api.IntArrayList;
+import com.code.review.entity.ChangeInfo;
+import com.code.review.factory.LLMClientFactory;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 
 import java.util.List;
 
+/**
+ * token 计数与截断工具
+ * <p>
+ * 使用与大模型配置对应的分词器（{@link LLMClientFactory#getTokenizer()}），首次使用时选定并全局共享；
+ * 判断是否超出预算前先用 {@link TokenEstimator} 线性估算，明显低于或超过预算时不再精确编码。
+ * 截断只编码一遍，编码到上限即停止，计数与截断位置一并返回。
+ */
 @Slf4j
 public class TokenUtils {
 
+    /**
+     * 估算时每个文件标题中路径以外部分（“### ”、“ (+a -d)”）的token数
+     */
+    private static final int HEADER_TOKENS = 8;
+
+    private static volatile Tokenizer tokenizer;
+
+    private TokenUtils() {
+    }
+
+    /**
+     * 获取当前使用的分词器
+     */
+    public static Tokenizer getTokenizer() {
+        Tokenizer current = tokenizer;
+        if (current == null) {
+            synchronized (TokenUtils.class) {
+                if (tokenizer == null) {
+                    tokenizer = LLMClientFactory.getTokenizer();
+                    log.info("使用分词器：{}", tokenizer.getName());
+                }
+                current = tokenizer;
+            }
+        }
+        return current;
+    }
+
     /**
      * 计算文本的 token 数量。
      *
@@ -22,13 +56,112 @@ public class TokenUtils {
         if (StringUtils.isBlank(text)) {
             return 0;
         }
+        return getTokenizer().countTokens(text);
+    }
 
-        // 获取编码器 (适用于 OpenAI GPT 系列)
-        Encoding encoding = Encodings.newDefaultEncodingRegistry()
-                .getEncoding(EncodingType.CL100K_BASE);
+    /**
+     * 计算单个文件变更的 token 数量，格式同 {@link PromptWriter#write(ChangeInfo)}
+     * <p>
+     * 按标题行与各diff块分别编码后求和，溢出到磁盘的diff逐块复制到堆内，不复制整份内容。
+     *
+     * @param change 变更信息
+     * @return token 数量
+     */
+    public static int countTokens(ChangeInfo change) {
+        int tokens = countTokens(PromptWriter.writeHeader(change));
+        CharSequence diff = change.getDiffContent();
+        if (diff == null || diff.length() == 0) {
+            return tokens;
+        }
+        int[] hunkOffsets = DiffScanner.scan(diff).getHunkOffsets();
+        for (int i = 0; i < DiffScanner.hunkCount(hunkOffsets); i++) {
+            tokens += countTokens(DiffScanner.hunk(diff, hunkOffsets, i));
+        }
+        return tokens;
+    }
 
-        // 编码文本为 tokens 并返回数量
-        return encoding.encode(text).size();
+    /**
+     * 计算变更列表的 token 数量
+     * <p>
+     * 文件数不少于 TOKEN_PARALLEL_MIN_FILES 时按文件并行计数后求和。各文件分别编码，
+     * 与整体编码 PromptWriter.write(changes) 的结果仅在文件衔接处略有差异。
+     *
+     * @param changes 变更列表
+     * @return token 数量
+     */
+    public static int countTokens(List<ChangeInfo> changes) {
+        if (changes == null || changes.isEmpty()) {
+            return 0;
+        }
+        int parallelMinFiles = Integer.parseInt(SpringUtils.getPropertyOrDefault("TOKEN_PARALLEL_MIN_FILES", "8"));
+        if (changes.size() < parallelMinFiles) {
+            return countTokens(PromptWriter.write(changes));
+        }
+        return changes.parallelStream()
+                .mapToInt(TokenUtils::countTokens)
+                .sum();
+    }
+
+    /**
+     * 判断文本的 token 数量是否超过上限，估算无法确定时精确编码，编码到上限即停止
+     *
+     * @param text      输入文本
+     * @param maxTokens 最大token数
+     * @return 超过上限时返回true
+     */
+    public static boolean exceeds(String text, int maxTokens) {
+        if (StringUtils.isBlank(text)) {
+            return false;
+        }
+        Tokenizer current = getTokenizer();
+        TokenEstimator.Verdict verdict = TokenEstimator.check(TokenEstimator.estimate(text, current.getCjkTokensPerChar()), maxTokens);
+        if (verdict != TokenEstimator.Verdict.UNCERTAIN) {
+            return verdict == TokenEstimator.Verdict.EXCEEDS;
+        }
+        return current.exceeds(text, maxTokens);
+    }
+
+    /**
+     * 判断变更列表的 token 数量是否超过上限，估算无法确定时按文件精确计数
+     *
+     * @param changes   变更列表
+     * @param maxTokens 最大token数
+     * @return 超过上限时返回true
+     */
+    public static boolean exceeds(List<ChangeInfo> changes, int maxTokens) {
+        if (changes == null || changes.isEmpty()) {
+            return false;
+        }
+        double cjkTokensPerChar = getTokenizer().getCjkTokensPerChar();
+        // 估算时直接读取diff内容，溢出到磁盘的diff不复制到堆内
+        int estimated = changes.stream()
+                .mapToInt(change -> TokenEstimator.estimate(change.getNewPath(), cjkTokensPerChar)
+                        + TokenEstimator.estimate(change.getDiffContent(), cjkTokensPerChar) + HEADER_TOKENS)
+                .sum();
+        TokenEstimator.Verdict verdict = TokenEstimator.check(estimated, maxTokens);
+        if (verdict != TokenEstimator.Verdict.UNCERTAIN) {
+            return verdict == TokenEstimator.Verdict.EXCEEDS;
+        }
+        return countTokens(changes) > maxTokens;
+    }
+
+    /**
+     * 按token上限截断文本，估算明显低于上限时不编码，否则只编码一遍，编码到上限即停止
+     *
+     * @param text      需要截断的文本内容
+     * @param maxTokens 最大允许的token数量
+     * @return 截断结果，未超出上限时为原文本
+     */
+    public static Truncation truncate(String text, int maxTokens) {
+        if (StringUtils.isBlank(text)) {
+            return new Truncation(text, 0, false);
+        }
+        Tokenizer current = getTokenizer();
+        int estimated = TokenEstimator.estimate(text, current.getCjkTokensPerChar());
+        if (TokenEstimator.check(estimated, maxTokens) == TokenEstimator.Verdict.WITHIN) {
+            return new Truncation(text, estimated, false);
+        }
+        return current.truncate(text, maxTokens);
     }
 
     /**
@@ -39,26 +172,26 @@ public class TokenUtils {
      * @return 截断后的文本，如果原文本为空或未超出限制则返回原文本
      */
     public static String truncateTextByTokens(String changeText, int reviewMaxTokens) {
-        if (StringUtils.isBlank(changeText)) {
-            return changeText;
-        }
-
-        // 获取编码器
-        Encoding encoding = Encodings.newDefaultEncodingRegistry()
-                .getEncoding(EncodingType.CL100K_BASE);
-
-        // 将文本编码为 tokens
-        List<Integer> tokens = encoding.encode(changeText).boxed();
-
-        // 如果 tokens 数量超过最大限制，则截断
-        if (tokens.size() > reviewMaxTokens) {
-            IntArrayList truncatedTokens = new IntArrayList();
-            for (int i = 0; i < reviewMaxTokens; i++) {
-                truncatedTokens.add(tokens.get(i));
-            }
-            return encoding.decode(truncatedTokens);
-        }
+        return truncate(changeText, reviewMaxTokens).getText();
+    }
 
-        return changeText;
+    /**
+     * 截断结果
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class Truncation {
+        /**
+         * 截断后的文本
+         */
+        private final String text;
+        /**
+         * 截断后文本的 token 数量，估算后未编码时为估算值
+         */
+        private final int tokens;
+        /**
+         * 是否发生截断
+         */
+        private final boolean truncated;
     }
 }
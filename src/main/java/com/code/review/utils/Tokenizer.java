@@ -0,0 +1,45 @@
+package com.code.review.utils;
+
+/**
+ * 分词器，按供应商与模型计算token数量
+ * <p>
+ * 由 {@link com.code.review.factory.LLMClientFactory#getTokenizer()} 按大模型配置选择，实现需线程安全。
+ */
+public interface Tokenizer {
+
+    /**
+     * 分词器名称，用于日志与统计
+     */
+    String getName();
+
+    /**
+     * 计算文本的 token 数量
+     *
+     * @param text 输入文本
+     * @return token 数量
+     */
+    int countTokens(String text);
+
+    /**
+     * 判断文本的 token 数量是否超过上限，编码到上限即停止
+     *
+     * @param text      输入文本
+     * @param maxTokens 最大token数
+     * @return 超过上限时返回true
+     */
+    boolean exceeds(String text, int maxTokens);
+
+    /**
+     * 按token上限截断文本，只编码一遍
+     *
+     * @param text      需要截断的文本内容
+     * @param maxTokens 最大允许的token数量
+     * @return 截断结果，未超出上限时为原文本
+     */
+    TokenUtils.Truncation truncate(String text, int maxTokens);
+
+    /**
+     * 每个中日韩字符平均对应的token数，供 {@link TokenEstimator} 快速估算
+     */
+    double getCjkTokensPerChar();
+}
@@ -0,0 +1,106 @@
+package com.code.review.benchmark;
+
+import com.code.review.utils.DiffScanner;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * diff 扫描与原先按行拆分加正则匹配的实现对比
+ * <p>
+ * 运行方式：
+ * <pre>
+ * mvn -B test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ * java -cp target/test-classes:target/classes:$(cat target/cp.txt) org.openjdk.jmh.Main DiffScannerBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DiffScannerBenchmark {
+
+    private static final Pattern DELETED_PATTERN = Pattern.compile("@@ -\\d+,\\d+ \\+0,0 @@");
+
+    /**
+     * diff 的行数
+     */
+    @Param({"100", "10000"})
+    private int lines;
+
+    private String diff;
+    private String deletedDiff;
+
+    @Setup
+    public void setUp() {
+        StringBuilder modified = new StringBuilder("@@ -1,").append(lines).append(" +1,").append(lines).append(" @@\n");
+        StringBuilder deleted = new StringBuilder("@@ -1,").append(lines).append(" +0,0 @@\n");
+        for (int i = 0; i < lines; i++) {
+            String line = "    int value" + i + " = compute(value" + (i - 1) + ", " + i + ");\n";
+            modified.append(i % 3 == 0 ? '+' : i % 3 == 1 ? '-' : ' ').append(line);
+            if (i % 50 == 49) {
+                modified.append("@@ -").append(i).append(",50 +").append(i).append(",50 @@\n");
+            }
+            deleted.append('-').append(line);
+        }
+        diff = modified.toString();
+        deletedDiff = deleted.toString();
+    }
+
+    @Benchmark
+    public void scan(Blackhole blackhole) {
+        blackhole.consume(DiffScanner.scan(diff));
+        blackhole.consume(DiffScanner.scan(deletedDiff));
+    }
+
+    @Benchmark
+    public void legacySplit(Blackhole blackhole) {
+        blackhole.consume(legacyCount(diff));
+        blackhole.consume(legacyDeleted(diff));
+        blackhole.consume(legacyCount(deletedDiff));
+        blackhole.consume(legacyDeleted(deletedDiff));
+    }
+
+    /**
+     * 原 GitLab 的增删行统计
+     */
+    private static int legacyCount(String diff) {
+        int additions = 0;
+        int deletions = 0;
+        for (String line : diff.split("\n")) {
+            if (line.startsWith("+") && !line.startsWith("++")) {
+                additions++;
+            } else if (line.startsWith("-") && !line.startsWith("--")) {
+                deletions++;
+            }
+        }
+        return additions * 31 + deletions;
+    }
+
+    /**
+     * 原 GitHub 的整文件删除判断
+     */
+    private static boolean legacyDeleted(String diff) {
+        if (!DELETED_PATTERN.matcher(diff).find()) {
+            return false;
+        }
+        String[] diffLines = diff.split("\n");
+        for (int i = 1; i < diffLines.length; i++) {
+            if (!diffLines[i].startsWith("-") && !diffLines[i].isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(DiffScannerBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,124 @@
+package com.code.review.benchmark;
+
+import com.code.review.utils.PathMatcher;
+import com.code.review.utils.SpringUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.context.support.StaticApplicationContext;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * 10000 个文件的变更按路径过滤：编译后的路径过滤器与原先每次读取配置逐个比较扩展名、逐个匹配glob的实现对比
+ * <p>
+ * 运行方式：
+ * <pre>
+ * mvn -B test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ * java -cp target/test-classes:target/classes:$(cat target/cp.txt) org.openjdk.jmh.Main PathMatcherBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PathMatcherBenchmark {
+
+    private static final String EXTENSIONS = ".java,.py,.php,.go,.js,.ts,.tsx,.vue,.kt,.scala,.rb,.rs,.c,.cc,.cpp,.h,.cs,.swift";
+    private static final String EXCLUDE_PATHS = "**/vendor/**,**/node_modules/**,**/dist/**,*.min.js,*.min.css,*.pb.go,*_pb2.py,"
+            + "*.pb.h,*.pb.cc,package-lock.json,yarn.lock,pnpm-lock.yaml,go.sum";
+    private static final String[] DIRECTORIES = {"src/main/java/com/code/review/", "web/src/components/", "vendor/github.com/x/",
+            "node_modules/lodash/", "api/proto/", "docs/", "services/user/internal/"};
+    private static final String[] FILES = {"Service.java", "index.ts", "util.go", "app.min.js", "user.pb.go", "README.md",
+            "model_pb2.py", "view.vue", "main.rs", "go.sum"};
+
+    private final List<String> paths = new ArrayList<>();
+    private List<Pattern> excludePatterns;
+
+    @Setup
+    public void setUp() {
+        MockEnvironment environment = new MockEnvironment();
+        environment.setProperty("SUPPORTED_EXTENSIONS", EXTENSIONS);
+        environment.setProperty("REVIEW_EXCLUDE_PATHS", EXCLUDE_PATHS);
+        StaticApplicationContext context = new StaticApplicationContext();
+        context.setEnvironment(environment);
+        context.refresh();
+        new SpringUtils().setApplicationContext(context);
+
+        for (int i = 0; i < 10000; i++) {
+            paths.add(DIRECTORIES[i % DIRECTORIES.length] + "m" + (i / 70) + "/" + FILES[i % FILES.length]);
+        }
+        excludePatterns = new ArrayList<>();
+        for (String glob : EXCLUDE_PATHS.split(",")) {
+            String regex = PathMatcher.globToRegex(glob);
+            excludePatterns.add(Pattern.compile(regex));
+        }
+    }
+
+    /**
+     * 每次事件获取（缓存的）路径过滤器，逐个文件判断
+     */
+    @Benchmark
+    public int compiled() {
+        PathMatcher matcher = PathMatcher.forProject("benchmark");
+        int matched = 0;
+        for (String path : paths) {
+            if (matcher.matches(path)) {
+                matched++;
+            }
+        }
+        return matched;
+    }
+
+    /**
+     * 原实现：每次事件重新读取并拆分扩展名配置，逐个文件调用 endsWithAny，不支持glob
+     */
+    @Benchmark
+    public int legacyExtensions() {
+        String[] extensions = SpringUtils.getPropertyOrDefault("SUPPORTED_EXTENSIONS", ".java,.py,.php").split(",");
+        int matched = 0;
+        for (String path : paths) {
+            if (StringUtils.endsWithAny(path, extensions)) {
+                matched++;
+            }
+        }
+        return matched;
+    }
+
+    /**
+     * 不合并glob：扩展名逐个比较，每个glob单独匹配
+     */
+    @Benchmark
+    public int perGlobPatterns() {
+        String[] extensions = SpringUtils.getPropertyOrDefault("SUPPORTED_EXTENSIONS", ".java,.py,.php").split(",");
+        int matched = 0;
+        for (String path : paths) {
+            if (!StringUtils.endsWithAny(path, extensions)) {
+                continue;
+            }
+            boolean excluded = false;
+            for (Pattern pattern : excludePatterns) {
+                if (pattern.matcher(path).matches()) {
+                    excluded = true;
+                    break;
+                }
+            }
+            if (!excluded) {
+                matched++;
+            }
+        }
+        return matched;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(PathMatcherBenchmark.class.getSimpleName()).build()).run();
+    }
+}
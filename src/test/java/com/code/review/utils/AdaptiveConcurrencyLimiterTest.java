@@ -0,0 +1,128 @@
+package com.code.review.utils;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.support.StaticApplicationContext;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    private static final String PREFIX = "TEST_LIMIT";
+
+    @BeforeAll
+    static void setUp() {
+        MockEnvironment environment = new MockEnvironment();
+        environment.setProperty(PREFIX + "_INITIAL", "2");
+        environment.setProperty(PREFIX + "_MIN", "1");
+        environment.setProperty(PREFIX + "_MAX", "4");
+        environment.setProperty(PREFIX + "_DECREASE_RATIO", "0.5");
+        environment.setProperty(PREFIX + "_LATENCY_TOLERANCE", "2");
+        environment.setProperty(PREFIX + "_QUEUE_TIMEOUT", "100");
+        StaticApplicationContext context = new StaticApplicationContext();
+        context.setEnvironment(environment);
+        context.refresh();
+        new SpringUtils().setApplicationContext(context);
+    }
+
+    @Test
+    void limitGrowsAdditivelyUpToMax() {
+        AdaptiveConcurrencyLimiter limiter = AdaptiveConcurrencyLimiter.of("additive", PREFIX);
+        // 每次成功调用上限加 1/limit：2 -> 2.5 -> 2.9 -> 3.24
+        complete(limiter, 2);
+        assertEquals(2, limit(limiter));
+        complete(limiter, 1);
+        assertEquals(3, limit(limiter));
+        complete(limiter, 20);
+        assertEquals(4, limit(limiter));
+    }
+
+    @Test
+    void overloadHalvesLimit() {
+        AdaptiveConcurrencyLimiter limiter = AdaptiveConcurrencyLimiter.of("overload", PREFIX);
+        limiter.acquire();
+        limiter.onResult(100, 0, true);
+        assertEquals(1, limit(limiter));
+        assertEquals(1L, limiter.getStats().get("decreases"));
+    }
+
+    @Test
+    void latencySpikeComparesOnlyWithinSizeClass() {
+        AdaptiveConcurrencyLimiter limiter = AdaptiveConcurrencyLimiter.of("latency", PREFIX);
+        for (int i = 0; i < 5; i++) {
+            limiter.acquire();
+            limiter.onResult(100, 100, false);
+        }
+        // 输出更长的调用属于其他分组，耗时再长也不与短调用的基线比较
+        limiter.acquire();
+        limiter.onResult(5000, 5000, false);
+        assertEquals(0L, limiter.getStats().get("decreases"));
+
+        limiter.acquire();
+        limiter.onResult(300, 100, false);
+        assertEquals(1L, limiter.getStats().get("decreases"));
+    }
+
+    @Test
+    void queuedRequestFailsAfterQueueTimeout() {
+        AdaptiveConcurrencyLimiter limiter = AdaptiveConcurrencyLimiter.of("queue-timeout", PREFIX);
+        limiter.acquire();
+        limiter.acquire();
+        CompletableFuture<Void> queued = limiter.acquireAsync();
+        assertFalse(queued.isDone());
+
+        ExecutionException error = assertThrows(ExecutionException.class, () -> queued.get(2, TimeUnit.SECONDS));
+        assertInstanceOf(ConcurrencyLimitExceededException.class, error.getCause());
+        assertEquals(1L, limiter.getStats().get("rejected"));
+        assertThrows(ConcurrencyLimitExceededException.class, limiter::acquire);
+    }
+
+    @Test
+    void releaseDrainsQueueInOrder() {
+        AdaptiveConcurrencyLimiter limiter = AdaptiveConcurrencyLimiter.of("drain", PREFIX);
+        limiter.acquire();
+        limiter.acquire();
+        CompletableFuture<Void> first = limiter.acquireAsync();
+        CompletableFuture<Void> second = limiter.acquireAsync();
+
+        limiter.release();
+        assertTrue(first.isDone());
+        assertFalse(second.isDone());
+        limiter.onResult(100, 0, false);
+        assertTrue(second.isDone());
+        assertEquals(2, limiter.getStats().get("inFlight"));
+    }
+
+    @Test
+    void cancelledWaiterDoesNotHoldPermit() {
+        AdaptiveConcurrencyLimiter limiter = AdaptiveConcurrencyLimiter.of("cancel", PREFIX);
+        limiter.acquire();
+        limiter.acquire();
+        CompletableFuture<Void> queued = limiter.acquireAsync();
+        queued.cancel(false);
+
+        limiter.release();
+        assertEquals(1, limiter.getStats().get("inFlight"));
+        assertEquals(0, limiter.getStats().get("waiting"));
+    }
+
+    private static void complete(AdaptiveConcurrencyLimiter limiter, int calls) {
+        for (int i = 0; i < calls; i++) {
+            limiter.acquire();
+            limiter.onResult(100, 0, false);
+        }
+    }
+
+    private static int limit(AdaptiveConcurrencyLimiter limiter) {
+        return (int) limiter.getStats().get("limit");
+    }
+}
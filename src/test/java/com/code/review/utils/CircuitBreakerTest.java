@@ -0,0 +1,123 @@
+package com.code.review.utils;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.support.StaticApplicationContext;
+import org.springframework.mock.env.MockEnvironment;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CircuitBreakerTest {
+
+    private static final String PREFIX = "TEST_BREAKER";
+
+    private static final long OPEN_MILLIS = 50;
+
+    @BeforeAll
+    static void setUp() {
+        MockEnvironment environment = new MockEnvironment();
+        environment.setProperty(PREFIX + "_WINDOW_SIZE", "4");
+        environment.setProperty(PREFIX + "_MIN_CALLS", "4");
+        environment.setProperty(PREFIX + "_FAILURE_RATE", "50");
+        environment.setProperty(PREFIX + "_SLOW_CALL_RATE", "50");
+        environment.setProperty(PREFIX + "_SLOW_CALL_MILLIS", "1000");
+        environment.setProperty(PREFIX + "_SLOW_CALL_MILLIS_PER_TOKEN", "10");
+        environment.setProperty(PREFIX + "_OPEN_MILLIS", String.valueOf(OPEN_MILLIS));
+        environment.setProperty(PREFIX + "_HALF_OPEN_PROBES", "2");
+        StaticApplicationContext context = new StaticApplicationContext();
+        context.setEnvironment(environment);
+        context.refresh();
+        new SpringUtils().setApplicationContext(context);
+    }
+
+    @Test
+    void opensWhenFailureRateReached() {
+        CircuitBreaker breaker = CircuitBreaker.of("failure", PREFIX);
+        breaker.onResult(10, false);
+        breaker.onResult(10, false);
+        breaker.onResult(10, true);
+        // 窗口内调用数不足_MIN_CALLS时不判断
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        breaker.onResult(10, true);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertThrows(CircuitBreakerOpenException.class, breaker::acquire);
+    }
+
+    @Test
+    void slowCallThresholdGrowsWithOutputTokens() {
+        // 100个输出token时阈值为 1000 + 100 * 10 = 2000ms，1500ms不算慢调用
+        CircuitBreaker longOutput = CircuitBreaker.of("slow-long-output", PREFIX);
+        for (int i = 0; i < 4; i++) {
+            longOutput.onResult(1500, 100, false);
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, longOutput.getState());
+
+        CircuitBreaker firstToken = CircuitBreaker.of("slow-first-token", PREFIX);
+        for (int i = 0; i < 4; i++) {
+            firstToken.onResult(1500, 0, false);
+        }
+        assertEquals(CircuitBreaker.State.OPEN, firstToken.getState());
+    }
+
+    @Test
+    void halfOpenAdmitsLimitedProbesAndClosesOnSuccess() throws InterruptedException {
+        CircuitBreaker breaker = open("half-open-success");
+        Thread.sleep(OPEN_MILLIS * 2);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+
+        breaker.acquire();
+        breaker.acquire();
+        // 探测请求数达到_HALF_OPEN_PROBES后拒绝
+        assertThrows(CircuitBreakerOpenException.class, breaker::acquire);
+
+        breaker.onResult(10, false);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        breaker.onResult(10, false);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void failedProbeReopens() throws InterruptedException {
+        CircuitBreaker breaker = open("half-open-failure");
+        Thread.sleep(OPEN_MILLIS * 2);
+        breaker.acquire();
+        breaker.onResult(10, true);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertThrows(CircuitBreakerOpenException.class, breaker::acquire);
+    }
+
+    @Test
+    void slowProbesReopen() throws InterruptedException {
+        CircuitBreaker breaker = open("half-open-slow");
+        Thread.sleep(OPEN_MILLIS * 2);
+        breaker.acquire();
+        breaker.acquire();
+        // 单个慢探测不立即熔断，全部探测结束后按慢调用率判断
+        breaker.onResult(5000, false);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        breaker.onResult(5000, false);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    void releaseFreesProbeSlot() throws InterruptedException {
+        CircuitBreaker breaker = open("half-open-release");
+        Thread.sleep(OPEN_MILLIS * 2);
+        breaker.acquire();
+        breaker.acquire();
+        breaker.release();
+        assertDoesNotThrow(breaker::acquire);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+    }
+
+    private static CircuitBreaker open(String name) {
+        CircuitBreaker breaker = CircuitBreaker.of(name, PREFIX);
+        for (int i = 0; i < 4; i++) {
+            breaker.onResult(10, true);
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        return breaker;
+    }
+}
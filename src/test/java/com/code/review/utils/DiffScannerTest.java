@@ -0,0 +1,144 @@
+package com.code.review.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.CharBuffer;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DiffScannerTest {
+
+    @Test
+    void countsAddedAndDeletedLines() {
+        String diff = """
+                @@ -1,4 +1,5 @@
+                 int i = 0;
+                -i--;
+                +i++;
+                +++i;
+                ---i;
+                 return i;
+                """;
+        DiffScanner.Result result = DiffScanner.scan(diff);
+        // "++i"、"--i" 是内容以加减号开头的新增、删除行，同样计数
+        assertEquals(2, result.getAdditions());
+        assertEquals(2, result.getDeletions());
+        assertArrayEquals(new int[]{0}, result.getHunkOffsets());
+        assertFalse(result.isDeletedFile());
+        assertFalse(result.isBinary());
+    }
+
+    @Test
+    void ignoresLinesBeforeFirstHunk() {
+        String diff = """
+                --- a/src/Main.java
+                +++ b/src/Main.java
+                @@ -1 +1 @@
+                -old
+                +new
+                """;
+        DiffScanner.Result result = DiffScanner.scan(diff);
+        assertEquals(1, result.getAdditions());
+        assertEquals(1, result.getDeletions());
+        assertArrayEquals(new int[]{diff.indexOf("@@")}, result.getHunkOffsets());
+    }
+
+    @Test
+    void detectsDeletedFile() {
+        String diff = """
+                @@ -1,3 +0,0 @@
+                -line 1
+                -line 2
+                -line 3
+                """;
+        DiffScanner.Result result = DiffScanner.scan(diff);
+        assertTrue(result.isDeletedFile());
+        assertEquals(0, result.getAdditions());
+        assertEquals(3, result.getDeletions());
+    }
+
+    @Test
+    void detectsDeletedFileWithoutTrailingNewline() {
+        String diff = """
+                @@ -1,2 +0,0 @@
+                -line 1
+                -line 2
+                \\ No newline at end of file
+                """;
+        DiffScanner.Result result = DiffScanner.scan(diff);
+        assertTrue(result.isDeletedFile());
+        assertEquals(2, result.getDeletions());
+    }
+
+    @Test
+    void noNewlineMarkerIsNotCounted() {
+        String diff = """
+                @@ -1 +1 @@
+                -old
+                \\ No newline at end of file
+                +new
+                \\ No newline at end of file
+                """;
+        DiffScanner.Result result = DiffScanner.scan(diff);
+        assertEquals(1, result.getAdditions());
+        assertEquals(1, result.getDeletions());
+        assertFalse(result.isDeletedFile());
+    }
+
+    @Test
+    void emptiedFileIsNotDeletedWhenContextRemains() {
+        String diff = """
+                @@ -1,3 +0,0 @@
+                -line 1
+                 line 2
+                """;
+        assertFalse(DiffScanner.scan(diff).isDeletedFile());
+        // 新文件范围不是 +0,0 时即使只有删除行也不是整文件删除
+        assertFalse(DiffScanner.scan("@@ -1,2 +1,0 @@\n-a\n-b\n").isDeletedFile());
+    }
+
+    @Test
+    void detectsBinaryFile() {
+        assertTrue(DiffScanner.scan("Binary files a/logo.png and b/logo.png differ\n").isBinary());
+        assertTrue(DiffScanner.scan("GIT binary patch\nliteral 1024\nzcmV\n").isBinary());
+        // 块内容中出现的同样文字不是二进制标记
+        assertFalse(DiffScanner.scan("@@ -1 +1 @@\n-a\nBinary files a/x and b/x differ\n").isBinary());
+    }
+
+    @Test
+    void handlesEmptyAndUnterminatedDiff() {
+        DiffScanner.Result empty = DiffScanner.scan(null);
+        assertEquals(0, empty.getAdditions());
+        assertEquals(0, empty.getHunkOffsets().length);
+
+        DiffScanner.Result result = DiffScanner.scan("@@ -1 +1 @@\n-a\n+b");
+        assertEquals(1, result.getAdditions());
+        assertEquals(1, result.getDeletions());
+    }
+
+    @Test
+    void splitsHunks() {
+        String diff = "--- a/x\n+++ b/x\n@@ -1 +1 @@\n-a\n+b\n@@ -10 +10 @@\n-c\n+d";
+        List<String> hunks = DiffScanner.splitHunks(diff);
+        assertEquals(List.of("--- a/x\n+++ b/x\n@@ -1 +1 @@\n-a\n+b\n", "@@ -10 +10 @@\n-c\n+d\n"), hunks);
+        assertEquals(String.join("", hunks), diff + "\n");
+    }
+
+    @Test
+    void scansAndSplitsCharBufferLikeString() {
+        String diff = "--- a/x\n+++ b/x\n@@ -1,2 +0,0 @@\n-a\n-b\n@@ -10 +10 @@\n-c\n+d";
+        // 溢出到磁盘的diff以CharBuffer视图传入，结果与String相同
+        CharBuffer buffer = CharBuffer.wrap(diff.toCharArray());
+        DiffScanner.Result expected = DiffScanner.scan(diff);
+        DiffScanner.Result actual = DiffScanner.scan(buffer);
+        assertArrayEquals(expected.getHunkOffsets(), actual.getHunkOffsets());
+        assertEquals(expected.getAdditions(), actual.getAdditions());
+        assertEquals(expected.getDeletions(), actual.getDeletions());
+        assertEquals(DiffScanner.splitHunks(diff), DiffScanner.splitHunks(buffer));
+        assertEquals("@@ -10 +10 @@\n-c\n+d\n", DiffScanner.hunk(buffer, actual.getHunkOffsets(), 1));
+    }
+}
@@ -0,0 +1,69 @@
+package com.code.review.utils;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.support.StaticApplicationContext;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.nio.CharBuffer;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DiffStoreTest {
+
+    private static final long JOB_HEAP_LIMIT = 64 * 1024;
+
+    @TempDir
+    static Path directory;
+
+    @BeforeAll
+    static void setUp() {
+        MockEnvironment environment = new MockEnvironment();
+        environment.setProperty("DIFF_SPILL_THRESHOLD", "4096");
+        environment.setProperty("DIFF_JOB_HEAP_LIMIT", String.valueOf(JOB_HEAP_LIMIT));
+        environment.setProperty("DIFF_SPILL_DIR", directory.toString());
+        StaticApplicationContext context = new StaticApplicationContext();
+        context.setEnvironment(environment);
+        context.refresh();
+        new SpringUtils().setApplicationContext(context);
+    }
+
+    @Test
+    void keepsSmallDiffOnHeapAndSpillsLargeDiff() {
+        try (DiffStore store = DiffStore.open()) {
+            String small = "@@ -1 +1 @@\n-a\n+b\n";
+            assertSame(small, store.put(small));
+
+            String large = "+line\n".repeat(1000);
+            CharSequence spilled = store.put(large);
+            assertInstanceOf(CharBuffer.class, spilled);
+            assertEquals(large, spilled.toString());
+            assertEquals(1, store.getSpilledDiffs());
+            assertEquals(small.length() * 2L, store.getHeapBytes());
+        }
+    }
+
+    @Test
+    void parallelPutsStayWithinJobHeapLimit() {
+        try (DiffStore store = DiffStore.open()) {
+            // 每个diff约2000字节，限额内最多保留32个
+            String diff = "+0123456789\n".repeat(83) + "+abcd";
+            List<CharSequence> results = new CopyOnWriteArrayList<>();
+            IntStream.range(0, 400).parallel().forEach(i -> results.add(store.put(diff)));
+
+            long onHeap = results.stream().filter(result -> result instanceof String).count();
+            assertTrue(store.getHeapBytes() <= JOB_HEAP_LIMIT, "heapBytes=" + store.getHeapBytes());
+            assertEquals(onHeap * diff.length() * 2, store.getHeapBytes());
+            assertEquals(JOB_HEAP_LIMIT / (diff.length() * 2), onHeap);
+            assertEquals(400 - onHeap, store.getSpilledDiffs());
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.code.review.utils;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.context.support.StaticApplicationContext;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PathMatcherTest {
+
+    private static void useProperties(String... keyValues) {
+        MockEnvironment environment = new MockEnvironment();
+        for (int i = 0; i < keyValues.length; i += 2) {
+            environment.setProperty(keyValues[i], keyValues[i + 1]);
+        }
+        StaticApplicationContext context = new StaticApplicationContext();
+        context.setEnvironment(environment);
+        context.refresh();
+        new SpringUtils().setApplicationContext(context);
+    }
+
+    private static boolean glob(String glob, String path) {
+        return PathMatcher.compileGlobs(List.of(glob)).matches(path);
+    }
+
+    @Test
+    void globWithoutSlashMatchesFileNameInAnyDirectory() {
+        assertTrue(glob("*.min.js", "app.min.js"));
+        assertTrue(glob("*.min.js", "static/js/app.min.js"));
+        assertFalse(glob("*.min.js", "app.js"));
+        assertTrue(glob("go.sum", "svc/go.sum"));
+        assertFalse(glob("go.sum", "svc/go.sum.bak"));
+    }
+
+    @Test
+    void doubleStarSlashMatchesAnyDepthIncludingNone() {
+        assertTrue(glob("**/vendor/**", "vendor/a.go"));
+        assertTrue(glob("**/vendor/**", "svc/vendor/lib/a.go"));
+        assertFalse(glob("**/vendor/**", "svc/vendors/a.go"));
+        assertTrue(glob("src/**/*.java", "src/A.java"));
+        assertTrue(glob("src/**/*.java", "src/com/code/A.java"));
+        assertFalse(glob("src/**/*.java", "test/src/A.java"));
+    }
+
+    @Test
+    void singleStarAndQuestionMarkDoNotCrossDirectories() {
+        assertTrue(glob("src/*.java", "src/A.java"));
+        assertFalse(glob("src/*.java", "src/com/A.java"));
+        assertTrue(glob("file?.txt", "file1.txt"));
+        assertFalse(glob("a?b/c.txt", "a/b/c.txt"));
+    }
+
+    @Test
+    void leadingSlashAnchorsToRoot() {
+        assertTrue(glob("/build.gradle", "build.gradle"));
+        assertFalse(glob("/build.gradle", "app/build.gradle"));
+        assertTrue(glob("/gen/*.java", "gen/A.java"));
+        assertFalse(glob("/gen/*.java", "app/gen/A.java"));
+    }
+
+    @Test
+    void trailingSlashMatchesEverythingInDirectory() {
+        assertTrue(glob("dist/", "dist/app.js"));
+        assertTrue(glob("dist/", "dist/js/app.js"));
+        assertFalse(glob("dist/", "src/dist/app.js"));
+        assertFalse(glob("dist/", "distribution/app.js"));
+    }
+
+    @Test
+    void escapesRegexCharacters() {
+        assertTrue(glob("a+b(1).java", "a+b(1).java"));
+        assertFalse(glob("a.java", "aXjava"));
+        assertTrue(Pattern.matches(PathMatcher.globToRegex("*.pb.go"), "api.pb.go"));
+    }
+
+    @Test
+    void lookupTablesAgreeWithRegex() {
+        List<String> globs = List.of("*.min.js", "go.sum", "**/vendor/**", "*", "vendor", "/go.sum", "dist/", "src/**/*.java");
+        List<String> paths = List.of("go.sum", "a/go.sum", "a/go.sum.bak", "vendor", "vendor/a.go", "x/vendor/y/a.go",
+                "x/vendors/a.go", "app.min.js", "a/b/app.min.js", "a/min.js", ".min.js", "dist/a.js", "src/a/B.java");
+        for (String glob : globs) {
+            Pattern regex = Pattern.compile(PathMatcher.globToRegex(glob));
+            for (String path : paths) {
+                assertEquals(regex.matcher(path).matches(), glob(glob, path), glob + " " + path);
+            }
+        }
+    }
+
+    @Test
+    void includeExcludeAndExtensions() {
+        useProperties("SUPPORTED_EXTENSIONS", ".java,.go",
+                "REVIEW_INCLUDE_PATHS", "Dockerfile",
+                "REVIEW_EXCLUDE_PATHS", "**/vendor/**,*.pb.go");
+        PathMatcher matcher = PathMatcher.forProject("include-exclude");
+        assertTrue(matcher.matches("src/Main.java"));
+        assertTrue(matcher.matches("deploy/Dockerfile"));
+        assertFalse(matcher.matches("README.md"));
+        assertFalse(matcher.matches("vendor/lib/x.go"));
+        assertFalse(matcher.matches("api/user.pb.go"));
+    }
+
+    @Test
+    void laterAttributeOverridesEarlier() {
+        useProperties("SUPPORTED_EXTENSIONS", ".java",
+                "REVIEW_PATH_ATTRIBUTES", "gen/** linguist-generated;gen/api/** -linguist-generated");
+        PathMatcher matcher = PathMatcher.forProject("attributes-unmark");
+        assertFalse(matcher.matches("gen/model/User.java"));
+        assertTrue(matcher.matches("gen/api/UserApi.java"));
+        assertTrue(matcher.matches("src/Main.java"));
+
+        useProperties("SUPPORTED_EXTENSIONS", ".java",
+                "REVIEW_PATH_ATTRIBUTES", "gen/api/** linguist-generated=false;gen/** linguist-generated");
+        matcher = PathMatcher.forProject("attributes-mark");
+        assertFalse(matcher.matches("gen/api/UserApi.java"));
+        assertFalse(matcher.matches("gen/model/User.java"));
+    }
+
+    @Test
+    void vendoredAndNoDiffAttributesExclude() {
+        useProperties("SUPPORTED_EXTENSIONS", ".go",
+                "REVIEW_PATH_ATTRIBUTES", "third_party/** linguist-vendored\nmocks/** -diff");
+        PathMatcher matcher = PathMatcher.forProject("attributes-vendored");
+        assertFalse(matcher.matches("third_party/x/a.go"));
+        assertFalse(matcher.matches("mocks/a.go"));
+        assertTrue(matcher.matches("svc/a.go"));
+    }
+
+    @Test
+    void lastAttributeOnLineWins() {
+        useProperties("SUPPORTED_EXTENSIONS", ".java",
+                "REVIEW_PATH_ATTRIBUTES", "gen/** linguist-generated -linguist-generated");
+        assertTrue(PathMatcher.forProject("attributes-line").matches("gen/A.java"));
+    }
+
+    @Test
+    void generatedMarkerInFileHeader() {
+        useProperties();
+        assertTrue(PathMatcher.isGenerated("@@ -0,0 +1,3 @@\n+// Code generated by protoc-gen-go. DO NOT EDIT.\n+package api\n+\n"));
+        assertTrue(PathMatcher.isGenerated("--- a/x.py\n+++ b/x.py\n@@ -1,4 +1,4 @@\n # -*- coding: utf-8 -*-\n-# Generated by the protocol buffer compiler.  DO NOT EDIT!\n+# Generated by the protocol buffer compiler.  DO NOT EDIT!\n"));
+        assertTrue(PathMatcher.isGenerated("@@ -1 +1,2 @@\n /**\n+ * @generated\n"));
+        assertTrue(PathMatcher.isGenerated("@@ -0,0 +1 @@\n+/* This file is auto-generated by Thrift */"));
+    }
+
+    @Test
+    void generatedMarkerOutsideFileHeaderIsIgnored() {
+        useProperties();
+        // diff块不从第1行开始，看不到文件头
+        assertFalse(PathMatcher.isGenerated("@@ -40,6 +40,7 @@\n // Code generated by protoc-gen-go. DO NOT EDIT.\n+int x;\n"));
+        // 普通注释或代码中出现的相似字样
+        assertFalse(PathMatcher.isGenerated("@@ -1,3 +1,4 @@\n package a;\n+// auto-generated id\n+long id = autogenerated();\n"));
+        assertFalse(PathMatcher.isGenerated("@@ -0,0 +1 @@\n+String s = \"@generated\";\n"));
+        // 删除的文件头不属于新文件
+        assertFalse(PathMatcher.isGenerated("@@ -1,2 +1 @@\n-// @generated\n package a;\n"));
+        // 超出前10行
+        assertFalse(PathMatcher.isGenerated("@@ -0,0 +1,12 @@\n" + "+\n".repeat(10) + "+// @generated\n"));
+    }
+
+    @Test
+    void generatedCheckCanBeDisabled() {
+        useProperties("REVIEW_SKIP_GENERATED", "0");
+        assertFalse(PathMatcher.isGenerated("@@ -0,0 +1 @@\n+// @generated\n"));
+    }
+}
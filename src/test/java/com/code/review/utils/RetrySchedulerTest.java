@@ -0,0 +1,113 @@
+package com.code.review.utils;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.support.StaticApplicationContext;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.net.SocketTimeoutException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RetrySchedulerTest {
+
+    @BeforeAll
+    static void setUp() {
+        MockEnvironment environment = new MockEnvironment();
+        environment.setProperty("RETRY_DEADLINE", "5000");
+        environment.setProperty("RETRY_SERVER_ERROR_MAX_ATTEMPTS", "3");
+        environment.setProperty("RETRY_SERVER_ERROR_INITIAL_DELAY", "10");
+        environment.setProperty("RETRY_SERVER_ERROR_MAX_DELAY", "40");
+        environment.setProperty("RETRY_NOT_READY_INITIAL_DELAY", "20000");
+        environment.setProperty("RETRY_NOT_READY_MAX_DELAY", "20000");
+        StaticApplicationContext context = new StaticApplicationContext();
+        context.setEnvironment(environment);
+        context.refresh();
+        new SpringUtils().setApplicationContext(context);
+    }
+
+    @Test
+    void classifiesByCauseChain() {
+        assertEquals(RetryPolicy.SERVER_ERROR, RetryScheduler.classify(new HttpStatusException(503, "u")));
+        assertEquals(RetryPolicy.SERVER_ERROR, RetryScheduler.classify(new HttpStatusException(429, "u")));
+        assertNull(RetryScheduler.classify(new HttpStatusException(404, "u")));
+        // 异步结果与业务层包装的异常同样按原因分类
+        assertEquals(RetryPolicy.SERVER_ERROR, RetryScheduler.classify(
+                new CompletionException(new RuntimeException("wrapped", new HttpStatusException(500, "u")))));
+        assertEquals(RetryPolicy.TIMEOUT, RetryScheduler.classify(new SocketTimeoutException()));
+        assertEquals(RetryPolicy.TIMEOUT, RetryScheduler.classify(new ExecutionException(new TimeoutException())));
+        assertNull(RetryScheduler.classify(new IllegalStateException()));
+        assertNull(RetryScheduler.classify(null));
+    }
+
+    @Test
+    void unwrapsCompletionAndExecutionExceptions() {
+        IllegalStateException cause = new IllegalStateException();
+        assertSame(cause, RetryScheduler.unwrap(new CompletionException(new ExecutionException(cause))));
+        // 业务层包装的异常保持原样
+        RuntimeException wrapped = new RuntimeException(cause);
+        assertSame(wrapped, RetryScheduler.unwrap(wrapped));
+    }
+
+    @Test
+    void backoffDoublesWithJitterUpToMaxDelay() {
+        for (int i = 0; i < 100; i++) {
+            assertBetween(RetryPolicy.SERVER_ERROR.nextDelay(1), 5, 15);
+            assertBetween(RetryPolicy.SERVER_ERROR.nextDelay(2), 10, 30);
+            // 超过最大等待时间后不再增长
+            assertBetween(RetryPolicy.SERVER_ERROR.nextDelay(5), 20, 60);
+        }
+    }
+
+    @Test
+    void retriesUntilSuccess() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        CompletableFuture<String> result = RetryScheduler.retry("test-success", () -> attempts.incrementAndGet() < 3
+                        ? CompletableFuture.failedFuture(new HttpStatusException(503, "u"))
+                        : CompletableFuture.completedFuture("ok"),
+                (value, error) -> RetryScheduler.classify(error));
+        assertEquals("ok", result.get(2, TimeUnit.SECONDS));
+        assertEquals(3, attempts.get());
+    }
+
+    @Test
+    void stopsAfterMaxAttempts() {
+        AtomicInteger attempts = new AtomicInteger();
+        CompletableFuture<String> result = RetryScheduler.retry("test-exhausted", () -> {
+            attempts.incrementAndGet();
+            return CompletableFuture.failedFuture(new HttpStatusException(502, "u"));
+        }, (value, error) -> RetryScheduler.classify(error));
+        ExecutionException error = assertThrows(ExecutionException.class, () -> result.get(2, TimeUnit.SECONDS));
+        assertInstanceOf(HttpStatusException.class, error.getCause());
+        assertEquals(3, attempts.get());
+    }
+
+    @Test
+    void doesNotRetryPastDeadline() throws Exception {
+        // 退避时间超过 RETRY_DEADLINE 时不再等待，直接返回最后一次结果
+        AtomicInteger attempts = new AtomicInteger();
+        long start = System.currentTimeMillis();
+        CompletableFuture<String> result = RetryScheduler.retry("test-deadline", () -> {
+            attempts.incrementAndGet();
+            return CompletableFuture.completedFuture("not ready");
+        }, (value, error) -> RetryPolicy.NOT_READY);
+        assertEquals("not ready", result.get(2, TimeUnit.SECONDS));
+        assertEquals(1, attempts.get());
+        assertTrue(System.currentTimeMillis() - start < 2000);
+    }
+
+    private static void assertBetween(long value, long min, long max) {
+        assertTrue(value >= min && value <= max, value + " not in [" + min + ", " + max + "]");
+    }
+}
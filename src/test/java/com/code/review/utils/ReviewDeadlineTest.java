@@ -0,0 +1,72 @@
+package com.code.review.utils;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.support.StaticApplicationContext;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReviewDeadlineTest {
+
+    @BeforeAll
+    static void setUp() {
+        useDeadline("60000");
+    }
+
+    private static void useDeadline(String deadlineMillis) {
+        MockEnvironment environment = new MockEnvironment();
+        environment.setProperty("REVIEW_DEADLINE", deadlineMillis);
+        environment.setProperty("REVIEW_MIN_REQUEST_MILLIS", "1000");
+        StaticApplicationContext context = new StaticApplicationContext();
+        context.setEnvironment(environment);
+        context.refresh();
+        new SpringUtils().setApplicationContext(context);
+    }
+
+    @Test
+    void abortedCoversWrappedCancellationAndDeadline() {
+        assertTrue(ReviewDeadline.isAborted(new CancellationException()));
+        assertTrue(ReviewDeadline.isAborted(new CompletionException(new CancellationException())));
+        assertTrue(ReviewDeadline.isAborted(new ExecutionException(new ReviewDeadlineExceededException("llm", 1))));
+        assertTrue(ReviewDeadline.isAborted(new RuntimeException("wrapped", new ReviewDeadlineExceededException("llm", 1))));
+        assertFalse(ReviewDeadline.isAborted(new RuntimeException("AI服务接口调用失败")));
+        assertFalse(ReviewDeadline.isAborted(null));
+    }
+
+    @Test
+    void cancellationThroughThenApplyIsAborted() {
+        CompletableFuture<String> source = new CompletableFuture<>();
+        CompletableFuture<String> mapped = source.thenApply(String::trim);
+        source.cancel(true);
+        // 内层Future被取消时，外层收到的是 CompletionException 而不是取消状态
+        assertFalse(mapped.isCancelled());
+        Throwable error = mapped.handle((value, e) -> e).join();
+        assertTrue(ReviewDeadline.isAborted(error));
+    }
+
+    @Test
+    void checkCurrentRemainingRejectsRequestsBelowFloor() {
+        assertDoesNotThrow(() -> ReviewDeadline.checkCurrentRemaining("llm"));
+
+        ReviewDeadline deadline = ReviewDeadline.start();
+        ReviewDeadline.runWithDeadline(deadline, () -> assertDoesNotThrow(() -> ReviewDeadline.checkCurrentRemaining("llm")));
+
+        useDeadline("500");
+        try {
+            ReviewDeadline shortDeadline = ReviewDeadline.start();
+            ReviewDeadline.runWithDeadline(shortDeadline, () ->
+                    assertThrows(ReviewDeadlineExceededException.class, () -> ReviewDeadline.checkCurrentRemaining("llm")));
+        } finally {
+            setUp();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.code.review.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class SseEventParserTest {
+
+    @Test
+    void joinsMultiLineData() {
+        List<SseEventParser.SseEvent> events = parse("data: first\ndata: second\ndata:third\n\n");
+        assertEquals(1, events.size());
+        // 冒号后只去掉一个空格
+        assertEquals("first\nsecond\nthird", events.get(0).getData());
+    }
+
+    @Test
+    void handlesCrlfLineEndings() {
+        List<SseEventParser.SseEvent> events = parse("id: 7\r\nevent: delta\r\ndata: {\"a\":1}\r\n\r\ndata: next\r\n\r\n");
+        assertEquals(2, events.size());
+        assertEquals("7", events.get(0).getId());
+        assertEquals("delta", events.get(0).getEvent());
+        assertEquals("{\"a\":1}", events.get(0).getData());
+        assertNull(events.get(1).getEvent());
+        assertEquals("next", events.get(1).getData());
+    }
+
+    @Test
+    void ignoresCommentsAndDispatchesUnterminatedLastEvent() {
+        List<SseEventParser.SseEvent> events = parse(": keep-alive\n\ndata: a\n\ndata: b");
+        assertEquals(2, events.size());
+        assertEquals("a", events.get(0).getData());
+        assertEquals("b", events.get(1).getData());
+    }
+
+    @Test
+    void stopsWhenConsumerReturnsFalse() {
+        List<String> data = new ArrayList<>();
+        int count = SseEventParser.parse("data: a\n\ndata: [DONE]\n\ndata: b\n\n", event -> {
+            data.add(event.getData());
+            return !"[DONE]".equals(event.getData());
+        });
+        assertEquals(2, count);
+        assertEquals(List.of("a", "[DONE]"), data);
+    }
+
+    @Test
+    void parsesEventsSplitAcrossReads() throws IOException {
+        String text = "event: delta\r\ndata: 第一段内容\r\n\r\ndata: {\"content\":\"代码审查\"}\ndata: 续行\n\n";
+        List<SseEventParser.SseEvent> expected = parse(text);
+
+        // 每次只返回3个字节，事件、行以及多字节字符都被拆到多次读取中
+        List<SseEventParser.SseEvent> events = new ArrayList<>();
+        SseEventParser.parse(new ChunkedInputStream(text.getBytes(StandardCharsets.UTF_8), 3), events::add);
+        assertEquals(expected, events);
+        assertEquals("第一段内容", events.get(0).getData());
+        assertEquals("{\"content\":\"代码审查\"}\n续行", events.get(1).getData());
+    }
+
+    private static List<SseEventParser.SseEvent> parse(String text) {
+        List<SseEventParser.SseEvent> events = new ArrayList<>();
+        SseEventParser.parse(text, events::add);
+        return events;
+    }
+
+    /**
+     * 每次读取最多返回固定字节数的输入流，模拟网络分段到达
+     */
+    private static class ChunkedInputStream extends ByteArrayInputStream {
+        private final int chunkSize;
+
+        ChunkedInputStream(byte[] bytes, int chunkSize) {
+            super(bytes);
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        public synchronized int read(byte[] buffer, int offset, int length) {
+            return super.read(buffer, offset, Math.min(length, chunkSize));
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.code.review.utils;
+
+import com.code.review.entity.ChangeInfo;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.support.StaticApplicationContext;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenBudgetAllocatorTest {
+
+    @BeforeAll
+    static void setUp() {
+        StaticApplicationContext context = new StaticApplicationContext();
+        context.setEnvironment(new MockEnvironment());
+        context.refresh();
+        new SpringUtils().setApplicationContext(context);
+    }
+
+    @Test
+    void shareGivesEveryFileWhatItNeedsWithinBudget() {
+        assertArrayEquals(new int[]{100, 200}, TokenBudgetAllocator.share(new int[]{100, 200}, new double[]{1, 1}, 1000));
+    }
+
+    @Test
+    void shareRedistributesUnusedShares() {
+        // 第一个文件只需100，剩余2900由另外两个文件平分
+        int[] shares = TokenBudgetAllocator.share(new int[]{100, 5000, 5000}, new double[]{1, 1, 1}, 3000);
+        assertArrayEquals(new int[]{100, 1450, 1450}, shares);
+    }
+
+    @Test
+    void shareSkipsZeroWeightFiles() {
+        int[] shares = TokenBudgetAllocator.share(new int[]{5000, 5000, 5000}, new double[]{1, 0, 1}, 3000);
+        assertArrayEquals(new int[]{1500, 0, 1500}, shares);
+    }
+
+    @Test
+    void trimKeepsLeadingHunksWithinShare() {
+        ChangeInfo change = change("src/Main.java", hunks(3));
+        List<String> hunks = DiffScanner.splitHunks(change.getDiff());
+        int header = TokenUtils.countTokens(PromptWriter.writeHeader(change));
+        int share = header + TokenUtils.countTokens(hunks.get(0)) + TokenUtils.countTokens(hunks.get(1)) + 1;
+
+        ChangeInfo trimmed = TokenBudgetAllocator.trim(change, share);
+        assertEquals(hunks.get(0) + hunks.get(1) + "...（省略1个diff块）\n", trimmed.getDiff());
+        assertEquals(change.getNewPath(), trimmed.getNewPath());
+        assertEquals(change.getAdditions(), trimmed.getAdditions());
+    }
+
+    @Test
+    void trimTruncatesOversizedFirstHunkByLine() {
+        ChangeInfo change = change("src/Main.java", hunks(2));
+        int header = TokenUtils.countTokens(PromptWriter.writeHeader(change));
+        ChangeInfo trimmed = TokenBudgetAllocator.trim(change, header + 20);
+        assertTrue(trimmed.getDiff().startsWith("@@ -1,"));
+        assertTrue(trimmed.getDiff().contains("...（该diff块超出预算，其余行已省略）\n...（省略1个diff块）\n"));
+    }
+
+    @Test
+    void trimReturnsNullWhenShareDoesNotCoverHeader() {
+        ChangeInfo change = change("src/Main.java", hunks(2));
+        assertNull(TokenBudgetAllocator.trim(change, 1));
+    }
+
+    @Test
+    void droppedFileSharesGoToRemainingFiles() {
+        // 文档权重低，份额不足REVIEW_BUDGET_MIN_FILE_TOKENS被省略，其份额全部分给源码文件
+        ChangeInfo source = change("src/Main.java", hunks(60));
+        ChangeInfo doc = change("README.md", hunks(60));
+        int budget = 600;
+        int[] tokens = {TokenUtils.countTokens(source), TokenUtils.countTokens(doc)};
+        int initialShare = TokenBudgetAllocator.share(tokens, new double[]{1 + Math.log1p(120), 0.3 * (1 + Math.log1p(120))}, budget)[0];
+
+        List<ChangeInfo> result = TokenBudgetAllocator.allocate(List.of(source, doc), budget);
+        assertEquals(1, result.size());
+        assertEquals("src/Main.java", result.get(0).getNewPath());
+        int kept = TokenUtils.countTokens(result.get(0));
+        assertTrue(kept > initialShare, "kept " + kept + " tokens, initial share " + initialShare);
+        assertFalse(kept > budget + 20, "kept " + kept + " tokens, budget " + budget);
+    }
+
+    private static ChangeInfo change(String path, String diff) {
+        ChangeInfo change = new ChangeInfo();
+        change.setNewPath(path);
+        change.setDiff(diff);
+        DiffScanner.Result scan = DiffScanner.scan(diff);
+        change.setAdditions(scan.getAdditions());
+        change.setDeletions(scan.getDeletions());
+        return change;
+    }
+
+    private static String hunks(int count) {
+        StringBuilder diff = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            int line = i * 10 + 1;
+            diff.append("@@ -").append(line).append(",2 +").append(line).append(",2 @@\n")
+                    .append("-int value").append(i).append(" = compute(").append(i).append(");\n")
+                    .append("+long value").append(i).append(" = computeChecked(").append(i).append(", limit);\n");
+        }
+        return diff.toString();
+    }
+}
@@ -0,0 +1,112 @@
+package com.code.review.utils;
+
+import com.knuddels.jtokkit.api.EncodingType;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.config.YamlPropertiesFactoryBean;
+import org.springframework.context.support.StaticApplicationContext;
+import org.springframework.core.io.ClassPathResource;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 估算值与 BPE 精确分词结果的对比
+ */
+class TokenEstimatorTest {
+
+    private static final double DEFAULT_MARGIN = 0.3;
+
+    private static final String CODE = """
+            diff --git a/src/main/java/com/code/review/service/ReviewService.java b/src/main/java/com/code/review/service/ReviewService.java
+            @@ -12,7 +12,9 @@ public class ReviewService {
+                 private final Map<String, List<ChangeInfo>> pending = new ConcurrentHashMap<>();
+            -    public void submit(String projectId, List<ChangeInfo> changes) {
+            -        pending.computeIfAbsent(projectId, k -> new ArrayList<>()).addAll(changes);
+            +    public void submit(String projectId, List<ChangeInfo> changes, int maxTokens) {
+            +        if (changes == null || changes.isEmpty()) {
+            +            return;
+            +        }
+            +        pending.computeIfAbsent(projectId, k -> new CopyOnWriteArrayList<>()).addAll(changes);
+                 }
+                 for (int i = 0; i < items.length; i++) {
+                     total += items[i].getSize() * 2 + offset;
+                 }
+            """;
+
+    private static final String CJK = """
+            本次提交对代码审查服务进行了重构，主要修改了评审任务的提交流程。
+            变更较大时按文件拆分为多个部分分别审查，再合并为一份完整的报告。
+            建议在提交前检查空指针异常，并补充必要的单元测试，保证功能的正确性与稳定性。
+            """;
+
+    private static final String MIXED = """
+            ### 问题1：ReviewService.submit 未校验参数
+            - 文件：src/main/java/com/code/review/service/ReviewService.java
+            - 描述：当 changes 为 null 时调用 addAll 会抛出 NullPointerException。
+            - 建议：在方法开头增加 `if (changes == null) return;`，并使用 CopyOnWriteArrayList 保证线程安全。
+            总分:85分
+            """;
+
+    private static Tokenizer tokenizer;
+
+    @BeforeAll
+    static void setUp() {
+        StaticApplicationContext context = new StaticApplicationContext();
+        context.refresh();
+        new SpringUtils().setApplicationContext(context);
+        tokenizer = new BpeTokenizer(EncodingType.O200K_BASE, 1);
+    }
+
+    private static Map<String, String> samples() {
+        Map<String, String> samples = new LinkedHashMap<>();
+        samples.put("code", CODE);
+        samples.put("cjk", CJK);
+        samples.put("mixed", MIXED);
+        samples.put("large", CODE.repeat(20) + CJK.repeat(20) + MIXED.repeat(20));
+        return samples;
+    }
+
+    @Test
+    void estimateWithinMarginOfExactCount() {
+        for (Map.Entry<String, String> sample : samples().entrySet()) {
+            int exact = tokenizer.countTokens(sample.getValue());
+            int estimated = TokenEstimator.estimate(sample.getValue(), tokenizer.getCjkTokensPerChar());
+            double error = Math.abs(estimated - exact) / (double) exact;
+            assertTrue(error <= DEFAULT_MARGIN, sample.getKey() + ": exact=" + exact + ", estimated=" + estimated);
+        }
+    }
+
+    @Test
+    void verdictNeverContradictsExactCount() {
+        for (Map.Entry<String, String> sample : samples().entrySet()) {
+            int exact = tokenizer.countTokens(sample.getValue());
+            int estimated = TokenEstimator.estimate(sample.getValue(), tokenizer.getCjkTokensPerChar());
+            for (int maxTokens = exact / 2; maxTokens <= exact * 2; maxTokens++) {
+                TokenEstimator.Verdict verdict = TokenEstimator.check(estimated, maxTokens);
+                if (verdict == TokenEstimator.Verdict.WITHIN) {
+                    assertTrue(exact <= maxTokens, sample.getKey() + ": WITHIN " + maxTokens + " but exact=" + exact);
+                } else if (verdict == TokenEstimator.Verdict.EXCEEDS) {
+                    assertTrue(exact > maxTokens, sample.getKey() + ": EXCEEDS " + maxTokens + " but exact=" + exact);
+                }
+            }
+        }
+    }
+
+    @Test
+    void defaultMargin() {
+        assertEquals(TokenEstimator.Verdict.WITHIN, TokenEstimator.check(100, 131));
+        assertEquals(TokenEstimator.Verdict.UNCERTAIN, TokenEstimator.check(100, 129));
+        assertEquals(TokenEstimator.Verdict.UNCERTAIN, TokenEstimator.check(100, 71));
+        assertEquals(TokenEstimator.Verdict.EXCEEDS, TokenEstimator.check(100, 69));
+
+        YamlPropertiesFactoryBean yaml = new YamlPropertiesFactoryBean();
+        yaml.setResources(new ClassPathResource("application.yml"));
+        Properties properties = yaml.getObject();
+        assertEquals(DEFAULT_MARGIN, Double.parseDouble(properties.getProperty("TOKEN_ESTIMATE_MARGIN")));
+    }
+}